@@ -0,0 +1,83 @@
+from graph_parser import parse_jointjs_graph
+from sage.all import *
+import contextlib
+import importlib.util
+import json
+import logging
+import signal
+import sys
+
+# Long-lived variant of main.py: Sage is imported once, afterwards evaluation requests are read line by line from
+# stdin. Each request is a JSON object {"id": ..., "answer": ..., "graphPath": ...}, each response is written as a
+# single JSON line {"id": ..., "correct": true|false} to stdout. If the evaluation fails, the response additionally
+# contains an "error" message and "correct" is false. Requests may contain a "cpuTimeSeconds" limit, evaluations
+# exceeding it are aborted and answered with "timedOut": true.
+
+instructor_evaluation_dir = "/sage-evaluation/"
+instructor_evaluation_path = instructor_evaluation_dir + "instructor_evaluation.py"
+default_graph_path = instructor_evaluation_dir + "graph.json"
+
+
+def load_instructor_evaluation():
+    spec = importlib.util.spec_from_file_location("instructor_evaluation", instructor_evaluation_path)
+    module = importlib.util.module_from_spec(spec)
+    spec.loader.exec_module(module)
+    return module.instructor_evaluation
+
+
+def unload_instructor_modules():
+    # only instructor code is reloaded for every request, as the source files may differ between requests. Modules
+    # that Sage imports lazily stay loaded, removing them would undo the warm start and can break Cython extensions
+    for name, module in list(sys.modules.items()):
+        module_file = getattr(module, "__file__", None) or ""
+        if name == "instructor_evaluation" or module_file.startswith(instructor_evaluation_dir):
+            del sys.modules[name]
+
+
+class CpuTimeExceeded(Exception):
+    pass
+
+
+def on_cpu_time_exceeded(signum, frame):
+    raise CpuTimeExceeded("CPU time limit exceeded")
+
+
+def evaluate(request):
+    graph = parse_jointjs_graph(request.get("graphPath") or default_graph_path)
+    instructor_evaluation = load_instructor_evaluation()
+    return bool(instructor_evaluation(graph, request["answer"]))
+
+
+def main():
+    protocol_out = sys.stdout
+    # the profiling timer counts the CPU time of the daemon, it is armed for the duration of each evaluation
+    signal.signal(signal.SIGPROF, on_cpu_time_exceeded)
+    logging.info("Evaluation daemon ready")
+    for line in sys.stdin:
+        if not line.strip():
+            continue
+        request = json.loads(line)
+        response = {"id": request.get("id")}
+        try:
+            signal.setitimer(signal.ITIMER_PROF, float(request.get("cpuTimeSeconds") or 0))
+            # output of instructor code must not interfere with the protocol
+            with contextlib.redirect_stdout(sys.stderr):
+                response["correct"] = evaluate(request)
+        except CpuTimeExceeded as e:
+            logging.warning("Evaluation exceeded CPU time limit")
+            response["correct"] = False
+            response["timedOut"] = True
+            response["error"] = str(e)
+        except Exception as e:
+            logging.exception("Evaluation failed")
+            response["correct"] = False
+            response["error"] = str(e)
+        finally:
+            signal.setitimer(signal.ITIMER_PROF, 0)
+            unload_instructor_modules()
+        protocol_out.write(json.dumps(response) + "\n")
+        protocol_out.flush()
+
+
+if __name__ == '__main__':
+    main()
@@ -1,12 +1,23 @@
 from graph_parser import parse_jointjs_graph
 from sage.all import *
 import argparse
+import contextlib
+import json
 import logging
+import signal
+import sys
 
 from instructor_evaluation import instructor_evaluation
 
+# Evaluates a single answer given as argument and exits with return code 0 if it is correct, 1 otherwise.
+# With --batch, a JSON file {"answers": [...], "cpuTimeSeconds": ..., "timeoutSeconds": ...} is evaluated instead, so
+# that Sage is imported and the graph is parsed once for many answers. For each answer a single JSON line
+# {"index": ..., "correct": ...} is written to stdout, in the order of the answers. Failed evaluations additionally
+# contain an "error" message, evaluations exceeding the CPU time or wall-clock limit per answer are answered with
+# "timedOut": true. The return code is 0 once all answers have been answered.
+
 parser = argparse.ArgumentParser()
-parser.add_argument("user_answer", type=str, help="Answer provided by the user")
+parser.add_argument("--batch", type=str, help="Path of a JSON file containing the answers to evaluate")
 
 json_path = "/sage-evaluation/graph.json"
 # for debugging purposes
@@ -16,11 +27,68 @@ graph = parse_jointjs_graph("%s" % json_path)
 logging.info("Parsed graph successfully")
 
 logging.info("Parsing student answer")
-args = parser.parse_args()
-user_answer = args.user_answer
+# the answer is taken verbatim, like the daemon receives it, so answers starting with a dash aren't parsed as options
+if len(sys.argv) == 3 and sys.argv[1] == "--batch":
+    args = parser.parse_args()
+    user_answer = ""
+else:
+    args = argparse.Namespace(batch=None)
+    user_answer = sys.argv[1] if len(sys.argv) > 1 else ""
 logging.info("Parsed student answer successfully")
 
+
+class TimeLimitExceeded(Exception):
+    pass
+
+
+def on_cpu_time_exceeded(signum, frame):
+    raise TimeLimitExceeded("CPU time limit exceeded")
+
+
+def on_wall_clock_time_exceeded(signum, frame):
+    raise TimeLimitExceeded("Wall-clock time limit exceeded")
+
+
+def evaluate_batch(batch_path):
+    with open(batch_path) as batch_file:
+        batch = json.load(batch_file)
+    cpu_time_seconds = float(batch.get("cpuTimeSeconds") or 0)
+    timeout_seconds = float(batch.get("timeoutSeconds") or 0)
+    protocol_out = sys.stdout
+    # the profiling timer counts the CPU time of this process, the real timer catches answers that block without
+    # using CPU time, both are armed for the duration of each evaluation
+    signal.signal(signal.SIGPROF, on_cpu_time_exceeded)
+    signal.signal(signal.SIGALRM, on_wall_clock_time_exceeded)
+    for index, answer in enumerate(batch["answers"]):
+        response = {"index": index}
+        try:
+            signal.setitimer(signal.ITIMER_PROF, cpu_time_seconds)
+            signal.setitimer(signal.ITIMER_REAL, timeout_seconds)
+            # output of instructor code must not interfere with the protocol
+            with contextlib.redirect_stdout(sys.stderr):
+                response["correct"] = bool(instructor_evaluation(graph, answer))
+        except TimeLimitExceeded as e:
+            logging.warning(f"Evaluation of answer {index} exceeded its time limit: {e}")
+            response["correct"] = False
+            response["timedOut"] = True
+            response["error"] = str(e)
+        except Exception as e:
+            logging.exception(f"Evaluation of answer {index} failed")
+            response["correct"] = False
+            response["error"] = str(e)
+        finally:
+            signal.setitimer(signal.ITIMER_PROF, 0)
+            signal.setitimer(signal.ITIMER_REAL, 0)
+        protocol_out.write(json.dumps(response) + "\n")
+        protocol_out.flush()
+
+
 if __name__ == '__main__':
+    if args.batch:
+        logging.info("Beginning batch evaluation")
+        evaluate_batch(args.batch)
+        sys.exit(0)
+
     # evaluation code here
     # example: count edges:
     logging.info("Beginning evaluation")
@@ -31,5 +99,3 @@ if __name__ == '__main__':
     else:
         logging.info("Student answer incorrect. Exiting with return code 1")
         sys.exit(1)
-
-
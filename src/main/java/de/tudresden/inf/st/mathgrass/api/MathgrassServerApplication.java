@@ -9,11 +9,8 @@ import org.apache.logging.log4j.Logger;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
-import org.springframework.web.servlet.config.annotation.EnableWebMvc;
-import org.springframework.web.servlet.view.InternalResourceViewResolver;
 
 @SpringBootApplication
-@EnableWebMvc
 public class MathgrassServerApplication {
     /**
      * Logger.
@@ -27,11 +24,6 @@ public class MathgrassServerApplication {
 
     }
 
-    @Bean
-    public InternalResourceViewResolver defaultViewResolver() {
-        return new InternalResourceViewResolver();
-    }
-
     @Bean
     public DockerClient dockerClient() {
         var config = DefaultDockerClientConfig.createDefaultConfigBuilder()
@@ -1,6 +1,7 @@
 package de.tudresden.inf.st.mathgrass.api.common;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
@@ -52,6 +53,29 @@ public abstract class AbstractApiElement {
         throw new ResponseStatusException(HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Return a 'Conflict' response.
+     *
+     * @return Response
+     * @param <T> type of entity
+     */
+    protected <T>ResponseEntity<T> conflict() {
+        throw new ResponseStatusException(HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Return a 'Service Unavailable' response asking the client to retry later.
+     *
+     * @param retryAfterSeconds number of seconds after which the request should be retried
+     * @return Response
+     * @param <T> type of entity
+     */
+    protected <T>ResponseEntity<T> serviceUnavailable(long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .build();
+    }
+
     /**
      * Throw a {@link ResponseStatusException} notifying about forbidden actions.
      */
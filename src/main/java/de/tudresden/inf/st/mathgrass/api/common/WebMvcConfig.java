@@ -0,0 +1,20 @@
+package de.tudresden.inf.st.mathgrass.api.common;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.view.InternalResourceViewResolver;
+
+/**
+ * This class configures Spring MVC for the REST API. It is skipped on headless nodes that only evaluate answers.
+ */
+@Configuration
+@ConditionalOnWebApplication
+@EnableWebMvc
+public class WebMvcConfig {
+    @Bean
+    public InternalResourceViewResolver defaultViewResolver() {
+        return new InternalResourceViewResolver();
+    }
+}
@@ -21,7 +21,7 @@ import java.util.List;
 /**
  * This class fills up the repositories with generated demo data.
  */
-@Profile("demodata & sage-evaluator")
+@Profile("demodata & sage-evaluator & !evaluation-worker")
 @Component
 public class SageTaskDemoDataProvider {
 
@@ -18,7 +18,7 @@ import java.util.List;
 /**
  * This class fills up the repositories with generated demo data.
  */
-@Profile("demodata")
+@Profile("demodata & !evaluation-worker")
 @Component
 public class StaticTaskDemoDataProvider {
 
@@ -0,0 +1,121 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.snapshot.EvaluationSnapshotCache;
+import de.tudresden.inf.st.mathgrass.api.evaluator.staging.GraphPayloadCache;
+import de.tudresden.inf.st.mathgrass.api.evaluator.verdict.VerdictCache;
+import de.tudresden.inf.st.mathgrass.api.events.CustomEventBus;
+import de.tudresden.inf.st.mathgrass.api.events.EvaluationCachesInvalidatedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * This class invalidates all cached evaluation state of updated tasks and graphs, i.e., their snapshots, serialized
+ * graphs and verdicts.
+ *
+ * <p>
+ * Besides the caches of this node, an {@link EvaluationCachesInvalidatedEvent} is posted once the update has been
+ * committed, so that the caches of other nodes evaluating answers can be invalidated as well.
+ */
+@Component
+public class EvaluationCacheInvalidator {
+    /**
+     * Cache of evaluation snapshots.
+     */
+    private final EvaluationSnapshotCache snapshotCache;
+
+    /**
+     * Cache of serialized graphs.
+     */
+    private final GraphPayloadCache graphPayloadCache;
+
+    /**
+     * Cache of verdicts of dynamic answers.
+     */
+    private final VerdictCache verdictCache;
+
+    /**
+     * Event bus.
+     */
+    private final CustomEventBus eventBus;
+
+    /**
+     * Constructor.
+     *
+     * @param snapshotCache evaluation snapshot cache
+     * @param graphPayloadCache graph payload cache
+     * @param verdictCache verdict cache
+     * @param eventBus event bus
+     */
+    public EvaluationCacheInvalidator(EvaluationSnapshotCache snapshotCache, GraphPayloadCache graphPayloadCache,
+                                      VerdictCache verdictCache, CustomEventBus eventBus) {
+        this.snapshotCache = snapshotCache;
+        this.graphPayloadCache = graphPayloadCache;
+        this.verdictCache = verdictCache;
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Invalidate the cached evaluation state of an updated task on all nodes.
+     *
+     * @param taskId ID of task
+     */
+    public void invalidateTask(Long taskId) {
+        invalidateTaskLocally(taskId);
+        postAfterCommit(new EvaluationCachesInvalidatedEvent(taskId, null));
+    }
+
+    /**
+     * Invalidate the cached evaluation state of an updated graph on all nodes.
+     *
+     * @param graphId ID of graph
+     */
+    public void invalidateGraph(Long graphId) {
+        invalidateGraphLocally(graphId);
+        postAfterCommit(new EvaluationCachesInvalidatedEvent(null, graphId));
+    }
+
+    /**
+     * Invalidate the cached evaluation state of a task on this node.
+     *
+     * @param taskId ID of task
+     */
+    public void invalidateTaskLocally(Long taskId) {
+        snapshotCache.invalidateTask(taskId);
+        verdictCache.invalidateTask(taskId);
+    }
+
+    /**
+     * Invalidate the cached evaluation state of a graph on this node.
+     *
+     * @param graphId ID of graph
+     */
+    public void invalidateGraphLocally(Long graphId) {
+        snapshotCache.invalidateGraph(graphId);
+        graphPayloadCache.invalidate(graphId);
+        verdictCache.invalidateGraph(graphId);
+    }
+
+    /**
+     * Invalidate all cached evaluation state on this node, e.g., after invalidations of other nodes might have been
+     * missed.
+     */
+    public void invalidateAllLocally() {
+        snapshotCache.invalidateAll();
+        graphPayloadCache.invalidateAll();
+        verdictCache.invalidateAll();
+    }
+
+    private void postAfterCommit(EvaluationCachesInvalidatedEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eventBus.post(event);
+                }
+            });
+        } else {
+            eventBus.post(event);
+        }
+    }
+}
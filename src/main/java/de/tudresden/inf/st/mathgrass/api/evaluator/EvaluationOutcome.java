@@ -0,0 +1,50 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator;
+
+/**
+ * Outcome of the evaluation of an answer.
+ *
+ * @param answerCorrect true if the answer is correct
+ * @param executorMillis number of milliseconds an executor ran per answer to evaluate it, negative if no executor ran,
+ * e.g., because the verdict has been cached or the answer has been evaluated in-process
+ */
+public record EvaluationOutcome(boolean answerCorrect, long executorMillis) {
+    /**
+     * Outcome of correct answers that have been evaluated without running an executor.
+     */
+    public static final EvaluationOutcome CORRECT = new EvaluationOutcome(true, -1);
+
+    /**
+     * Outcome of incorrect answers that have been evaluated without running an executor.
+     */
+    public static final EvaluationOutcome INCORRECT = new EvaluationOutcome(false, -1);
+
+    /**
+     * Get the outcome of a verdict that has been determined without running an executor.
+     *
+     * @param answerCorrect true if the answer is correct
+     * @return outcome
+     */
+    public static EvaluationOutcome of(boolean answerCorrect) {
+        return answerCorrect ? CORRECT : INCORRECT;
+    }
+
+    /**
+     * Get the outcome of a verdict of an executor.
+     *
+     * @param answerCorrect true if the answer is correct
+     * @param executorMillis number of milliseconds the executor ran per answer
+     * @return outcome
+     */
+    public static EvaluationOutcome ofExecutorRun(boolean answerCorrect, long executorMillis) {
+        return new EvaluationOutcome(answerCorrect, Math.max(executorMillis, 0));
+    }
+
+    /**
+     * Whether an executor ran to evaluate the answer.
+     *
+     * @return true if the verdict is the one of an executor
+     */
+    public boolean executorRan() {
+        return executorMillis >= 0;
+    }
+}
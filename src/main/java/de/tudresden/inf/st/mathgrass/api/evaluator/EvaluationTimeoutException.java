@@ -0,0 +1,15 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator;
+
+/**
+ * This exception is thrown if an evaluation exceeded its wall-clock or CPU deadline and has been killed.
+ */
+public class EvaluationTimeoutException extends RuntimeException {
+    /**
+     * Constructor.
+     *
+     * @param message message
+     */
+    public EvaluationTimeoutException(String message) {
+        super(message);
+    }
+}
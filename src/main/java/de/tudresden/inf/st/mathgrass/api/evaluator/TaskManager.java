@@ -1,40 +1,105 @@
 package de.tudresden.inf.st.mathgrass.api.evaluator;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.*;
 import com.github.dockerjava.api.model.*;
 import com.github.dockerjava.core.command.LogContainerResultCallback;
+import de.tudresden.inf.st.mathgrass.api.evaluator.daemon.EvaluationDaemon;
+import de.tudresden.inf.st.mathgrass.api.evaluator.docker.ContainerEventStream;
 import de.tudresden.inf.st.mathgrass.api.evaluator.executor.Executor;
-import de.tudresden.inf.st.mathgrass.api.evaluator.executor.SourceFile;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.pool.ContainerPool;
+import de.tudresden.inf.st.mathgrass.api.evaluator.pool.PooledContainer;
+import de.tudresden.inf.st.mathgrass.api.evaluator.snapshot.EvaluationSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.staging.GraphPayloadCache;
+import de.tudresden.inf.st.mathgrass.api.evaluator.staging.SourceFileStore;
+import de.tudresden.inf.st.mathgrass.api.evaluator.staging.StagedSources;
+import de.tudresden.inf.st.mathgrass.api.evaluator.staging.StagingArchive;
 import de.tudresden.inf.st.mathgrass.api.graph.Graph;
-import de.tudresden.inf.st.mathgrass.api.graph.GraphTransformer;
-import de.tudresden.inf.st.mathgrass.api.model.GraphDTO;
 import de.tudresden.inf.st.mathgrass.api.task.Task;
 import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class TaskManager {
     private final DockerClient dockerClient;
     private final TaskRepository taskRepository;
+    private final ContainerPool containerPool;
+    private final GraphPayloadCache graphPayloadCache;
+    private final SourceFileStore sourceFileStore;
+    private final ContainerEventStream containerEventStream;
     private static final Logger logger = LogManager.getLogger(TaskManager.class);
 
+    /**
+     * Exit code of a shell whose child process has been killed by SIGXCPU, i.e., exceeded its CPU time limit.
+     */
+    private static final long CPU_TIME_EXCEEDED_EXIT_CODE = 128 + 24;
+
+    /**
+     * Shell script setting the CPU time limit given as first argument before running the remaining arguments as
+     * command. The script is fixed, answers are only passed as arguments.
+     */
+    static final String CPU_TIME_LIMIT_SCRIPT = "ulimit -S -t \"$1\" || exit 1; shift; \"$@\"";
+
+    /**
+     * Path of the answers file of batch evaluations inside the container.
+     */
+    static final String BATCH_ANSWERS_PATH = "/tmp/mathgrass-batch.json";
+
+    /**
+     * Object mapper for batch evaluations.
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public TaskManager(TaskRepository taskRepository, DockerClient dockerClient) {
+    /**
+     * Max wall-clock time of an evaluation in seconds, if the executor doesn't define one.
+     */
+    @Value("${evaluation.defaultTimeoutSeconds:60}")
+    private long defaultTimeoutSeconds;
+
+    /**
+     * Max CPU time of an evaluation in seconds, if the executor doesn't define one. 0 disables the limit.
+     */
+    @Value("${evaluation.defaultCpuTimeSeconds:30}")
+    private long defaultCpuTimeSeconds;
+
+    /**
+     * Executor removing containers and returning them to the pool after their evaluation completed.
+     */
+    private final ExecutorService cleanupExecutor = Executors.newFixedThreadPool(2);
+
+    public TaskManager(TaskRepository taskRepository, DockerClient dockerClient, ContainerPool containerPool,
+                       GraphPayloadCache graphPayloadCache, SourceFileStore sourceFileStore,
+                       ContainerEventStream containerEventStream) {
         this.taskRepository = taskRepository;
         this.dockerClient = dockerClient;
+        this.containerPool = containerPool;
+        this.graphPayloadCache = graphPayloadCache;
+        this.sourceFileStore = sourceFileStore;
+        this.containerEventStream = containerEventStream;
     }
 
     /**
@@ -47,108 +112,555 @@ public class TaskManager {
             throw new IllegalArgumentException("Task must be present and its Graph must not be null");
         }
 
-        Graph graph = graphOpt.get().getGraph();
+        return runTaskSynchronously(graphOpt.get(), answer, executor);
+    }
+
+    /**
+     * Runs a task that has already been loaded synchronously, by waiting for
+     * {@link #runTaskAsync(Task, String, Executor)}. Returns true if the evaluation was successful (i.e., student answer
+     * is correct), false otherwise
+     */
+    public boolean runTaskSynchronously(Task task, String answer, Executor executor) throws IOException {
+        return runTaskAsync(task, answer, executor).join();
+    }
 
-        // set up temp files
-        List<Path> tempPaths = new ArrayList<>();
-        List<Bind> binds = new ArrayList<>();
-        String tempFolder = "." + File.separator + "temp" + File.separator;
-        // copy Graph
-        Path tempGraphPath = Path.of(tempFolder + UUID.randomUUID()).toAbsolutePath();
-        createTempGraphFile(graph, tempGraphPath);
-        tempPaths.add(tempGraphPath);
-        // bind graph
-        Bind graphTempFileBind = new Bind(tempGraphPath.toString(), new Volume(executor.getGraphPath()), AccessMode.ro);
-        binds.add(graphTempFileBind);
+    /**
+     * Runs a task that has already been loaded asynchronously. The inputs are copied and the evaluation is started
+     * on the calling thread, the returned future is completed by the Docker event stream once the evaluation exited.
+     * Cancelling the future kills the evaluation.
+     *
+     * @param task task
+     * @param answer student answer
+     * @param executor executor
+     * @return future that completes with true if the answer is correct, or exceptionally with an
+     * {@link EvaluationTimeoutException} if the evaluation exceeded its deadline
+     */
+    public CompletableFuture<Boolean> runTaskAsync(Task task, String answer, Executor executor) throws IOException {
+        return runTaskAsync(task.getGraph(), answer, executor);
+    }
+
+    /**
+     * Runs an evaluation on a graph asynchronously, see {@link #runTaskAsync(Task, String, Executor)}. The graph and
+     * the executor are only read, so they may be detached as long as they are initialized.
+     *
+     * @param graph graph of task
+     * @param answer student answer
+     * @param executor executor
+     * @return future that completes with true if the answer is correct
+     */
+    public CompletableFuture<Boolean> runTaskAsync(Graph graph, String answer, Executor executor)
+            throws IOException {
+        return runAsync(ByteBuffer.wrap(graphPayloadCache.getPayload(graph)), answer, ExecutorSnapshot.of(executor));
+    }
 
-        // copy source files
-        for (SourceFile sourceFile : executor.getSourceFiles()) {
-            Path sourceFilePath = Path.of(tempFolder + UUID.randomUUID()).toAbsolutePath();
-            Files.write(sourceFilePath, sourceFile.getContents().getBytes());
-            Bind sourceFileFind = new Bind(sourceFilePath.toString(), new Volume(sourceFile.getPath()), AccessMode.ro);
-            tempPaths.add(sourceFilePath);
-            binds.add(sourceFileFind);
+    /**
+     * Runs an evaluation of a task snapshot by its executor asynchronously, see
+     * {@link #runTaskAsync(Task, String, Executor)}. The graph has already been serialized with the snapshot.
+     *
+     * @param snapshot snapshot of task
+     * @param answer student answer
+     * @return future that completes with true if the answer is correct
+     * @throws IllegalArgumentException if the task has no graph or no executor
+     */
+    public CompletableFuture<Boolean> runTaskAsync(EvaluationSnapshot snapshot, String answer) throws IOException {
+        return runAsync(requireGraphPayload(snapshot), answer, requireExecutor(snapshot));
+    }
+
+    /**
+     * Runs the evaluations of many answers to a task snapshot asynchronously. If the executor has a batch entrypoint,
+     * all answers are evaluated by a single run of it in a fresh container: the answers are copied into the container
+     * as JSON file {@code {"answers": [...], "cpuTimeSeconds": ..., "timeoutSeconds": ...}} at
+     * {@value #BATCH_ANSWERS_PATH}, whose path is appended to the batch entrypoint, and the entrypoint writes one JSON
+     * line {@code {"index": ..., "correct": ...}} per answer to stdout. The deadlines of the container grow with the
+     * number of answers, the CPU time and wall-clock limits per answer are applied by the entrypoint, and callers
+     * bound the number of answers per batch. Cancelling all futures kills the container. Executors without batch
+     * entrypoint evaluate every answer on its own.
+     *
+     * @param snapshot snapshot of task
+     * @param answers student answers
+     * @return futures of the verdicts, in the order of the answers
+     * @throws IllegalArgumentException if the task has no graph or no executor
+     */
+    public List<CompletableFuture<Boolean>> runBatchAsync(EvaluationSnapshot snapshot, List<String> answers)
+            throws IOException {
+        ByteBuffer graphPayload = requireGraphPayload(snapshot);
+        ExecutorSnapshot executor = requireExecutor(snapshot);
+        if (executor.batchEntrypoint() == null || answers.size() < 2) {
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (String answer : answers) {
+                try {
+                    results.add(runAsync(graphPayload, answer, executor));
+                } catch (IOException | RuntimeException e) {
+                    results.add(CompletableFuture.failedFuture(e));
+                }
+            }
+            return results;
         }
 
-        // define host config with binds
-        HostConfig hostConfig = new HostConfig();
-        hostConfig.withBinds(binds);
+        byte[] batch = objectMapper.writeValueAsBytes(Map.of(
+                "answers", answers,
+                "cpuTimeSeconds", getCpuTimeSeconds(executor),
+                "timeoutSeconds", getTimeoutSeconds(executor)));
+        StagedSources sources = sourceFileStore.acquire(executor);
+        try {
+            StagingArchive inputs = new StagingArchive()
+                    .add(executor.graphPath(), graphPayload)
+                    .add(BATCH_ANSWERS_PATH, batch)
+                    .add(sources);
+            return createRunAndRemoveBatchContainer(answers.size(), executor, inputs);
+        } finally {
+            sourceFileStore.release(sources);
+        }
+    }
+
+    private static ByteBuffer requireGraphPayload(EvaluationSnapshot snapshot) {
+        ByteBuffer graphPayload = snapshot.graphPayload();
+        if (graphPayload == null) {
+            throw new IllegalArgumentException("Task with ID " + snapshot.taskId() + " has no graph");
+        }
+        return graphPayload;
+    }
 
-        //pullImage(executor);
+    private static ExecutorSnapshot requireExecutor(EvaluationSnapshot snapshot) {
+        if (snapshot.executor() == null) {
+            throw new IllegalArgumentException("Task with ID " + snapshot.taskId() + " has no executor");
+        }
+        return snapshot.executor();
+    }
 
-        boolean result = createRunAndRemoveContainer(answer, executor, hostConfig);
-        // remove temp files in separate thread
-        new Thread(() -> removeTempFiles(tempPaths)).start();
+    private CompletableFuture<Boolean> runAsync(ByteBuffer graphPayload, String answer, ExecutorSnapshot executor)
+            throws IOException {
+        // source files are staged once per content hash, this evaluation holds a reference until they are copied
+        StagedSources sources = sourceFileStore.acquire(executor);
+        try {
+            // prefer a warm container of the pool, fall back to a fresh container running the one-shot entrypoint
+            // if the pool is disabled or exhausted
+            Optional<PooledContainer> pooledContainer =
+                    containerPool.acquire(executor.containerImage(), sources.getHash());
+            if (pooledContainer.isPresent()) {
+                return runInPooledContainer(pooledContainer.get(), answer, executor, graphPayload, sources);
+            }
+
+            //pullImage(executor);
+
+            // inputs are copied into the container before the evaluation starts
+            StagingArchive inputs = new StagingArchive()
+                    .add(executor.graphPath(), graphPayload)
+                    .add(sources);
+            return createRunAndRemoveContainer(answer, executor, inputs);
+        } finally {
+            sourceFileStore.release(sources);
+        }
+    }
+
+    /**
+     * Run the evaluation inside a pooled container. The graph and, unless they are already present, the source files
+     * are copied into the container, then the entrypoint of the executor is executed via {@code docker exec}, or the
+     * answer is sent to the evaluation daemon of the executor if it has one.
+     *
+     * @param container pooled container
+     * @param answer student answer
+     * @param executor executor
+     * @param graphPayload serialized graph
+     * @param sources staged source files of executor
+     * @return future of the verdict
+     */
+    private CompletableFuture<Boolean> runInPooledContainer(PooledContainer container, String answer,
+                                                            ExecutorSnapshot executor, ByteBuffer graphPayload,
+                                                            StagedSources sources) {
+        CompletableFuture<Boolean> result;
+        try {
+            String containerId = container.getContainerId();
+            StagingArchive inputs = new StagingArchive().add(executor.graphPath(), graphPayload);
+            boolean sourcesMissing = !container.hasStagedSources(sources.getHash());
+            if (sourcesMissing) {
+                inputs.add(sources);
+            }
+            inputs.copyToContainer(dockerClient, containerId);
+            if (sourcesMissing) {
+                containerPool.recordStagedSources(container, sources);
+            }
+
+            if (executor.daemonEntrypoint() != null) {
+                result = evaluateWithDaemon(container, answer, executor);
+            } else {
+                result = execEntrypoint(containerId, answer, executor);
+            }
+        } catch (RuntimeException e) {
+            containerPool.release(container, false);
+            throw e;
+        }
+
+        // unhealthy containers are removed, which also kills evaluations that exceeded their deadline or have been
+        // cancelled
+        result.whenCompleteAsync((verdict, error) -> containerPool.release(container, error == null),
+                cleanupExecutor);
+        return result;
+    }
+
+    /**
+     * Execute the custom entrypoint of an executor once inside a running container.
+     *
+     * @param containerId ID of running container
+     * @param answer student answer
+     * @param executor executor
+     * @return future of the verdict, completed exceptionally with an {@link EvaluationTimeoutException} if the
+     * entrypoint exceeded its wall-clock or CPU deadline
+     */
+    private CompletableFuture<Boolean> execEntrypoint(String containerId, String answer, ExecutorSnapshot executor) {
+        // the soft limit lets the process be killed by SIGXCPU, which is distinguishable from other failures. The
+        // limit is set by a fixed script that receives the command as arguments, the answer is never parsed by a shell
+        List<String> cmd = buildContainerCmd(answer, executor);
+        long cpuTimeSeconds = getCpuTimeSeconds(executor);
+        if (cpuTimeSeconds > 0) {
+            List<String> limitedCmd = new ArrayList<>(List.of("/bin/sh", "-c", CPU_TIME_LIMIT_SCRIPT, "sh",
+                    String.valueOf(cpuTimeSeconds)));
+            limitedCmd.addAll(cmd);
+            cmd = limitedCmd;
+        }
+
+        String execId;
+        try (ExecCreateCmd execCreateCmd = dockerClient.execCreateCmd(containerId)
+                .withCmd(cmd.toArray(String[]::new))) {
+            execId = execCreateCmd.exec().getId();
+        }
+        // the exit has to be awaited before the exec starts, otherwise its event might be missed
+        CompletableFuture<Long> exit = containerEventStream.awaitExecExit(containerId, execId);
+        try (ExecStartCmd execStartCmd = dockerClient.execStartCmd(execId).withDetach(true)) {
+            execStartCmd.exec(new ResultCallback.Adapter<Frame>()).awaitCompletion();
+        } catch (InterruptedException e) {
+            containerEventStream.forget(execId);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting evaluation in container " + containerId, e);
+        } catch (RuntimeException e) {
+            containerEventStream.forget(execId);
+            throw e;
+        }
+
+        CompletableFuture<Boolean> result = toVerdict(exit, "Evaluation in container " + containerId, executor);
+        result.whenComplete((verdict, error) -> containerEventStream.forget(execId));
         return result;
     }
 
-    private void createTempGraphFile(Graph graph, Path tempGraphPath) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        GraphTransformer transformer = new GraphTransformer();
-        GraphDTO graphDTO = transformer.toDto(graph);
-        File resultFile = new File(tempGraphPath.toAbsolutePath().toFile().toURI());
-        resultFile.getParentFile().mkdirs();
-        objectMapper.writeValue(resultFile, graphDTO);
+    /**
+     * Evaluate an answer with the evaluation daemon of an executor. The daemon is started inside the pooled
+     * container if it isn't running yet and is kept alive for later evaluations.
+     *
+     * @param container pooled container
+     * @param answer student answer
+     * @param executor executor with daemon entrypoint
+     * @return future of the verdict
+     */
+    private CompletableFuture<Boolean> evaluateWithDaemon(PooledContainer container, String answer,
+                                                          ExecutorSnapshot executor) {
+        EvaluationDaemon daemon = container.getDaemon();
+        if (daemon == null || !daemon.isAlive() || !daemon.getEntrypoint().equals(executor.daemonEntrypoint())) {
+            if (daemon != null) {
+                daemon.close();
+            }
+            daemon = EvaluationDaemon.start(dockerClient, container.getContainerId(), executor.daemonEntrypoint());
+            container.setDaemon(daemon);
+        }
+
+        long timeoutSeconds = getTimeoutSeconds(executor);
+        return daemon.evaluate(answer, executor.graphPath(), getCpuTimeSeconds(executor))
+                .orTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                .exceptionally(error -> {
+                    throw toEvaluationFailure(error, "Evaluation in daemon of container "
+                            + container.getContainerId() + " exceeded its deadline of " + timeoutSeconds + " seconds");
+                });
     }
 
-    private void removeTempFiles(List<Path> paths) {
-        paths.forEach(path -> {
-            try {
-                Files.deleteIfExists(path);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+    /**
+     * Map the exit code of an evaluation to its verdict, applying the deadline of the executor.
+     *
+     * @param exit future of exit code
+     * @param evaluation description of the evaluation for error messages
+     * @param executor executor
+     * @return future of the verdict
+     */
+    private CompletableFuture<Boolean> toVerdict(CompletableFuture<Long> exit, String evaluation,
+                                                 ExecutorSnapshot executor) {
+        long timeoutSeconds = getTimeoutSeconds(executor);
+        long cpuTimeSeconds = getCpuTimeSeconds(executor);
+        return exit.orTimeout(timeoutSeconds, TimeUnit.SECONDS).handle((exitCode, error) -> {
+            if (error != null) {
+                throw toEvaluationFailure(error,
+                        evaluation + " exceeded its deadline of " + timeoutSeconds + " seconds");
+            }
+            if (cpuTimeSeconds > 0 && Long.valueOf(CPU_TIME_EXCEEDED_EXIT_CODE).equals(exitCode)) {
+                throw new EvaluationTimeoutException(evaluation
+                        + " exceeded its CPU time limit of " + cpuTimeSeconds + " seconds");
             }
+            // prototyping: exit code == 0 implies answer is correct
+            return Long.valueOf(0).equals(exitCode);
         });
     }
 
+    /**
+     * Wrap the failure of an evaluation, turning an expired deadline into an {@link EvaluationTimeoutException}.
+     *
+     * @param error failure
+     * @param timeoutMessage message of the exception if the deadline expired
+     * @return wrapped failure
+     */
+    private static CompletionException toEvaluationFailure(Throwable error, String timeoutMessage) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            return new CompletionException(new EvaluationTimeoutException(timeoutMessage));
+        }
+        return new CompletionException(cause);
+    }
+
+    /**
+     * Get the max wall-clock time of evaluations of an executor.
+     *
+     * @param executor executor
+     * @return timeout in seconds
+     */
+    private long getTimeoutSeconds(ExecutorSnapshot executor) {
+        return executor.timeoutSeconds() == null ? defaultTimeoutSeconds : executor.timeoutSeconds();
+    }
+
+    /**
+     * Get the max CPU time of evaluations of an executor.
+     *
+     * @param executor executor
+     * @return CPU time in seconds, 0 if unlimited
+     */
+    private long getCpuTimeSeconds(ExecutorSnapshot executor) {
+        return executor.cpuTimeSeconds() == null ? defaultCpuTimeSeconds : executor.cpuTimeSeconds();
+    }
+
+    /**
+     * Build the command that is run inside the container: the words of the custom entrypoint of the executor
+     * followed by the student answer as a single, verbatim argument.
+     *
+     * @param answer student answer
+     * @param executor executor
+     * @return command as argument vector
+     */
+    static List<String> buildContainerCmd(String answer, ExecutorSnapshot executor) {
+        List<String> cmd = splitEntrypoint(executor.customEntrypoint());
+        if (answer != null && !answer.equals("")) {
+            cmd.add(answer);
+        }
+        return cmd;
+    }
+
+    /**
+     * Split an entrypoint of an executor into its words. Entrypoints are configured by evaluator plugins and
+     * instructors, they must not rely on shell syntax.
+     *
+     * @param entrypoint entrypoint
+     * @return words of entrypoint
+     */
+    private static List<String> splitEntrypoint(String entrypoint) {
+        List<String> words = new ArrayList<>();
+        if (entrypoint != null && !entrypoint.isBlank()) {
+            words.addAll(List.of(entrypoint.strip().split("\\s+")));
+        }
+        return words;
+    }
 
-    private boolean createRunAndRemoveContainer(String answer, Executor executor, HostConfig hostConfig) {
+    private CompletableFuture<Boolean> createRunAndRemoveContainer(String answer, ExecutorSnapshot executor,
+                                                                   StagingArchive inputs) {
         // append student answer as argument after entrypoint
-        String customEntrypoint = executor.getCustomEntrypoint();
-        String containerCmd = answer == null || answer.equals("") ? customEntrypoint : customEntrypoint + " " + answer;
+        StartedContainer container = createAndStartContainer(buildContainerCmd(answer, executor), executor,
+                getCpuTimeSeconds(executor), inputs);
+        String containerId = container.containerId();
+
+        CompletableFuture<Boolean> result = toVerdict(container.exit(), "Evaluation in container " + containerId,
+                executor);
+        // containers are removed off the evaluating thread, containers that didn't exit by themselves are killed
+        result.whenCompleteAsync((verdict, error) -> {
+            containerEventStream.forget(containerId);
+            if (error == null) {
+                logContainerOutput(containerId);
+                removeContainer(containerId);
+            } else {
+                killAndRemoveContainer(containerId);
+            }
+        }, cleanupExecutor);
+        return result;
+    }
 
-        try (CreateContainerCmd createContainerCmd = containerCmd == null || containerCmd.equals("") ?
-                dockerClient.createContainerCmd(executor.getContainerImage()).withHostConfig(hostConfig) :
-                dockerClient.createContainerCmd(executor.getContainerImage()).withCmd(containerCmd).withHostConfig(hostConfig)) {
-            CreateContainerResponse container = createContainerCmd.exec();
-            String containerId = container.getId();
-            // returns true if evaluation was successful, false if not
-            // might need some rework to catch errors
-            return startAndWaitForContainer(containerId);
+    /**
+     * Run a batch of answers in a fresh container, see {@link #runBatchAsync}.
+     *
+     * @param answerCount number of answers
+     * @param executor executor with batch entrypoint
+     * @param inputs inputs including the answers file
+     * @return futures of the verdicts, in the order of the answers
+     */
+    private List<CompletableFuture<Boolean>> createRunAndRemoveBatchContainer(int answerCount,
+                                                                             ExecutorSnapshot executor,
+                                                                             StagingArchive inputs) {
+        StartedContainer container = createAndStartContainer(
+                splitEntrypoint(executor.batchEntrypoint() + " " + BATCH_ANSWERS_PATH), executor,
+                getCpuTimeSeconds(executor) * answerCount, inputs);
+        String containerId = container.containerId();
+        long timeoutSeconds = getTimeoutSeconds(executor) * answerCount;
+
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < answerCount; i++) {
+            results.add(new CompletableFuture<>());
+        }
+        CompletableFuture<Long> exit = container.exit().orTimeout(timeoutSeconds, TimeUnit.SECONDS);
+        // the container is killed once no verdict is awaited anymore
+        for (CompletableFuture<Boolean> result : results) {
+            result.whenComplete((verdict, error) -> {
+                if (results.stream().allMatch(CompletableFuture::isCancelled)) {
+                    exit.cancel(false);
+                }
+            });
         }
+
+        // the output is read and the container removed off the thread receiving the exit
+        exit.whenCompleteAsync((exitCode, error) -> {
+            containerEventStream.forget(containerId);
+            if (error == null) {
+                completeBatch(containerId, exitCode, results);
+                removeContainer(containerId);
+            } else {
+                killAndRemoveContainer(containerId);
+                Throwable failure = toEvaluationFailure(error, "Batch evaluation in container " + containerId
+                        + " exceeded its deadline of " + timeoutSeconds + " seconds").getCause();
+                results.forEach(result -> result.completeExceptionally(failure));
+            }
+        }, cleanupExecutor);
+        return results;
     }
 
-    private boolean startAndWaitForContainer(String containerId) {
-        try (StartContainerCmd startContainerCmd = dockerClient.startContainerCmd(containerId)) {
-            startContainerCmd.exec();
-            return waitForContainerResultAndRemoveContainer(containerId);
+    /**
+     * Complete the verdicts of a batch from the lines written to stdout by the batch entrypoint. Answers without a
+     * line fail.
+     *
+     * @param containerId ID of exited container
+     * @param exitCode exit code of container
+     * @param results futures of the verdicts, in the order of the answers
+     */
+    private void completeBatch(String containerId, Long exitCode, List<CompletableFuture<Boolean>> results) {
+        try {
+            for (String line : readContainerOutput(containerId)) {
+                JsonNode response;
+                try {
+                    response = objectMapper.readTree(line);
+                } catch (JsonProcessingException e) {
+                    logger.debug("Container {}: {}", containerId, line);
+                    continue;
+                }
+                int index = response.path("index").asInt(-1);
+                if (index < 0 || index >= results.size()) {
+                    logger.debug("Container {}: {}", containerId, line);
+                    continue;
+                }
+                if (response.path("timedOut").asBoolean(false)) {
+                    results.get(index).completeExceptionally(new EvaluationTimeoutException("Evaluation of answer "
+                            + index + " in container " + containerId + " exceeded its CPU time limit"));
+                    continue;
+                }
+                if (response.hasNonNull("error")) {
+                    logger.info("Evaluation of answer {} in container {} failed: {}", index, containerId,
+                            response.get("error").asText());
+                }
+                results.get(index).complete(response.path("correct").asBoolean(false));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Couldn't read results of batch evaluation in container {}", containerId, e);
         }
+
+        RuntimeException failure = Long.valueOf(CPU_TIME_EXCEEDED_EXIT_CODE).equals(exitCode)
+                ? new EvaluationTimeoutException("Batch evaluation in container " + containerId
+                        + " exceeded its CPU time limit")
+                : new IllegalStateException("Batch evaluation in container " + containerId + " exited with code "
+                        + exitCode + " without answering");
+        results.forEach(result -> result.completeExceptionally(failure));
     }
 
-    private boolean waitForContainerResultAndRemoveContainer(String containerId) {
-        WaitContainerResultCallback callback = new WaitContainerResultCallback();
-        try (WaitContainerCmd waitContainerCmd = dockerClient.waitContainerCmd(containerId)) {
-            waitContainerCmd.exec(callback);
-            var containerStatusCodeOnExit = callback.awaitStatusCode();
-            logContainerOutput(containerId);
-            // prototyping: exit code == 0 implies answer is correct
-            // remove container in separate thread
-            new Thread(() -> removeContainer(containerId)).start();
-            return Integer.valueOf(0).equals(containerStatusCodeOnExit);
+    /**
+     * Read everything a container wrote to stdout.
+     *
+     * @param containerId ID of container
+     * @return lines written to stdout
+     */
+    private List<String> readContainerOutput(String containerId) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        LogContainerCmd logContainerCmd = dockerClient.logContainerCmd(containerId);
+        logContainerCmd.withStdOut(true);
+        try {
+            logContainerCmd.exec(new LogContainerResultCallback() {
+                @Override
+                public void onNext(Frame item) {
+                    output.writeBytes(item.getPayload());
+                }
+            }).awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading output of container " + containerId, e);
         }
+        return output.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    /**
+     * Create a container running a command of an executor, copy the inputs into it and start it.
+     *
+     * @param containerCmd command to run as argument vector, it replaces the entrypoint of the image so that no
+     *                     shell of the image parses the answer
+     * @param executor executor
+     * @param cpuTimeSeconds max CPU time of the container in seconds, 0 if unlimited
+     * @param inputs inputs of the evaluation
+     * @return started container
+     */
+    private StartedContainer createAndStartContainer(List<String> containerCmd, ExecutorSnapshot executor,
+                                                     long cpuTimeSeconds, StagingArchive inputs) {
+        String containerId;
+        try (CreateContainerCmd createContainerCmd = dockerClient.createContainerCmd(executor.containerImage())) {
+            if (!containerCmd.isEmpty()) {
+                createContainerCmd.withEntrypoint(containerCmd);
+            }
+            // processes exceeding the soft limit are killed by SIGXCPU, the hard limit catches those ignoring it
+            if (cpuTimeSeconds > 0) {
+                createContainerCmd.withHostConfig(HostConfig.newHostConfig()
+                        .withUlimits(List.of(new Ulimit("cpu", cpuTimeSeconds, cpuTimeSeconds + 1))));
+            }
+            containerId = createContainerCmd.exec().getId();
+        }
+        // inputs have to be in place before the container starts
+        try {
+            inputs.copyToContainer(dockerClient, containerId);
+        } catch (RuntimeException e) {
+            removeContainer(containerId);
+            throw e;
+        }
+
+        // the exit has to be awaited before the container starts, otherwise its event might be missed
+        CompletableFuture<Long> exit = containerEventStream.awaitContainerExit(containerId);
+        try (StartContainerCmd startContainerCmd = dockerClient.startContainerCmd(containerId)) {
+            startContainerCmd.exec();
+        } catch (RuntimeException e) {
+            containerEventStream.forget(containerId);
+            killAndRemoveContainer(containerId);
+            throw e;
+        }
+        return new StartedContainer(containerId, exit);
     }
 
     private void logContainerOutput(String containerId) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
         LogContainerCmd logContainerCmd = dockerClient.logContainerCmd(containerId);
         logContainerCmd.withStdOut(true).withStdErr(true);
         try {
             logContainerCmd.exec(new LogContainerResultCallback() {
                 @Override
                 public void onNext(Frame item) {
-
+                    logger.debug("Container {}: {}", containerId, item);
                 }
             }).awaitCompletion();
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             logger.error("Interrupted while fetching logs from container");
         }
     }
@@ -156,16 +668,41 @@ public class TaskManager {
     private void removeContainer(String containerId) {
         try (RemoveContainerCmd removeContainerCmd = dockerClient.removeContainerCmd(containerId)) {
             removeContainerCmd.exec();
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't remove container {}", containerId, e);
+        }
+    }
+
+    private void killAndRemoveContainer(String containerId) {
+        try (RemoveContainerCmd removeContainerCmd = dockerClient.removeContainerCmd(containerId).withForce(true)) {
+            removeContainerCmd.exec();
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't kill container {}", containerId, e);
         }
     }
 
-    private void pullImage(Executor executor) throws InterruptedException {
-        try (PullImageCmd pullImageCmd = dockerClient.pullImageCmd(executor.getContainerImage())) {
+    /**
+     * Stop cleaning up containers on shutdown.
+     */
+    @PreDestroy
+    private void shutdown() {
+        cleanupExecutor.shutdown();
+    }
+
+    private void pullImage(ExecutorSnapshot executor) throws InterruptedException {
+        try (PullImageCmd pullImageCmd = dockerClient.pullImageCmd(executor.containerImage())) {
             PullImageResultCallback pullImageResultCallback = new PullImageResultCallback();
             pullImageCmd.exec(pullImageResultCallback);
             pullImageResultCallback.awaitCompletion();
         }
     }
 
+    /**
+     * Container that has been started.
+     *
+     * @param containerId ID of container
+     * @param exit future of the exit code of the container
+     */
+    private record StartedContainer(String containerId, CompletableFuture<Long> exit) {
+    }
 }
-
@@ -0,0 +1,242 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.daemon;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.ExecCreateCmd;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationTimeoutException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents a long-lived evaluation process running inside a container.
+ *
+ * <p>
+ * Evaluators with expensive start-up (e.g., importing Sage) can run as a daemon that handles many evaluations. The
+ * daemon reads one JSON request per line from stdin, containing an {@code id}, the student {@code answer} and the
+ * {@code graphPath}, and answers with one JSON line per request on stdout, containing the {@code id} and whether the
+ * answer is {@code correct}. Failed evaluations additionally contain an {@code error} message, evaluations that
+ * exceeded the CPU time limit of their request are answered with {@code timedOut}.
+ */
+public class EvaluationDaemon implements Closeable {
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(EvaluationDaemon.class);
+
+    /**
+     * Object mapper for requests and responses.
+     */
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Entrypoint the daemon was started with.
+     */
+    private final String entrypoint;
+
+    /**
+     * Stdin of the daemon.
+     */
+    private final StdinPipe stdin = new StdinPipe();
+
+    /**
+     * Callback receiving the output of the daemon.
+     */
+    private final OutputCallback outputCallback = new OutputCallback();
+
+    /**
+     * Requests that haven't been answered yet, by request ID.
+     */
+    private final Map<Long, CompletableFuture<Boolean>> pendingRequests = new ConcurrentHashMap<>();
+
+    /**
+     * Generator for request IDs.
+     */
+    private final AtomicLong requestIds = new AtomicLong();
+
+    /**
+     * Whether the daemon process is still running.
+     */
+    private volatile boolean alive = true;
+
+    /**
+     * Constructor.
+     *
+     * @param entrypoint entrypoint of daemon
+     */
+    private EvaluationDaemon(String entrypoint) {
+        this.entrypoint = entrypoint;
+    }
+
+    /**
+     * Start a daemon inside a running container.
+     *
+     * @param dockerClient docker client
+     * @param containerId ID of running container
+     * @param entrypoint command starting the daemon
+     * @return started daemon
+     */
+    public static EvaluationDaemon start(DockerClient dockerClient, String containerId, String entrypoint) {
+        EvaluationDaemon daemon = new EvaluationDaemon(entrypoint);
+
+        String execId;
+        try (ExecCreateCmd execCreateCmd = dockerClient.execCreateCmd(containerId)
+                .withCmd("/bin/sh", "-c", "exec " + entrypoint)
+                .withAttachStdin(true)
+                .withAttachStdout(true)
+                .withAttachStderr(true)) {
+            execId = execCreateCmd.exec().getId();
+        }
+        dockerClient.execStartCmd(execId).withStdIn(daemon.stdin).exec(daemon.outputCallback);
+        logger.debug("Started evaluation daemon '{}' in container {}", entrypoint, containerId);
+
+        return daemon;
+    }
+
+    /**
+     * Send an answer to the daemon for evaluation.
+     *
+     * @param answer student answer
+     * @param graphPath path of graph file inside the container
+     * @param cpuTimeSeconds max CPU time of the evaluation in seconds, 0 for no limit
+     * @return future that completes with true if the answer is correct, or exceptionally with an
+     * {@link EvaluationTimeoutException} if the CPU time limit was exceeded
+     */
+    public CompletableFuture<Boolean> evaluate(String answer, String graphPath, long cpuTimeSeconds) {
+        long requestId = requestIds.incrementAndGet();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        pendingRequests.put(requestId, result);
+        if (!alive) {
+            pendingRequests.remove(requestId);
+            result.completeExceptionally(new IllegalStateException("Evaluation daemon is not running"));
+            return result;
+        }
+
+        try {
+            byte[] request = objectMapper.writeValueAsBytes(Map.of(
+                    "id", requestId,
+                    "answer", answer == null ? "" : answer,
+                    "graphPath", graphPath,
+                    "cpuTimeSeconds", cpuTimeSeconds));
+            ByteArrayOutputStream line = new ByteArrayOutputStream(request.length + 1);
+            line.writeBytes(request);
+            line.write('\n');
+            stdin.write(line.toByteArray());
+        } catch (JsonProcessingException e) {
+            pendingRequests.remove(requestId);
+            result.completeExceptionally(e);
+        }
+
+        return result;
+    }
+
+    public String getEntrypoint() {
+        return entrypoint;
+    }
+
+    public boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * Stop the daemon by closing its stdin.
+     */
+    @Override
+    public void close() {
+        alive = false;
+        stdin.finish();
+        try {
+            outputCallback.close();
+        } catch (IOException e) {
+            logger.debug("Couldn't close output stream of evaluation daemon", e);
+        }
+        failPendingRequests();
+    }
+
+    private void failPendingRequests() {
+        pendingRequests.values().forEach(request ->
+                request.completeExceptionally(new IllegalStateException("Evaluation daemon terminated")));
+        pendingRequests.clear();
+    }
+
+    /**
+     * Handle a single line written to stdout by the daemon.
+     *
+     * @param line line
+     */
+    private void onResponse(String line) {
+        try {
+            JsonNode response = objectMapper.readTree(line);
+            CompletableFuture<Boolean> request = pendingRequests.remove(response.path("id").asLong());
+            if (request == null) {
+                logger.warn("Evaluation daemon answered unknown request: {}", line);
+                return;
+            }
+            if (response.path("timedOut").asBoolean(false)) {
+                request.completeExceptionally(
+                        new EvaluationTimeoutException("Evaluation in daemon exceeded its CPU time limit"));
+                return;
+            }
+            if (response.hasNonNull("error")) {
+                logger.info("Evaluation in daemon failed: {}", response.get("error").asText());
+            }
+            request.complete(response.path("correct").asBoolean(false));
+        } catch (JsonProcessingException e) {
+            logger.warn("Evaluation daemon wrote invalid response: {}", line);
+        }
+    }
+
+    /**
+     * Callback splitting the stdout of the daemon into lines.
+     */
+    private class OutputCallback extends ResultCallback.Adapter<Frame> {
+        /**
+         * Bytes of the current, incomplete line.
+         */
+        private final ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+
+        @Override
+        public void onNext(Frame frame) {
+            if (frame.getStreamType() == StreamType.STDERR) {
+                logger.debug("Evaluation daemon: {}", new String(frame.getPayload(), StandardCharsets.UTF_8).strip());
+                return;
+            }
+            for (byte b : frame.getPayload()) {
+                if (b == '\n') {
+                    onResponse(currentLine.toString(StandardCharsets.UTF_8));
+                    currentLine.reset();
+                } else {
+                    currentLine.write(b);
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            logger.warn("Evaluation daemon failed", throwable);
+            alive = false;
+            failPendingRequests();
+            super.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            alive = false;
+            failPendingRequests();
+            super.onComplete();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.daemon;
+
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Input stream that is attached to the stdin of an evaluation daemon. Reading blocks until bytes have been written
+ * to the pipe, independent of the thread that wrote them.
+ */
+class StdinPipe extends InputStream {
+    /**
+     * Marker for the end of the stream.
+     */
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    /**
+     * Chunks written to the pipe that haven't been read yet.
+     */
+    private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+
+    /**
+     * Chunk that is currently read.
+     */
+    private byte[] current;
+
+    /**
+     * Read position in current chunk.
+     */
+    private int position;
+
+    /**
+     * Write bytes to the pipe.
+     *
+     * @param bytes bytes to write
+     */
+    void write(byte[] bytes) {
+        if (bytes.length > 0) {
+            chunks.add(bytes);
+        }
+    }
+
+    /**
+     * Signal the end of the stream to the reader.
+     */
+    void finish() {
+        chunks.add(END_OF_STREAM);
+    }
+
+    @Override
+    public int read() throws InterruptedIOException {
+        byte[] singleByte = new byte[1];
+        return read(singleByte, 0, 1) < 0 ? -1 : singleByte[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws InterruptedIOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (current == END_OF_STREAM) {
+            return -1;
+        }
+        if (current == null || position >= current.length) {
+            try {
+                current = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for input");
+            }
+            position = 0;
+            if (current == END_OF_STREAM) {
+                return -1;
+            }
+        }
+
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+}
@@ -0,0 +1,284 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.command.InspectExecResponse;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class routes the exits of containers and execs to futures using a single subscription to the Docker event
+ * stream.
+ *
+ * <p>
+ * Waiting for a container with {@code docker wait} occupies a thread per running evaluation. Instead, evaluations
+ * register a future for their container (or exec) before starting it, and the {@code die} and {@code exec_die} events
+ * of the shared subscription complete these futures with the exit code. The subscription is opened on first use and
+ * reopened if it breaks. Every time it is (re)opened, the state of all registered containers and execs is inspected,
+ * so that exits that happened while no subscription was active aren't missed.
+ */
+@Component
+public class ContainerEventStream {
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(ContainerEventStream.class);
+
+    /**
+     * Delay in milliseconds before reopening a broken subscription.
+     */
+    @Value("${containerEvents.reconnectDelayMillis:1000}")
+    private long reconnectDelayMillis;
+
+    /**
+     * Docker client.
+     */
+    private final DockerClient dockerClient;
+
+    /**
+     * Futures of registered containers by container ID.
+     */
+    private final Map<String, CompletableFuture<Long>> containerExits = new ConcurrentHashMap<>();
+
+    /**
+     * Registered execs by exec ID.
+     */
+    private final Map<String, PendingExec> execExits = new ConcurrentHashMap<>();
+
+    /**
+     * Executor for blocking Docker calls, which must not run on the thread receiving events.
+     */
+    private final ScheduledExecutorService inspectionExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Current subscription, null if none is open. Guarded by this.
+     */
+    private EventCallback subscription;
+
+    /**
+     * Whether the stream has been shut down.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param dockerClient docker client
+     */
+    public ContainerEventStream(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
+
+    /**
+     * Register a container whose exit should be awaited. Has to be called before the container is started.
+     *
+     * @param containerId ID of container
+     * @return future that completes with the exit code of the container
+     */
+    public CompletableFuture<Long> awaitContainerExit(String containerId) {
+        CompletableFuture<Long> exit = containerExits.computeIfAbsent(containerId, id -> new CompletableFuture<>());
+        ensureSubscribed();
+        return exit;
+    }
+
+    /**
+     * Register an exec whose exit should be awaited. Has to be called before the exec is started.
+     *
+     * @param containerId ID of container the exec runs in
+     * @param execId ID of exec
+     * @return future that completes with the exit code of the exec
+     */
+    public CompletableFuture<Long> awaitExecExit(String containerId, String execId) {
+        PendingExec exec = execExits.computeIfAbsent(execId,
+                id -> new PendingExec(containerId, new CompletableFuture<>()));
+        ensureSubscribed();
+        return exec.exit();
+    }
+
+    /**
+     * Stop waiting for a container or exec, e.g., after the evaluation has been cancelled.
+     *
+     * @param id ID of container or exec
+     */
+    public void forget(String id) {
+        containerExits.remove(id);
+        execExits.remove(id);
+    }
+
+    private synchronized void ensureSubscribed() {
+        if (subscription != null || closed) {
+            return;
+        }
+        subscription = dockerClient.eventsCmd()
+                .withEventTypeFilter(EventType.CONTAINER)
+                .withEventFilter("die", "exec_die")
+                .exec(new EventCallback());
+    }
+
+    /**
+     * Handle an event of the subscription.
+     *
+     * @param event event
+     */
+    private void onEvent(Event event) {
+        String action = event.getAction() != null ? event.getAction() : event.getStatus();
+        Map<String, String> attributes = event.getActor() != null ? event.getActor().getAttributes() : Map.of();
+
+        if ("die".equals(action)) {
+            CompletableFuture<Long> exit = containerExits.remove(event.getId());
+            if (exit != null) {
+                exit.complete(parseExitCode(attributes));
+            }
+        } else if (action != null && action.startsWith("exec_die")) {
+            // older daemons don't name the exec, then all execs of the container are inspected
+            String execId = attributes == null ? null : attributes.get("execID");
+            if (execId != null) {
+                PendingExec exec = execExits.get(execId);
+                if (exec != null) {
+                    inspectionExecutor.execute(() -> inspectExec(execId, exec));
+                }
+            } else {
+                execExits.forEach((id, exec) -> {
+                    if (exec.containerId().equals(event.getId())) {
+                        inspectionExecutor.execute(() -> inspectExec(id, exec));
+                    }
+                });
+            }
+        }
+    }
+
+    private static Long parseExitCode(Map<String, String> attributes) {
+        String exitCode = attributes == null ? null : attributes.get("exitCode");
+        return exitCode == null ? null : Long.valueOf(exitCode);
+    }
+
+    /**
+     * Complete the futures of all registered containers and execs that exited while no subscription was active.
+     */
+    private void reconcile() {
+        containerExits.forEach(this::inspectContainer);
+        execExits.forEach(this::inspectExec);
+    }
+
+    private void inspectContainer(String containerId, CompletableFuture<Long> exit) {
+        try {
+            InspectContainerResponse.ContainerState state =
+                    dockerClient.inspectContainerCmd(containerId).exec().getState();
+            // containers that haven't been started yet are not exited
+            if ("exited".equals(state.getStatus()) || "dead".equals(state.getStatus())) {
+                containerExits.remove(containerId, exit);
+                exit.complete(state.getExitCodeLong());
+            }
+        } catch (NotFoundException e) {
+            containerExits.remove(containerId, exit);
+            exit.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't inspect container {}", containerId, e);
+        }
+    }
+
+    private void inspectExec(String execId, PendingExec exec) {
+        try {
+            InspectExecResponse response = dockerClient.inspectExecCmd(execId).exec();
+            // execs that haven't been started yet have no exit code
+            if (!Boolean.TRUE.equals(response.isRunning()) && response.getExitCodeLong() != null) {
+                execExits.remove(execId, exec);
+                exec.exit().complete(response.getExitCodeLong());
+            }
+        } catch (NotFoundException e) {
+            execExits.remove(execId, exec);
+            exec.exit().completeExceptionally(e);
+        } catch (RuntimeException e) {
+            logger.warn("Couldn't inspect exec {}", execId, e);
+        }
+    }
+
+    /**
+     * Forget a broken subscription and open a new one after a delay.
+     *
+     * @param brokenSubscription callback of broken subscription
+     */
+    private synchronized void onSubscriptionBroken(EventCallback brokenSubscription) {
+        // errors are followed by completion, only the first notification reconnects
+        if (subscription != brokenSubscription) {
+            return;
+        }
+        subscription = null;
+        if (!closed) {
+            inspectionExecutor.schedule(this::ensureSubscribed, reconnectDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Close the subscription on shutdown.
+     */
+    @PreDestroy
+    private synchronized void shutdown() {
+        closed = true;
+        inspectionExecutor.shutdownNow();
+        if (subscription != null) {
+            try {
+                subscription.close();
+            } catch (IOException e) {
+                logger.debug("Couldn't close Docker event subscription", e);
+            }
+        }
+    }
+
+    /**
+     * Container of an exec and the future completed with its exit code.
+     *
+     * @param containerId ID of container
+     * @param exit future of exit code
+     */
+    private record PendingExec(String containerId, CompletableFuture<Long> exit) {
+    }
+
+    /**
+     * Callback of the event subscription.
+     */
+    private class EventCallback extends ResultCallback.Adapter<Event> {
+        @Override
+        public void onStart(Closeable stream) {
+            super.onStart(stream);
+            logger.debug("Subscribed to Docker container events");
+            inspectionExecutor.execute(ContainerEventStream.this::reconcile);
+        }
+
+        @Override
+        public void onNext(Event event) {
+            onEvent(event);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!closed) {
+                logger.warn("Docker event subscription failed, reconnecting", throwable);
+            }
+            super.onError(throwable);
+            onSubscriptionBroken(this);
+        }
+
+        @Override
+        public void onComplete() {
+            super.onComplete();
+            onSubscriptionBroken(this);
+        }
+    }
+}
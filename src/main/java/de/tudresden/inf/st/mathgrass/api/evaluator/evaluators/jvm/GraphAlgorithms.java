@@ -0,0 +1,262 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.jvm;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Graph algorithms evaluated by the {@link JvmGraphEvaluator}. All algorithms work on {@link SimpleGraph}s.
+ */
+final class GraphAlgorithms {
+    /**
+     * Distance of unreachable vertices.
+     */
+    static final int UNREACHABLE = -1;
+
+    private GraphAlgorithms() {
+    }
+
+    static int minDegree(SimpleGraph graph) {
+        int min = 0;
+        for (int vertex = 0; vertex < graph.vertexCount(); vertex++) {
+            min = vertex == 0 ? graph.degree(vertex) : Math.min(min, graph.degree(vertex));
+        }
+        return min;
+    }
+
+    static int maxDegree(SimpleGraph graph) {
+        int max = 0;
+        for (int vertex = 0; vertex < graph.vertexCount(); vertex++) {
+            max = Math.max(max, graph.degree(vertex));
+        }
+        return max;
+    }
+
+    /**
+     * Get the connected component of every vertex.
+     *
+     * @param graph graph
+     * @return component by vertex, components are numbered from 0
+     */
+    static int[] connectedComponents(SimpleGraph graph) {
+        int[] components = new int[graph.vertexCount()];
+        Arrays.fill(components, -1);
+        int componentCount = 0;
+        for (int start = 0; start < graph.vertexCount(); start++) {
+            if (components[start] != -1) {
+                continue;
+            }
+            Deque<Integer> stack = new ArrayDeque<>();
+            stack.push(start);
+            components[start] = componentCount;
+            while (!stack.isEmpty()) {
+                for (int neighbor : graph.neighbors(stack.pop())) {
+                    if (components[neighbor] == -1) {
+                        components[neighbor] = componentCount;
+                        stack.push(neighbor);
+                    }
+                }
+            }
+            componentCount++;
+        }
+        return components;
+    }
+
+    static int connectedComponentCount(SimpleGraph graph) {
+        return Arrays.stream(connectedComponents(graph)).max().orElse(-1) + 1;
+    }
+
+    static boolean isConnected(SimpleGraph graph) {
+        // like Sage, the empty graph is considered connected
+        return connectedComponentCount(graph) <= 1;
+    }
+
+    static boolean isBipartite(SimpleGraph graph) {
+        int[] sides = new int[graph.vertexCount()];
+        Arrays.fill(sides, -1);
+        for (int start = 0; start < graph.vertexCount(); start++) {
+            if (sides[start] != -1) {
+                continue;
+            }
+            Deque<Integer> queue = new ArrayDeque<>();
+            queue.add(start);
+            sides[start] = 0;
+            while (!queue.isEmpty()) {
+                int vertex = queue.poll();
+                for (int neighbor : graph.neighbors(vertex)) {
+                    if (sides[neighbor] == -1) {
+                        sides[neighbor] = 1 - sides[vertex];
+                        queue.add(neighbor);
+                    } else if (sides[neighbor] == sides[vertex]) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of edges of shortest paths from a vertex to all vertices.
+     *
+     * @param graph graph
+     * @param source source vertex
+     * @return distance by vertex, {@link #UNREACHABLE} for unreachable vertices
+     */
+    static int[] distances(SimpleGraph graph, int source) {
+        int[] distances = new int[graph.vertexCount()];
+        Arrays.fill(distances, UNREACHABLE);
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(source);
+        distances[source] = 0;
+        while (!queue.isEmpty()) {
+            int vertex = queue.poll();
+            for (int neighbor : graph.neighbors(vertex)) {
+                if (distances[neighbor] == UNREACHABLE) {
+                    distances[neighbor] = distances[vertex] + 1;
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Get the max length of all shortest paths.
+     *
+     * @param graph graph
+     * @return diameter, {@link #UNREACHABLE} if the graph isn't connected
+     */
+    static int diameter(SimpleGraph graph) {
+        int diameter = 0;
+        for (int source = 0; source < graph.vertexCount(); source++) {
+            for (int distance : distances(graph, source)) {
+                if (distance == UNREACHABLE) {
+                    return UNREACHABLE;
+                }
+                diameter = Math.max(diameter, distance);
+            }
+        }
+        return diameter;
+    }
+
+    /**
+     * Count the spanning trees of a graph using Kirchhoff's theorem, i.e., as determinant of a reduced Laplacian
+     * matrix. The determinant is computed exactly with the fraction-free Bareiss algorithm.
+     *
+     * @param graph graph
+     * @return number of spanning trees, 0 if the graph isn't connected
+     */
+    static BigInteger spanningTreeCount(SimpleGraph graph) {
+        int size = graph.vertexCount() - 1;
+        if (size <= 0) {
+            return BigInteger.ONE;
+        }
+
+        // Laplacian without the row and column of the last vertex
+        BigInteger[][] matrix = new BigInteger[size][size];
+        for (int row = 0; row < size; row++) {
+            Arrays.fill(matrix[row], BigInteger.ZERO);
+            matrix[row][row] = BigInteger.valueOf(graph.degree(row));
+            for (int neighbor : graph.neighbors(row)) {
+                if (neighbor < size) {
+                    matrix[row][neighbor] = BigInteger.ONE.negate();
+                }
+            }
+        }
+
+        BigInteger previousPivot = BigInteger.ONE;
+        int sign = 1;
+        for (int k = 0; k < size - 1; k++) {
+            if (matrix[k][k].signum() == 0) {
+                int swap = k + 1;
+                while (swap < size && matrix[swap][k].signum() == 0) {
+                    swap++;
+                }
+                if (swap == size) {
+                    return BigInteger.ZERO;
+                }
+                BigInteger[] row = matrix[k];
+                matrix[k] = matrix[swap];
+                matrix[swap] = row;
+                sign = -sign;
+            }
+            for (int i = k + 1; i < size; i++) {
+                for (int j = k + 1; j < size; j++) {
+                    matrix[i][j] = matrix[i][j].multiply(matrix[k][k])
+                            .subtract(matrix[i][k].multiply(matrix[k][j]))
+                            .divide(previousPivot);
+                }
+            }
+            previousPivot = matrix[k][k];
+        }
+        BigInteger determinant = matrix[size - 1][size - 1];
+        return sign < 0 ? determinant.negate() : determinant;
+    }
+
+    /**
+     * Compute the chromatic number by trying to color the graph with an increasing number of colors. This takes
+     * exponential time in the worst case, which is fine for the small graphs of tasks.
+     *
+     * @param graph graph
+     * @return chromatic number
+     */
+    static int chromaticNumber(SimpleGraph graph) {
+        if (graph.vertexCount() == 0) {
+            return 0;
+        }
+        if (graph.edgeCount() == 0) {
+            return 1;
+        }
+        if (isBipartite(graph)) {
+            return 2;
+        }
+
+        // color vertices with high degree first to prune early
+        Integer[] order = new Integer[graph.vertexCount()];
+        for (int vertex = 0; vertex < order.length; vertex++) {
+            order[vertex] = vertex;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(graph.degree(b), graph.degree(a)));
+
+        int[] colors = new int[graph.vertexCount()];
+        for (int colorCount = 3; ; colorCount++) {
+            Arrays.fill(colors, -1);
+            if (color(graph, order, 0, colors, colorCount)) {
+                return colorCount;
+            }
+        }
+    }
+
+    private static boolean color(SimpleGraph graph, Integer[] order, int position, int[] colors, int colorCount) {
+        if (position == order.length) {
+            return true;
+        }
+        int vertex = order[position];
+        // vertices can't get a color above the highest used one + 1, which skips permutations of colorings
+        int usedColors = 0;
+        for (int i = 0; i < position; i++) {
+            usedColors = Math.max(usedColors, colors[order[i]] + 1);
+        }
+        for (int color = 0; color < Math.min(colorCount, usedColors + 1); color++) {
+            if (isFree(graph, vertex, color, colors)) {
+                colors[vertex] = color;
+                if (color(graph, order, position + 1, colors, colorCount)) {
+                    return true;
+                }
+                colors[vertex] = -1;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFree(SimpleGraph graph, int vertex, int color, int[] colors) {
+        for (int neighbor : graph.neighbors(vertex)) {
+            if (colors[neighbor] == color) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.jvm;
+
+/**
+ * Properties of graphs that can be evaluated in-process by the {@link JvmGraphEvaluator}. An answer is correct if it
+ * equals the property of the graph of the task.
+ */
+public enum GraphProperty {
+    /**
+     * Number of vertices.
+     */
+    VERTEX_COUNT(false, false),
+
+    /**
+     * Number of edges.
+     */
+    EDGE_COUNT(false, false),
+
+    /**
+     * Degree of a vertex, the parameter references the vertex.
+     */
+    DEGREE(true, false),
+
+    /**
+     * Min degree of all vertices.
+     */
+    MIN_DEGREE(false, false),
+
+    /**
+     * Max degree of all vertices.
+     */
+    MAX_DEGREE(false, false),
+
+    /**
+     * Whether the graph is connected.
+     */
+    CONNECTED(false, false),
+
+    /**
+     * Number of connected components.
+     */
+    CONNECTED_COMPONENT_COUNT(false, false),
+
+    /**
+     * Whether the graph is bipartite.
+     */
+    BIPARTITE(false, false),
+
+    /**
+     * Number of edges of a shortest path between two vertices, the parameter references both vertices separated by a
+     * comma.
+     */
+    SHORTEST_PATH_LENGTH(true, false),
+
+    /**
+     * Max length of all shortest paths.
+     */
+    DIAMETER(false, false),
+
+    /**
+     * Number of spanning trees, computed as a determinant of arbitrary precision.
+     */
+    SPANNING_TREE_COUNT(false, true),
+
+    /**
+     * Min number of colors of a vertex coloring, which takes exponential time in the worst case.
+     */
+    CHROMATIC_NUMBER(false, true);
+
+    /**
+     * Whether the property needs a parameter.
+     */
+    private final boolean parameterized;
+
+    /**
+     * Whether computing the property may take long, so that answers aren't evaluated while they are submitted.
+     */
+    private final boolean expensive;
+
+    GraphProperty(boolean parameterized, boolean expensive) {
+        this.parameterized = parameterized;
+        this.expensive = expensive;
+    }
+
+    public boolean isParameterized() {
+        return parameterized;
+    }
+
+    public boolean isExpensive() {
+        return expensive;
+    }
+}
@@ -0,0 +1,219 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.jvm;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.Executor;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+import de.tudresden.inf.st.mathgrass.api.graph.Graph;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.math.BigInteger;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * This class evaluates answers to common graph questions in-process, as an alternative to evaluators running in
+ * containers.
+ *
+ * <p>
+ * Executors reference a {@link GraphProperty} declaratively instead of providing source files. The property is
+ * computed over the graph of the task and the answer is correct if it equals the property. Numeric answers are
+ * compared as integers, boolean answers as {@code true}/{@code false} ignoring case. Distances between unreachable
+ * vertices are infinite, which is given as {@code Infinity}, like Sage prints it.
+ *
+ * <p>
+ * The property of a graph is the same for every answer, so values are memoized by graph, revision of the graph,
+ * property and parameter. Graphs that haven't been persisted are evaluated without memoization.
+ */
+@Component
+public class JvmGraphEvaluator {
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(JvmGraphEvaluator.class);
+
+    /**
+     * Accepted answers for infinite distances.
+     */
+    private static final Set<String> INFINITY_ANSWERS = Set.of("infinity", "+infinity", "inf", "+inf", "oo", "+oo");
+
+    /**
+     * Max number of memoized property values.
+     */
+    @Value("${jvmEvaluator.maximumCachedValues:10000}")
+    private long maximumCachedValues;
+
+    /**
+     * Memoized property values. Numbers are stored as {@link BigInteger}, distances as {@link Integer} and truth
+     * values as {@link Boolean}.
+     */
+    private Cache<PropertyKey, Object> values;
+
+    @PostConstruct
+    private void initCache() {
+        values = CacheBuilder.newBuilder().maximumSize(maximumCachedValues).build();
+    }
+
+    /**
+     * Initialize (but not persist) an executor that evaluates answers by comparing them to a property of the graph of
+     * their task.
+     *
+     * @param property graph property
+     * @param parameter parameter of the property, e.g., the label of a vertex, null if it has none
+     * @return executor
+     * @throws IllegalArgumentException if the property requires a parameter, but none is given
+     */
+    public Executor initializeGraphPropertyExecutor(GraphProperty property, String parameter) {
+        if (property.isParameterized() && (parameter == null || parameter.isBlank())) {
+            throw new IllegalArgumentException("Graph property " + property + " requires a parameter");
+        }
+        Executor executor = new Executor();
+        executor.setGraphProperty(property);
+        executor.setGraphPropertyParameter(parameter);
+        return executor;
+    }
+
+    /**
+     * Check whether an executor is evaluated by this evaluator.
+     *
+     * @param executor executor
+     * @return true if the executor references a graph property
+     */
+    public boolean canEvaluate(ExecutorSnapshot executor) {
+        return executor.graphProperty() != null;
+    }
+
+    /**
+     * Evaluate an answer, see {@link #evaluate(SimpleGraph, ExecutorSnapshot, String)}.
+     *
+     * @param graph graph of task
+     * @param executor executor referencing a graph property
+     * @param answer student answer
+     * @return true if the answer equals the property of the graph
+     * @throws IllegalArgumentException if the executor doesn't reference a graph property or its parameter is invalid
+     */
+    public boolean evaluate(Graph graph, Executor executor, String answer) {
+        return evaluate(graph == null ? null : SimpleGraph.of(graph), ExecutorSnapshot.of(executor), answer);
+    }
+
+    /**
+     * Evaluate an answer.
+     *
+     * @param graph simple view of the graph of task
+     * @param executor executor referencing a graph property
+     * @param answer student answer
+     * @return true if the answer equals the property of the graph
+     * @throws IllegalArgumentException if the executor doesn't reference a graph property or its parameter is invalid
+     */
+    public boolean evaluate(SimpleGraph graph, ExecutorSnapshot executor, String answer) {
+        GraphProperty property = executor.graphProperty();
+        if (property == null) {
+            throw new IllegalArgumentException("Executor " + executor.id() + " doesn't reference a graph property");
+        }
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph property " + property + " requires a graph");
+        }
+        String parameter = executor.graphPropertyParameter();
+        if (property.isParameterized() && parameter == null) {
+            throw new IllegalArgumentException("Graph property " + property + " requires a parameter");
+        }
+
+        Object value = valueOf(graph, property, parameter);
+        String normalizedAnswer = answer == null ? "" : answer.strip();
+        return switch (property) {
+            case CONNECTED, BIPARTITE -> equalsBoolean(normalizedAnswer, (Boolean) value);
+            case SHORTEST_PATH_LENGTH, DIAMETER -> equalsDistance(normalizedAnswer, (Integer) value);
+            default -> equalsNumber(normalizedAnswer, (BigInteger) value);
+        };
+    }
+
+    /**
+     * Get the value of a property of a graph, computing it only if it hasn't been memoized.
+     *
+     * @param graph graph
+     * @param property property
+     * @param parameter parameter of property, null if it has none
+     * @return value of property
+     * @throws IllegalArgumentException if the parameter is invalid
+     */
+    private Object valueOf(SimpleGraph graph, GraphProperty property, String parameter) {
+        if (graph.graphId() == null) {
+            return computeValue(graph, property, parameter);
+        }
+        try {
+            return values.get(new PropertyKey(graph.graphId(), graph.graphRevision(), property, parameter),
+                    () -> computeValue(graph, property, parameter));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Couldn't compute " + property + " of graph " + graph.graphId(), e);
+        }
+    }
+
+    private static Object computeValue(SimpleGraph simpleGraph, GraphProperty property, String parameter) {
+        long start = System.nanoTime();
+        Object value = switch (property) {
+            case VERTEX_COUNT -> BigInteger.valueOf(simpleGraph.vertexCount());
+            case EDGE_COUNT -> BigInteger.valueOf(simpleGraph.edgeCount());
+            case DEGREE -> BigInteger.valueOf(simpleGraph.degree(simpleGraph.indexOf(parameter)));
+            case MIN_DEGREE -> BigInteger.valueOf(GraphAlgorithms.minDegree(simpleGraph));
+            case MAX_DEGREE -> BigInteger.valueOf(GraphAlgorithms.maxDegree(simpleGraph));
+            case CONNECTED -> GraphAlgorithms.isConnected(simpleGraph);
+            case CONNECTED_COMPONENT_COUNT -> BigInteger.valueOf(GraphAlgorithms.connectedComponentCount(simpleGraph));
+            case BIPARTITE -> GraphAlgorithms.isBipartite(simpleGraph);
+            case SHORTEST_PATH_LENGTH -> shortestPathLength(simpleGraph, parameter);
+            case DIAMETER -> GraphAlgorithms.diameter(simpleGraph);
+            case SPANNING_TREE_COUNT -> GraphAlgorithms.spanningTreeCount(simpleGraph);
+            case CHROMATIC_NUMBER -> BigInteger.valueOf(GraphAlgorithms.chromaticNumber(simpleGraph));
+        };
+        logger.debug("Computed {} of graph {} in {} microseconds", property, simpleGraph.graphId(),
+                (System.nanoTime() - start) / 1000);
+        return value;
+    }
+
+    private static int shortestPathLength(SimpleGraph graph, String parameter) {
+        String[] vertices = parameter.split(",");
+        if (vertices.length != 2) {
+            throw new IllegalArgumentException("Shortest path length requires two vertices separated by a comma, but "
+                    + "got " + parameter);
+        }
+        return GraphAlgorithms.distances(graph, graph.indexOf(vertices[0]))[graph.indexOf(vertices[1])];
+    }
+
+    private static boolean equalsNumber(String answer, BigInteger expected) {
+        try {
+            return new BigInteger(answer).equals(expected);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean equalsBoolean(String answer, boolean expected) {
+        return answer.equalsIgnoreCase(String.valueOf(expected));
+    }
+
+    private static boolean equalsDistance(String answer, int expected) {
+        if (expected == GraphAlgorithms.UNREACHABLE) {
+            return INFINITY_ANSWERS.contains(answer.toLowerCase(Locale.ROOT));
+        }
+        return equalsNumber(answer, BigInteger.valueOf(expected));
+    }
+
+    /**
+     * Key of a memoized property value.
+     *
+     * @param graphId ID of graph
+     * @param graphRevision revision of graph
+     * @param property property
+     * @param parameter parameter of property, null if it has none
+     */
+    private record PropertyKey(Long graphId, long graphRevision, GraphProperty property, String parameter) {
+    }
+}
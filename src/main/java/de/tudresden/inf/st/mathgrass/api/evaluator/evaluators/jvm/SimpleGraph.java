@@ -0,0 +1,160 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.jvm;
+
+import de.tudresden.inf.st.mathgrass.api.graph.Edge;
+import de.tudresden.inf.st.mathgrass.api.graph.Graph;
+import de.tudresden.inf.st.mathgrass.api.graph.Vertex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Simple undirected view of a {@link Graph} with vertices indexed from 0, as evaluated by the Sage evaluator: the
+ * direction of edges is ignored, parallel edges are merged and loops are dropped. The view is immutable and doesn't
+ * reference the graph, so that it can be shared by evaluations running without a transaction.
+ */
+public final class SimpleGraph {
+    /**
+     * ID of graph, null if it hasn't been persisted.
+     */
+    private final Long graphId;
+
+    /**
+     * Revision of graph.
+     */
+    private final long graphRevision;
+
+    /**
+     * Labels of vertices by index.
+     */
+    private final List<String> labels;
+
+    /**
+     * IDs of vertices by index, as strings.
+     */
+    private final List<String> ids;
+
+    /**
+     * Indices of neighbors by index of vertex.
+     */
+    private final int[][] adjacency;
+
+    /**
+     * Number of edges.
+     */
+    private final int edgeCount;
+
+    private SimpleGraph(Long graphId, long graphRevision, List<String> labels, List<String> ids, int[][] adjacency,
+                        int edgeCount) {
+        this.graphId = graphId;
+        this.graphRevision = graphRevision;
+        this.labels = labels;
+        this.ids = ids;
+        this.adjacency = adjacency;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * Create the simple view of a graph.
+     *
+     * @param graph graph
+     * @return simple graph
+     * @throws IllegalArgumentException if an edge references a vertex outside the graph
+     */
+    public static SimpleGraph of(Graph graph) {
+        List<Vertex> vertices = graph.getVertices() == null ? List.of() : List.copyOf(graph.getVertices());
+        // edges of detached graphs might reference copies of their vertices, which are matched by ID
+        Map<Vertex, Integer> indices = new IdentityHashMap<>();
+        Map<Long, Integer> indicesById = new HashMap<>();
+        List<Set<Integer>> neighbors = new ArrayList<>();
+        for (Vertex vertex : vertices) {
+            if (vertex.getId() != null) {
+                indicesById.put(vertex.getId(), indices.size());
+            }
+            indices.put(vertex, indices.size());
+            neighbors.add(new LinkedHashSet<>());
+        }
+
+        int edgeCount = 0;
+        for (Edge edge : graph.getEdges() == null ? List.<Edge>of() : graph.getEdges()) {
+            Integer source = indexOf(edge.getSourceVertex(), indices, indicesById);
+            Integer target = indexOf(edge.getTargetVertex(), indices, indicesById);
+            if (source == null || target == null) {
+                throw new IllegalArgumentException("Edge " + edge.getId() + " references a vertex outside the graph");
+            }
+            if (!source.equals(target) && neighbors.get(source).add(target)) {
+                neighbors.get(target).add(source);
+                edgeCount++;
+            }
+        }
+
+        int[][] adjacency = new int[vertices.size()][];
+        for (int i = 0; i < adjacency.length; i++) {
+            adjacency[i] = neighbors.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        List<String> labels = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (Vertex vertex : vertices) {
+            labels.add(vertex.getLabel());
+            ids.add(String.valueOf(vertex.getId()));
+        }
+        return new SimpleGraph(graph.getId(), graph.getRevision(), Collections.unmodifiableList(labels),
+                Collections.unmodifiableList(ids), adjacency, edgeCount);
+    }
+
+    private static Integer indexOf(Vertex vertex, Map<Vertex, Integer> indices, Map<Long, Integer> indicesById) {
+        Integer index = indices.get(vertex);
+        if (index == null && vertex != null && vertex.getId() != null) {
+            index = indicesById.get(vertex.getId());
+        }
+        return index;
+    }
+
+    Long graphId() {
+        return graphId;
+    }
+
+    long graphRevision() {
+        return graphRevision;
+    }
+
+    int vertexCount() {
+        return adjacency.length;
+    }
+
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    int[] neighbors(int vertex) {
+        return adjacency[vertex];
+    }
+
+    int degree(int vertex) {
+        return adjacency[vertex].length;
+    }
+
+    /**
+     * Find a vertex by its label, or by its ID if no vertex has this label.
+     *
+     * @param reference label or ID of vertex
+     * @return index of vertex
+     * @throws IllegalArgumentException if no vertex matches the reference
+     */
+    int indexOf(String reference) {
+        String trimmed = reference.strip();
+        int index = labels.indexOf(trimmed);
+        if (index < 0) {
+            index = ids.indexOf(trimmed);
+        }
+        if (index >= 0) {
+            return index;
+        }
+        throw new IllegalArgumentException("Graph has no vertex " + trimmed);
+    }
+}
@@ -7,8 +7,10 @@ import com.github.dockerjava.api.command.ListImagesCmd;
 import com.github.dockerjava.api.model.Image;
 import de.tudresden.inf.st.mathgrass.api.evaluator.executor.Executor;
 import de.tudresden.inf.st.mathgrass.api.evaluator.executor.SourceFile;
+import de.tudresden.inf.st.mathgrass.api.evaluator.pool.ContainerPool;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
@@ -24,26 +26,42 @@ import java.util.Set;
 public class SageEvaluatorPlugin {
     private static final Logger logger = LogManager.getLogger(SageEvaluatorPlugin.class);
     public static final String SAGE_EVALUATOR_IMAGE_NAME = "sage-evaluator";
-    public static final String SAGE_EVALUATOR_TAG = "0.1c";
+    public static final String SAGE_EVALUATOR_TAG = "0.5";
     public static final String SAGE_IMAGE_COMPLETE_TAG = SAGE_EVALUATOR_IMAGE_NAME + ":" + SAGE_EVALUATOR_TAG;
     public static final String SAGE_EVALUATOR_DOCKERFILE_PATH = "./evaluators/sage-evaluator/Dockerfile";
     public static final String SAGE_EVALUATION_DOCKER_ENTRYPOINT = "sage /sage-evaluation/main.py";
+    public static final String SAGE_EVALUATION_DAEMON_ENTRYPOINT = "sage /sage-evaluation/daemon.py";
+    public static final String SAGE_EVALUATION_BATCH_ENTRYPOINT = "sage /sage-evaluation/main.py --batch";
     public static final String SAGE_EVALUATION_GRAPH_AS_JSON_PATH = "/sage-evaluation/graph.json";
     public static final String SAGE_EVALUATION_INSTRUCTOR_EVALUATION_PATH = "/sage-evaluation/instructor_evaluation.py";
     private final DockerClient dockerClient;
+    private final ContainerPool containerPool;
+
+    /**
+     * Whether executors should evaluate answers with a long-lived daemon ({@link #SAGE_EVALUATION_DAEMON_ENTRYPOINT})
+     * that imports Sage only once, instead of running {@link #SAGE_EVALUATION_DOCKER_ENTRYPOINT} for every answer.
+     * Daemons run in pooled containers, so the daemon mode is ignored while the container pool is disabled.
+     */
+    @Value("${sageEvaluator.daemonMode:false}")
+    private boolean daemonMode;
 
 
-    public SageEvaluatorPlugin(DockerClient dockerClient) {
+    public SageEvaluatorPlugin(DockerClient dockerClient, ContainerPool containerPool) {
         this.dockerClient = dockerClient;
+        this.containerPool = containerPool;
     }
 
     @PostConstruct
     private void buildSageImage() {
+        if (daemonMode && !containerPool.isEnabled()) {
+            logger.warn("Sage evaluator daemon mode requires the container pool, falling back to one-shot evaluations");
+        }
         ListImagesCmd listImagesCmd = dockerClient.listImagesCmd().withImageNameFilter(SAGE_IMAGE_COMPLETE_TAG);
         listImagesCmd.getFilters().put("reference", List.of(SAGE_IMAGE_COMPLETE_TAG));
         List<Image> filterImages = listImagesCmd.exec();
         if (!filterImages.isEmpty()) {
             logger.info("Sage Evaluator image found ({}), skipping container build", SAGE_IMAGE_COMPLETE_TAG);
+            containerPool.warmUp(SAGE_IMAGE_COMPLETE_TAG);
             return;
         }
         logger.info("Building sage-evaluator image. This might take some time..");
@@ -52,6 +70,7 @@ public class SageEvaluatorPlugin {
                 dockerClient.buildImageCmd(new File(SAGE_EVALUATOR_DOCKERFILE_PATH)).withTags(Set.of(SAGE_IMAGE_COMPLETE_TAG));
         buildImageCmd.exec(buildImageResultCallback);
         buildImageResultCallback.awaitImageId();
+        containerPool.warmUp(SAGE_IMAGE_COMPLETE_TAG);
     }
 
     /**
@@ -76,6 +95,11 @@ public class SageEvaluatorPlugin {
      *    else:
      *        return False
      * </pre>
+     * If {@code sageEvaluator.daemonMode} and the container pool are enabled, the executor additionally gets
+     * {@link SageEvaluatorPlugin#SAGE_EVALUATION_DAEMON_ENTRYPOINT} as daemon entrypoint. Evaluations are then sent to
+     * a daemon in a pooled container that calls the same function, the one-shot entrypoint is used as fallback if no
+     * pooled container is available. Batches of answers are evaluated by a single run of
+     * {@link SageEvaluatorPlugin#SAGE_EVALUATION_BATCH_ENTRYPOINT}.
      *
      * @param instructorEvaluationExecutionDescriptor Execution description/file contents of a python script that is
      *                                                called by the sage evaluator. It must contain a function with
@@ -97,6 +121,10 @@ public class SageEvaluatorPlugin {
         instructorEvaluationSourceFile.setPath(SAGE_EVALUATION_INSTRUCTOR_EVALUATION_PATH);
 
         executor.setCustomEntrypoint(SAGE_EVALUATION_DOCKER_ENTRYPOINT);
+        executor.setBatchEntrypoint(SAGE_EVALUATION_BATCH_ENTRYPOINT);
+        if (daemonMode && containerPool.isEnabled()) {
+            executor.setDaemonEntrypoint(SAGE_EVALUATION_DAEMON_ENTRYPOINT);
+        }
         List<SourceFile> sourceFileList = new ArrayList<>(List.of(instructorEvaluationSourceFile));
         sourceFileList.addAll(additionalSourceFiles);
 
@@ -1,5 +1,7 @@
 package de.tudresden.inf.st.mathgrass.api.evaluator.executor;
 
+import de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.jvm.GraphProperty;
+
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -15,7 +17,16 @@ public class Executor {
     private List<SourceFile> sourceFiles = new ArrayList<>();
     private String containerImage;
     private String customEntrypoint;
+    private String daemonEntrypoint;
+    private String batchEntrypoint;
     private String graphPath = DEFAULT_GRAPH_PATH;
+    private long revision = 0;
+    private boolean deterministic = true;
+    private Integer timeoutSeconds;
+    private Integer cpuTimeSeconds;
+    @Enumerated(EnumType.STRING)
+    private GraphProperty graphProperty;
+    private String graphPropertyParameter;
 
     public Long getId() {
         return id;
@@ -41,6 +52,26 @@ public class Executor {
         this.customEntrypoint = customEntrypoint;
     }
 
+    public String getDaemonEntrypoint() {
+        return daemonEntrypoint;
+    }
+
+    public void setDaemonEntrypoint(String daemonEntrypoint) {
+        this.daemonEntrypoint = daemonEntrypoint;
+    }
+
+    /**
+     * Command evaluating many answers in a single run, null if answers can only be evaluated one by one. The path of
+     * a JSON file containing the answers is appended, see {@code TaskManager#runBatchAsync}.
+     */
+    public String getBatchEntrypoint() {
+        return batchEntrypoint;
+    }
+
+    public void setBatchEntrypoint(String batchEntrypoint) {
+        this.batchEntrypoint = batchEntrypoint;
+    }
+
     public List<SourceFile> getSourceFiles() {
         return sourceFiles;
     }
@@ -56,4 +87,70 @@ public class Executor {
     public void setGraphPath(String graphPath) {
         this.graphPath = graphPath;
     }
+
+    /**
+     * Revision of the executor, has to be incremented whenever its source files change.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    /**
+     * Whether the evaluator always returns the same verdict for the same answer, so that verdicts can be cached.
+     */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * Max wall-clock time of an evaluation in seconds, null for the default.
+     */
+    public Integer getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(Integer timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Max CPU time of an evaluation in seconds, null for the default.
+     */
+    public Integer getCpuTimeSeconds() {
+        return cpuTimeSeconds;
+    }
+
+    public void setCpuTimeSeconds(Integer cpuTimeSeconds) {
+        this.cpuTimeSeconds = cpuTimeSeconds;
+    }
+
+    /**
+     * Graph property the answer is compared to in-process, null if the answer is evaluated in a container.
+     */
+    public GraphProperty getGraphProperty() {
+        return graphProperty;
+    }
+
+    public void setGraphProperty(GraphProperty graphProperty) {
+        this.graphProperty = graphProperty;
+    }
+
+    /**
+     * Parameter of the graph property, e.g., the label of a vertex.
+     */
+    public String getGraphPropertyParameter() {
+        return graphPropertyParameter;
+    }
+
+    public void setGraphPropertyParameter(String graphPropertyParameter) {
+        this.graphPropertyParameter = graphPropertyParameter;
+    }
 }
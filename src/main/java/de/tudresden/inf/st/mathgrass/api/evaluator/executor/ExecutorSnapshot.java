@@ -0,0 +1,92 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.executor;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.jvm.GraphProperty;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable copy of an {@link Executor}, so that evaluations can share it without holding on to the entity. Source
+ * files are kept by path in sorted order and hashed once, staged sources are addressed by the hash.
+ *
+ * @param id ID of executor, null if it hasn't been persisted
+ * @param revision revision of executor
+ * @param containerImage image of containers running the executor
+ * @param customEntrypoint one-shot entrypoint
+ * @param daemonEntrypoint entrypoint of the evaluation daemon, null if the executor has none
+ * @param batchEntrypoint entrypoint evaluating many answers in a single run, null if the executor has none
+ * @param graphPath path of the serialized graph inside the container
+ * @param deterministic whether the same answer is always evaluated to the same verdict
+ * @param timeoutSeconds max wall-clock time of an evaluation in seconds, null for the default
+ * @param cpuTimeSeconds max CPU time of an evaluation in seconds, null for the default
+ * @param graphProperty graph property the answer is compared to in-process, null if it is evaluated in a container
+ * @param graphPropertyParameter parameter of the graph property
+ * @param sourceFiles contents of source files by path, unmodifiable
+ * @param sourceHash SHA-256 hash of the source files
+ */
+public record ExecutorSnapshot(Long id, long revision, String containerImage, String customEntrypoint,
+                               String daemonEntrypoint, String batchEntrypoint, String graphPath,
+                               boolean deterministic, Integer timeoutSeconds, Integer cpuTimeSeconds,
+                               GraphProperty graphProperty, String graphPropertyParameter,
+                               SortedMap<String, String> sourceFiles, String sourceHash) {
+    /**
+     * Constructor, copying the source files.
+     */
+    public ExecutorSnapshot {
+        sourceFiles = Collections.unmodifiableSortedMap(new TreeMap<>(sourceFiles));
+    }
+
+    /**
+     * Copy an executor. Its source files have to be initialized.
+     *
+     * @param executor executor
+     * @return snapshot of executor
+     */
+    public static ExecutorSnapshot of(Executor executor) {
+        SortedMap<String, String> sourceFiles = new TreeMap<>();
+        for (SourceFile sourceFile : executor.getSourceFiles()) {
+            sourceFiles.put(sourceFile.getPath(), sourceFile.getContents());
+        }
+        return new ExecutorSnapshot(executor.getId(), executor.getRevision(), executor.getContainerImage(),
+                executor.getCustomEntrypoint(), executor.getDaemonEntrypoint(), executor.getBatchEntrypoint(),
+                executor.getGraphPath(), executor.isDeterministic(), executor.getTimeoutSeconds(),
+                executor.getCpuTimeSeconds(), executor.getGraphProperty(), executor.getGraphPropertyParameter(),
+                sourceFiles, hash(sourceFiles));
+    }
+
+    /**
+     * Get the contents of a source file as UTF-8.
+     *
+     * @param contents contents of source file, null if it is empty
+     * @return encoded contents
+     */
+    public static byte[] encode(String contents) {
+        return contents == null ? new byte[0] : contents.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String hash(SortedMap<String, String> sourceFiles) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        for (Map.Entry<String, String> sourceFile : sourceFiles.entrySet()) {
+            // prefix path and contents with their lengths to keep the encoding unambiguous
+            byte[] path = sourceFile.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] contents = encode(sourceFile.getValue());
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(path.length).array());
+            digest.update(path);
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(contents.length).array());
+            digest.update(contents);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
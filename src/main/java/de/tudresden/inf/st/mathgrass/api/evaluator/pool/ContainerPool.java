@@ -0,0 +1,379 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.pool;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CreateContainerCmd;
+import com.github.dockerjava.api.command.RemoveContainerCmd;
+import com.github.dockerjava.api.command.StartContainerCmd;
+import com.github.dockerjava.api.exception.DockerException;
+import de.tudresden.inf.st.mathgrass.api.evaluator.staging.SourceFileStore;
+import de.tudresden.inf.st.mathgrass.api.evaluator.staging.StagedSources;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class manages pools of pre-created and started containers, one pool per container image.
+ *
+ * <p>
+ * Creating, starting and removing a container for every evaluation dominates the latency of dynamic answers. Pooled
+ * containers are kept alive by an idle process and evaluations are run inside them via {@code docker exec}. Every
+ * pool is kept at a minimum number of idle containers, grows up to a maximum size, evicts containers that have been
+ * idle for too long and recycles containers after a configurable number of uses. Containers keep the source files
+ * staged into them, idle containers that already hold the sources of an evaluation are preferred.
+ */
+@Component
+public class ContainerPool {
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(ContainerPool.class);
+
+    /**
+     * Label attached to all pooled containers.
+     */
+    public static final String POOL_LABEL = "de.tudresden.inf.st.mathgrass.pool";
+
+    /**
+     * Entrypoint that keeps a pooled container alive without doing any work.
+     */
+    private static final String[] KEEP_ALIVE_ENTRYPOINT = {"tail", "-f", "/dev/null"};
+
+    /**
+     * Whether evaluations should be run in pooled containers.
+     */
+    @Value("${containerPool.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Number of idle containers kept warm per image.
+     */
+    @Value("${containerPool.minIdle:1}")
+    private int minIdle;
+
+    /**
+     * Max number of containers (idle and in use) per image.
+     */
+    @Value("${containerPool.maxSize:4}")
+    private int maxSize;
+
+    /**
+     * Number of seconds after which idle containers exceeding the minimum are removed.
+     */
+    @Value("${containerPool.idleTimeoutSeconds:300}")
+    private long idleTimeoutSeconds;
+
+    /**
+     * Number of evaluations after which a container is replaced by a fresh one.
+     */
+    @Value("${containerPool.maxUses:50}")
+    private int maxUses;
+
+    /**
+     * Interval in seconds in which idle containers are evicted and pools are refilled.
+     */
+    @Value("${containerPool.maintenanceIntervalSeconds:30}")
+    private long maintenanceIntervalSeconds;
+
+    /**
+     * Docker client.
+     */
+    private final DockerClient dockerClient;
+
+    /**
+     * Store of staged source files.
+     */
+    private final SourceFileStore sourceFileStore;
+
+    /**
+     * Pools by container image.
+     */
+    private final Map<String, ImagePool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Executor for creating, removing and evicting containers in the background.
+     */
+    private final ScheduledExecutorService maintenanceExecutor;
+
+    /**
+     * Constructor.
+     *
+     * @param dockerClient docker client
+     * @param sourceFileStore store of staged source files
+     */
+    public ContainerPool(DockerClient dockerClient, SourceFileStore sourceFileStore) {
+        this.dockerClient = dockerClient;
+        this.sourceFileStore = sourceFileStore;
+        this.maintenanceExecutor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @PostConstruct
+    private void scheduleMaintenance() {
+        if (enabled) {
+            maintenanceExecutor.scheduleWithFixedDelay(this::maintain, maintenanceIntervalSeconds,
+                    maintenanceIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Check whether the container pool is enabled.
+     *
+     * @return true if evaluations should be run in pooled containers
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start filling the pool of an image in the background, so that the first evaluations don't have to wait for
+     * container creation.
+     *
+     * @param image container image
+     */
+    public void warmUp(String image) {
+        if (!enabled) {
+            return;
+        }
+        ImagePool pool = pools.computeIfAbsent(image, ImagePool::new);
+        maintenanceExecutor.execute(() -> refill(pool));
+    }
+
+    /**
+     * Take a running container of an image out of the pool. A new container is created if there is no idle one and
+     * the pool has not reached its max size.
+     *
+     * @param image container image
+     * @param sourcesHash hash of the source files needed by the evaluation, idle containers already holding them are
+     *                    preferred
+     * @return running container, empty if the pool is disabled or exhausted
+     */
+    public Optional<PooledContainer> acquire(String image, String sourcesHash) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        ImagePool pool = pools.computeIfAbsent(image, ImagePool::new);
+
+        PooledContainer container = pool.pollIdle(sourcesHash);
+        if (container == null) {
+            if (!pool.reserveSlot()) {
+                logger.debug("Container pool for image {} is exhausted", image);
+                return Optional.empty();
+            }
+            try {
+                container = createContainer(image);
+            } catch (RuntimeException e) {
+                pool.freeSlot();
+                throw e;
+            }
+        }
+
+        // replace the taken container in the background
+        maintenanceExecutor.execute(() -> refill(pool));
+
+        return Optional.of(container);
+    }
+
+    /**
+     * Return a container to the pool after an evaluation. Containers that are unhealthy or have reached the max
+     * number of uses are removed instead.
+     *
+     * @param container container to return
+     * @param healthy false if the container might be in an inconsistent state
+     */
+    public void release(PooledContainer container, boolean healthy) {
+        ImagePool pool = pools.computeIfAbsent(container.getImage(), ImagePool::new);
+        container.markReleased();
+
+        if (healthy && container.getUses() < maxUses) {
+            pool.offerIdle(container);
+            return;
+        }
+
+        pool.freeSlot();
+        maintenanceExecutor.execute(() -> {
+            removeContainer(container);
+            refill(pool);
+        });
+    }
+
+    /**
+     * Record that source files have been copied into a container. The container holds a reference on the sources
+     * until other sources are copied into it or it is removed.
+     *
+     * @param container container in use
+     * @param stagedSources staged sources the caller holds a reference on
+     */
+    public void recordStagedSources(PooledContainer container, StagedSources stagedSources) {
+        StagedSources previous = container.getStagedSources();
+        if (previous == stagedSources) {
+            return;
+        }
+        sourceFileStore.retain(stagedSources);
+        container.setStagedSources(stagedSources);
+        if (previous != null) {
+            sourceFileStore.release(previous);
+        }
+    }
+
+    /**
+     * Evict containers that have been idle for too long and refill all pools to their minimum size.
+     */
+    private void maintain() {
+        Instant idleThreshold = Instant.now().minusSeconds(idleTimeoutSeconds);
+        for (ImagePool pool : pools.values()) {
+            for (PooledContainer container : pool.evictIdleBefore(idleThreshold, minIdle)) {
+                logger.debug("Evicting idle container {} of image {}", container.getContainerId(), pool.image);
+                removeContainer(container);
+            }
+            refill(pool);
+        }
+    }
+
+    /**
+     * Create containers until the pool holds the min number of idle containers.
+     *
+     * @param pool pool to refill
+     */
+    private void refill(ImagePool pool) {
+        while (pool.idleCount() < minIdle && pool.reserveSlot()) {
+            try {
+                pool.offerIdle(createContainer(pool.image));
+            } catch (RuntimeException e) {
+                pool.freeSlot();
+                logger.warn("Couldn't create pooled container for image {}", pool.image, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Create and start a container that idles until evaluations are executed in it.
+     *
+     * @param image container image
+     * @return pooled container
+     */
+    private PooledContainer createContainer(String image) {
+        try (CreateContainerCmd createContainerCmd = dockerClient.createContainerCmd(image)
+                .withEntrypoint(KEEP_ALIVE_ENTRYPOINT)
+                .withLabels(Map.of(POOL_LABEL, "true"))) {
+            String containerId = createContainerCmd.exec().getId();
+            try (StartContainerCmd startContainerCmd = dockerClient.startContainerCmd(containerId)) {
+                startContainerCmd.exec();
+            }
+            logger.debug("Created pooled container {} of image {}", containerId, image);
+            return new PooledContainer(containerId, image);
+        }
+    }
+
+    private void removeContainer(PooledContainer container) {
+        if (container.getDaemon() != null) {
+            container.getDaemon().close();
+        }
+        if (container.getStagedSources() != null) {
+            sourceFileStore.release(container.getStagedSources());
+            container.setStagedSources(null);
+        }
+        try (RemoveContainerCmd removeContainerCmd =
+                     dockerClient.removeContainerCmd(container.getContainerId()).withForce(true)) {
+            removeContainerCmd.exec();
+        } catch (DockerException e) {
+            logger.warn("Couldn't remove pooled container {}", container.getContainerId(), e);
+        }
+    }
+
+    /**
+     * Remove all pooled containers on shutdown.
+     */
+    @PreDestroy
+    private void shutdown() {
+        maintenanceExecutor.shutdownNow();
+        pools.values().forEach(pool -> pool.drainIdle().forEach(this::removeContainer));
+    }
+
+    /**
+     * Pool of containers of a single image.
+     */
+    private class ImagePool {
+        /**
+         * Container image.
+         */
+        private final String image;
+
+        /**
+         * Idle containers, most recently used first.
+         */
+        private final Deque<PooledContainer> idle = new ArrayDeque<>();
+
+        /**
+         * Number of containers of this pool, including those in use.
+         */
+        private int size = 0;
+
+        ImagePool(String image) {
+            this.image = image;
+        }
+
+        synchronized PooledContainer pollIdle(String sourcesHash) {
+            Iterator<PooledContainer> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                PooledContainer container = iterator.next();
+                if (container.hasStagedSources(sourcesHash)) {
+                    iterator.remove();
+                    return container;
+                }
+            }
+            return idle.pollFirst();
+        }
+
+        synchronized void offerIdle(PooledContainer container) {
+            idle.addFirst(container);
+        }
+
+        synchronized int idleCount() {
+            return idle.size();
+        }
+
+        synchronized boolean reserveSlot() {
+            if (size >= maxSize) {
+                return false;
+            }
+            size++;
+            return true;
+        }
+
+        synchronized void freeSlot() {
+            size--;
+        }
+
+        synchronized List<PooledContainer> evictIdleBefore(Instant threshold, int keep) {
+            List<PooledContainer> evicted = new ArrayList<>();
+            while (idle.size() > keep && idle.peekLast().getLastReleased().isBefore(threshold)) {
+                evicted.add(idle.pollLast());
+                size--;
+            }
+            return evicted;
+        }
+
+        synchronized List<PooledContainer> drainIdle() {
+            List<PooledContainer> drained = new ArrayList<>(idle);
+            size -= idle.size();
+            idle.clear();
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.pool;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.daemon.EvaluationDaemon;
+import de.tudresden.inf.st.mathgrass.api.evaluator.staging.StagedSources;
+
+import java.time.Instant;
+
+/**
+ * This class represents a pre-created and started container that is kept alive by the {@link ContainerPool} and
+ * can be used for multiple evaluations.
+ */
+public class PooledContainer {
+    /**
+     * ID of container.
+     */
+    private final String containerId;
+
+    /**
+     * Image the container was created from.
+     */
+    private final String image;
+
+    /**
+     * Number of evaluations that have been run in this container.
+     */
+    private int uses = 0;
+
+    /**
+     * Point in time the container was last returned to the pool.
+     */
+    private Instant lastReleased = Instant.now();
+
+    /**
+     * Evaluation daemon running inside the container, if any.
+     */
+    private EvaluationDaemon daemon;
+
+    /**
+     * Source files that have been copied into the container, if any.
+     */
+    private StagedSources stagedSources;
+
+    /**
+     * Constructor.
+     *
+     * @param containerId ID of container
+     * @param image image the container was created from
+     */
+    PooledContainer(String containerId, String image) {
+        this.containerId = containerId;
+        this.image = image;
+    }
+
+    public String getContainerId() {
+        return containerId;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public int getUses() {
+        return uses;
+    }
+
+    public EvaluationDaemon getDaemon() {
+        return daemon;
+    }
+
+    public void setDaemon(EvaluationDaemon daemon) {
+        this.daemon = daemon;
+    }
+
+    public StagedSources getStagedSources() {
+        return stagedSources;
+    }
+
+    void setStagedSources(StagedSources stagedSources) {
+        this.stagedSources = stagedSources;
+    }
+
+    /**
+     * Check whether source files with a given hash are present inside the container.
+     *
+     * @param hash hash of staged sources
+     * @return true if the sources have been copied into the container
+     */
+    public boolean hasStagedSources(String hash) {
+        return stagedSources != null && stagedSources.getHash().equals(hash);
+    }
+
+    Instant getLastReleased() {
+        return lastReleased;
+    }
+
+    /**
+     * Mark the container as returned to the pool after an evaluation.
+     */
+    void markReleased() {
+        uses++;
+        lastReleased = Instant.now();
+    }
+}
@@ -0,0 +1,72 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.snapshot;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.jvm.SimpleGraph;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Everything needed to evaluate answers to a task, loaded in a short transaction so that evaluations can run without
+ * holding a database connection. Snapshots are shared by all evaluations of the task until it changes, so they only
+ * consist of immutable values copied from the entities, and the serialized graph is only handed out as read-only
+ * buffer.
+ *
+ * @param taskId ID of task
+ * @param answerKind kind of the expected answer
+ * @param staticAnswer expected answer if it is static, null otherwise
+ * @param executor executor evaluating dynamic answers, null for other answers
+ * @param evaluatedInline whether answers can be evaluated immediately on the calling thread
+ * @param graphId ID of the graph of task, null if the task has none
+ * @param graphRevision revision of the graph of task
+ * @param propertyGraph simple view of the graph, null unless answers are compared to a graph property
+ * @param graphPayload graph serialized as JSON for evaluators, null if the task has no graph
+ */
+public record EvaluationSnapshot(Long taskId, AnswerKind answerKind, String staticAnswer, ExecutorSnapshot executor,
+                                 boolean evaluatedInline, Long graphId, long graphRevision, SimpleGraph propertyGraph,
+                                 ByteBuffer graphPayload) {
+    /**
+     * Constructor, keeping a read-only view of the payload.
+     */
+    public EvaluationSnapshot {
+        graphPayload = graphPayload == null ? null : graphPayload.asReadOnlyBuffer();
+    }
+
+    /**
+     * Get the serialized graph. Every call returns a buffer of its own, so that readers don't share its position.
+     *
+     * @return read-only buffer, null if the task has no graph
+     */
+    @Override
+    public ByteBuffer graphPayload() {
+        return graphPayload == null ? null : graphPayload.duplicate();
+    }
+
+    /**
+     * Get the executor evaluating answers in a container.
+     *
+     * @return executor, null if answers aren't evaluated by an executor or are compared to a graph property in-process
+     */
+    public ExecutorSnapshot containerExecutor() {
+        return executor == null || executor.graphProperty() != null ? null : executor;
+    }
+
+    /**
+     * Kinds of expected answers, answers are evaluated accordingly.
+     */
+    public enum AnswerKind {
+        /**
+         * The question has no answer that can be evaluated yet, e.g., graph marking questions.
+         */
+        NONE,
+
+        /**
+         * Answers are compared to a fixed answer.
+         */
+        STATIC,
+
+        /**
+         * Answers are evaluated by an executor.
+         */
+        DYNAMIC
+    }
+}
@@ -0,0 +1,143 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.snapshot;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * This class caches the {@link EvaluationSnapshot}s of tasks, so that submissions to the same task don't load it
+ * again.
+ *
+ * <p>
+ * A snapshot stays valid until the task or its graph is updated. Executors are part of their task and only change
+ * with it. Invalidations are repeated once the updating transaction completed, so that snapshots loaded in between
+ * from the old state are dropped as well. Snapshots that are loaded while an invalidation happens aren't cached at
+ * all. Hits and misses are published as metrics of the cache named {@code evaluationSnapshotCache}.
+ */
+@Component
+public class EvaluationSnapshotCache {
+    /**
+     * Max number of cached snapshots.
+     */
+    @Value("${evaluationSnapshotCache.maximumSize:1000}")
+    private long maximumSize;
+
+    /**
+     * Loader of snapshots.
+     */
+    private final EvaluationSnapshotLoader snapshotLoader;
+
+    /**
+     * Meter registry for cache metrics.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Number of invalidations so far. Guarded by this.
+     */
+    private long invalidations = 0;
+
+    /**
+     * Cached snapshots by task ID.
+     */
+    private Cache<Long, EvaluationSnapshot> snapshots;
+
+    /**
+     * Constructor.
+     *
+     * @param snapshotLoader loader of snapshots
+     * @param meterRegistry meter registry
+     */
+    public EvaluationSnapshotCache(EvaluationSnapshotLoader snapshotLoader, MeterRegistry meterRegistry) {
+        this.snapshotLoader = snapshotLoader;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    private void initCache() {
+        snapshots = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, snapshots, "evaluationSnapshotCache");
+    }
+
+    /**
+     * Get the snapshot of a task, loading it if it isn't cached.
+     *
+     * @param taskId ID of task
+     * @return snapshot
+     * @throws IllegalArgumentException if the task doesn't exist
+     */
+    public EvaluationSnapshot get(Long taskId) {
+        EvaluationSnapshot snapshot = snapshots.getIfPresent(taskId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        long invalidationsBeforeLoad;
+        synchronized (this) {
+            invalidationsBeforeLoad = invalidations;
+        }
+        snapshot = snapshotLoader.load(taskId);
+        synchronized (this) {
+            // the snapshot may have been loaded from the state before an update
+            if (invalidations == invalidationsBeforeLoad) {
+                snapshots.put(taskId, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Remove the cached snapshot of a task.
+     *
+     * @param taskId ID of task
+     */
+    public void invalidateTask(Long taskId) {
+        invalidate(() -> snapshots.invalidate(taskId));
+    }
+
+    /**
+     * Remove the cached snapshots of all tasks on a graph.
+     *
+     * @param graphId ID of graph
+     */
+    public void invalidateGraph(Long graphId) {
+        invalidate(() -> snapshots.asMap().values().removeIf(snapshot -> graphId.equals(snapshot.graphId())));
+    }
+
+    /**
+     * Remove all cached snapshots.
+     */
+    public void invalidateAll() {
+        invalidate(snapshots::invalidateAll);
+    }
+
+    private void invalidate(Runnable invalidation) {
+        synchronized (this) {
+            invalidations++;
+            invalidation.run();
+        }
+
+        // the update isn't visible to other transactions before it has been committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    synchronized (EvaluationSnapshotCache.this) {
+                        invalidations++;
+                        invalidation.run();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.snapshot;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.jvm.SimpleGraph;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.snapshot.EvaluationSnapshot.AnswerKind;
+import de.tudresden.inf.st.mathgrass.api.evaluator.staging.GraphPayloadCache;
+import de.tudresden.inf.st.mathgrass.api.graph.Graph;
+import de.tudresden.inf.st.mathgrass.api.task.Task;
+import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
+import de.tudresden.inf.st.mathgrass.api.task.question.FormQuestion;
+import de.tudresden.inf.st.mathgrass.api.task.question.Question;
+import de.tudresden.inf.st.mathgrass.api.task.question.answer.DynamicAnswer;
+import de.tudresden.inf.st.mathgrass.api.task.question.answer.StaticAnswer;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class loads {@link EvaluationSnapshot}s in short read-only transactions.
+ */
+@Component
+public class EvaluationSnapshotLoader {
+    /**
+     * Task repository.
+     */
+    private final TaskRepository taskRepository;
+
+    /**
+     * Cache of serialized graphs handed to evaluators.
+     */
+    private final GraphPayloadCache graphPayloadCache;
+
+    /**
+     * Template for read-only transactions.
+     */
+    private final TransactionTemplate readOnlyTransaction;
+
+    /**
+     * Constructor.
+     *
+     * @param taskRepository task repository
+     * @param graphPayloadCache graph payload cache
+     * @param transactionManager transaction manager
+     */
+    public EvaluationSnapshotLoader(TaskRepository taskRepository, GraphPayloadCache graphPayloadCache,
+                                    PlatformTransactionManager transactionManager) {
+        this.taskRepository = taskRepository;
+        this.graphPayloadCache = graphPayloadCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Load the snapshot of a task. The transaction is closed once the snapshot has been loaded.
+     *
+     * @param taskId ID of task
+     * @return snapshot
+     * @throws IllegalArgumentException if the task doesn't exist
+     */
+    public EvaluationSnapshot load(Long taskId) {
+        return readOnlyTransaction.execute(status -> snapshotOf(taskRepository.findById(taskId).orElseThrow(() ->
+                new IllegalArgumentException("Couldn't find task with ID " + taskId))));
+    }
+
+    /**
+     * Create the snapshot of a task that has been loaded in the current transaction. Everything the evaluation needs
+     * is copied, so that the snapshot doesn't reference any entity.
+     *
+     * @param task task
+     * @return snapshot
+     * @throws UncheckedIOException if the graph couldn't be serialized
+     * @throws IllegalArgumentException if an edge of the graph references a vertex outside the graph
+     */
+    public EvaluationSnapshot snapshotOf(Task task) {
+        Question question = task.getQuestion();
+        AnswerKind answerKind = AnswerKind.NONE;
+        String staticAnswer = null;
+        ExecutorSnapshot executor = null;
+        if (Hibernate.unproxy(question) instanceof FormQuestion formQuestion && formQuestion.getAnswer() != null) {
+            Object answer = Hibernate.unproxy(formQuestion.getAnswer());
+            if (answer instanceof StaticAnswer expectedAnswer) {
+                answerKind = AnswerKind.STATIC;
+                staticAnswer = expectedAnswer.getAnswer();
+            } else if (answer instanceof DynamicAnswer dynamicAnswer) {
+                answerKind = AnswerKind.DYNAMIC;
+                if (dynamicAnswer.getExecutor() != null) {
+                    executor = ExecutorSnapshot.of(dynamicAnswer.getExecutor());
+                }
+            }
+        }
+        boolean evaluatedInline = question != null && question.isEvaluatedInline();
+
+        Graph graph = task.getGraph();
+        if (graph == null) {
+            return new EvaluationSnapshot(task.getId(), answerKind, staticAnswer, executor, evaluatedInline, null, 0,
+                    null, null);
+        }
+
+        // graph properties are computed on the simple view, which is only built if it is needed
+        SimpleGraph propertyGraph = executor != null && executor.graphProperty() != null
+                ? SimpleGraph.of(graph) : null;
+        ByteBuffer graphPayload;
+        try {
+            graphPayload = ByteBuffer.wrap(graphPayloadCache.getPayload(graph));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new EvaluationSnapshot(task.getId(), answerKind, staticAnswer, executor, evaluatedInline,
+                graph.getId(), graph.getRevision(), propertyGraph, graphPayload);
+    }
+}
@@ -0,0 +1,100 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.staging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import de.tudresden.inf.st.mathgrass.api.graph.Graph;
+import de.tudresden.inf.st.mathgrass.api.graph.GraphTransformer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * This class caches the serialized JSON representation of graphs that is handed to evaluators.
+ *
+ * <p>
+ * Many submissions are evaluated against the same few graphs, so the payload of a graph is serialized only once per
+ * revision of the graph. The cache is bounded by the total size of the cached payloads.
+ */
+@Component
+public class GraphPayloadCache {
+    /**
+     * Max total size of cached payloads in bytes.
+     */
+    @Value("${graphPayloadCache.maximumSizeBytes:67108864}")
+    private long maximumSizeBytes;
+
+    /**
+     * Object mapper for serializing graphs.
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Cached payloads.
+     */
+    private Cache<GraphKey, byte[]> payloads;
+
+    @PostConstruct
+    private void initCache() {
+        payloads = CacheBuilder.newBuilder()
+                .maximumWeight(maximumSizeBytes)
+                .<GraphKey, byte[]>weigher((key, payload) -> payload.length)
+                .build();
+    }
+
+    /**
+     * Get the serialized payload of a graph.
+     *
+     * @param graph graph
+     * @return graph serialized as JSON
+     * @throws IOException if the graph couldn't be serialized
+     */
+    public byte[] getPayload(Graph graph) throws IOException {
+        // graphs that haven't been persisted can't be identified
+        if (graph.getId() == null) {
+            return serialize(graph);
+        }
+
+        try {
+            return payloads.get(new GraphKey(graph.getId(), graph.getRevision()), () -> serialize(graph));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IllegalStateException("Couldn't serialize graph with ID " + graph.getId(), e.getCause());
+        }
+    }
+
+    /**
+     * Remove all cached payloads of a graph.
+     *
+     * @param graphId ID of graph
+     */
+    public void invalidate(Long graphId) {
+        payloads.asMap().keySet().removeIf(key -> key.graphId().equals(graphId));
+    }
+
+    /**
+     * Remove all cached payloads.
+     */
+    public void invalidateAll() {
+        payloads.invalidateAll();
+    }
+
+    private byte[] serialize(Graph graph) throws IOException {
+        return objectMapper.writeValueAsBytes(new GraphTransformer().toDto(graph));
+    }
+
+    /**
+     * Key of a cached payload.
+     *
+     * @param graphId ID of graph
+     * @param revision revision of graph
+     */
+    private record GraphKey(Long graphId, long revision) {
+    }
+}
@@ -0,0 +1,139 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.staging;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class stages the source files of executors once per content hash.
+ *
+ * <p>
+ * Source files only change when a task is edited, but are needed by every evaluation. Their hash is computed once
+ * per {@link ExecutorSnapshot}, and the store keeps the encoded tar entries per hash, so that executors with identical
+ * sources share them. As staged sources are
+ * addressed by their contents, edited sources are never mistaken for stale ones. Staged sources are reference
+ * counted: evaluations hold a reference while their inputs are copied, pooled containers hold a reference as long as
+ * the sources are present inside them. Sources without references are kept for reuse until their total size exceeds
+ * a limit, then the least recently used ones are removed.
+ */
+@Component
+public class SourceFileStore {
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(SourceFileStore.class);
+
+    /**
+     * Size of the end-of-archive records of a tar archive.
+     */
+    private static final int END_OF_ARCHIVE_SIZE = 2 * TarConstants.DEFAULT_RCDSIZE;
+
+    /**
+     * Max total size in bytes of staged sources that aren't referenced anymore.
+     */
+    @Value("${sourceFileStore.maximumUnreferencedBytes:16777216}")
+    private long maximumUnreferencedBytes;
+
+    /**
+     * Staged sources by hash, least recently used first.
+     */
+    private final Map<String, StagedSources> stagedSources = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Total size in bytes of staged sources without references.
+     */
+    private long unreferencedBytes = 0;
+
+    /**
+     * Get the staged source files of an executor, staging them if necessary. The caller holds a reference on the
+     * returned sources and has to {@link #release(StagedSources) release} it.
+     *
+     * @param executor executor
+     * @return staged sources
+     */
+    public StagedSources acquire(ExecutorSnapshot executor) {
+        String hash = executor.sourceHash();
+
+        synchronized (this) {
+            StagedSources staged = stagedSources.get(hash);
+            if (staged == null) {
+                staged = new StagedSources(hash, encode(executor.sourceFiles()));
+                stagedSources.put(hash, staged);
+                logger.debug("Staged {} source files with hash {}", executor.sourceFiles().size(), hash);
+            } else if (staged.getReferences() == 0) {
+                unreferencedBytes -= staged.getTarEntries().length;
+            }
+            staged.retain();
+            return staged;
+        }
+    }
+
+    /**
+     * Take an additional reference on staged sources, e.g., for a container the sources have been copied into.
+     *
+     * @param staged staged sources the caller already holds a reference on
+     */
+    public synchronized void retain(StagedSources staged) {
+        if (staged.getReferences() == 0) {
+            throw new IllegalStateException("Staged sources " + staged.getHash() + " aren't referenced anymore");
+        }
+        staged.retain();
+    }
+
+    /**
+     * Release a reference on staged sources.
+     *
+     * @param staged staged sources
+     */
+    public synchronized void release(StagedSources staged) {
+        staged.release();
+        if (staged.getReferences() == 0) {
+            unreferencedBytes += staged.getTarEntries().length;
+            collectGarbage();
+        }
+    }
+
+    /**
+     * Remove the least recently used sources without references until the unreferenced sources fit the limit.
+     */
+    private void collectGarbage() {
+        Iterator<StagedSources> iterator = stagedSources.values().iterator();
+        while (unreferencedBytes > maximumUnreferencedBytes && iterator.hasNext()) {
+            StagedSources staged = iterator.next();
+            if (staged.getReferences() == 0) {
+                iterator.remove();
+                unreferencedBytes -= staged.getTarEntries().length;
+                logger.debug("Removed staged sources with hash {}", staged.getHash());
+            }
+        }
+    }
+
+    private static byte[] encode(Map<String, String> sourceFiles) {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = StagingArchive.openTar(archive)) {
+            for (Map.Entry<String, String> sourceFile : sourceFiles.entrySet()) {
+                StagingArchive.writeEntry(tar, sourceFile.getKey(), ExecutorSnapshot.encode(sourceFile.getValue()));
+            }
+            tar.finish();
+        } catch (IOException e) {
+            // writing to memory only fails on invalid entries
+            throw new UncheckedIOException(e);
+        }
+
+        // keep the entries only, so that they can be appended to other archives
+        byte[] entries = archive.toByteArray();
+        return Arrays.copyOf(entries, entries.length - END_OF_ARCHIVE_SIZE);
+    }
+}
@@ -0,0 +1,60 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.staging;
+
+/**
+ * This class represents the source files of an executor that have been staged once in the {@link SourceFileStore}.
+ *
+ * <p>
+ * Staged sources are identified by the hash of their contents and hold the tar entries of all files, so that they can
+ * be appended to a {@link StagingArchive} without encoding the files again. Every user of staged sources holds a
+ * reference that has to be released when the sources are no longer needed.
+ */
+public class StagedSources {
+    /**
+     * SHA-256 hash of paths and contents of all source files.
+     */
+    private final String hash;
+
+    /**
+     * Tar entries of all source files, without end-of-archive records.
+     */
+    private final byte[] tarEntries;
+
+    /**
+     * Number of references held on these sources.
+     */
+    private int references = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param hash hash of source files
+     * @param tarEntries tar entries of source files
+     */
+    StagedSources(String hash, byte[] tarEntries) {
+        this.hash = hash;
+        this.tarEntries = tarEntries;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    byte[] getTarEntries() {
+        return tarEntries;
+    }
+
+    int getReferences() {
+        return references;
+    }
+
+    void retain() {
+        references++;
+    }
+
+    void release() {
+        if (references == 0) {
+            throw new IllegalStateException("Staged sources " + hash + " have already been released");
+        }
+        references--;
+    }
+}
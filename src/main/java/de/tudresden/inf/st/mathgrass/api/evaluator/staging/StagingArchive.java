@@ -0,0 +1,197 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.staging;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CopyArchiveToContainerCmd;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class collects the input files of an evaluation in memory and copies them into a container as a tar archive.
+ *
+ * <p>
+ * The archive is built in a buffer that is reused by all evaluations running on the same thread, so that no host
+ * file system I/O and no cleanup is necessary per evaluation. Source files that have been staged in the
+ * {@link SourceFileStore} are appended as pre-encoded tar entries.
+ */
+public class StagingArchive {
+    /**
+     * Buffers larger than this are not kept for reuse.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Mode of staged files (regular file, read-only).
+     */
+    private static final int FILE_MODE = 0100444;
+
+    /**
+     * Archive buffer per thread.
+     */
+    private static final ThreadLocal<ArchiveBuffer> buffers = ThreadLocal.withInitial(ArchiveBuffer::new);
+
+    /**
+     * Contents of files by absolute path inside the container.
+     */
+    private final Map<String, ByteBuffer> files = new LinkedHashMap<>();
+
+    /**
+     * Staged source files appended to the archive.
+     */
+    private final List<StagedSources> sources = new ArrayList<>();
+
+    /**
+     * Add a file to the archive.
+     *
+     * @param containerPath absolute path of the file inside the container
+     * @param contents contents of the file
+     * @return this archive
+     */
+    public StagingArchive add(String containerPath, byte[] contents) {
+        return add(containerPath, ByteBuffer.wrap(contents));
+    }
+
+    /**
+     * Add a file to the archive. The remaining contents of the buffer are archived, the buffer itself is left
+     * untouched, so that read-only buffers shared by many evaluations can be added without copying them.
+     *
+     * @param containerPath absolute path of the file inside the container
+     * @param contents contents of the file
+     * @return this archive
+     */
+    public StagingArchive add(String containerPath, ByteBuffer contents) {
+        files.put(containerPath, contents);
+        return this;
+    }
+
+    /**
+     * Add staged source files to the archive. The caller has to hold a reference on the sources until the archive
+     * has been copied.
+     *
+     * @param stagedSources staged source files
+     * @return this archive
+     */
+    public StagingArchive add(StagedSources stagedSources) {
+        sources.add(stagedSources);
+        return this;
+    }
+
+    /**
+     * Copy all files of the archive into a container. The container may be created but not yet started.
+     *
+     * @param dockerClient docker client
+     * @param containerId ID of container
+     */
+    public void copyToContainer(DockerClient dockerClient, String containerId) {
+        ArchiveBuffer buffer = buffers.get();
+        buffer.reset();
+        try {
+            writeTar(buffer);
+            try (CopyArchiveToContainerCmd copyArchiveToContainerCmd =
+                         dockerClient.copyArchiveToContainerCmd(containerId)
+                                 .withRemotePath("/")
+                                 .withTarInputStream(buffer.toInputStream())) {
+                copyArchiveToContainerCmd.exec();
+            }
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                buffers.remove();
+            }
+        }
+    }
+
+    private void writeTar(ByteArrayOutputStream target) {
+        try (TarArchiveOutputStream tar = openTar(target)) {
+            for (Map.Entry<String, ByteBuffer> file : files.entrySet()) {
+                writeEntry(tar, file.getKey(), file.getValue());
+            }
+            // all entries written so far are flushed, pre-encoded entries can be appended directly
+            for (StagedSources stagedSources : sources) {
+                target.write(stagedSources.getTarEntries());
+            }
+            tar.finish();
+        } catch (IOException e) {
+            // writing to memory only fails on invalid entries
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Open a tar stream. Blocks consist of a single record, so that the stream doesn't pad the archive and every
+     * closed entry is written to the target immediately.
+     *
+     * @param target target of tar stream
+     * @return tar stream
+     */
+    static TarArchiveOutputStream openTar(OutputStream target) {
+        TarArchiveOutputStream tar = new TarArchiveOutputStream(target, TarConstants.DEFAULT_RCDSIZE);
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        return tar;
+    }
+
+    /**
+     * Write a single file to a tar stream.
+     *
+     * @param tar tar stream
+     * @param containerPath absolute path of the file inside the container
+     * @param contents contents of the file
+     * @throws IOException if the entry is invalid
+     */
+    static void writeEntry(TarArchiveOutputStream tar, String containerPath, byte[] contents) throws IOException {
+        writeEntry(tar, containerPath, ByteBuffer.wrap(contents));
+    }
+
+    /**
+     * Write a single file to a tar stream, see {@link #writeEntry(TarArchiveOutputStream, String, byte[])}. The
+     * position of the buffer isn't changed.
+     *
+     * @param tar tar stream
+     * @param containerPath absolute path of the file inside the container
+     * @param contents contents of the file
+     * @throws IOException if the entry is invalid
+     */
+    static void writeEntry(TarArchiveOutputStream tar, String containerPath, ByteBuffer contents) throws IOException {
+        // paths inside the archive are relative to the root of the container
+        TarArchiveEntry entry = new TarArchiveEntry(containerPath.replaceFirst("^/+", ""));
+        entry.setSize(contents.remaining());
+        entry.setMode(FILE_MODE);
+        tar.putArchiveEntry(entry);
+        if (contents.hasArray()) {
+            tar.write(contents.array(), contents.arrayOffset() + contents.position(), contents.remaining());
+        } else {
+            // read-only buffers don't expose their array
+            Channels.newChannel(tar).write(contents.duplicate());
+        }
+        tar.closeArchiveEntry();
+    }
+
+    /**
+     * Byte array output stream that exposes its contents without copying them.
+     */
+    private static class ArchiveBuffer extends ByteArrayOutputStream {
+        ArchiveBuffer() {
+            super(64 * 1024);
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.verdict;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.Executor;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.snapshot.EvaluationSnapshot;
+import de.tudresden.inf.st.mathgrass.api.graph.Graph;
+import de.tudresden.inf.st.mathgrass.api.task.Task;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class caches the verdicts of dynamic answers.
+ *
+ * <p>
+ * Evaluators are deterministic unless their executor opts out, so the same answer to the same task is always
+ * evaluated to the same verdict as long as neither the task, its graph nor the executor changed. Verdicts are keyed by
+ * task, executor and graph including their revisions, as well as the answer as the evaluator receives it. The cache
+ * evicts the least recently used verdicts beyond a max size and verdicts older than a configurable TTL. Hits and
+ * misses are published as metrics of the cache named {@code verdictCache}.
+ */
+@Component
+public class VerdictCache {
+    /**
+     * Whether verdicts should be cached.
+     */
+    @Value("${verdictCache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Max number of cached verdicts.
+     */
+    @Value("${verdictCache.maximumSize:10000}")
+    private long maximumSize;
+
+    /**
+     * Number of seconds after which cached verdicts expire.
+     */
+    @Value("${verdictCache.ttlSeconds:3600}")
+    private long ttlSeconds;
+
+    /**
+     * Meter registry for cache metrics.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Cached verdicts.
+     */
+    private Cache<VerdictKey, Boolean> verdicts;
+
+    /**
+     * Constructor.
+     *
+     * @param meterRegistry meter registry
+     */
+    public VerdictCache(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    private void initCache() {
+        verdicts = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, verdicts, "verdictCache");
+    }
+
+    /**
+     * Get the key of the verdict of an answer.
+     *
+     * @param task task
+     * @param executor executor evaluating the answer
+     * @param answer student answer
+     * @return key, empty if verdicts are not cached or the verdict of this answer must not be cached
+     */
+    public Optional<VerdictKey> keyOf(Task task, Executor executor, String answer) {
+        Graph graph = task.getGraph();
+        return keyOf(task.getId(), graph == null ? null : graph.getId(), graph == null ? 0 : graph.getRevision(),
+                ExecutorSnapshot.of(executor), answer);
+    }
+
+    /**
+     * Get the key of the verdict of an answer to a task snapshot.
+     *
+     * @param snapshot snapshot of task
+     * @param answer student answer
+     * @return key, empty if verdicts are not cached or the verdict of this answer must not be cached
+     */
+    public Optional<VerdictKey> keyOf(EvaluationSnapshot snapshot, String answer) {
+        return keyOf(snapshot.taskId(), snapshot.graphId(), snapshot.graphRevision(), snapshot.executor(), answer);
+    }
+
+    private Optional<VerdictKey> keyOf(Long taskId, Long graphId, long graphRevision, ExecutorSnapshot executor,
+                                       String answer) {
+        if (!enabled || executor == null || !executor.deterministic() || taskId == null || executor.id() == null
+                || graphId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new VerdictKey(taskId, executor.id(), executor.revision(), graphId, graphRevision,
+                normalize(answer)));
+    }
+
+    /**
+     * Get a cached verdict.
+     *
+     * @param key key of verdict
+     * @return verdict, empty if it isn't cached
+     */
+    public Optional<Boolean> get(VerdictKey key) {
+        return Optional.ofNullable(verdicts.getIfPresent(key));
+    }
+
+    /**
+     * Cache a verdict.
+     *
+     * @param key key of verdict
+     * @param verdict true if the answer is correct
+     */
+    public void put(VerdictKey key, boolean verdict) {
+        verdicts.put(key, verdict);
+    }
+
+    /**
+     * Remove all cached verdicts of answers to a task.
+     *
+     * @param taskId ID of task
+     */
+    public void invalidateTask(Long taskId) {
+        verdicts.asMap().keySet().removeIf(key -> key.taskId().equals(taskId));
+    }
+
+    /**
+     * Remove all cached verdicts of answers evaluated on a graph.
+     *
+     * @param graphId ID of graph
+     */
+    public void invalidateGraph(Long graphId) {
+        verdicts.asMap().keySet().removeIf(key -> key.graphId().equals(graphId));
+    }
+
+    /**
+     * Remove all cached verdicts.
+     */
+    public void invalidateAll() {
+        verdicts.invalidateAll();
+    }
+
+    /**
+     * Normalize an answer the way it is passed to evaluators: every evaluator receives the answer verbatim, a missing
+     * answer as empty string. Answers differing in whitespace may be evaluated differently, so they are kept apart.
+     *
+     * @param answer student answer
+     * @return normalized answer
+     */
+    private static String normalize(String answer) {
+        return answer == null ? "" : answer;
+    }
+
+    /**
+     * Key of a cached verdict.
+     *
+     * @param taskId ID of task
+     * @param executorId ID of executor
+     * @param executorRevision revision of executor
+     * @param graphId ID of graph
+     * @param graphRevision revision of graph
+     * @param answer normalized student answer
+     */
+    public record VerdictKey(Long taskId, Long executorId, long executorRevision, Long graphId, long graphRevision,
+                             String answer) {
+    }
+}
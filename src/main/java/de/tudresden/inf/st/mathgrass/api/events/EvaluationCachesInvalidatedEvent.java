@@ -0,0 +1,10 @@
+package de.tudresden.inf.st.mathgrass.api.events;
+
+/**
+ * Event class for invalidations of cached evaluation state after a task or a graph has been updated.
+ *
+ * @param taskId ID of the updated task, null if a graph has been updated.
+ * @param graphId ID of the updated graph, null if a task has been updated.
+ */
+public record EvaluationCachesInvalidatedEvent(Long taskId, Long graphId) {
+}
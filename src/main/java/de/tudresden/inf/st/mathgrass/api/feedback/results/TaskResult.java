@@ -3,6 +3,7 @@ package de.tudresden.inf.st.mathgrass.api.feedback.results;
 import de.tudresden.inf.st.mathgrass.api.task.Task;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 
 /**
  * This class represents the result of a {@link Task}, containing the users given answer, as well as
@@ -44,6 +45,72 @@ public class TaskResult {
      */
     private boolean answerTrue;
 
+    /**
+     * State of evaluation.
+     */
+    @Enumerated(EnumType.STRING)
+    private TaskResultStatus status = TaskResultStatus.PENDING;
+
+    /**
+     * Node evaluating the pending task result, if it is queued in the database.
+     */
+    private String claimedBy;
+
+    /**
+     * Expiry of the claim, after which other nodes may evaluate the pending task result.
+     */
+    private LocalDateTime claimedUntil;
+
+    /**
+     * Number of evaluations started for the pending task result.
+     */
+    private int evaluationAttempts;
+
+    /**
+     * Start of the latest evaluation of the pending task result.
+     */
+    private LocalDateTime attemptedAt;
+
+    public TaskResultStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TaskResultStatus status) {
+        this.status = status;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    public LocalDateTime getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(LocalDateTime claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+
+    public int getEvaluationAttempts() {
+        return evaluationAttempts;
+    }
+
+    public void setEvaluationAttempts(int evaluationAttempts) {
+        this.evaluationAttempts = evaluationAttempts;
+    }
+
+    public LocalDateTime getAttemptedAt() {
+        return attemptedAt;
+    }
+
+    public void setAttemptedAt(LocalDateTime attemptedAt) {
+        this.attemptedAt = attemptedAt;
+    }
+
     public boolean isAnswerTrue() {
         return answerTrue;
     }
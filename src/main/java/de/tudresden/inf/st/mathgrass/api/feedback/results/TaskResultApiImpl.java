@@ -4,6 +4,8 @@ import de.tudresden.inf.st.mathgrass.api.apiModel.TaskResultApi;
 import de.tudresden.inf.st.mathgrass.api.common.AbstractApiElement;
 import de.tudresden.inf.st.mathgrass.api.model.TaskResultDTO;
 import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
+import de.tudresden.inf.st.mathgrass.api.task.execution.TaskExecutionManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -14,6 +16,7 @@ import java.util.Optional;
  * API implementation for querying task results.
  */
 @RestController
+@ConditionalOnWebApplication
 public class TaskResultApiImpl extends AbstractApiElement implements TaskResultApi {
     /**
      * Task result repository.
@@ -25,15 +28,23 @@ public class TaskResultApiImpl extends AbstractApiElement implements TaskResultA
      */
     private final TaskRepository taskRepository;
 
+    /**
+     * Task execution manager.
+     */
+    private final TaskExecutionManager taskExecutionManager;
+
     /**
      * Constructor.
      *
      * @param taskResultRepository task result repository
      * @param taskRepository task repository
+     * @param taskExecutionManager task execution manager
      */
-    public TaskResultApiImpl(TaskResultRepository taskResultRepository, TaskRepository taskRepository) {
+    public TaskResultApiImpl(TaskResultRepository taskResultRepository, TaskRepository taskRepository,
+                             TaskExecutionManager taskExecutionManager) {
         this.taskResultRepository = taskResultRepository;
         this.taskRepository = taskRepository;
+        this.taskExecutionManager = taskExecutionManager;
     }
 
     /**
@@ -70,4 +81,21 @@ public class TaskResultApiImpl extends AbstractApiElement implements TaskResultA
             return ok(taskResultDTO);
         }
     }
+
+    /**
+     * Cancel the evaluation of a task result.
+     *
+     * @param taskResultId ID of task result
+     * @return Response
+     */
+    @Override
+    public ResponseEntity<Void> cancelTaskEvaluation(Long taskResultId) {
+        checkExistence(taskResultId, taskResultRepository);
+
+        if (!taskExecutionManager.cancelTaskExecution(taskResultId)) {
+            // evaluation already finished
+            return conflict();
+        }
+        return ok();
+    }
 }
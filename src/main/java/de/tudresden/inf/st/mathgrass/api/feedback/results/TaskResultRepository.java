@@ -1,8 +1,139 @@
 package de.tudresden.inf.st.mathgrass.api.feedback.results;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface TaskResultRepository extends JpaRepository<TaskResult,Long> {
+    /**
+     * Find pending task results that aren't claimed by any node, or whose claim expired, and lock them. Rows that are
+     * locked by other transactions are skipped ({@code FOR UPDATE SKIP LOCKED}), so that concurrent nodes claim
+     * disjoint task results without waiting for each other.
+     *
+     * @param now current time, claims expiring before it are ignored
+     * @param pageable max number of task results
+     * @return claimable task results, oldest first
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select r from TaskResult r where r.status = de.tudresden.inf.st.mathgrass.api.feedback.results" +
+            ".TaskResultStatus.PENDING and (r.claimedUntil is null or r.claimedUntil < :now) order by r.id")
+    List<TaskResult> findClaimable(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Find pending task results whose latest evaluation started before a cutoff, e.g., because it has been lost in a
+     * restart, and lock them. Rows that are locked by other transactions are skipped.
+     *
+     * @param cutoff task results attempted after it aren't stale
+     * @param pageable max number of task results
+     * @return stale task results, oldest first
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select r from TaskResult r where r.status = de.tudresden.inf.st.mathgrass.api.feedback.results" +
+            ".TaskResultStatus.PENDING and (r.attemptedAt is null or r.attemptedAt < :cutoff) order by r.id")
+    List<TaskResult> findStale(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Find completed task results of a task that can be re-graded, i.e., that are neither pending nor cancelled, in
+     * pages ordered by ID.
+     *
+     * @param taskId ID of task
+     * @param afterId only task results with greater IDs are found
+     * @param pageable max number of task results
+     * @return task results, ordered by ID
+     */
+    @Query("select r from TaskResult r where r.task.id = :taskId and r.id > :afterId " +
+            "and r.status <> de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus.PENDING " +
+            "and r.status <> de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus.CANCELLED " +
+            "order by r.id")
+    List<TaskResult> findRegradable(@Param("taskId") Long taskId, @Param("afterId") Long afterId,
+                                    Pageable pageable);
+
+    /**
+     * Count the completed task results of a task that can be re-graded.
+     *
+     * @param taskId ID of task
+     * @return number of task results
+     */
+    @Query("select count(r) from TaskResult r where r.task.id = :taskId " +
+            "and r.status <> de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus.PENDING " +
+            "and r.status <> de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus.CANCELLED")
+    long countRegradable(@Param("taskId") Long taskId);
+
+    /**
+     * Replace the verdict of completed task results in a single statement, unless they have become pending or
+     * cancelled meanwhile.
+     *
+     * @param ids IDs of task results
+     * @param answerTrue whether the answer is correct
+     * @param evaluationDate date of evaluation
+     * @return number of re-graded task results
+     */
+    @Transactional
+    @Modifying
+    @Query("update TaskResult r set r.answerTrue = :answerTrue, r.evaluationDate = :evaluationDate, " +
+            "r.status = de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus.EVALUATED " +
+            "where r.id in :ids " +
+            "and r.status <> de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus.PENDING " +
+            "and r.status <> de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus.CANCELLED")
+    int regrade(@Param("ids") List<Long> ids, @Param("answerTrue") boolean answerTrue,
+                @Param("evaluationDate") String evaluationDate);
+
+    /**
+     * Complete a task result with a verdict, unless it isn't pending anymore, e.g., because it has been cancelled.
+     *
+     * @param id ID of task result
+     * @param answerTrue whether the answer is correct
+     * @param evaluationDate date of evaluation
+     * @return number of completed task results
+     */
+    @Transactional
+    @Modifying
+    @Query("update TaskResult r set r.answerTrue = :answerTrue, r.evaluationDate = :evaluationDate, " +
+            "r.status = de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus.EVALUATED " +
+            "where r.id = :id and r.status = de.tudresden.inf.st.mathgrass.api.feedback.results" +
+            ".TaskResultStatus.PENDING")
+    int completePending(@Param("id") Long id, @Param("answerTrue") boolean answerTrue,
+                        @Param("evaluationDate") String evaluationDate);
+
+    /**
+     * Complete a task result without a verdict, unless it isn't pending anymore.
+     *
+     * @param id ID of task result
+     * @param status final status of task result
+     * @param evaluationDate date of evaluation
+     * @return number of completed task results
+     */
+    @Transactional
+    @Modifying
+    @Query("update TaskResult r set r.status = :status, r.evaluationDate = :evaluationDate " +
+            "where r.id = :id and r.status = de.tudresden.inf.st.mathgrass.api.feedback.results" +
+            ".TaskResultStatus.PENDING")
+    int abortPending(@Param("id") Long id, @Param("status") TaskResultStatus status,
+                     @Param("evaluationDate") String evaluationDate);
+
+    /**
+     * Release the claims of a node on its pending task results, so that other nodes evaluate them right away.
+     *
+     * @param claimedBy node holding the claims
+     * @return number of released task results
+     */
+    @Transactional
+    @Modifying
+    @Query("update TaskResult r set r.claimedBy = null, r.claimedUntil = null where r.claimedBy = :claimedBy " +
+            "and r.status = de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus.PENDING")
+    int releaseClaims(@Param("claimedBy") String claimedBy);
 }
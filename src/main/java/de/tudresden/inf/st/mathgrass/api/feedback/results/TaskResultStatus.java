@@ -0,0 +1,31 @@
+package de.tudresden.inf.st.mathgrass.api.feedback.results;
+
+/**
+ * This enum represents the state of the evaluation of a {@link TaskResult}.
+ */
+public enum TaskResultStatus {
+    /**
+     * Answer has been submitted, but not yet evaluated.
+     */
+    PENDING,
+
+    /**
+     * Answer has been evaluated.
+     */
+    EVALUATED,
+
+    /**
+     * Evaluation exceeded its deadline and has been killed.
+     */
+    TIMED_OUT,
+
+    /**
+     * Evaluation has been cancelled.
+     */
+    CANCELLED,
+
+    /**
+     * Evaluation failed.
+     */
+    FAILED
+}
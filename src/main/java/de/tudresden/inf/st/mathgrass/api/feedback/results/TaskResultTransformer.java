@@ -37,6 +37,7 @@ public class TaskResultTransformer extends ModelTransformer<TaskResultDTO, TaskR
         dto.setEvaluationDate(entity.getEvaluationDate());
         dto.setAnswer(entity.getAnswer());
         dto.setAnswerTrue(entity.isAnswerTrue());
+        dto.setStatus(TaskResultDTO.StatusEnum.fromValue(entity.getStatus().name()));
 
         return dto;
     }
@@ -55,6 +56,9 @@ public class TaskResultTransformer extends ModelTransformer<TaskResultDTO, TaskR
             entity.setEvaluationDate(dto.getEvaluationDate());
             entity.setSubmissionDate(dto.getSubmissionDate());
             entity.setAnswerTrue(dto.getAnswerTrue());
+            if (dto.getStatus() != null) {
+                entity.setStatus(TaskResultStatus.valueOf(dto.getStatus().getValue()));
+            }
 
             return entity;
         } else {
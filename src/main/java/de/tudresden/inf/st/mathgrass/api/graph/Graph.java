@@ -18,6 +18,13 @@ public class Graph {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
+    /**
+     * Revision of graph, incremented on every update. It is only written by
+     * {@link GraphRepository#incrementRevision(Long)}, so that saving a graph never sets an outdated revision.
+     */
+    @Column(updatable = false)
+    private long revision = 0;
+
     /**
      * Label of graph.
      */
@@ -44,6 +51,14 @@ public class Graph {
         return id;
     }
 
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
     public List<String> getLabels() {
         return labels;
     }
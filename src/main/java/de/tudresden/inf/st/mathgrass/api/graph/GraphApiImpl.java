@@ -2,7 +2,9 @@ package de.tudresden.inf.st.mathgrass.api.graph;
 
 import de.tudresden.inf.st.mathgrass.api.apiModel.GraphApi;
 import de.tudresden.inf.st.mathgrass.api.common.AbstractApiElement;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationCacheInvalidator;
 import de.tudresden.inf.st.mathgrass.api.model.GraphDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
@@ -13,19 +15,27 @@ import java.util.Optional;
  * This class can create/update/load/save {@link GraphDTO}s.
  */
 @RestController
+@ConditionalOnWebApplication
 public class GraphApiImpl extends AbstractApiElement implements GraphApi {
     /**
      * GraphDTO repository.
      */
     final GraphRepository graphRepository;
 
+    /**
+     * Invalidator of cached evaluation state.
+     */
+    final EvaluationCacheInvalidator cacheInvalidator;
+
     /**
      * Constructor.
      *
      * @param graphRepository graph repository
+     * @param cacheInvalidator invalidator of cached evaluation state
      */
-    public GraphApiImpl(GraphRepository graphRepository) {
+    public GraphApiImpl(GraphRepository graphRepository, EvaluationCacheInvalidator cacheInvalidator) {
         this.graphRepository = graphRepository;
+        this.cacheInvalidator = cacheInvalidator;
     }
 
     /**
@@ -97,6 +107,14 @@ public class GraphApiImpl extends AbstractApiElement implements GraphApi {
         // save
         this.graphRepository.save(entity);
 
+        if (id != -1) {
+            // the revision is incremented after the graph has been saved, so that the final revision is never read
+            // together with older contents, even if the graph is updated concurrently
+            graphRepository.incrementRevision(id);
+            // cached payloads, verdicts and snapshots of the old revision aren't needed anymore
+            cacheInvalidator.invalidateGraph(id);
+        }
+
         return entity.getId();
     }
 }
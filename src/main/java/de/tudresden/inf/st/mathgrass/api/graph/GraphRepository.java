@@ -1,8 +1,24 @@
 package de.tudresden.inf.st.mathgrass.api.graph;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.transaction.Transactional;
+
 @Repository
 public interface GraphRepository extends JpaRepository<Graph,Long> {
+    /**
+     * Increment the revision of a graph in a single statement, so that concurrent updates of the graph get distinct
+     * revisions.
+     *
+     * @param id ID of graph
+     * @return number of updated graphs
+     */
+    @Transactional
+    @Modifying
+    @Query("update Graph g set g.revision = g.revision + 1 where g.id = :id")
+    int incrementRevision(@Param("id") Long id);
 }
@@ -2,23 +2,37 @@ package de.tudresden.inf.st.mathgrass.api.task;
 
 import de.tudresden.inf.st.mathgrass.api.apiModel.TaskApi;
 import de.tudresden.inf.st.mathgrass.api.common.AbstractApiElement;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationCacheInvalidator;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
 import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultTransformer;
 import de.tudresden.inf.st.mathgrass.api.graph.GraphRepository;
+import de.tudresden.inf.st.mathgrass.api.model.BatchSubmissionDTO;
 import de.tudresden.inf.st.mathgrass.api.model.HintDTO;
 import de.tudresden.inf.st.mathgrass.api.model.TaskDTO;
 import de.tudresden.inf.st.mathgrass.api.model.TaskIdLabelTupleDTO;
+import de.tudresden.inf.st.mathgrass.api.model.TaskResultDTO;
+import de.tudresden.inf.st.mathgrass.api.task.execution.EvaluationRejectedException;
+import de.tudresden.inf.st.mathgrass.api.task.execution.TaskExecutionManager;
+import de.tudresden.inf.st.mathgrass.api.task.execution.TaskSubmissionReceipt;
 import de.tudresden.inf.st.mathgrass.api.task.hint.Hint;
 import de.tudresden.inf.st.mathgrass.api.task.hint.TaskHintTransformer;
+import de.tudresden.inf.st.mathgrass.api.task.regrade.RegradeManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * This class contains functionality to manage {@link TaskDTO}s.
  */
 @RestController
+@ConditionalOnWebApplication
 public class TaskApiImpl extends AbstractApiElement implements TaskApi {
     /**
      * Task repository.
@@ -35,18 +49,41 @@ public class TaskApiImpl extends AbstractApiElement implements TaskApi {
      */
     final TaskResultRepository taskResultRepository;
 
+    /**
+     * Invalidator of cached evaluation state.
+     */
+    final EvaluationCacheInvalidator cacheInvalidator;
+
+    /**
+     * Task execution manager.
+     */
+    final TaskExecutionManager taskExecutionManager;
+
+    /**
+     * Manager of re-grade jobs.
+     */
+    final RegradeManager regradeManager;
+
     /**
      * Constructor.
      *
      * @param taskRepository  task repository
      * @param graphRepository graph repository
      * @param taskResultRepository task result repository
+     * @param cacheInvalidator invalidator of cached evaluation state
+     * @param taskExecutionManager task execution manager
+     * @param regradeManager manager of re-grade jobs
      */
     public TaskApiImpl(TaskRepository taskRepository, GraphRepository graphRepository,
-                       TaskResultRepository taskResultRepository) {
+                       TaskResultRepository taskResultRepository,
+                       EvaluationCacheInvalidator cacheInvalidator, TaskExecutionManager taskExecutionManager,
+                       RegradeManager regradeManager) {
         this.taskRepository = taskRepository;
         this.graphRepository = graphRepository;
         this.taskResultRepository = taskResultRepository;
+        this.cacheInvalidator = cacheInvalidator;
+        this.taskExecutionManager = taskExecutionManager;
+        this.regradeManager = regradeManager;
     }
 
     /**
@@ -86,6 +123,34 @@ public class TaskApiImpl extends AbstractApiElement implements TaskApi {
         return ok(taskEntity.getId());
     }
 
+    /**
+     * Submit many answers to a task, which are evaluated together.
+     *
+     * @param taskId ID of task
+     * @param batchSubmission answers to evaluate
+     * @return Response with task results, in the order of the answers, or 'Service Unavailable' if too many
+     * evaluations are queued
+     */
+    @Override
+    public ResponseEntity<List<TaskResultDTO>> evaluateAnswerBatch(Long taskId, BatchSubmissionDTO batchSubmission) {
+        checkExistence(taskId, taskRepository);
+
+        List<String> answers = Optional.ofNullable(batchSubmission.getAnswers()).orElse(List.of());
+        List<Long> taskResultIds;
+        try {
+            taskResultIds = taskExecutionManager.requestBatchTaskExecution(taskId, answers).stream()
+                    .map(TaskSubmissionReceipt::taskResultId).toList();
+        } catch (EvaluationRejectedException e) {
+            return serviceUnavailable(e.getRetryAfterSeconds());
+        }
+
+        // task results are returned in the order of the answers
+        Map<Long, TaskResult> taskResults = taskResultRepository.findAllById(taskResultIds).stream()
+                .collect(Collectors.toMap(TaskResult::getId, Function.identity()));
+        TaskResultTransformer transformer = new TaskResultTransformer(taskRepository);
+        return ok(taskResultIds.stream().map(taskResults::get).map(transformer::toDto).toList());
+    }
+
     /**
      * Get a hint for a task.
      *
@@ -145,6 +210,19 @@ public class TaskApiImpl extends AbstractApiElement implements TaskApi {
         }
     }
 
+    /**
+     * Start re-grading all completed task results of a task.
+     *
+     * @param taskId ID of task
+     * @return Response with ID of re-grade job
+     */
+    @Override
+    public ResponseEntity<Long> regradeTask(Long taskId) {
+        checkExistence(taskId, taskRepository);
+
+        return ok(regradeManager.startRegrade(taskId).getId());
+    }
+
     /**
      * Update a task.
      *
@@ -163,6 +241,9 @@ public class TaskApiImpl extends AbstractApiElement implements TaskApi {
             // save to database
             taskRepository.save(taskEntity);
 
+            // answers have to be evaluated against the updated task
+            cacheInvalidator.invalidateTask(taskId);
+
             return ok();
         } else {
             return notFound();
@@ -4,6 +4,7 @@ import de.tudresden.inf.st.mathgrass.api.apiModel.TaskCollectionApi;
 import de.tudresden.inf.st.mathgrass.api.common.AbstractApiElement;
 import de.tudresden.inf.st.mathgrass.api.model.TaskCollectionDTO;
 import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -14,6 +15,7 @@ import java.util.Optional;
  * This class contains functionality to create and get {@link TaskCollectionDTO}s.
  */
 @RestController
+@ConditionalOnWebApplication
 public class TaskCollectionApiImpl extends AbstractApiElement implements TaskCollectionApi {
     /**
      * Task collection repository.
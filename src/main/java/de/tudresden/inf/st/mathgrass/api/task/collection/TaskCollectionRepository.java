@@ -1,8 +1,20 @@
 package de.tudresden.inf.st.mathgrass.api.task.collection;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface TaskCollectionRepository extends JpaRepository<TaskCollection,Long> {
+    /**
+     * Find the IDs of all task collections containing a task.
+     *
+     * @param taskId ID of task
+     * @return IDs of task collections, ordered by ID
+     */
+    @Query("select c.id from TaskCollection c join c.tasks t where t.id = :taskId order by c.id")
+    List<Long> findIdsByTaskId(@Param("taskId") Long taskId);
 }
@@ -0,0 +1,46 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helper to defer actions until the current transaction has been committed.
+ */
+final class AfterCommit {
+    private AfterCommit() {
+    }
+
+    /**
+     * Run an action once the current transaction has been committed, or right away if no transaction is active.
+     *
+     * @param action action to run after commit
+     * @param rollbackAction action to run instead if the transaction is rolled back
+     */
+    static void run(Runnable action, Runnable rollbackAction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    action.run();
+                } else {
+                    rollbackAction.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Run an action once the current transaction has been committed, or right away if no transaction is active. The
+     * action is dropped if the transaction is rolled back.
+     *
+     * @param action action to run after commit
+     */
+    static void run(Runnable action) {
+        run(action, () -> {
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint showing the state of the {@link EvaluationBulkheads} and adjusting their limits at runtime. Like
+ * all actuator endpoints besides health, it has to be exposed explicitly, e.g., with
+ * {@code management.endpoints.web.exposure.include=health,bulkheads}.
+ */
+@Component
+@Endpoint(id = "bulkheads")
+public class BulkheadsEndpoint {
+    /**
+     * Evaluation bulkheads.
+     */
+    private final EvaluationBulkheads bulkheads;
+
+    /**
+     * Constructor.
+     *
+     * @param bulkheads evaluation bulkheads
+     */
+    public BulkheadsEndpoint(EvaluationBulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    /**
+     * Get the state of all bulkheads.
+     *
+     * @return states of bulkheads
+     */
+    @ReadOperation
+    public List<EvaluationBulkheads.BulkheadState> bulkheads() {
+        return bulkheads.getBulkheads();
+    }
+
+    /**
+     * Change the max number of concurrently running evaluations of a bulkhead.
+     *
+     * @param name name of bulkhead
+     * @param limit new limit
+     * @return state of bulkhead
+     */
+    @WriteOperation
+    public EvaluationBulkheads.BulkheadState setLimit(String name, int limit) {
+        return bulkheads.setLimit(name, limit);
+    }
+}
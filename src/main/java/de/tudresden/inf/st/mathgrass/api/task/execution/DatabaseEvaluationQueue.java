@@ -0,0 +1,355 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import de.tudresden.inf.st.mathgrass.api.events.CustomEventBus;
+import de.tudresden.inf.st.mathgrass.api.events.TaskEvaluationFinishedEvent;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@link EvaluationQueue} storing evaluations durably in the database, for deployments without a message broker. The
+ * pending task results are the queue: every node polls for pending task results that aren't claimed by any node,
+ * claims a batch of them with {@code SELECT ... FOR UPDATE SKIP LOCKED}, so that concurrent nodes claim disjoint
+ * batches, and evaluates them. Claimed task results with the same task and answer are evaluated once, claimed answers
+ * to the same task are evaluated together.
+ *
+ * <p>
+ * Claims expire after a lease, so the task results of a node that died are evaluated by other nodes, and a node that
+ * shuts down releases its claims right away. Task results whose evaluation has been lost too often, e.g., because it
+ * crashes its nodes, are marked as failed instead. Task results are only completed while they are pending, so a task
+ * result that has been cancelled, or completed by another node after its claim expired, keeps its first status. Every
+ * node notifies the listeners of the task results submitted on it once they are completed, no matter which node
+ * evaluated them. Nodes that should only submit evaluations disable claiming with
+ * {@code taskExecution.database.consume=false}.
+ */
+@Component
+@ConditionalOnProperty(name = "taskExecution.queue", havingValue = "database")
+public class DatabaseEvaluationQueue implements EvaluationQueue {
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(DatabaseEvaluationQueue.class);
+
+    /**
+     * ID of this node, marking its claims. A random ID is used if it is blank.
+     */
+    @Value("${taskExecution.database.nodeId:}")
+    private String nodeId;
+
+    /**
+     * Whether this node claims and evaluates queued task results.
+     */
+    @Value("${taskExecution.database.consume:true}")
+    private boolean consume;
+
+    /**
+     * Max number of task results claimed by this node at a time.
+     */
+    @Value("${taskExecution.database.batchSize:10}")
+    private int batchSize;
+
+    /**
+     * Number of milliseconds between two polls of the queue.
+     */
+    @Value("${taskExecution.database.pollIntervalMillis:1000}")
+    private long pollIntervalMillis;
+
+    /**
+     * Number of seconds after which claims expire.
+     */
+    @Value("${taskExecution.database.leaseSeconds:600}")
+    private long leaseSeconds;
+
+    /**
+     * Max number of evaluations started for a task result, before it is marked as failed.
+     */
+    @Value("${taskResultRecovery.maxAttempts:3}")
+    private int maxAttempts;
+
+    /**
+     * Task result repository.
+     */
+    private final TaskResultRepository taskResultRepository;
+
+    /**
+     * Worker class.
+     */
+    private final TaskExecutionWorker taskExecutionWorker;
+
+    /**
+     * Event bus.
+     */
+    private final CustomEventBus eventBus;
+
+    /**
+     * Template for transactions claiming task results.
+     */
+    private final TransactionTemplate transaction;
+
+    /**
+     * Scheduled executor service polling the queue.
+     */
+    private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Number of task results claimed by this node that haven't been completed yet.
+     */
+    private final AtomicInteger claimedTaskResults = new AtomicInteger();
+
+    /**
+     * IDs of pending task results submitted on this node, whose listeners are notified once they are completed.
+     */
+    private final Set<Long> submittedTaskResultIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor.
+     *
+     * @param taskResultRepository task result repository
+     * @param taskExecutionWorker worker class
+     * @param eventBus event bus
+     * @param transactionManager transaction manager
+     */
+    public DatabaseEvaluationQueue(TaskResultRepository taskResultRepository, TaskExecutionWorker taskExecutionWorker,
+                                   CustomEventBus eventBus, PlatformTransactionManager transactionManager) {
+        this.taskResultRepository = taskResultRepository;
+        this.taskExecutionWorker = taskExecutionWorker;
+        this.eventBus = eventBus;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    private void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = UUID.randomUUID().toString();
+        }
+        scheduledExecutorService.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        logger.info("Queueing evaluations in the database as node {}{}", nodeId,
+                consume ? ", claiming at most " + batchSize + " at a time" : "");
+    }
+
+    /**
+     * Run an evaluation that isn't backed by a queued task result on this node.
+     */
+    @Override
+    public CompletableFuture<EvaluationOutcome> runTaskEvaluation(Long taskId, String userAnswer,
+                                                                  Supplier<List<Long>> taskResultIds) {
+        return taskExecutionWorker.runTaskEvaluation(taskId, userAnswer, taskResultIds);
+    }
+
+    /**
+     * Run evaluations that aren't backed by queued task results on this node.
+     */
+    @Override
+    public List<CompletableFuture<EvaluationOutcome>> runBatchEvaluation(Long taskId, List<String> userAnswers,
+                                                                         List<Supplier<List<Long>>> taskResultIds) {
+        return taskExecutionWorker.runBatchEvaluation(taskId, userAnswers, taskResultIds);
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public boolean enqueue(Long taskResultId) {
+        // other nodes can't claim the task result before it has been committed
+        AfterCommit.run(() -> {
+            submittedTaskResultIds.add(taskResultId);
+            pollNow();
+        });
+        return true;
+    }
+
+    /**
+     * Cancel a queued task result. If it has already been claimed, its evaluation keeps running on the claiming
+     * node, but its verdict is discarded.
+     */
+    @Override
+    public boolean cancel(Long taskResultId) {
+        if (taskResultRepository.abortPending(taskResultId, TaskResultStatus.CANCELLED,
+                LocalDateTime.now().toString()) == 0) {
+            return false;
+        }
+
+        submittedTaskResultIds.remove(taskResultId);
+        eventBus.post(new TaskEvaluationFinishedEvent(taskResultId));
+        logger.info("Cancelled queued task result with ID {}", taskResultId);
+        return true;
+    }
+
+    /**
+     * Poll the queue right away instead of waiting for the next scheduled poll.
+     */
+    private void pollNow() {
+        try {
+            scheduledExecutorService.execute(this::poll);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not polling the queue, this node is shutting down");
+        }
+    }
+
+    /**
+     * Claim and evaluate queued task results, and notify the listeners of completed task results submitted on this
+     * node.
+     */
+    private void poll() {
+        // an exception would cancel all further scheduled polls
+        try {
+            if (consume) {
+                claimAndEvaluate();
+            }
+            notifyCompletedSubmissions();
+        } catch (RuntimeException e) {
+            logger.error("Polling queued task results failed", e);
+        }
+    }
+
+    /**
+     * Claim as many queued task results as this node has capacity for and start their evaluation.
+     */
+    private void claimAndEvaluate() {
+        int capacity = batchSize - claimedTaskResults.get();
+        if (capacity <= 0) {
+            return;
+        }
+
+        List<TaskResult> failed = new ArrayList<>();
+        List<TaskResult> claimed = transaction.execute(transactionStatus -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<TaskResult> taskResults = new ArrayList<>();
+            for (TaskResult taskResult : taskResultRepository.findClaimable(now, PageRequest.of(0, capacity))) {
+                // a claim that expired means that the previous evaluation has been lost
+                if (taskResult.getClaimedBy() != null) {
+                    taskResult.setEvaluationAttempts(taskResult.getEvaluationAttempts() + 1);
+                }
+                taskResult.setAttemptedAt(now);
+                if (taskResult.getEvaluationAttempts() > maxAttempts) {
+                    taskResult.setStatus(TaskResultStatus.FAILED);
+                    taskResult.setEvaluationDate(now.toString());
+                    failed.add(taskResult);
+                    continue;
+                }
+                taskResult.setClaimedBy(nodeId);
+                taskResult.setClaimedUntil(now.plusSeconds(leaseSeconds));
+                taskResults.add(taskResult);
+            }
+            return taskResults;
+        });
+        for (TaskResult taskResult : failed) {
+            logger.warn("Giving up on queued task result with ID {} after {} lost evaluations", taskResult.getId(),
+                    maxAttempts);
+            submittedTaskResultIds.remove(taskResult.getId());
+            eventBus.post(new TaskEvaluationFinishedEvent(taskResult.getId()));
+        }
+        if (claimed == null || claimed.isEmpty()) {
+            return;
+        }
+        claimedTaskResults.addAndGet(claimed.size());
+
+        // task results with the same task and answer share one evaluation, answers to the same task are evaluated
+        // together
+        Map<Long, Map<String, List<Long>>> evaluations = new LinkedHashMap<>();
+        for (TaskResult taskResult : claimed) {
+            evaluations.computeIfAbsent(taskResult.getTask().getId(), taskId -> new LinkedHashMap<>())
+                    .computeIfAbsent(taskResult.getAnswer(), answer -> new ArrayList<>()).add(taskResult.getId());
+        }
+        evaluations.forEach(this::evaluate);
+    }
+
+    /**
+     * Evaluate claimed task results of a task and complete them once their evaluation finished.
+     *
+     * @param taskId ID of task
+     * @param taskResultIdsByAnswer IDs of claimed task results, by answer
+     */
+    private void evaluate(Long taskId, Map<String, List<Long>> taskResultIdsByAnswer) {
+        logger.info("Evaluating queued task results {} of task with ID {}", taskResultIdsByAnswer.values(), taskId);
+
+        List<String> userAnswers = new ArrayList<>(taskResultIdsByAnswer.keySet());
+        List<CompletionStage<EvaluationOutcome>> assessments;
+        try {
+            assessments = taskExecutionWorker.makeBatchAssessmentAsync(taskId, userAnswers);
+        } catch (RuntimeException e) {
+            assessments = Collections.nCopies(userAnswers.size(), CompletableFuture.failedFuture(e));
+        }
+
+        for (int i = 0; i < userAnswers.size(); i++) {
+            List<Long> taskResultIds = taskResultIdsByAnswer.get(userAnswers.get(i));
+            CompletableFuture<EvaluationOutcome> assessment = assessments.get(i).toCompletableFuture();
+            assessment.whenComplete((outcome, error) -> claimedTaskResults.addAndGet(-taskResultIds.size()));
+
+            taskExecutionWorker.completeWhenDone(taskId, assessment, () -> {
+                // the worker notifies the listeners of these task results
+                submittedTaskResultIds.removeAll(taskResultIds);
+                return taskResultIds;
+            });
+        }
+    }
+
+    /**
+     * Notify the listeners of task results submitted on this node that have been completed by other nodes.
+     */
+    private void notifyCompletedSubmissions() {
+        if (submittedTaskResultIds.isEmpty()) {
+            return;
+        }
+
+        List<Long> taskResultIds = List.copyOf(submittedTaskResultIds);
+        Set<Long> existingTaskResultIds = new HashSet<>();
+        for (TaskResult taskResult : taskResultRepository.findAllById(taskResultIds)) {
+            existingTaskResultIds.add(taskResult.getId());
+            if (taskResult.getStatus() != TaskResultStatus.PENDING
+                    && submittedTaskResultIds.remove(taskResult.getId())) {
+                eventBus.post(new TaskEvaluationFinishedEvent(taskResult.getId()));
+            }
+        }
+        // deleted task results will never be completed
+        taskResultIds.stream().filter(id -> !existingTaskResultIds.contains(id))
+                .forEach(submittedTaskResultIds::remove);
+    }
+
+    /**
+     * Stop polling on shutdown and release the claims of this node, so that other nodes evaluate its task results.
+     */
+    @PreDestroy
+    private void shutdown() {
+        scheduledExecutorService.shutdownNow();
+        if (consume) {
+            int released = taskResultRepository.releaseClaims(nodeId);
+            if (released > 0) {
+                logger.info("Released claims on {} queued task results", released);
+            }
+        }
+    }
+}
@@ -0,0 +1,826 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class isolates evaluations of different executors from each other, so that a slow or broken executor can't
+ * occupy all resources of the task executor.
+ *
+ * <p>
+ * Evaluations are started in bulkheads, one per container image. Every bulkhead has a queue of its own and limits the
+ * number of its evaluations that run concurrently, from their start until their completion. A dispatcher hands the
+ * queued evaluations of bulkheads with free capacity to the task executor, visiting the bulkheads round-robin, so an
+ * image with many queued evaluations can't delay the evaluations of other images. The limits are configured with
+ * {@code bulkhead.defaultMaxConcurrent} and {@code bulkhead.limits}, e.g., {@code image-a=2,image-b=8}, and can be
+ * adjusted at runtime. The number of running and queued evaluations, the limit and the number of started evaluations
+ * of every bulkhead are published as metrics tagged with the name of the bulkhead.
+ *
+ * <p>
+ * Within a bulkhead, evaluations are queued per tenant, see {@link EvaluationTenants}, so that a burst of submissions
+ * of one course, e.g., during an exam, can't take over the bulkhead. The capacity of a bulkhead is shared by weighted
+ * fair queuing: every tenant has a virtual time, which advances by the expected cost of its started evaluations divided
+ * by its weight, and the tenant with the lowest virtual time starts next. Tenants that become busy start at the virtual
+ * time of the bulkhead, so being idle doesn't earn credit. Tenants running fewer evaluations than their guaranteed
+ * minimum share of the limit of the bulkhead are served first whenever capacity is freed. The number of queued
+ * evaluations and the time from submission until start and until completion are published as metrics tagged with the
+ * tenant. At most {@code tenantScheduling.maxMeteredTenants} tenants are tagged at a time, the evaluations of further
+ * tenants are tagged {@value #OTHER_TENANTS}, and the metrics of a tenant are removed once it has no queued or running
+ * evaluations left.
+ *
+ * <p>
+ * Within the queue of a tenant, evaluations are ordered shortest expected job first: the expected cost of an evaluation
+ * is the expected duration of its executor, see {@link EvaluationDurationStatistics}, times the number of answers it
+ * evaluates. To prevent starvation of expensive evaluations, their cost is lowered by the time they have been queued,
+ * weighted with {@code evaluationScheduling.agingFactor}. As the age of all queued evaluations grows at the same rate,
+ * the order is fixed on submission: {@code expected cost + agingFactor * submission time}. An evaluation thus waits at
+ * most its expected cost divided by the aging factor longer than a cheaper one submitted at the same time.
+ *
+ * <p>
+ * The number of answers a tenant queues in a bulkhead is bounded by {@code bulkhead.maxQueuedAnswers}, so that memory
+ * and waiting times don't grow without bound under overload. Submissions are checked with {@link #checkAdmission}
+ * before their task results are created, and rejected with the estimated time until the queue has drained. As the
+ * check precedes the submission, concurrent submissions may exceed the bound slightly.
+ */
+@Component
+public class EvaluationBulkheads {
+    /**
+     * Name of the bulkhead of evaluations that don't run in a container.
+     */
+    public static final String DEFAULT_BULKHEAD = "default";
+
+    /**
+     * Tag of the metrics of tenants beyond the max number of tenants with metrics of their own.
+     */
+    public static final String OTHER_TENANTS = "other";
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(EvaluationBulkheads.class);
+
+    /**
+     * Order of queued evaluations, cheapest first and by submission if equally expensive.
+     */
+    private static final Comparator<QueuedEvaluation> QUEUE_ORDER = Comparator
+            .comparingDouble(QueuedEvaluation::priority).thenComparingLong(QueuedEvaluation::sequence);
+
+    /**
+     * Max number of concurrently running evaluations of bulkheads without a configured limit.
+     */
+    @Value("${bulkhead.defaultMaxConcurrent:4}")
+    private int defaultMaxConcurrent;
+
+    /**
+     * Configured limits of bulkheads, as comma-separated list of {@code name=limit}.
+     */
+    @Value("${bulkhead.limits:}")
+    private String limits;
+
+    /**
+     * Max number of answers queued by a tenant in a bulkhead. A larger submission is admitted only to an empty queue.
+     */
+    @Value("${bulkhead.maxQueuedAnswers:500}")
+    private int maxQueuedAnswers;
+
+    /**
+     * Milliseconds of expected cost an evaluation loses per millisecond it has been queued.
+     */
+    @Value("${evaluationScheduling.agingFactor:1.0}")
+    private double agingFactor;
+
+    /**
+     * Max number of tenants with metrics of their own.
+     */
+    @Value("${tenantScheduling.maxMeteredTenants:50}")
+    private int maxMeteredTenants;
+
+    /**
+     * Delay in milliseconds after which evaluations are dispatched again once the task executor rejected one.
+     */
+    @Value("${bulkhead.dispatchRetryMillis:500}")
+    private long dispatchRetryMillis;
+
+    /**
+     * Task executor.
+     */
+    private final ThreadPoolTaskExecutor taskExecutor;
+
+    /**
+     * Statistics of evaluation durations.
+     */
+    private final EvaluationDurationStatistics durationStatistics;
+
+    /**
+     * Tenants of evaluations.
+     */
+    private final EvaluationTenants tenants;
+
+    /**
+     * Meter registry for bulkhead metrics.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Meters of tenants with queued or running evaluations, by tag. Guarded by this.
+     */
+    private final Map<String, TenantMeters> tenantMeters = new HashMap<>();
+
+    /**
+     * Bulkheads by name, in the order the dispatcher visits them. Guarded by this.
+     */
+    private final Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+
+    /**
+     * Configured limits by name of bulkhead.
+     */
+    private final Map<String, Integer> configuredLimits = new HashMap<>();
+
+    /**
+     * Executor dispatching evaluations again after the task executor rejected one.
+     */
+    private final ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Whether dispatching again has been scheduled. Guarded by this.
+     */
+    private boolean retryScheduled;
+
+    /**
+     * Position of the bulkhead the dispatcher visits next. Guarded by this.
+     */
+    private int nextBulkhead;
+
+    /**
+     * Number of submitted evaluations, orders evaluations of equal priority by submission. Guarded by this.
+     */
+    private long submissions;
+
+    /**
+     * Constructor.
+     *
+     * @param taskExecutor task executor
+     * @param durationStatistics statistics of evaluation durations
+     * @param tenants tenants of evaluations
+     * @param meterRegistry meter registry
+     */
+    public EvaluationBulkheads(ThreadPoolTaskExecutor taskExecutor, EvaluationDurationStatistics durationStatistics,
+                               EvaluationTenants tenants, MeterRegistry meterRegistry) {
+        this.taskExecutor = taskExecutor;
+        this.durationStatistics = durationStatistics;
+        this.tenants = tenants;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Parse the configured limits.
+     */
+    @PostConstruct
+    private void initialize() {
+        for (String limit : limits.split(",")) {
+            if (limit.isBlank()) {
+                continue;
+            }
+            int separator = limit.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Bulkhead limit must be of the form name=limit: " + limit);
+            }
+            configuredLimits.put(limit.substring(0, separator).trim(),
+                    Integer.parseInt(limit.substring(separator + 1).trim()));
+        }
+    }
+
+    /**
+     * Check whether the queue of a tenant in a bulkhead can take the evaluation of more answers.
+     *
+     * @param key bulkhead, executor and tenant of evaluation
+     * @param answers number of answers to evaluate
+     * @throws EvaluationRejectedException if the queue of the tenant is full
+     */
+    public void checkAdmission(SchedulingKey key, int answers) {
+        long retryAfterSeconds;
+        synchronized (this) {
+            Bulkhead bulkhead = bulkheads.get(key.bulkhead());
+            TenantQueue tenant = bulkhead == null ? null : bulkhead.tenants.get(key.tenant());
+            if (tenant == null || tenant.queuedAnswers == 0 || tenant.queuedAnswers + answers <= maxQueuedAnswers) {
+                return;
+            }
+            retryAfterSeconds = Math.max(1, (long) Math.ceil(
+                    expectedCostMillis(tenant.queue) / capacityOf(bulkhead, tenant) / 1000));
+        }
+        logger.warn("Rejecting evaluation of {} answers, queue of tenant {} in bulkhead {} is full", answers,
+                key.tenant(), key.bulkhead());
+        throw new EvaluationRejectedException("Too many evaluations are queued, retry after " + retryAfterSeconds
+                + " seconds", retryAfterSeconds);
+    }
+
+    /**
+     * Get the position of a queued evaluation in the queue of its tenant. The wait is estimated from the expected
+     * durations of the evaluations of the tenant that start before it, spread over the share of the tenant.
+     *
+     * @param job future returned on submission of the evaluation
+     * @return position of evaluation, empty if it isn't queued
+     */
+    public synchronized Optional<QueuePosition> getQueuePosition(Future<?> job) {
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            for (TenantQueue tenant : bulkhead.tenants.values()) {
+                for (QueuedEvaluation evaluation : tenant.queue) {
+                    if (evaluation.job() != job) {
+                        continue;
+                    }
+                    List<QueuedEvaluation> ahead = tenant.queue.stream()
+                            .filter(other -> !other.job().isCancelled() && QUEUE_ORDER.compare(other, evaluation) < 0)
+                            .toList();
+                    return Optional.of(new QueuePosition(ahead.size() + 1,
+                            (long) (expectedCostMillis(ahead) / capacityOf(bulkhead, tenant))));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Get the positions of all queued evaluations in the queues of their tenants, see {@link #getQueuePosition}. The
+     * queues are only copied while holding the lock, the positions are computed afterwards in a single pass over every
+     * queue.
+     *
+     * @return positions of queued evaluations, by future returned on their submission
+     */
+    public Map<Future<?>, QueuePosition> getQueuePositions() {
+        List<List<QueuedEvaluation>> queues = new ArrayList<>();
+        List<Double> capacities = new ArrayList<>();
+        synchronized (this) {
+            for (Bulkhead bulkhead : bulkheads.values()) {
+                for (TenantQueue tenant : bulkhead.tenants.values()) {
+                    if (!tenant.queue.isEmpty()) {
+                        queues.add(new ArrayList<>(tenant.queue));
+                        capacities.add(capacityOf(bulkhead, tenant));
+                    }
+                }
+            }
+        }
+
+        Map<Future<?>, QueuePosition> positions = new HashMap<>();
+        for (int i = 0; i < queues.size(); i++) {
+            List<QueuedEvaluation> queue = queues.get(i);
+            queue.removeIf(evaluation -> evaluation.job().isCancelled());
+            queue.sort(QUEUE_ORDER);
+            double costAheadMillis = 0;
+            for (int position = 0; position < queue.size(); position++) {
+                QueuedEvaluation evaluation = queue.get(position);
+                positions.put(evaluation.job(),
+                        new QueuePosition(position + 1, (long) (costAheadMillis / capacities.get(i))));
+                costAheadMillis += durationStatistics.expectedMillis(evaluation.executor()) * evaluation.answers();
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Start an evaluation in a bulkhead once the current transaction has been committed. The evaluation occupies the
+     * bulkhead from its start until the returned stage completes.
+     *
+     * @param key bulkhead, executor and tenant of evaluation
+     * @param answers number of answers evaluated, the expected cost grows with them
+     * @param start starts the evaluation, returns null if nothing has been started
+     * @param rollbackAction action to run instead if the transaction is rolled back
+     * @return future of the start, cancelling it before the evaluation started prevents its start
+     */
+    public Future<?> submitAfterCommit(SchedulingKey key, int answers, Callable<CompletionStage<?>> start,
+                                       Runnable rollbackAction) {
+        FutureTask<CompletionStage<?>> job = new FutureTask<>(start);
+        AfterCommit.run(() -> submit(key, answers, job), () -> {
+            job.cancel(false);
+            rollbackAction.run();
+        });
+        return job;
+    }
+
+    /**
+     * Queue an evaluation in a bulkhead and dispatch it if the bulkhead has capacity.
+     *
+     * @param key bulkhead, executor and tenant of evaluation
+     * @param answers number of answers evaluated
+     * @param job start of evaluation
+     */
+    private void submit(SchedulingKey key, int answers, FutureTask<CompletionStage<?>> job) {
+        long submittedAt = System.currentTimeMillis();
+        double priority = durationStatistics.expectedMillis(key.executor()) * answers + agingFactor * submittedAt;
+        synchronized (this) {
+            Bulkhead bulkhead = bulkheads.computeIfAbsent(key.bulkhead(), this::createBulkhead);
+            TenantQueue tenant = bulkhead.tenants.computeIfAbsent(key.tenant(), TenantQueue::new);
+            TenantMeters meters = metersOf(key.tenant());
+            // idle tenants don't earn credit
+            if (tenant.queue.isEmpty()) {
+                tenant.virtualTime = Math.max(tenant.virtualTime, bulkhead.virtualTime);
+            }
+            meters.evaluations++;
+            tenant.enqueue(new QueuedEvaluation(job, key.executor(), answers, priority, submissions++, submittedAt,
+                    meters));
+        }
+        dispatch();
+    }
+
+    /**
+     * Hand queued evaluations to the task executor, visiting the bulkheads with free capacity round-robin.
+     */
+    private synchronized void dispatch() {
+        List<Bulkhead> order = new ArrayList<>(bulkheads.values());
+        boolean dispatched = true;
+        while (dispatched) {
+            dispatched = false;
+            for (int i = 0; i < order.size(); i++) {
+                Bulkhead bulkhead = order.get((nextBulkhead + i) % order.size());
+                if (bulkhead.running >= bulkhead.limit || !dispatchNext(bulkhead)) {
+                    continue;
+                }
+                nextBulkhead = (nextBulkhead + i + 1) % order.size();
+                dispatched = true;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Hand the next queued evaluation of a bulkhead to the task executor. Has to be called while holding the lock.
+     *
+     * @param bulkhead bulkhead
+     * @return true if an evaluation has been dispatched
+     */
+    private boolean dispatchNext(Bulkhead bulkhead) {
+        TenantQueue tenant = nextTenant(bulkhead);
+        if (tenant == null) {
+            return false;
+        }
+
+        QueuedEvaluation evaluation = tenant.queue.peek();
+        try {
+            taskExecutor.execute(() -> start(bulkhead, tenant, evaluation));
+        } catch (RejectedExecutionException e) {
+            // no evaluation of the bulkhead might be running whose completion dispatches it again
+            logger.warn("Task executor rejected evaluation of bulkhead {}, keeping it queued", bulkhead.name);
+            scheduleRetry();
+            return false;
+        }
+        tenant.dequeue();
+        bulkhead.virtualTime = tenant.virtualTime;
+        tenant.virtualTime += durationStatistics.expectedMillis(evaluation.executor()) * evaluation.answers()
+                / tenants.weightOf(tenant.name);
+        tenant.running++;
+        bulkhead.running++;
+        bulkhead.started.increment();
+        evaluation.meters().queueWait
+                .record(System.currentTimeMillis() - evaluation.submittedAtMillis(), TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Dispatch again after a delay, unless that has already been scheduled. Has to be called while holding the lock.
+     */
+    private void scheduleRetry() {
+        if (retryScheduled) {
+            return;
+        }
+        retryScheduled = true;
+        try {
+            retryExecutor.schedule(() -> {
+                synchronized (this) {
+                    retryScheduled = false;
+                }
+                dispatch();
+            }, dispatchRetryMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the application is shutting down
+            retryScheduled = false;
+        }
+    }
+
+    /**
+     * Choose the tenant whose evaluation starts next in a bulkhead: a tenant below its guaranteed share if there is
+     * one, the tenant with the lowest virtual time otherwise. Evaluations cancelled while queued are dropped, tenants
+     * without queued or running evaluations are removed. Has to be called while holding the lock.
+     *
+     * @param bulkhead bulkhead
+     * @return tenant, null if no evaluation is queued
+     */
+    private TenantQueue nextTenant(Bulkhead bulkhead) {
+        TenantQueue next = null;
+        boolean nextGuaranteed = false;
+        Iterator<TenantQueue> iterator = bulkhead.tenants.values().iterator();
+        while (iterator.hasNext()) {
+            TenantQueue tenant = iterator.next();
+            while (!tenant.queue.isEmpty() && tenant.queue.peek().job().isCancelled()) {
+                releaseMeters(tenant.dequeue().meters());
+            }
+            if (tenant.queue.isEmpty()) {
+                if (tenant.running == 0) {
+                    iterator.remove();
+                }
+                continue;
+            }
+
+            boolean guaranteed = tenant.running < Math.ceil(tenants.minShareOf(tenant.name) * bulkhead.limit);
+            if (next == null || guaranteed && !nextGuaranteed
+                    || guaranteed == nextGuaranteed && tenant.virtualTime < next.virtualTime) {
+                next = tenant;
+                nextGuaranteed = guaranteed;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Start an evaluation on a thread of the task executor, and release its bulkhead and record its latency once it
+     * completed. The durations of executor runs are recorded by the {@link TaskExecutionWorker}, as the bulkhead can't
+     * tell them apart from cached verdicts or waits for other nodes.
+     *
+     * @param bulkhead bulkhead
+     * @param tenant tenant of evaluation
+     * @param queuedEvaluation queued evaluation
+     */
+    private void start(Bulkhead bulkhead, TenantQueue tenant, QueuedEvaluation queuedEvaluation) {
+        FutureTask<CompletionStage<?>> job = queuedEvaluation.job();
+        CompletionStage<?> evaluation = null;
+        try {
+            job.run();
+            evaluation = job.get();
+        } catch (CancellationException e) {
+            logger.debug("Evaluation of bulkhead {} has been cancelled before it started", bulkhead.name);
+        } catch (ExecutionException e) {
+            logger.error("Starting evaluation of bulkhead {} failed", bulkhead.name, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (evaluation == null) {
+                release(bulkhead, tenant, queuedEvaluation);
+            } else {
+                evaluation.whenComplete((result, error) -> {
+                    // cancelled evaluations say nothing about the latency of evaluations
+                    if (!(error instanceof CancellationException)) {
+                        long latencyMillis = System.currentTimeMillis() - queuedEvaluation.submittedAtMillis();
+                        queuedEvaluation.meters().latency.record(latencyMillis, TimeUnit.MILLISECONDS);
+                    }
+                    release(bulkhead, tenant, queuedEvaluation);
+                });
+            }
+        }
+    }
+
+    /**
+     * Release the capacity of a completed evaluation and dispatch the next ones.
+     *
+     * @param bulkhead bulkhead
+     * @param tenant tenant of evaluation
+     * @param evaluation completed evaluation
+     */
+    private void release(Bulkhead bulkhead, TenantQueue tenant, QueuedEvaluation evaluation) {
+        synchronized (this) {
+            bulkhead.running--;
+            tenant.running--;
+            if (tenant.running == 0 && tenant.queue.isEmpty()) {
+                bulkhead.tenants.remove(tenant.name, tenant);
+            }
+            releaseMeters(evaluation.meters());
+        }
+        dispatch();
+    }
+
+    /**
+     * Change the max number of concurrently running evaluations of a bulkhead. Lowering the limit doesn't affect
+     * evaluations that are already running.
+     *
+     * @param name name of bulkhead
+     * @param limit new limit
+     * @return state of bulkhead
+     * @throws IllegalArgumentException if the limit isn't positive
+     */
+    public BulkheadState setLimit(String name, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Bulkhead limit must be positive");
+        }
+        BulkheadState state;
+        synchronized (this) {
+            Bulkhead bulkhead = bulkheads.computeIfAbsent(name, this::createBulkhead);
+            bulkhead.limit = limit;
+            state = bulkhead.toState();
+        }
+        logger.info("Changed limit of bulkhead {} to {}", name, limit);
+        dispatch();
+        return state;
+    }
+
+    /**
+     * Stop dispatching again on shutdown.
+     */
+    @PreDestroy
+    private void shutdown() {
+        retryExecutor.shutdownNow();
+    }
+
+    /**
+     * Get the current state of all bulkheads.
+     *
+     * @return states of bulkheads
+     */
+    public synchronized List<BulkheadState> getBulkheads() {
+        return bulkheads.values().stream().map(Bulkhead::toState).toList();
+    }
+
+    /**
+     * Create a bulkhead with its configured limit and register its metrics. Has to be called while holding the lock.
+     *
+     * @param name name of bulkhead
+     * @return bulkhead
+     */
+    private Bulkhead createBulkhead(String name) {
+        Bulkhead bulkhead = new Bulkhead(name, configuredLimits.getOrDefault(name, defaultMaxConcurrent),
+                Counter.builder("evaluation.bulkhead.started").tag("bulkhead", name).register(meterRegistry));
+        Gauge.builder("evaluation.bulkhead.running", this, self -> self.stateOf(bulkhead).running())
+                .tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("evaluation.bulkhead.queued", this, self -> self.stateOf(bulkhead).queued())
+                .tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("evaluation.bulkhead.limit", this, self -> self.stateOf(bulkhead).limit())
+                .tag("bulkhead", name).register(meterRegistry);
+        return bulkhead;
+    }
+
+    /**
+     * Expected cost of evaluations.
+     *
+     * @param evaluations evaluations
+     * @return sum of the expected durations of the evaluations in milliseconds
+     */
+    private double expectedCostMillis(Collection<QueuedEvaluation> evaluations) {
+        return evaluations.stream()
+                .filter(evaluation -> !evaluation.job().isCancelled())
+                .mapToDouble(evaluation ->
+                        durationStatistics.expectedMillis(evaluation.executor()) * evaluation.answers())
+                .sum();
+    }
+
+    /**
+     * Capacity of a bulkhead available to a tenant, i.e., its weighted share of the limit among the tenants with
+     * queued evaluations, but at least its guaranteed share. Has to be called while holding the lock.
+     *
+     * @param bulkhead bulkhead
+     * @param tenant tenant
+     * @return number of concurrently running evaluations available to the tenant
+     */
+    private double capacityOf(Bulkhead bulkhead, TenantQueue tenant) {
+        double weight = tenants.weightOf(tenant.name);
+        double busyWeights = weight + bulkhead.tenants.values().stream()
+                .filter(other -> other != tenant && !other.queue.isEmpty())
+                .mapToDouble(other -> tenants.weightOf(other.name))
+                .sum();
+        return bulkhead.limit * Math.max(weight / busyWeights, tenants.minShareOf(tenant.name));
+    }
+
+    /**
+     * Get the meters of a tenant, registering them if the tenant has been idle. Tenants beyond the max number of
+     * tenants with metrics of their own share the meters tagged {@value #OTHER_TENANTS}. Has to be called while
+     * holding the lock.
+     *
+     * @param tenant name of tenant
+     * @return meters of tenant
+     */
+    private TenantMeters metersOf(String tenant) {
+        TenantMeters meters = tenantMeters.get(tenant);
+        if (meters != null) {
+            return meters;
+        }
+        String tag = tenantMeters.size() < maxMeteredTenants ? tenant : OTHER_TENANTS;
+        return tenantMeters.computeIfAbsent(tag, this::createTenantMeters);
+    }
+
+    /**
+     * Register the metrics of a tenant. Has to be called while holding the lock.
+     *
+     * @param tag tag of tenant
+     * @return meters of tenant
+     */
+    private TenantMeters createTenantMeters(String tag) {
+        TenantMeters meters = new TenantMeters(tag,
+                Timer.builder("evaluation.tenant.wait").tag("tenant", tag).register(meterRegistry),
+                Timer.builder("evaluation.tenant.latency").tag("tenant", tag).register(meterRegistry));
+        meters.queued = Gauge.builder("evaluation.tenant.queued", this, self -> self.queuedOf(meters))
+                .tag("tenant", tag).register(meterRegistry);
+        return meters;
+    }
+
+    /**
+     * Release the meters of a completed or dropped evaluation, and remove them once their tenant has no queued or
+     * running evaluations left. Has to be called while holding the lock.
+     *
+     * @param meters meters of tenant
+     */
+    private void releaseMeters(TenantMeters meters) {
+        meters.evaluations--;
+        if (meters.evaluations == 0 && tenantMeters.remove(meters.tag, meters)) {
+            meterRegistry.remove(meters.queued);
+            meterRegistry.remove(meters.queueWait);
+            meterRegistry.remove(meters.latency);
+        }
+    }
+
+    private synchronized int queuedOf(TenantMeters meters) {
+        return meters.queuedEvaluations;
+    }
+
+    private synchronized BulkheadState stateOf(Bulkhead bulkhead) {
+        return bulkhead.toState();
+    }
+
+    /**
+     * State of a bulkhead.
+     *
+     * @param name name of bulkhead
+     * @param limit max number of concurrently running evaluations
+     * @param running number of running evaluations
+     * @param queued number of queued evaluations, including cancelled ones that haven't been dropped yet
+     */
+    public record BulkheadState(String name, int limit, int running, int queued) {
+    }
+
+    /**
+     * Evaluation queued in a bulkhead.
+     *
+     * @param job start of evaluation
+     * @param executor executor of evaluation
+     * @param answers number of answers evaluated
+     * @param priority expected cost plus aging of submission time, lower is dispatched first
+     * @param sequence number of submission
+     * @param submittedAtMillis time of submission in milliseconds
+     * @param meters meters of the tenant of evaluation
+     */
+    private record QueuedEvaluation(FutureTask<CompletionStage<?>> job, String executor, int answers,
+                                    double priority, long sequence, long submittedAtMillis, TenantMeters meters) {
+    }
+
+    /**
+     * Meters of a tenant, or of the tenants sharing the tag {@value #OTHER_TENANTS}. Guarded by the enclosing
+     * instance.
+     */
+    private static class TenantMeters {
+        /**
+         * Tag of tenant.
+         */
+        private final String tag;
+
+        /**
+         * Timer of the time from submission until start.
+         */
+        private final Timer queueWait;
+
+        /**
+         * Timer of the time from submission until completion.
+         */
+        private final Timer latency;
+
+        /**
+         * Gauge of the number of queued evaluations.
+         */
+        private Gauge queued;
+
+        /**
+         * Number of queued evaluations.
+         */
+        private int queuedEvaluations;
+
+        /**
+         * Number of queued or running evaluations, the meters are removed once it drops to zero.
+         */
+        private int evaluations;
+
+        TenantMeters(String tag, Timer queueWait, Timer latency) {
+            this.tag = tag;
+            this.queueWait = queueWait;
+            this.latency = latency;
+        }
+    }
+
+    /**
+     * Bulkhead of the evaluations of a container image. Guarded by the enclosing instance.
+     */
+    private static class Bulkhead {
+        /**
+         * Name of bulkhead.
+         */
+        private final String name;
+
+        /**
+         * Queues of tenants with queued or running evaluations, by name of tenant.
+         */
+        private final Map<String, TenantQueue> tenants = new LinkedHashMap<>();
+
+        /**
+         * Counter of started evaluations.
+         */
+        private final Counter started;
+
+        /**
+         * Max number of concurrently running evaluations.
+         */
+        private int limit;
+
+        /**
+         * Number of running evaluations.
+         */
+        private int running;
+
+        /**
+         * Virtual time of the tenant whose evaluation started last.
+         */
+        private double virtualTime;
+
+        Bulkhead(String name, int limit, Counter started) {
+            this.name = name;
+            this.limit = limit;
+            this.started = started;
+        }
+
+        BulkheadState toState() {
+            return new BulkheadState(name, limit, running,
+                    tenants.values().stream().mapToInt(tenant -> tenant.queue.size()).sum());
+        }
+    }
+
+    /**
+     * Queue of the evaluations of a tenant in a bulkhead. Guarded by the enclosing instance.
+     */
+    private static class TenantQueue {
+        /**
+         * Name of tenant.
+         */
+        private final String name;
+
+        /**
+         * Queued evaluations, cheapest first.
+         */
+        private final Queue<QueuedEvaluation> queue = new PriorityQueue<>(QUEUE_ORDER);
+
+        /**
+         * Number of running evaluations.
+         */
+        private int running;
+
+        /**
+         * Number of answers evaluated by the queued evaluations.
+         */
+        private int queuedAnswers;
+
+        /**
+         * Expected cost of the started evaluations divided by the weight of the tenant.
+         */
+        private double virtualTime;
+
+        TenantQueue(String name) {
+            this.name = name;
+        }
+
+        void enqueue(QueuedEvaluation evaluation) {
+            queue.add(evaluation);
+            queuedAnswers += evaluation.answers();
+            evaluation.meters().queuedEvaluations++;
+        }
+
+        QueuedEvaluation dequeue() {
+            QueuedEvaluation evaluation = queue.poll();
+            if (evaluation != null) {
+                queuedAnswers -= evaluation.answers();
+                evaluation.meters().queuedEvaluations--;
+            }
+            return evaluation;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps running statistics of the durations of evaluations per executor, from the start of the executor
+ * until its verdict, per answer. Only evaluations that actually ran their executor are recorded, cached verdicts and
+ * evaluations on other nodes aren't. The statistics are used to estimate the cost of queued evaluations.
+ *
+ * <p>
+ * The expected duration of an evaluation is the exponentially weighted moving average (EWMA) of the durations of the
+ * previous evaluations of its executor, so it follows changes of the executor or the load quickly. Percentiles are
+ * computed over a window of the most recent durations. Durations are also recorded by a timer named
+ * {@code evaluation.duration}, tagged with the executor.
+ */
+@Component
+public class EvaluationDurationStatistics {
+    /**
+     * Weight of the latest duration in the EWMA.
+     */
+    @Value("${evaluationStatistics.ewmaWeight:0.2}")
+    private double ewmaWeight;
+
+    /**
+     * Number of recent durations percentiles are computed over.
+     */
+    @Value("${evaluationStatistics.window:100}")
+    private int window;
+
+    /**
+     * Expected duration in milliseconds of evaluations of executors without statistics.
+     */
+    @Value("${evaluationStatistics.defaultExpectedMillis:5000}")
+    private double defaultExpectedMillis;
+
+    /**
+     * Meter registry for duration timers.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Statistics by executor.
+     */
+    private final Map<String, ExecutorStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param meterRegistry meter registry
+     */
+    public EvaluationDurationStatistics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Record the duration of an evaluation.
+     *
+     * @param executor executor of evaluation
+     * @param durationMillis duration in milliseconds
+     */
+    public void record(String executor, long durationMillis) {
+        statistics.computeIfAbsent(executor, this::createStatistics).record(durationMillis);
+    }
+
+    /**
+     * Expected duration of an evaluation.
+     *
+     * @param executor executor of evaluation
+     * @return EWMA of the durations of the executor in milliseconds, a default if none has been recorded yet
+     */
+    public double expectedMillis(String executor) {
+        ExecutorStatistics executorStatistics = statistics.get(executor);
+        return executorStatistics == null ? defaultExpectedMillis : executorStatistics.getEwmaMillis();
+    }
+
+    /**
+     * Get a summary of the durations of all executors.
+     *
+     * @return summaries by executor
+     */
+    public Map<String, DurationSummary> getStatistics() {
+        Map<String, DurationSummary> summaries = new TreeMap<>();
+        statistics.forEach((executor, executorStatistics) -> summaries.put(executor, executorStatistics.summarize()));
+        return summaries;
+    }
+
+    private ExecutorStatistics createStatistics(String executor) {
+        return new ExecutorStatistics(window, Timer.builder("evaluation.duration").tag("executor", executor)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Summary of the durations of an executor.
+     *
+     * @param count number of recorded durations
+     * @param ewmaMillis EWMA of durations in milliseconds
+     * @param p50Millis median of recent durations in milliseconds
+     * @param p95Millis 95th percentile of recent durations in milliseconds
+     */
+    public record DurationSummary(long count, double ewmaMillis, long p50Millis, long p95Millis) {
+    }
+
+    /**
+     * Running statistics of the durations of an executor.
+     */
+    private class ExecutorStatistics {
+        /**
+         * Most recent durations, used as ring buffer. Guarded by this.
+         */
+        private final long[] recentMillis;
+
+        /**
+         * Timer recording durations.
+         */
+        private final Timer timer;
+
+        /**
+         * Number of recorded durations. Guarded by this.
+         */
+        private long count;
+
+        /**
+         * EWMA of durations. Guarded by this.
+         */
+        private double ewmaMillis;
+
+        ExecutorStatistics(int window, Timer timer) {
+            this.recentMillis = new long[Math.max(window, 1)];
+            this.timer = timer;
+        }
+
+        void record(long durationMillis) {
+            timer.record(durationMillis, TimeUnit.MILLISECONDS);
+            synchronized (this) {
+                ewmaMillis = count == 0 ? durationMillis : ewmaWeight * durationMillis + (1 - ewmaWeight) * ewmaMillis;
+                recentMillis[(int) (count % recentMillis.length)] = durationMillis;
+                count++;
+            }
+        }
+
+        /**
+         * Get the EWMA of the durations in constant time, as it is read for every queued evaluation while scheduling.
+         *
+         * @return EWMA of durations in milliseconds
+         */
+        synchronized double getEwmaMillis() {
+            return ewmaMillis;
+        }
+
+        synchronized DurationSummary summarize() {
+            long[] sorted = Arrays.copyOf(recentMillis, (int) Math.min(count, recentMillis.length));
+            Arrays.sort(sorted);
+            return new DurationSummary(count, ewmaMillis, percentile(sorted, 0.5), percentile(sorted, 0.95));
+        }
+
+        private long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+        }
+    }
+}
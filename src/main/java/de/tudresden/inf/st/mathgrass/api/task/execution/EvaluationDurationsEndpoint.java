@@ -0,0 +1,38 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint showing the {@link EvaluationDurationStatistics} the queued evaluations are ordered by.
+ */
+@Component
+@Endpoint(id = "evaluationDurations")
+public class EvaluationDurationsEndpoint {
+    /**
+     * Statistics of evaluation durations.
+     */
+    private final EvaluationDurationStatistics durationStatistics;
+
+    /**
+     * Constructor.
+     *
+     * @param durationStatistics statistics of evaluation durations
+     */
+    public EvaluationDurationsEndpoint(EvaluationDurationStatistics durationStatistics) {
+        this.durationStatistics = durationStatistics;
+    }
+
+    /**
+     * Get a summary of the durations of all executors.
+     *
+     * @return summaries by executor
+     */
+    @ReadOperation
+    public Map<String, EvaluationDurationStatistics.DurationSummary> evaluationDurations() {
+        return durationStatistics.getStatistics();
+    }
+}
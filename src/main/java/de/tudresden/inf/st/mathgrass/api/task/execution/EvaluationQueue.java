@@ -0,0 +1,88 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Queue that the {@link TaskExecutionManager} hands evaluations to. Depending on the property
+ * {@code taskExecution.queue}, evaluations run on this node ({@code local}, the default), on any evaluator node
+ * consuming a shared RabbitMQ queue ({@code rabbitmq}), or on any node claiming pending task results from the database
+ * ({@code database}). Either way, the listeners of the node that submitted the evaluation are notified.
+ */
+public interface EvaluationQueue {
+    /**
+     * Run the evaluation of an answer to a task and complete all task results waiting for it once it finished.
+     *
+     * @param taskId ID of task
+     * @param userAnswer given answer
+     * @param taskResultIds supplier of the IDs of all task results to complete, called once after the evaluation
+     * @return future of the evaluation, cancelling it stops waiting for the evaluation
+     */
+    CompletableFuture<EvaluationOutcome> runTaskEvaluation(Long taskId, String userAnswer,
+                                                           Supplier<List<Long>> taskResultIds);
+
+    /**
+     * Run the evaluations of many answers to a task and complete the task results waiting for each of them, see
+     * {@link #runTaskEvaluation}. By default, every answer is evaluated on its own.
+     *
+     * @param taskId ID of task
+     * @param userAnswers given answers
+     * @param taskResultIds suppliers of the IDs of all task results to complete, in the order of the answers
+     * @return futures of the evaluations, in the order of the answers
+     */
+    default List<CompletableFuture<EvaluationOutcome>> runBatchEvaluation(Long taskId, List<String> userAnswers,
+                                                                          List<Supplier<List<Long>>> taskResultIds) {
+        List<CompletableFuture<EvaluationOutcome>> assessments = new ArrayList<>();
+        for (int i = 0; i < userAnswers.size(); i++) {
+            assessments.add(runTaskEvaluation(taskId, userAnswers.get(i), taskResultIds.get(i)));
+        }
+        return assessments;
+    }
+
+    /**
+     * Whether this queue stores its jobs durably as the pending task results themselves, see {@link #enqueue}. Durable
+     * queues are bounded by the database, so their submissions bypass the admission to the in-memory queues.
+     *
+     * @return true if pending task results are queued durably
+     */
+    default boolean isDurable() {
+        return false;
+    }
+
+    /**
+     * Whether evaluations of this queue run on other nodes, which limit the number of concurrently running evaluations
+     * themselves, e.g., by the prefetch count of their consumers. Evaluations of remote queues bypass the bulkheads of
+     * this node, which would otherwise hold a slot while waiting for the verdict.
+     *
+     * @return true if evaluations run on other nodes
+     */
+    default boolean isRemote() {
+        return false;
+    }
+
+    /**
+     * Queue a new pending task result, if this queue stores its jobs durably as the pending task results themselves.
+     * Queued task results are evaluated and completed by the queue, they are neither coalesced nor passed to
+     * {@link #runTaskEvaluation}.
+     *
+     * @param taskResultId ID of pending task result, which might not have been committed yet
+     * @return true if the task result has been queued, false if its evaluation has to be run
+     */
+    default boolean enqueue(Long taskResultId) {
+        return false;
+    }
+
+    /**
+     * Cancel the evaluation of a queued task result.
+     *
+     * @param taskResultId ID of task result
+     * @return true if the task result has been cancelled, false if it isn't queued or already finished
+     */
+    default boolean cancel(Long taskResultId) {
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+/**
+ * This exception is thrown if a submission is rejected because too many evaluations are queued already. The client
+ * should submit it again once the queue has drained.
+ */
+public class EvaluationRejectedException extends RuntimeException {
+    /**
+     * Number of seconds after which the submission should be retried.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructor.
+     *
+     * @param message message
+     * @param retryAfterSeconds number of seconds after which the submission should be retried
+     */
+    public EvaluationRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Getter for retry after.
+     *
+     * @return number of seconds after which the submission should be retried
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
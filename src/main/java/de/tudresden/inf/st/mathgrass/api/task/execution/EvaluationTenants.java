@@ -0,0 +1,185 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import de.tudresden.inf.st.mathgrass.api.task.collection.TaskCollectionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class assigns evaluations to tenants, e.g., courses, which share the capacity of the
+ * {@link EvaluationBulkheads} fairly.
+ *
+ * <p>
+ * The tenant of a task is configured with {@code tenantScheduling.tenantKey}: {@code taskCollection} (the default)
+ * assigns it to the task collection with the lowest ID containing it, named {@code collection-<id>}, {@code task} to
+ * a tenant of its own, named {@code task-<id>}, and {@code none} to the default tenant. Tasks without a task
+ * collection belong to the default tenant as well. As task collections rarely change, tenants are cached for
+ * {@code tenantScheduling.cacheSeconds}.
+ *
+ * <p>
+ * Every tenant has a weight, its share of a bulkhead relative to the other tenants with queued evaluations, and a
+ * guaranteed minimum share, the fraction of the limit of a bulkhead it may always use. Both are configured as
+ * comma-separated lists of {@code tenant=value}, tenants without a configured value have weight
+ * {@code tenantScheduling.defaultWeight} and no guaranteed share.
+ */
+@Component
+public class EvaluationTenants {
+    /**
+     * Name of the tenant of evaluations that aren't assigned to another tenant.
+     */
+    public static final String DEFAULT_TENANT = "default";
+
+    /**
+     * Key assigning tasks to tenants, one of {@code taskCollection}, {@code task} and {@code none}.
+     */
+    @Value("${tenantScheduling.tenantKey:taskCollection}")
+    private String tenantKey;
+
+    /**
+     * Number of seconds the tenant of a task is cached.
+     */
+    @Value("${tenantScheduling.cacheSeconds:60}")
+    private long cacheSeconds;
+
+    /**
+     * Weight of tenants without a configured weight.
+     */
+    @Value("${tenantScheduling.defaultWeight:1.0}")
+    private double defaultWeight;
+
+    /**
+     * Configured weights of tenants, as comma-separated list of {@code tenant=weight}.
+     */
+    @Value("${tenantScheduling.weights:}")
+    private String weights;
+
+    /**
+     * Configured guaranteed minimum shares of tenants, as comma-separated list of {@code tenant=share}.
+     */
+    @Value("${tenantScheduling.minShares:}")
+    private String minShares;
+
+    /**
+     * Task collection repository.
+     */
+    private final TaskCollectionRepository taskCollectionRepository;
+
+    /**
+     * Configured weights by tenant.
+     */
+    private final Map<String, Double> configuredWeights = new HashMap<>();
+
+    /**
+     * Configured guaranteed minimum shares by tenant.
+     */
+    private final Map<String, Double> configuredMinShares = new HashMap<>();
+
+    /**
+     * Cached tenants by ID of task.
+     */
+    private Cache<Long, String> tenants;
+
+    /**
+     * Constructor.
+     *
+     * @param taskCollectionRepository task collection repository
+     */
+    public EvaluationTenants(TaskCollectionRepository taskCollectionRepository) {
+        this.taskCollectionRepository = taskCollectionRepository;
+    }
+
+    /**
+     * Parse the configured weights and shares, and create the cache.
+     */
+    @PostConstruct
+    private void initialize() {
+        if (!List.of("taskCollection", "task", "none").contains(tenantKey)) {
+            throw new IllegalArgumentException("Unknown tenant key: " + tenantKey);
+        }
+        configuredWeights.putAll(parseSettings(weights));
+        configuredMinShares.putAll(parseSettings(minShares));
+        if (defaultWeight <= 0 || configuredWeights.values().stream().anyMatch(weight -> weight <= 0)) {
+            throw new IllegalArgumentException("Tenant weights must be positive");
+        }
+        if (configuredMinShares.values().stream().anyMatch(share -> share < 0 || share > 1)) {
+            throw new IllegalArgumentException("Guaranteed tenant shares must be between 0 and 1");
+        }
+
+        tenants = CacheBuilder.newBuilder()
+                .expireAfterWrite(cacheSeconds, TimeUnit.SECONDS)
+                .maximumSize(10_000)
+                .build();
+    }
+
+    /**
+     * Get the tenant of a task.
+     *
+     * @param taskId ID of task
+     * @return name of tenant
+     */
+    public String tenantOf(Long taskId) {
+        return switch (tenantKey) {
+            case "task" -> "task-" + taskId;
+            case "none" -> DEFAULT_TENANT;
+            default -> {
+                String tenant = tenants.getIfPresent(taskId);
+                if (tenant == null) {
+                    List<Long> taskCollectionIds = taskCollectionRepository.findIdsByTaskId(taskId);
+                    tenant = taskCollectionIds.isEmpty() ? DEFAULT_TENANT : "collection-" + taskCollectionIds.get(0);
+                    tenants.put(taskId, tenant);
+                }
+                yield tenant;
+            }
+        };
+    }
+
+    /**
+     * Get the weight of a tenant.
+     *
+     * @param tenant name of tenant
+     * @return weight
+     */
+    public double weightOf(String tenant) {
+        return configuredWeights.getOrDefault(tenant, defaultWeight);
+    }
+
+    /**
+     * Get the guaranteed minimum share of a tenant.
+     *
+     * @param tenant name of tenant
+     * @return fraction of the limit of a bulkhead the tenant may always use
+     */
+    public double minShareOf(String tenant) {
+        return configuredMinShares.getOrDefault(tenant, 0.0);
+    }
+
+    /**
+     * Parse a comma-separated list of {@code name=value}.
+     *
+     * @param settings settings
+     * @return values by name
+     * @throws IllegalArgumentException if a setting is malformed
+     */
+    private static Map<String, Double> parseSettings(String settings) {
+        Map<String, Double> values = new HashMap<>();
+        for (String setting : settings.split(",")) {
+            if (setting.isBlank()) {
+                continue;
+            }
+            int separator = setting.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Tenant setting must be of the form tenant=value: " + setting);
+            }
+            values.put(setting.substring(0, separator).trim(),
+                    Double.parseDouble(setting.substring(separator + 1).trim()));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,50 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * {@link EvaluationQueue} running evaluations on this node. Evaluator nodes without API can't receive local
+ * evaluations, so this queue can't be used with the {@code evaluation-worker} profile.
+ */
+@Component
+@ConditionalOnProperty(name = "taskExecution.queue", havingValue = "local", matchIfMissing = true)
+public class LocalEvaluationQueue implements EvaluationQueue {
+    /**
+     * Worker class.
+     */
+    private final TaskExecutionWorker taskExecutionWorker;
+
+    /**
+     * Constructor.
+     *
+     * @param taskExecutionWorker worker class
+     * @param environment environment
+     */
+    public LocalEvaluationQueue(TaskExecutionWorker taskExecutionWorker, Environment environment) {
+        if (environment.acceptsProfiles(Profiles.of("evaluation-worker"))) {
+            throw new IllegalStateException("Evaluator nodes need a shared queue, set taskExecution.queue to "
+                    + "'rabbitmq' or 'database'");
+        }
+        this.taskExecutionWorker = taskExecutionWorker;
+    }
+
+    @Override
+    public CompletableFuture<EvaluationOutcome> runTaskEvaluation(Long taskId, String userAnswer,
+                                                                  Supplier<List<Long>> taskResultIds) {
+        return taskExecutionWorker.runTaskEvaluation(taskId, userAnswer, taskResultIds);
+    }
+
+    @Override
+    public List<CompletableFuture<EvaluationOutcome>> runBatchEvaluation(Long taskId, List<String> userAnswers,
+                                                                         List<Supplier<List<Long>>> taskResultIds) {
+        return taskExecutionWorker.runBatchEvaluation(taskId, userAnswers, taskResultIds);
+    }
+}
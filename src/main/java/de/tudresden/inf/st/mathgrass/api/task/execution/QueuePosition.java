@@ -0,0 +1,11 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+/**
+ * Position of an evaluation in the queue of its tenant in its bulkhead.
+ *
+ * @param position number of queued evaluations of its tenant that start before it, including itself, 0 if it has been
+ * started
+ * @param estimatedWaitMillis estimated number of milliseconds until it starts
+ */
+public record QueuePosition(int position, long estimatedWaitMillis) {
+}
@@ -0,0 +1,12 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+/**
+ * Identifies how the evaluations of answers to a task are scheduled.
+ *
+ * @param bulkhead name of the bulkhead isolating the evaluations, see {@link EvaluationBulkheads}
+ * @param executor executor whose durations estimate the cost of the evaluations, see
+ * {@link EvaluationDurationStatistics}
+ * @param tenant tenant sharing the bulkhead fairly with other tenants, see {@link EvaluationTenants}
+ */
+public record SchedulingKey(String bulkhead, String executor, String tenant) {
+}
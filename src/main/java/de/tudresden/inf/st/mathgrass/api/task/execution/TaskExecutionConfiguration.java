@@ -23,9 +23,11 @@ public class TaskExecutionConfiguration {
     private int maxPoolSize;
 
     /**
-     * Max number of tasks stored in the queue.
+     * Max number of tasks stored in the queue. Evaluations are queued in the {@link EvaluationBulkheads} and only
+     * handed to the task executor once they can run, starts rejected by a full queue stay queued in their bulkhead
+     * and are dispatched again after a delay. Outcomes of evaluations are stored by a separate, unbounded executor.
      */
-    @Value("${taskExecutor.queueCapacity:" + Integer.MAX_VALUE + "}")
+    @Value("${taskExecutor.queueCapacity:100}")
     private int queueCapacity;
 
     @Bean
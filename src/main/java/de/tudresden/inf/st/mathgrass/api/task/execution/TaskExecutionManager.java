@@ -1,21 +1,51 @@
 package de.tudresden.inf.st.mathgrass.api.task.execution;
 
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
 import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 /**
  * This class manages the execution of multiple requested task evaluations.
  *
  * <p>
  * The execution of tasks is handled by a {@link ThreadPoolTaskExecutor}, allowing the execution of multiple task
- * evaluations at the same time in an asynchronous way. To be executed task evaluations are stored in a queue, allowing
- * the limitation of the number of simultaneously running task evaluations.
- * Upon completion an event is emitted to notify listeners of the finished task.
+ * evaluations at the same time in an asynchronous way. To be executed task evaluations are stored in the queues of
+ * {@link EvaluationBulkheads}, which limit the number of concurrently running evaluations per container image, share
+ * them fairly between tenants, e.g., courses, and start the evaluations with the shortest expected duration first.
+ * Threads of the executor only start evaluations, they aren't blocked while containers run. Evaluations are started
+ * through an {@link EvaluationQueue}, which runs them on this node or hands them to other evaluator nodes. Queues that
+ * store pending task results durably take them over right away instead. Evaluations handed to other nodes bypass the
+ * bulkheads, the evaluator nodes limit how many of them run concurrently.
+ * Submissions are rejected with an {@link EvaluationRejectedException} while the queue of their tenant is full, and
+ * clients can follow the position of queued evaluations.
+ * Trivial evaluations, such as comparisons with static answers, bypass the queue and are completed while the answer is
+ * submitted.
+ * Identical submissions (same task and answer) that arrive while an evaluation of them is in flight are coalesced
+ * into that evaluation, so that their task results are completed from a single verdict. Answers submitted as a batch
+ * are evaluated together.
+ * Upon completion an event is emitted for every task result to notify listeners of the finished task. Evaluations can
+ * be cancelled as long as they haven't finished, the container of a running evaluation is killed once no task result
+ * is waiting for it anymore.
  */
 @Component
 public class TaskExecutionManager {
@@ -25,24 +55,44 @@ public class TaskExecutionManager {
     private final Logger logger = LogManager.getLogger(TaskExecutionManager.class);
 
     /**
-     * Task executor.
+     * Bulkheads starting evaluations on the task executor.
      */
-    private final DelayedTaskExecutor taskExecutor;
+    private final EvaluationBulkheads bulkheads;
 
     /**
      * Worker class.
      */
     private final TaskExecutionWorker taskExecutionWorker;
 
+    /**
+     * Queue running evaluations.
+     */
+    private final EvaluationQueue evaluationQueue;
+
+    /**
+     * Max number of answers evaluated together, larger batches are split, so that a single run of an executor can't
+     * take arbitrarily long.
+     */
+    @Value("${taskExecution.maxBatchSize:20}")
+    private int maxBatchSize;
+
+    /**
+     * Evaluations that haven't been completed yet, by task and answer. Guarded by itself.
+     */
+    private final Map<EvaluationKey, CoalescedEvaluation> inFlightEvaluations = new HashMap<>();
+
     /**
      * Constructor.
      *
-     * @param taskExecutor task executor
+     * @param bulkheads bulkheads starting evaluations on the task executor
      * @param taskExecutionWorker worker class
+     * @param evaluationQueue queue running evaluations
      */
-    public TaskExecutionManager(DelayedTaskExecutor taskExecutor, TaskExecutionWorker taskExecutionWorker) {
-        this.taskExecutor = taskExecutor;
+    public TaskExecutionManager(EvaluationBulkheads bulkheads, TaskExecutionWorker taskExecutionWorker,
+                                EvaluationQueue evaluationQueue) {
+        this.bulkheads = bulkheads;
         this.taskExecutionWorker = taskExecutionWorker;
+        this.evaluationQueue = evaluationQueue;
     }
 
     /**
@@ -50,20 +100,516 @@ public class TaskExecutionManager {
      *
      * @param taskId ID of task
      * @param userAnswer given answer
-     * @return ID of task result
+     * @return receipt containing the ID of the task result, and the verdict if the answer has been evaluated inline
      * @throws IllegalArgumentException if task result couldn't be created
+     * @throws EvaluationRejectedException if too many evaluations are queued
      */
-    public Long requestTaskExecution(Long taskId, String userAnswer) throws IllegalArgumentException {
+    public TaskSubmissionReceipt requestTaskExecution(Long taskId, String userAnswer)
+            throws IllegalArgumentException {
         logger.info("Requesting task evaluation for task with ID {}", taskId);
 
+        // trivial answers are evaluated right away instead of waiting behind slow evaluations
+        Optional<TaskResult> inlineTaskResult = taskExecutionWorker.evaluateInline(taskId, userAnswer);
+        if (inlineTaskResult.isPresent()) {
+            TaskResult taskResult = inlineTaskResult.get();
+            return new TaskSubmissionReceipt(taskResult.getId(),
+                    taskResult.getStatus() == TaskResultStatus.EVALUATED ? taskResult.isAnswerTrue() : null);
+        }
+
+        checkAdmission(taskId, List.of(userAnswer));
+
         // initialize task result
         TaskResult taskResult = taskExecutionWorker.createTaskResult(taskId, userAnswer);
 
-        // request task evaluation with delay to ensure that task result is returned before task evaluation is started
-        taskExecutor.executeWithDelay(
-                () -> taskExecutionWorker.runTaskEvaluation(taskId, userAnswer, taskResult.getId()),
-                50, TimeUnit.MILLISECONDS);
+        enqueue(taskResult.getId(), taskId, userAnswer);
+        return new TaskSubmissionReceipt(taskResult.getId(), null);
+    }
+
+    /**
+     * Request the evaluation of many submitted answers to a task, e.g., answers uploaded at once. Every answer gets its
+     * own task result. Answers that are neither evaluated inline, queued durably, nor coalesced into in-flight
+     * evaluations are evaluated together in batches of at most {@code taskExecution.maxBatchSize} answers, so that
+     * executors supporting batches evaluate each of them in a single run.
+     *
+     * @param taskId ID of task
+     * @param userAnswers given answers
+     * @return receipts, in the order of the answers
+     * @throws IllegalArgumentException if task results couldn't be created
+     * @throws EvaluationRejectedException if too many evaluations are queued, no task result has been created then
+     */
+    public List<TaskSubmissionReceipt> requestBatchTaskExecution(Long taskId, List<String> userAnswers)
+            throws IllegalArgumentException {
+        logger.info("Requesting batch evaluation of {} answers for task with ID {}", userAnswers.size(), taskId);
+
+        // answers that turn out to be evaluated inline are admitted as well
+        checkAdmission(taskId, userAnswers);
+
+        List<TaskSubmissionReceipt> receipts = new ArrayList<>();
+        Map<EvaluationKey, CoalescedEvaluation> batch = new LinkedHashMap<>();
+        for (String userAnswer : userAnswers) {
+            Optional<TaskResult> inlineTaskResult = taskExecutionWorker.evaluateInline(taskId, userAnswer);
+            if (inlineTaskResult.isPresent()) {
+                TaskResult taskResult = inlineTaskResult.get();
+                receipts.add(new TaskSubmissionReceipt(taskResult.getId(),
+                        taskResult.getStatus() == TaskResultStatus.EVALUATED ? taskResult.isAnswerTrue() : null));
+                continue;
+            }
+
+            Long taskResultId = taskExecutionWorker.createTaskResult(taskId, userAnswer).getId();
+            receipts.add(new TaskSubmissionReceipt(taskResultId, null));
+            if (enqueueDurably(taskResultId, taskId)) {
+                continue;
+            }
+            EvaluationKey key = new EvaluationKey(taskId, userAnswer);
+            synchronized (inFlightEvaluations) {
+                CoalescedEvaluation evaluation = coalesce(taskResultId, key);
+                if (evaluation != null) {
+                    batch.put(key, evaluation);
+                }
+            }
+        }
+
+        List<Map.Entry<EvaluationKey, CoalescedEvaluation>> evaluations = new ArrayList<>(batch.entrySet());
+        for (int start = 0; start < evaluations.size(); start += maxBatchSize) {
+            Map<EvaluationKey, CoalescedEvaluation> chunk = new LinkedHashMap<>();
+            evaluations.subList(start, Math.min(start + maxBatchSize, evaluations.size()))
+                    .forEach(entry -> chunk.put(entry.getKey(), entry.getValue()));
+            scheduleBatchEvaluation(taskId, chunk);
+        }
+        return receipts;
+    }
+
+    /**
+     * Schedule the start of new evaluations of answers to a task that are evaluated together.
+     *
+     * @param taskId ID of task
+     * @param batch evaluations, by task and answer
+     */
+    private void scheduleBatchEvaluation(Long taskId, Map<EvaluationKey, CoalescedEvaluation> batch) {
+        SchedulingKey schedulingKey = taskExecutionWorker.schedulingKeyOf(taskId);
+        if (batch.size() == 1) {
+            batch.forEach((key, evaluation) -> scheduleEvaluation(schedulingKey, key, evaluation));
+            return;
+        }
+        // cancelling a single answer must not prevent the start of the others, so the start isn't cancellable
+        Future<?> batchStart = submitAfterCommit(schedulingKey, batch.size(),
+                () -> startBatchEvaluation(taskId, batch), () -> batch.forEach(this::complete));
+        synchronized (inFlightEvaluations) {
+            batch.values().forEach(evaluation -> evaluation.batchStart = batchStart);
+        }
+    }
+
+    /**
+     * Evaluate a pending task result again whose evaluation has been lost, e.g., in a restart. Task results that are
+     * in flight on this node are left alone.
+     *
+     * @param taskResultId ID of pending task result
+     * @param taskId ID of task
+     * @param userAnswer given answer
+     */
+    public void requeueTaskExecution(Long taskResultId, Long taskId, String userAnswer) {
+        synchronized (inFlightEvaluations) {
+            if (findInFlight(taskResultId) != null) {
+                return;
+            }
+        }
+
+        logger.info("Requeueing task result with ID {} of task with ID {}", taskResultId, taskId);
+        enqueue(taskResultId, taskId, userAnswer);
+    }
+
+    /**
+     * Get the position of the evaluation of a task result in the queue of its bulkhead.
+     *
+     * @param taskResultId ID of task result
+     * @return position of evaluation, position 0 if it has been started, empty if it isn't in flight on this node or
+     * hasn't been queued yet
+     */
+    public Optional<QueuePosition> getQueuePosition(Long taskResultId) {
+        Future<?> queuedStart;
+        synchronized (inFlightEvaluations) {
+            CoalescedEvaluation evaluation = findInFlight(taskResultId);
+            if (evaluation == null) {
+                return Optional.empty();
+            }
+            if (evaluation.assessment != null) {
+                return Optional.of(new QueuePosition(0, 0));
+            }
+            queuedStart = evaluation.future != null ? evaluation.future : evaluation.batchStart;
+        }
+        return queuedStart == null ? Optional.empty() : bulkheads.getQueuePosition(queuedStart);
+    }
+
+    /**
+     * Get the positions of the evaluations of many task results in the queues of their bulkheads, see
+     * {@link #getQueuePosition}. The positions of all queued evaluations are computed at once, so that polling them
+     * doesn't grow quadratically with the number of queued evaluations.
+     *
+     * @param taskResultIds IDs of task results
+     * @return positions of evaluations by ID of task result, without task results that aren't in flight on this node
+     * or haven't been queued yet
+     */
+    public Map<Long, QueuePosition> getQueuePositions(Set<Long> taskResultIds) {
+        Map<Long, QueuePosition> positions = new HashMap<>();
+        Map<Long, Future<?>> queuedStarts = new HashMap<>();
+        synchronized (inFlightEvaluations) {
+            for (CoalescedEvaluation evaluation : inFlightEvaluations.values()) {
+                Future<?> queuedStart = evaluation.future != null ? evaluation.future : evaluation.batchStart;
+                for (Long taskResultId : evaluation.taskResultIds) {
+                    if (!taskResultIds.contains(taskResultId)) {
+                        continue;
+                    }
+                    if (evaluation.assessment != null) {
+                        positions.put(taskResultId, new QueuePosition(0, 0));
+                    } else if (queuedStart != null) {
+                        queuedStarts.put(taskResultId, queuedStart);
+                    }
+                }
+            }
+        }
+        if (!queuedStarts.isEmpty()) {
+            Map<Future<?>, QueuePosition> queuePositions = bulkheads.getQueuePositions();
+            queuedStarts.forEach((taskResultId, queuedStart) -> {
+                QueuePosition position = queuePositions.get(queuedStart);
+                if (position != null) {
+                    positions.put(taskResultId, position);
+                }
+            });
+        }
+        return positions;
+    }
+
+    /**
+     * Check whether the evaluations of answers to a task can be queued, before their task results are created.
+     * Answers joining in-flight evaluations don't take up space in the queue, neither do answers queued durably or
+     * evaluated on other nodes.
+     *
+     * @param taskId ID of task
+     * @param userAnswers given answers
+     * @throws EvaluationRejectedException if too many evaluations are queued
+     */
+    private void checkAdmission(Long taskId, List<String> userAnswers) {
+        if (evaluationQueue.isDurable() || evaluationQueue.isRemote()) {
+            return;
+        }
+        long newEvaluations;
+        synchronized (inFlightEvaluations) {
+            newEvaluations = userAnswers.stream()
+                    .distinct()
+                    .filter(userAnswer -> !inFlightEvaluations.containsKey(new EvaluationKey(taskId, userAnswer)))
+                    .count();
+        }
+        if (newEvaluations > 0) {
+            bulkheads.checkAdmission(taskExecutionWorker.schedulingKeyOf(taskId), (int) newEvaluations);
+        }
+    }
+
+    /**
+     * Hand a pending task result to the evaluation queue, or start or join an evaluation of it.
+     *
+     * @param taskResultId ID of pending task result
+     * @param taskId ID of task
+     * @param userAnswer given answer
+     */
+    private void enqueue(Long taskResultId, Long taskId, String userAnswer) {
+        if (enqueueDurably(taskResultId, taskId)) {
+            return;
+        }
+
+        // resolving the tenant might query the database, which must not happen while holding the lock
+        SchedulingKey schedulingKey = taskExecutionWorker.schedulingKeyOf(taskId);
+        EvaluationKey key = new EvaluationKey(taskId, userAnswer);
+        synchronized (inFlightEvaluations) {
+            CoalescedEvaluation evaluation = coalesce(taskResultId, key);
+            if (evaluation != null) {
+                scheduleEvaluation(schedulingKey, key, evaluation);
+            }
+        }
+    }
+
+    /**
+     * Hand a pending task result to the evaluation queue, if it stores its jobs durably.
+     *
+     * @param taskResultId ID of pending task result
+     * @param taskId ID of task
+     * @return true if the task result has been queued
+     */
+    private boolean enqueueDurably(Long taskResultId, Long taskId) {
+        // durable queues take the pending task result itself as their job
+        if (evaluationQueue.enqueue(taskResultId)) {
+            logger.info("Queued task result with ID {} of task with ID {}", taskResultId, taskId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Join an identical evaluation that is already in flight, or register a new in-flight evaluation. Has to be
+     * called while holding the lock on the in-flight evaluations.
+     *
+     * @param taskResultId ID of pending task result
+     * @param key task and answer of evaluation
+     * @return new evaluation that has to be started, null if the task result joined an in-flight evaluation
+     */
+    private CoalescedEvaluation coalesce(Long taskResultId, EvaluationKey key) {
+        CoalescedEvaluation inFlightEvaluation = inFlightEvaluations.get(key);
+        if (inFlightEvaluation != null) {
+            inFlightEvaluation.taskResultIds.add(taskResultId);
+            logger.info("Coalesced task result with ID {} into in-flight evaluation of task with ID {}",
+                    taskResultId, key.taskId());
+            return null;
+        }
+        CoalescedEvaluation evaluation = new CoalescedEvaluation(taskResultId);
+        inFlightEvaluations.put(key, evaluation);
+        return evaluation;
+    }
+
+    /**
+     * Schedule the start of a new evaluation.
+     *
+     * @param schedulingKey bulkhead, executor and tenant of evaluation
+     * @param key task and answer of evaluation
+     * @param evaluation evaluation
+     */
+    private void scheduleEvaluation(SchedulingKey schedulingKey, EvaluationKey key, CoalescedEvaluation evaluation) {
+        // start the evaluation as soon as the task result is visible to other transactions, a rolled back task
+        // result must not be joined by later submissions
+        Future<?> future = submitAfterCommit(schedulingKey, 1,
+                () -> startEvaluation(key, evaluation), () -> complete(key, evaluation));
+        synchronized (inFlightEvaluations) {
+            evaluation.future = future;
+        }
+    }
+
+    /**
+     * Start an evaluation once the current transaction has been committed. Evaluations run on this node are started in
+     * their bulkhead, evaluations run on other nodes are started right away, as they only wait for their verdict here.
+     *
+     * @param schedulingKey bulkhead, executor and tenant of evaluation
+     * @param answers number of answers evaluated
+     * @param start starts the evaluation, returns null if nothing has been started
+     * @param rollbackAction action to run instead if the transaction is rolled back
+     * @return future of the start, cancelling it before the evaluation started prevents its start
+     */
+    private Future<?> submitAfterCommit(SchedulingKey schedulingKey, int answers, Callable<CompletionStage<?>> start,
+                                        Runnable rollbackAction) {
+        if (!evaluationQueue.isRemote()) {
+            return bulkheads.submitAfterCommit(schedulingKey, answers, start, rollbackAction);
+        }
+        FutureTask<CompletionStage<?>> job = new FutureTask<>(() -> {
+            try {
+                return start.call();
+            } catch (RuntimeException e) {
+                logger.error("Starting evaluation on other nodes failed", e);
+                throw e;
+            }
+        });
+        AfterCommit.run(job, () -> {
+            job.cancel(false);
+            rollbackAction.run();
+        });
+        return job;
+    }
+
+    /**
+     * Start an evaluation, on a thread of the task executor unless it runs on other nodes.
+     *
+     * @param key task and answer of evaluation
+     * @param evaluation evaluation
+     * @return future of the started evaluation, null if it has been cancelled before it started
+     */
+    private CompletableFuture<EvaluationOutcome> startEvaluation(EvaluationKey key, CoalescedEvaluation evaluation) {
+        synchronized (inFlightEvaluations) {
+            if (evaluation.taskResultIds.isEmpty()) {
+                return null;
+            }
+        }
+
+        CompletableFuture<EvaluationOutcome> assessment;
+        try {
+            assessment = evaluationQueue.runTaskEvaluation(key.taskId(), key.userAnswer(),
+                    () -> complete(key, evaluation));
+        } catch (RuntimeException e) {
+            // failed evaluations must not be joined by later submissions
+            complete(key, evaluation);
+            throw e;
+        }
+        assessment.whenComplete((outcome, error) -> complete(key, evaluation));
+
+        synchronized (inFlightEvaluations) {
+            evaluation.assessment = assessment;
+            // the evaluation might have been cancelled while it was started
+            if (evaluation.taskResultIds.isEmpty()) {
+                assessment.cancel(true);
+            }
+        }
+        return assessment;
+    }
+
+    /**
+     * Start the evaluations of a batch of answers to a task, on a thread of the task executor unless they run on other
+     * nodes. Evaluations that have been cancelled meanwhile are skipped.
+     *
+     * @param taskId ID of task
+     * @param batch evaluations, by task and answer
+     * @return future completing once all evaluations of the batch completed, null if all have been cancelled
+     */
+    private CompletableFuture<Void> startBatchEvaluation(Long taskId, Map<EvaluationKey, CoalescedEvaluation> batch) {
+        List<EvaluationKey> keys = new ArrayList<>();
+        synchronized (inFlightEvaluations) {
+            batch.forEach((key, evaluation) -> {
+                if (!evaluation.taskResultIds.isEmpty()) {
+                    keys.add(key);
+                }
+            });
+        }
+        if (keys.isEmpty()) {
+            return null;
+        }
+
+        List<String> userAnswers = keys.stream().map(EvaluationKey::userAnswer).toList();
+        List<Supplier<List<Long>>> taskResultIds = keys.stream()
+                .<Supplier<List<Long>>>map(key -> () -> complete(key, batch.get(key)))
+                .toList();
+        List<CompletableFuture<EvaluationOutcome>> assessments;
+        try {
+            assessments = evaluationQueue.runBatchEvaluation(taskId, userAnswers, taskResultIds);
+        } catch (RuntimeException e) {
+            // failed evaluations must not be joined by later submissions
+            keys.forEach(key -> complete(key, batch.get(key)));
+            throw e;
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            EvaluationKey key = keys.get(i);
+            CoalescedEvaluation evaluation = batch.get(key);
+            CompletableFuture<EvaluationOutcome> assessment = assessments.get(i);
+            assessment.whenComplete((outcome, error) -> complete(key, evaluation));
+
+            synchronized (inFlightEvaluations) {
+                evaluation.assessment = assessment;
+                // the evaluation might have been cancelled while it was started
+                if (evaluation.taskResultIds.isEmpty()) {
+                    assessment.cancel(true);
+                }
+            }
+        }
+        return CompletableFuture.allOf(assessments.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Cancel the evaluation of a task result. The evaluation itself is only cancelled if no other task result is
+     * waiting for it.
+     *
+     * @param taskResultId ID of task result
+     * @return true if the evaluation has been cancelled, false if it already finished
+     */
+    public boolean cancelTaskExecution(Long taskResultId) {
+        Future<?> cancelledEvaluation = null;
+        Future<?> cancelledAssessment = null;
+        boolean inFlight = false;
+        synchronized (inFlightEvaluations) {
+            Iterator<CoalescedEvaluation> iterator = inFlightEvaluations.values().iterator();
+            CoalescedEvaluation evaluation = null;
+            while (evaluation == null && iterator.hasNext()) {
+                CoalescedEvaluation candidate = iterator.next();
+                if (candidate.taskResultIds.contains(taskResultId)) {
+                    evaluation = candidate;
+                }
+            }
+            if (evaluation != null) {
+                inFlight = true;
+                evaluation.taskResultIds.remove(taskResultId);
+                if (evaluation.taskResultIds.isEmpty()) {
+                    iterator.remove();
+                    cancelledEvaluation = evaluation.future;
+                    cancelledAssessment = evaluation.assessment;
+                }
+            }
+        }
+        if (!inFlight) {
+            // the task result might be queued durably instead of being in flight on this node
+            return evaluationQueue.cancel(taskResultId);
+        }
+
+        // cancelling a started evaluation kills its container
+        if (cancelledEvaluation != null) {
+            cancelledEvaluation.cancel(true);
+        }
+        if (cancelledAssessment != null) {
+            cancelledAssessment.cancel(true);
+        }
+        taskExecutionWorker.abortTaskResults(List.of(taskResultId), TaskResultStatus.CANCELLED);
+        logger.info("Cancelled evaluation of task result with ID {}", taskResultId);
+
+        return true;
+    }
+
+    /**
+     * Find the in-flight evaluation a task result is waiting for. Has to be called while holding the lock on the
+     * in-flight evaluations.
+     *
+     * @param taskResultId ID of task result
+     * @return evaluation, null if the task result isn't waiting for an in-flight evaluation
+     */
+    private CoalescedEvaluation findInFlight(Long taskResultId) {
+        for (CoalescedEvaluation evaluation : inFlightEvaluations.values()) {
+            if (evaluation.taskResultIds.contains(taskResultId)) {
+                return evaluation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove an evaluation from the in-flight evaluations, so that no more task results can join it.
+     *
+     * @param key task and answer of evaluation
+     * @param evaluation evaluation
+     * @return IDs of all task results that joined the evaluation
+     */
+    private List<Long> complete(EvaluationKey key, CoalescedEvaluation evaluation) {
+        synchronized (inFlightEvaluations) {
+            inFlightEvaluations.remove(key, evaluation);
+            return List.copyOf(evaluation.taskResultIds);
+        }
+    }
+
+    /**
+     * Task and answer identifying an evaluation.
+     *
+     * @param taskId ID of task
+     * @param userAnswer given answer
+     */
+    private record EvaluationKey(Long taskId, String userAnswer) {
+    }
+
+    /**
+     * Evaluation that is in flight and the task results waiting for it.
+     */
+    private static class CoalescedEvaluation {
+        /**
+         * IDs of task results waiting for the evaluation.
+         */
+        private final List<Long> taskResultIds = new ArrayList<>();
+
+        /**
+         * Future of the scheduled start of the evaluation.
+         */
+        private Future<?> future;
+
+        /**
+         * Future of the scheduled start of the batch the evaluation is part of, which isn't cancelled with it.
+         */
+        private Future<?> batchStart;
+
+        /**
+         * Future of the started evaluation, null if it hasn't been started yet.
+         */
+        private CompletableFuture<EvaluationOutcome> assessment;
 
-        return taskResult.getId();
+        CoalescedEvaluation(Long taskResultId) {
+            taskResultIds.add(taskResultId);
+        }
     }
 }
@@ -1,24 +1,50 @@
 package de.tudresden.inf.st.mathgrass.api.task.execution;
 
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationTimeoutException;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.snapshot.EvaluationSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.snapshot.EvaluationSnapshotCache;
 import de.tudresden.inf.st.mathgrass.api.events.CustomEventBus;
 import de.tudresden.inf.st.mathgrass.api.events.TaskEvaluationFinishedEvent;
 import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
 import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
-import de.tudresden.inf.st.mathgrass.api.task.Task;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
 import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
 import de.tudresden.inf.st.mathgrass.api.task.question.QuestionVisitor;
 import de.tudresden.inf.st.mathgrass.api.task.question.answer.AnswerVisitor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.transaction.Transactional;
-import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
  * Worker class for task execution manager. This class is responsible for the actual evaluation of tasks.
+ *
+ * <p>
+ * Evaluations are split into short transactional phases, so that running evaluations don't hold database connections:
+ * the {@link EvaluationSnapshot} of the task is loaded in a read-only transaction, the answer is evaluated without a
+ * transaction, and the outcome is persisted in another transaction. Snapshots are cached, so a submission to a task
+ * whose snapshot has already been loaded doesn't load the task at all. The durations of executor runs are recorded in
+ * the {@link EvaluationDurationStatistics}, evaluations without a run of their executor aren't.
  */
 @Component
 public class TaskExecutionWorker {
@@ -52,6 +78,38 @@ public class TaskExecutionWorker {
      */
     private final CustomEventBus eventBus;
 
+    /**
+     * Executor storing the outcomes of evaluations. It is separate from the bounded task executor and queues without
+     * bound, as a rejected completion would leave its task results pending.
+     */
+    private ExecutorService completionExecutor;
+
+    /**
+     * Number of threads storing the outcomes of evaluations.
+     */
+    @Value("${taskExecution.completionThreads:2}")
+    private int completionThreads;
+
+    /**
+     * Cache of evaluation snapshots.
+     */
+    private final EvaluationSnapshotCache snapshotCache;
+
+    /**
+     * Tenants of evaluations.
+     */
+    private final EvaluationTenants tenants;
+
+    /**
+     * Statistics of evaluation durations.
+     */
+    private final EvaluationDurationStatistics durationStatistics;
+
+    /**
+     * Template for transactions persisting outcomes.
+     */
+    private final TransactionTemplate transaction;
+
     /**
      * Constructor.
      *
@@ -60,98 +118,342 @@ public class TaskExecutionWorker {
      * @param questionVisitor question visitor
      * @param answerVisitor answer visitor
      * @param eventBus event bus
+     * @param snapshotCache cache of evaluation snapshots
+     * @param tenants tenants of evaluations
+     * @param durationStatistics statistics of evaluation durations
+     * @param transactionManager transaction manager
      */
     public TaskExecutionWorker(TaskRepository taskRepository, TaskResultRepository taskResultRepository,
-            QuestionVisitor questionVisitor, AnswerVisitor answerVisitor, CustomEventBus eventBus) {
+            QuestionVisitor questionVisitor, AnswerVisitor answerVisitor, CustomEventBus eventBus,
+            EvaluationSnapshotCache snapshotCache, EvaluationTenants tenants,
+            EvaluationDurationStatistics durationStatistics, PlatformTransactionManager transactionManager) {
         this.taskRepository = taskRepository;
         this.taskResultRepository = taskResultRepository;
         this.questionVisitor = questionVisitor;
         this.answerVisitor = answerVisitor;
         this.eventBus = eventBus;
+        this.snapshotCache = snapshotCache;
+        this.tenants = tenants;
+        this.durationStatistics = durationStatistics;
+        this.transaction = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
-    public void runTaskEvaluation(Long taskId, String userAnswer, Long taskResultId) {
+    @PostConstruct
+    private void startCompletionExecutor() {
+        completionExecutor = Executors.newFixedThreadPool(completionThreads);
+    }
+
+    /**
+     * Store the outcomes of evaluations that already completed before shutting down.
+     */
+    @PreDestroy
+    private void shutdown() {
+        completionExecutor.shutdown();
+    }
+
+    /**
+     * Start the evaluation of an answer to a task and complete all task results waiting for it once it finished. The
+     * calling thread only starts the evaluation and isn't blocked while it runs. If the evaluation times out or fails,
+     * the task results are marked accordingly.
+     *
+     * @param taskId ID of task
+     * @param userAnswer given answer
+     * @param taskResultIds supplier of the IDs of all task results to complete, called once after the evaluation
+     * @return future of the evaluation, cancelling it kills the evaluation
+     */
+    public CompletableFuture<EvaluationOutcome> runTaskEvaluation(Long taskId, String userAnswer,
+                                                                  Supplier<List<Long>> taskResultIds) {
         logger.info("Starting task evaluation for task with ID {}", taskId);
 
-        // evaluate answer
-        boolean answerCorrect = makeAssessment(taskId, userAnswer);
+        return completeWhenDone(taskId, makeAssessmentAsync(taskId, userAnswer).toCompletableFuture(),
+                taskResultIds);
+    }
 
-        // update task result
-        updateTaskResult(taskResultId, answerCorrect);
+    /**
+     * Start the evaluation of many answers to a task, with as few runs of its executor as possible, and complete the
+     * task results waiting for each answer once its evaluation finished.
+     *
+     * @param taskId ID of task
+     * @param userAnswers given answers
+     * @param taskResultIds suppliers of the IDs of all task results to complete, in the order of the answers
+     * @return futures of the evaluations, in the order of the answers, cancelling all of them kills the evaluation
+     */
+    public List<CompletableFuture<EvaluationOutcome>> runBatchEvaluation(Long taskId, List<String> userAnswers,
+                                                                         List<Supplier<List<Long>>> taskResultIds) {
+        logger.info("Starting batch evaluation of {} answers for task with ID {}", userAnswers.size(), taskId);
 
-        logger.info("Finished task evaluation for task with ID {}. Task result ID: {}", taskId,
-                taskResultId);
+        List<CompletionStage<EvaluationOutcome>> assessments = makeBatchAssessmentAsync(taskId, userAnswers);
+        List<CompletableFuture<EvaluationOutcome>> futures = new ArrayList<>();
+        for (int i = 0; i < assessments.size(); i++) {
+            futures.add(completeWhenDone(taskId, assessments.get(i).toCompletableFuture(), taskResultIds.get(i)));
+        }
+        return futures;
+    }
 
-        // publish event
-        eventBus.post(new TaskEvaluationFinishedEvent(taskResultId));
+    /**
+     * Complete all task results waiting for an assessment once it finished, no matter where it is running. If the
+     * assessment times out or fails, the task results are marked accordingly.
+     *
+     * @param taskId ID of task
+     * @param assessment future of the assessment
+     * @param taskResultIds supplier of the IDs of all task results to complete, called once after the assessment
+     * @return the given assessment
+     */
+    public CompletableFuture<EvaluationOutcome> completeWhenDone(Long taskId,
+                                                                 CompletableFuture<EvaluationOutcome> assessment,
+                                                                 Supplier<List<Long>> taskResultIds) {
+        // evaluations are completed by the thread receiving the exit of their container, which must not write to the
+        // database
+        assessment.whenCompleteAsync((outcome, error) -> completeTaskEvaluation(taskId, outcome, error,
+                taskResultIds), completionExecutor);
+        return assessment;
     }
 
     /**
-     * Evaluate the answer to a certain task.
+     * Complete all task results waiting for an evaluation.
+     *
+     * @param taskId ID of task
+     * @param outcome outcome of evaluation, null if it failed
+     * @param error failure of evaluation, null if it succeeded
+     * @param taskResultIds supplier of the IDs of all task results to complete
+     */
+    private void completeTaskEvaluation(Long taskId, EvaluationOutcome outcome, Throwable error,
+                                        Supplier<List<Long>> taskResultIds) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ?
+                    error.getCause() : error;
+            TaskResultStatus status;
+            if (cause instanceof EvaluationTimeoutException) {
+                logger.warn("Task evaluation for task with ID {} timed out: {}", taskId, cause.getMessage());
+                status = TaskResultStatus.TIMED_OUT;
+            } else if (cause instanceof CancellationException) {
+                // task results of cancelled evaluations have already been marked, so none should be left
+                logger.info("Task evaluation for task with ID {} has been cancelled", taskId);
+                status = TaskResultStatus.CANCELLED;
+            } else {
+                logger.error("Task evaluation for task with ID {} failed", taskId, cause);
+                status = TaskResultStatus.FAILED;
+            }
+            List<Long> abortedTaskResultIds = taskResultIds.get();
+            transaction.executeWithoutResult(transactionStatus -> abortTaskResults(abortedTaskResultIds, status));
+            return;
+        }
+
+        // update task results in one short transaction
+        List<Long> completedTaskResultIds = taskResultIds.get();
+        transaction.executeWithoutResult(transactionStatus -> {
+            for (Long taskResultId : completedTaskResultIds) {
+                updateTaskResult(taskResultId, outcome.answerCorrect());
+            }
+        });
+
+        logger.info("Finished task evaluation for task with ID {}. Task result IDs: {}", taskId,
+                completedTaskResultIds);
+
+        // publish one event per task result
+        for (Long taskResultId : completedTaskResultIds) {
+            eventBus.post(new TaskEvaluationFinishedEvent(taskResultId));
+        }
+    }
+
+    /**
+     * Evaluate the answer to a certain task without blocking the calling thread. No transaction is held while the
+     * answer is evaluated.
      *
      * @param taskId ID of task
      * @param userAnswer given answer
-     * @return boolean determining whether given answer was correct or not
-     * @throws RuntimeException if an error occurs during the evaluation
-     */
-    public boolean makeAssessment(Long taskId, String userAnswer) throws RuntimeException {
-        // get task
-        Optional<Task> optTask = taskRepository.findById(taskId);
-        if (optTask.isEmpty()) {
-            throw new IllegalArgumentException("Couldn't find task with ID " + taskId);
+     * @return stage completing with the outcome of the evaluation, or exceptionally if an error occurs
+     */
+    public CompletionStage<EvaluationOutcome> makeAssessmentAsync(Long taskId, String userAnswer) {
+        EvaluationSnapshot snapshot;
+        try {
+            snapshot = snapshotCache.get(taskId);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return recordDuration(snapshot, questionVisitor.visitAsync(answerVisitor, snapshot, userAnswer));
+    }
+
+    /**
+     * Evaluate many answers to a certain task without blocking the calling thread. Executors that support batches
+     * evaluate all answers in a single run.
+     *
+     * @param taskId ID of task
+     * @param userAnswers given answers
+     * @return stages completing with the outcomes of the evaluations, in the order of the answers
+     */
+    public List<CompletionStage<EvaluationOutcome>> makeBatchAssessmentAsync(Long taskId, List<String> userAnswers) {
+        // a batch of one is an ordinary evaluation
+        if (userAnswers.size() == 1) {
+            return List.of(makeAssessmentAsync(taskId, userAnswers.get(0)));
         }
 
-        Task task = optTask.get();
         try {
-            return task.getQuestion().acceptQuestionVisitor(questionVisitor, answerVisitor, taskId, userAnswer);
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+            EvaluationSnapshot snapshot = snapshotCache.get(taskId);
+            return questionVisitor.visitBatchAsync(answerVisitor, snapshot, userAnswers).stream()
+                    .map(assessment -> recordDuration(snapshot, assessment))
+                    .toList();
+        } catch (RuntimeException e) {
+            return Collections.nCopies(userAnswers.size(), CompletableFuture.failedFuture(e));
+        }
+    }
+
+    /**
+     * Record the duration of the executor run of an assessment once it completed. Cached verdicts and answers
+     * evaluated in-process say nothing about the duration of the executor, neither do failed evaluations.
+     *
+     * @param snapshot snapshot of task
+     * @param assessment stage of the assessment
+     * @return the given stage
+     */
+    private CompletionStage<EvaluationOutcome> recordDuration(EvaluationSnapshot snapshot,
+                                                              CompletionStage<EvaluationOutcome> assessment) {
+        ExecutorSnapshot executor = snapshot.containerExecutor();
+        if (executor != null) {
+            assessment.thenAccept(outcome -> {
+                if (outcome.executorRan()) {
+                    durationStatistics.record(executorKeyOf(executor), outcome.executorMillis());
+                }
+            });
         }
+        return assessment;
+    }
+
+    /**
+     * Scheduling key of the evaluations of answers to a task. They are isolated in the bulkhead of the container image
+     * of its executor, their cost is estimated from the previous evaluations of the executor, and they share the
+     * bulkhead with other tenants according to the tenant of the task.
+     *
+     * @param taskId ID of task
+     * @return scheduling key
+     */
+    public SchedulingKey schedulingKeyOf(Long taskId) {
+        EvaluationSnapshot snapshot;
+        try {
+            snapshot = snapshotCache.get(taskId);
+        } catch (RuntimeException e) {
+            // the evaluation fails right away
+            return new SchedulingKey(EvaluationBulkheads.DEFAULT_BULKHEAD, EvaluationBulkheads.DEFAULT_BULKHEAD,
+                    EvaluationTenants.DEFAULT_TENANT);
+        }
+
+        String tenant = tenants.tenantOf(taskId);
+        ExecutorSnapshot executor = snapshot.containerExecutor();
+        if (executor == null) {
+            return new SchedulingKey(EvaluationBulkheads.DEFAULT_BULKHEAD, EvaluationBulkheads.DEFAULT_BULKHEAD,
+                    tenant);
+        }
+        String bulkhead = executor.containerImage() == null ? EvaluationBulkheads.DEFAULT_BULKHEAD
+                : executor.containerImage();
+        return new SchedulingKey(bulkhead, executorKeyOf(executor), tenant);
+    }
+
+    /**
+     * Key of an executor in the statistics of evaluation durations.
+     *
+     * @param executor executor
+     * @return key of executor
+     */
+    private static String executorKeyOf(ExecutorSnapshot executor) {
+        return "executor-" + executor.id();
     }
 
     /**
-     * Update the result of a task evaluation.
+     * Update the result of a task evaluation. Task results that aren't pending anymore, e.g., because they have been
+     * cancelled meanwhile, keep their status.
      *
      * @param taskResultId ID of task result
      * @param answerCorrect boolean determining whether given answer was correct or not
      */
     protected void updateTaskResult(Long taskResultId, boolean answerCorrect) {
-        // find task result
-        Optional<TaskResult> optTaskResult = taskResultRepository.findById(taskResultId);
-        if (optTaskResult.isEmpty()) {
-            throw new IllegalArgumentException("Couldn't find task result with ID " + taskResultId);
+        if (taskResultRepository.completePending(taskResultId, answerCorrect, LocalDateTime.now().toString()) == 0) {
+            logger.info("Task result with ID {} is no longer pending, discarding its verdict", taskResultId);
+        }
+    }
+
+    /**
+     * Mark task results whose evaluation didn't produce a verdict and notify listeners about them. Task results that
+     * aren't pending anymore keep their status.
+     *
+     * @param taskResultIds IDs of task results
+     * @param status final status of task results
+     */
+    @Transactional
+    public void abortTaskResults(List<Long> taskResultIds, TaskResultStatus status) {
+        for (Long taskResultId : taskResultIds) {
+            taskResultRepository.abortPending(taskResultId, status, LocalDateTime.now().toString());
         }
 
-        TaskResult taskResult = optTaskResult.get();
+        // listeners load the task results, so they must not be notified before they have been committed
+        AfterCommit.run(() -> {
+            for (Long taskResultId : taskResultIds) {
+                eventBus.post(new TaskEvaluationFinishedEvent(taskResultId));
+            }
+        });
+    }
 
-        // update task result
-        taskResult.setAnswerTrue(answerCorrect);
+    /**
+     * Evaluate an answer on the calling thread if its evaluation is trivial, e.g., a static answer, and persist an
+     * already completed task result.
+     *
+     * @param taskId ID of task
+     * @param userAnswer given answer
+     * @return completed task result, empty if the answer has to be evaluated asynchronously
+     */
+    @Transactional
+    public Optional<TaskResult> evaluateInline(Long taskId, String userAnswer) {
+        EvaluationSnapshot snapshot = snapshotCache.get(taskId);
+        if (!snapshot.evaluatedInline()) {
+            return Optional.empty();
+        }
+
+        TaskResult taskResult = new TaskResult();
+        taskResult.setTask(taskRepository.getReferenceById(taskId));
+        taskResult.setAnswer(userAnswer);
+        taskResult.setSubmissionDate(LocalDateTime.now().toString());
+        try {
+            // inline evaluations complete immediately
+            EvaluationOutcome outcome = questionVisitor.visitAsync(answerVisitor, snapshot, userAnswer)
+                    .toCompletableFuture().join();
+            taskResult.setAnswerTrue(outcome.answerCorrect());
+            taskResult.setStatus(TaskResultStatus.EVALUATED);
+        } catch (RuntimeException e) {
+            logger.error("Inline task evaluation for task with ID {} failed", taskId, e);
+            taskResult.setStatus(TaskResultStatus.FAILED);
+        }
         taskResult.setEvaluationDate(LocalDateTime.now().toString());
         taskResultRepository.save(taskResult);
+
+        logger.info("Evaluated task result with ID {} of task with ID {} inline", taskResult.getId(), taskId);
+        // listeners load the task result, so they must not be notified before it has been committed
+        Long taskResultId = taskResult.getId();
+        AfterCommit.run(() -> eventBus.post(new TaskEvaluationFinishedEvent(taskResultId)));
+
+        return Optional.of(taskResult);
     }
 
     /**
-     * Create a new task result without evaluation result and date.
+     * Create a new task result without evaluation result and date. If a transaction is active, evaluations of the task
+     * result must not be started before it has been committed.
      *
      * @param taskId ID of task the result refers to
      * @param userAnswer given answer
      * @return task result
+     * @throws IllegalArgumentException if the task doesn't exist
      */
     public TaskResult createTaskResult(Long taskId, String userAnswer) {
-        // find task
-        Optional<Task> optTask = taskRepository.findById(taskId);
-        if (optTask.isEmpty()) {
-            throw new IllegalArgumentException("Couldn't find task with ID " + taskId);
-        }
-
-        Task task = optTask.get();
+        // the cached snapshot proves that the task exists, so it only has to be referenced
+        snapshotCache.get(taskId);
 
         // create new task result and save
         TaskResult taskResult = new TaskResult();
-        taskResult.setTask(task);
+        taskResult.setTask(taskRepository.getReferenceById(taskId));
         taskResult.setAnswer(userAnswer);
         taskResult.setSubmissionDate(LocalDateTime.now().toString());
+        // the evaluation starts right after the submission
+        taskResult.setEvaluationAttempts(1);
+        taskResult.setAttemptedAt(LocalDateTime.now());
         taskResultRepository.save(taskResult);
 
         return taskResult;
@@ -0,0 +1,213 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class recovers pending task results whose evaluation has been lost, e.g., because the node evaluating them
+ * restarted. Without it, such task results would stay pending forever.
+ *
+ * <p>
+ * Stale task results are swept once the application is ready and periodically afterwards. A task result is stale if
+ * its latest evaluation started long enough ago to be finished. Nodes may share the database, so task results attempted
+ * before this node started aren't stale any earlier, as another node might still be evaluating them. Stale task
+ * results are claimed in batches with {@code SELECT ... FOR UPDATE SKIP LOCKED}, so that concurrent nodes don't
+ * recover the same task results, and are requeued with a delay between batches, so that a restart under load doesn't
+ * start all lost evaluations at once. Every recovery counts as an evaluation attempt, task results exceeding the max
+ * number of attempts are marked as failed.
+ * Task results queued in the database are recovered by the expiring claims of the queue instead.
+ */
+@Component
+@ConditionalOnExpression("${taskResultRecovery.enabled:true} && '${taskExecution.queue:local}' != 'database'")
+public class TaskResultRecoverySweeper {
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(TaskResultRecoverySweeper.class);
+
+    /**
+     * Number of seconds after which a pending task result is stale.
+     */
+    @Value("${taskResultRecovery.staleAfterSeconds:900}")
+    private long staleAfterSeconds;
+
+    /**
+     * Number of seconds between two sweeps.
+     */
+    @Value("${taskResultRecovery.intervalSeconds:300}")
+    private long intervalSeconds;
+
+    /**
+     * Max number of task results requeued per batch.
+     */
+    @Value("${taskResultRecovery.batchSize:20}")
+    private int batchSize;
+
+    /**
+     * Number of milliseconds between two batches of a sweep.
+     */
+    @Value("${taskResultRecovery.batchDelayMillis:5000}")
+    private long batchDelayMillis;
+
+    /**
+     * Max number of evaluations started for a task result, before it is marked as failed.
+     */
+    @Value("${taskResultRecovery.maxAttempts:3}")
+    private int maxAttempts;
+
+    /**
+     * Task execution manager.
+     */
+    private final TaskExecutionManager taskExecutionManager;
+
+    /**
+     * Worker class.
+     */
+    private final TaskExecutionWorker taskExecutionWorker;
+
+    /**
+     * Task result repository.
+     */
+    private final TaskResultRepository taskResultRepository;
+
+    /**
+     * Template for transactions claiming stale task results.
+     */
+    private final TransactionTemplate transaction;
+
+    /**
+     * Scheduled executor service running sweeps.
+     */
+    private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Constructor.
+     *
+     * @param taskExecutionManager task execution manager
+     * @param taskExecutionWorker worker class
+     * @param taskResultRepository task result repository
+     * @param transactionManager transaction manager
+     */
+    public TaskResultRecoverySweeper(TaskExecutionManager taskExecutionManager,
+                                     TaskExecutionWorker taskExecutionWorker,
+                                     TaskResultRepository taskResultRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.taskExecutionManager = taskExecutionManager;
+        this.taskExecutionWorker = taskExecutionWorker;
+        this.taskResultRepository = taskResultRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Start sweeping once the application is ready to evaluate task results.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduledExecutorService.scheduleWithFixedDelay(this::sweep, 0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Requeue a batch of stale task results, and schedule the next batch if there might be more.
+     */
+    private void sweep() {
+        // an exception would cancel all further scheduled sweeps
+        try {
+            List<StaleTaskResult> staleTaskResults = claimStaleTaskResults();
+            for (StaleTaskResult staleTaskResult : staleTaskResults) {
+                recover(staleTaskResult);
+            }
+
+            if (staleTaskResults.size() == batchSize) {
+                scheduledExecutorService.schedule(this::sweep, batchDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not sweeping stale task results, this node is shutting down");
+        } catch (RuntimeException e) {
+            logger.error("Sweeping stale task results failed", e);
+        }
+    }
+
+    /**
+     * Claim a batch of stale task results by counting a new evaluation attempt for each of them.
+     *
+     * @return claimed task results
+     */
+    private List<StaleTaskResult> claimStaleTaskResults() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusSeconds(staleAfterSeconds);
+        List<StaleTaskResult> staleTaskResults = transaction.execute(transactionStatus -> {
+            List<StaleTaskResult> claimed = new ArrayList<>();
+            for (TaskResult taskResult : taskResultRepository.findStale(staleBefore,
+                    PageRequest.of(0, batchSize))) {
+                taskResult.setEvaluationAttempts(taskResult.getEvaluationAttempts() + 1);
+                taskResult.setAttemptedAt(now);
+                claimed.add(new StaleTaskResult(taskResult.getId(),
+                        taskResult.getTask() == null ? null : taskResult.getTask().getId(), taskResult.getAnswer(),
+                        taskResult.getEvaluationAttempts()));
+            }
+            return claimed;
+        });
+        return staleTaskResults == null ? List.of() : staleTaskResults;
+    }
+
+    /**
+     * Requeue a stale task result, or mark it as failed if it has been attempted too often.
+     *
+     * @param staleTaskResult claimed task result
+     */
+    private void recover(StaleTaskResult staleTaskResult) {
+        if (staleTaskResult.taskId() == null) {
+            logger.warn("Task result with ID {} can't be evaluated without its task", staleTaskResult.id());
+            taskExecutionWorker.abortTaskResults(List.of(staleTaskResult.id()), TaskResultStatus.FAILED);
+            return;
+        }
+        if (staleTaskResult.evaluationAttempts() > maxAttempts) {
+            logger.warn("Giving up on task result with ID {} after {} lost evaluations", staleTaskResult.id(),
+                    maxAttempts);
+            taskExecutionWorker.abortTaskResults(List.of(staleTaskResult.id()), TaskResultStatus.FAILED);
+            return;
+        }
+
+        taskExecutionManager.requeueTaskExecution(staleTaskResult.id(), staleTaskResult.taskId(),
+                staleTaskResult.userAnswer());
+    }
+
+    /**
+     * Stop sweeping on shutdown.
+     */
+    @PreDestroy
+    private void shutdown() {
+        scheduledExecutorService.shutdownNow();
+    }
+
+    /**
+     * Stale task result that has been claimed for recovery.
+     *
+     * @param id ID of task result
+     * @param taskId ID of task
+     * @param userAnswer given answer
+     * @param evaluationAttempts number of evaluations started for the task result, including its recovery
+     */
+    private record StaleTaskResult(Long id, Long taskId, String userAnswer, int evaluationAttempts) {
+    }
+}
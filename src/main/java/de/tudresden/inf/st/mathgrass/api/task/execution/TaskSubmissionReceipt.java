@@ -0,0 +1,18 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+/**
+ * Receipt of a submitted answer to a task.
+ *
+ * @param taskResultId ID of task result
+ * @param answerCorrect verdict if the answer has been evaluated immediately, null if its evaluation is pending
+ */
+public record TaskSubmissionReceipt(Long taskResultId, Boolean answerCorrect) {
+    /**
+     * Check whether the answer has already been evaluated.
+     *
+     * @return true if the verdict is known
+     */
+    public boolean isEvaluated() {
+        return answerCorrect != null;
+    }
+}
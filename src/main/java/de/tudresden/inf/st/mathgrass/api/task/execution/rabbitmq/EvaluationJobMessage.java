@@ -0,0 +1,11 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution.rabbitmq;
+
+/**
+ * Message requesting the evaluation of an answer from an evaluator node. The ID of the job and the queue to send the
+ * result to are given as correlation ID and reply-to properties of the message.
+ *
+ * @param taskId ID of task
+ * @param userAnswer given answer
+ */
+public record EvaluationJobMessage(Long taskId, String userAnswer) {
+}
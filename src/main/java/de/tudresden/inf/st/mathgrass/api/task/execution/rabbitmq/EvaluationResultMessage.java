@@ -0,0 +1,14 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution.rabbitmq;
+
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+
+/**
+ * Message sending the result of an evaluation back to the node that requested it.
+ *
+ * @param status {@link TaskResultStatus#EVALUATED} if the evaluation produced a verdict, otherwise the status the task
+ *               results should be marked with
+ * @param answerCorrect verdict, null if there is none
+ * @param error description of the failure, null if the evaluation succeeded
+ */
+public record EvaluationResultMessage(TaskResultStatus status, Boolean answerCorrect, String error) {
+}
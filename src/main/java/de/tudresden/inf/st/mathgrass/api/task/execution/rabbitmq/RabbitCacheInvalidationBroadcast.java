@@ -0,0 +1,170 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution.rabbitmq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.eventbus.Subscribe;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.Recoverable;
+import com.rabbitmq.client.RecoveryListener;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationCacheInvalidator;
+import de.tudresden.inf.st.mathgrass.api.events.CustomEventBus;
+import de.tudresden.inf.st.mathgrass.api.events.EvaluationCachesInvalidatedEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class broadcasts invalidations of cached evaluation state to all nodes, if evaluations are distributed via
+ * RabbitMQ. Evaluator nodes cache snapshots and verdicts of tasks that are updated on other nodes.
+ *
+ * <p>
+ * Every {@link EvaluationCachesInvalidatedEvent} of this node is published to the fanout exchange
+ * {@value #INVALIDATION_EXCHANGE}, and every node invalidates its caches for the invalidations it receives. Nodes
+ * whose connection broke might have missed invalidations, so they invalidate all their caches once the connection
+ * has been recovered.
+ */
+@Component
+@ConditionalOnProperty(name = "taskExecution.queue", havingValue = "rabbitmq")
+public class RabbitCacheInvalidationBroadcast {
+    /**
+     * Exchange of invalidations.
+     */
+    public static final String INVALIDATION_EXCHANGE = "mathgrass.cacheInvalidations";
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(RabbitCacheInvalidationBroadcast.class);
+
+    /**
+     * Connection to RabbitMQ.
+     */
+    private final Connection connection;
+
+    /**
+     * Invalidator of cached evaluation state.
+     */
+    private final EvaluationCacheInvalidator cacheInvalidator;
+
+    /**
+     * Event bus.
+     */
+    private final CustomEventBus eventBus;
+
+    /**
+     * Object mapper for messages.
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Channel publishing and consuming invalidations. Guarded by itself for publishing.
+     */
+    private Channel channel;
+
+    /**
+     * Constructor.
+     *
+     * @param connection connection to RabbitMQ
+     * @param cacheInvalidator invalidator of cached evaluation state
+     * @param eventBus event bus
+     */
+    public RabbitCacheInvalidationBroadcast(Connection connection, EvaluationCacheInvalidator cacheInvalidator,
+                                            CustomEventBus eventBus) {
+        this.connection = connection;
+        this.cacheInvalidator = cacheInvalidator;
+        this.eventBus = eventBus;
+    }
+
+    @PostConstruct
+    private void init() throws IOException {
+        channel = connection.createChannel();
+        channel.exchangeDeclare(INVALIDATION_EXCHANGE, BuiltinExchangeType.FANOUT, true);
+        // every node receives all invalidations on its own temporary queue
+        String queue = channel.queueDeclare().getQueue();
+        channel.queueBind(queue, INVALIDATION_EXCHANGE, "");
+        channel.basicConsume(queue, true, new DefaultConsumer(channel) {
+            @Override
+            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+                                       byte[] body) {
+                onInvalidation(body);
+            }
+        });
+
+        if (connection instanceof Recoverable recoverable) {
+            recoverable.addRecoveryListener(new RecoveryListener() {
+                @Override
+                public void handleRecovery(Recoverable recovered) {
+                    logger.info("Invalidating all cached evaluation state after the connection has been recovered");
+                    cacheInvalidator.invalidateAllLocally();
+                }
+
+                @Override
+                public void handleRecoveryStarted(Recoverable recovering) {
+                    // invalidations are only missed until the connection has been recovered
+                }
+            });
+        }
+
+        eventBus.register(this);
+    }
+
+    /**
+     * Publish an invalidation of this node to all nodes.
+     *
+     * @param event invalidation
+     */
+    @Subscribe
+    public void onInvalidated(EvaluationCachesInvalidatedEvent event) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(event);
+            synchronized (channel) {
+                channel.basicPublish(INVALIDATION_EXCHANGE, "", new AMQP.BasicProperties.Builder()
+                        .contentType("application/json")
+                        .build(), body);
+            }
+        } catch (IOException e) {
+            logger.error("Couldn't broadcast invalidation of task {} or graph {}", event.taskId(), event.graphId(), e);
+        }
+    }
+
+    /**
+     * Invalidate the caches of this node for an invalidation received from any node.
+     *
+     * @param body invalidation message
+     */
+    private void onInvalidation(byte[] body) {
+        try {
+            EvaluationCachesInvalidatedEvent event = objectMapper.readValue(body,
+                    EvaluationCachesInvalidatedEvent.class);
+            if (event.taskId() != null) {
+                cacheInvalidator.invalidateTaskLocally(event.taskId());
+            }
+            if (event.graphId() != null) {
+                cacheInvalidator.invalidateGraphLocally(event.graphId());
+            }
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable cache invalidation", e);
+        }
+    }
+
+    /**
+     * Stop broadcasting on shutdown.
+     */
+    @PreDestroy
+    private void shutdown() throws IOException, TimeoutException {
+        eventBus.unregister(this);
+        if (channel.isOpen()) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution.rabbitmq;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class is used to configure the connection to RabbitMQ and the queues of evaluation jobs, if evaluations are
+ * distributed via RabbitMQ.
+ *
+ * <p>
+ * Jobs are published to the durable quorum queue {@value #EVALUATION_QUEUE}. Jobs that can't be processed, or whose
+ * evaluator nodes crashed more often than the delivery limit, are dead-lettered to {@value #DEAD_LETTER_QUEUE}.
+ */
+@Component
+@ConditionalOnProperty(name = "taskExecution.queue", havingValue = "rabbitmq")
+public class RabbitConfiguration {
+    /**
+     * Queue of evaluation jobs.
+     */
+    public static final String EVALUATION_QUEUE = "mathgrass.evaluations";
+
+    /**
+     * Queue of evaluation jobs that couldn't be processed.
+     */
+    public static final String DEAD_LETTER_QUEUE = "mathgrass.evaluations.dead";
+
+    /**
+     * Host of broker.
+     */
+    @Value("${rabbitmq.host:localhost}")
+    private String host;
+
+    /**
+     * Port of broker.
+     */
+    @Value("${rabbitmq.port:5672}")
+    private int port;
+
+    /**
+     * Virtual host.
+     */
+    @Value("${rabbitmq.virtualHost:/}")
+    private String virtualHost;
+
+    /**
+     * Username.
+     */
+    @Value("${rabbitmq.username:guest}")
+    private String username;
+
+    /**
+     * Password.
+     */
+    @Value("${rabbitmq.password:guest}")
+    private String password;
+
+    /**
+     * Max number of deliveries of a job before it is dead-lettered.
+     */
+    @Value("${taskExecution.rabbitmq.deliveryLimit:3}")
+    private int deliveryLimit;
+
+    @Bean
+    public ConnectionFactory rabbitConnectionFactory() {
+        ConnectionFactory connectionFactory = new ConnectionFactory();
+        connectionFactory.setHost(host);
+        connectionFactory.setPort(port);
+        connectionFactory.setVirtualHost(virtualHost);
+        connectionFactory.setUsername(username);
+        connectionFactory.setPassword(password);
+        // consumers and queues are restored after the connection broke
+        connectionFactory.setAutomaticRecoveryEnabled(true);
+        connectionFactory.setTopologyRecoveryEnabled(true);
+        return connectionFactory;
+    }
+
+    @Bean(destroyMethod = "close")
+    public Connection rabbitConnection(ConnectionFactory connectionFactory) {
+        try {
+            return connectionFactory.newConnection("mathgrass");
+        } catch (IOException | TimeoutException e) {
+            throw new IllegalStateException("Couldn't connect to RabbitMQ at " + host + ":" + port, e);
+        }
+    }
+
+    /**
+     * Declare the queue of evaluation jobs and its dead letter queue. Producers and consumers declare them
+     * identically, so that either can start first.
+     *
+     * @param channel channel
+     * @throws IOException if the queues couldn't be declared
+     */
+    public void declareEvaluationQueues(Channel channel) throws IOException {
+        channel.queueDeclare(DEAD_LETTER_QUEUE, true, false, false, null);
+        channel.queueDeclare(EVALUATION_QUEUE, true, false, false, Map.of(
+                "x-queue-type", "quorum",
+                "x-delivery-limit", deliveryLimit,
+                "x-dead-letter-exchange", "",
+                "x-dead-letter-routing-key", DEAD_LETTER_QUEUE));
+    }
+}
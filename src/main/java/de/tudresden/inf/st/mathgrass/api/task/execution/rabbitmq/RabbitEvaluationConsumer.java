@@ -0,0 +1,191 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution.rabbitmq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationTimeoutException;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+import de.tudresden.inf.st.mathgrass.api.task.execution.TaskExecutionWorker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class consumes evaluation jobs from RabbitMQ on evaluator nodes and sends their results back to the nodes that
+ * published them.
+ *
+ * <p>
+ * Jobs are acknowledged once their result has been sent, so jobs of nodes that crash are redelivered to other nodes.
+ * The number of unacknowledged jobs per node, and thereby the number of concurrent evaluations, is limited by the
+ * prefetch count. Jobs that can't be read are rejected and dead-lettered. Nodes that should only publish jobs disable
+ * consuming with {@code taskExecution.rabbitmq.consume=false}.
+ */
+@Component
+@ConditionalOnExpression("'${taskExecution.queue:local}' == 'rabbitmq' && ${taskExecution.rabbitmq.consume:true}")
+public class RabbitEvaluationConsumer {
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(RabbitEvaluationConsumer.class);
+
+    /**
+     * Max number of jobs evaluated concurrently by this node.
+     */
+    @Value("${taskExecution.rabbitmq.prefetch:4}")
+    private int prefetch;
+
+    /**
+     * Connection to RabbitMQ.
+     */
+    private final Connection connection;
+
+    /**
+     * RabbitMQ configuration.
+     */
+    private final RabbitConfiguration rabbitConfiguration;
+
+    /**
+     * Worker class.
+     */
+    private final TaskExecutionWorker taskExecutionWorker;
+
+    /**
+     * Object mapper for messages.
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Channel consuming jobs and publishing results. Guarded by itself.
+     */
+    private Channel channel;
+
+    /**
+     * Constructor.
+     *
+     * @param connection connection to RabbitMQ
+     * @param rabbitConfiguration RabbitMQ configuration
+     * @param taskExecutionWorker worker class
+     */
+    public RabbitEvaluationConsumer(Connection connection, RabbitConfiguration rabbitConfiguration,
+                                    TaskExecutionWorker taskExecutionWorker) {
+        this.connection = connection;
+        this.rabbitConfiguration = rabbitConfiguration;
+        this.taskExecutionWorker = taskExecutionWorker;
+    }
+
+    @PostConstruct
+    private void init() throws IOException {
+        channel = connection.createChannel();
+        rabbitConfiguration.declareEvaluationQueues(channel);
+        channel.basicQos(prefetch);
+        channel.basicConsume(RabbitConfiguration.EVALUATION_QUEUE, false, new DefaultConsumer(channel) {
+            @Override
+            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+                                       byte[] body) {
+                onJob(envelope, properties, body);
+            }
+        });
+        logger.info("Consuming evaluation jobs from RabbitMQ, at most {} at a time", prefetch);
+    }
+
+    /**
+     * Start the evaluation of a job. The job is acknowledged once its result has been sent.
+     *
+     * @param envelope envelope of job message
+     * @param properties properties of job message
+     * @param body job message
+     */
+    private void onJob(Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+        EvaluationJobMessage job;
+        try {
+            job = objectMapper.readValue(body, EvaluationJobMessage.class);
+        } catch (IOException e) {
+            logger.warn("Dead-lettering unreadable evaluation job {}", properties.getCorrelationId(), e);
+            reject(envelope.getDeliveryTag());
+            return;
+        }
+
+        logger.info("Evaluating job {} for task with ID {}{}", properties.getCorrelationId(), job.taskId(),
+                envelope.isRedeliver() ? " again" : "");
+        taskExecutionWorker.makeAssessmentAsync(job.taskId(), job.userAnswer())
+                .whenComplete((outcome, error) -> reply(envelope.getDeliveryTag(), properties,
+                        toResultMessage(outcome, error)));
+    }
+
+    private static EvaluationResultMessage toResultMessage(EvaluationOutcome outcome, Throwable error) {
+        if (error == null) {
+            return new EvaluationResultMessage(TaskResultStatus.EVALUATED, outcome.answerCorrect(), null);
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        TaskResultStatus status;
+        if (cause instanceof EvaluationTimeoutException) {
+            status = TaskResultStatus.TIMED_OUT;
+        } else if (cause instanceof CancellationException) {
+            status = TaskResultStatus.CANCELLED;
+        } else {
+            logger.error("Evaluation job failed", cause);
+            status = TaskResultStatus.FAILED;
+        }
+        return new EvaluationResultMessage(status, null, cause.getMessage());
+    }
+
+    /**
+     * Send the result of a job to the node that published it and acknowledge the job.
+     *
+     * @param deliveryTag delivery tag of job
+     * @param jobProperties properties of job message
+     * @param result result message
+     */
+    private void reply(long deliveryTag, AMQP.BasicProperties jobProperties, EvaluationResultMessage result) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(result);
+            AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                    .correlationId(jobProperties.getCorrelationId())
+                    .contentType("application/json")
+                    .deliveryMode(2)
+                    .build();
+            synchronized (channel) {
+                if (jobProperties.getReplyTo() != null) {
+                    channel.basicPublish("", jobProperties.getReplyTo(), properties, body);
+                }
+                channel.basicAck(deliveryTag, false);
+            }
+        } catch (IOException | RuntimeException e) {
+            // unacknowledged jobs are redelivered once the channel has been recovered
+            logger.error("Couldn't send result of evaluation job {}", jobProperties.getCorrelationId(), e);
+        }
+    }
+
+    private void reject(long deliveryTag) {
+        try {
+            synchronized (channel) {
+                channel.basicReject(deliveryTag, false);
+            }
+        } catch (IOException e) {
+            logger.error("Couldn't reject evaluation job", e);
+        }
+    }
+
+    /**
+     * Stop consuming on shutdown. Jobs that haven't been acknowledged are redelivered to other nodes.
+     */
+    @PreDestroy
+    private void shutdown() throws IOException, TimeoutException {
+        if (channel.isOpen()) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution.rabbitmq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationTimeoutException;
+import de.tudresden.inf.st.mathgrass.api.task.execution.EvaluationQueue;
+import de.tudresden.inf.st.mathgrass.api.task.execution.TaskExecutionWorker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * {@link EvaluationQueue} publishing evaluations as jobs to RabbitMQ, where they are consumed by the
+ * {@link RabbitEvaluationConsumer}s of any number of evaluator nodes.
+ *
+ * <p>
+ * Every node receives the results of its jobs on its own durable result queue, so that it completes the task results
+ * of its clients itself. The result queue survives restarts of the broker connection and is deleted by the broker
+ * once it hasn't been used for a while, e.g., after the node has been shut down. Jobs whose result doesn't arrive
+ * before a deadline fail, so that no task result stays pending forever.
+ */
+@Component
+@ConditionalOnProperty(name = "taskExecution.queue", havingValue = "rabbitmq")
+public class RabbitEvaluationQueue implements EvaluationQueue {
+    /**
+     * Prefix of the result queues of nodes.
+     */
+    static final String RESULT_QUEUE_PREFIX = "mathgrass.evaluationResults.";
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(RabbitEvaluationQueue.class);
+
+    /**
+     * ID of this node, naming its result queue. A random ID is used if it is blank.
+     */
+    @Value("${taskExecution.rabbitmq.nodeId:}")
+    private String nodeId;
+
+    /**
+     * Number of seconds to wait for the result of a job.
+     */
+    @Value("${taskExecution.rabbitmq.resultTimeoutSeconds:600}")
+    private long resultTimeoutSeconds;
+
+    /**
+     * Number of seconds after which the result queue of a node is deleted if it isn't used.
+     */
+    @Value("${taskExecution.rabbitmq.resultQueueExpirySeconds:3600}")
+    private long resultQueueExpirySeconds;
+
+    /**
+     * Connection to RabbitMQ.
+     */
+    private final Connection connection;
+
+    /**
+     * RabbitMQ configuration.
+     */
+    private final RabbitConfiguration rabbitConfiguration;
+
+    /**
+     * Worker class.
+     */
+    private final TaskExecutionWorker taskExecutionWorker;
+
+    /**
+     * Object mapper for messages.
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Futures of published jobs by job ID.
+     */
+    private final Map<String, CompletableFuture<EvaluationOutcome>> pendingJobs = new ConcurrentHashMap<>();
+
+    /**
+     * Channel publishing jobs and consuming results. Guarded by itself for publishing.
+     */
+    private Channel channel;
+
+    /**
+     * Name of the result queue of this node.
+     */
+    private String resultQueue;
+
+    /**
+     * Constructor.
+     *
+     * @param connection connection to RabbitMQ
+     * @param rabbitConfiguration RabbitMQ configuration
+     * @param taskExecutionWorker worker class
+     */
+    public RabbitEvaluationQueue(Connection connection, RabbitConfiguration rabbitConfiguration,
+                                 TaskExecutionWorker taskExecutionWorker) {
+        this.connection = connection;
+        this.rabbitConfiguration = rabbitConfiguration;
+        this.taskExecutionWorker = taskExecutionWorker;
+    }
+
+    @PostConstruct
+    private void init() throws IOException {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = UUID.randomUUID().toString();
+        }
+        resultQueue = RESULT_QUEUE_PREFIX + nodeId;
+
+        channel = connection.createChannel();
+        rabbitConfiguration.declareEvaluationQueues(channel);
+        channel.queueDeclare(resultQueue, true, false, false,
+                Map.of("x-expires", TimeUnit.SECONDS.toMillis(resultQueueExpirySeconds)));
+        channel.basicConsume(resultQueue, true, new DefaultConsumer(channel) {
+            @Override
+            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+                                       byte[] body) {
+                onResult(properties.getCorrelationId(), body);
+            }
+        });
+        logger.info("Publishing evaluation jobs to RabbitMQ, results are received on queue {}", resultQueue);
+    }
+
+    @Override
+    public CompletableFuture<EvaluationOutcome> runTaskEvaluation(Long taskId, String userAnswer,
+                                                                  Supplier<List<Long>> taskResultIds) {
+        String jobId = UUID.randomUUID().toString();
+        CompletableFuture<EvaluationOutcome> result = new CompletableFuture<>();
+        pendingJobs.put(jobId, result);
+        // results of cancelled or timed out jobs are ignored
+        result.whenComplete((outcome, error) -> pendingJobs.remove(jobId));
+
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .correlationId(jobId)
+                .replyTo(resultQueue)
+                .contentType("application/json")
+                .deliveryMode(2)
+                .build();
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(new EvaluationJobMessage(taskId, userAnswer));
+            synchronized (channel) {
+                channel.basicPublish("", RabbitConfiguration.EVALUATION_QUEUE, properties, body);
+            }
+            logger.info("Published evaluation job {} for task with ID {}", jobId, taskId);
+        } catch (IOException e) {
+            result.completeExceptionally(new UncheckedIOException(e));
+        }
+
+        result.orTimeout(resultTimeoutSeconds, TimeUnit.SECONDS);
+        return taskExecutionWorker.completeWhenDone(taskId, result, taskResultIds);
+    }
+
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
+    /**
+     * Complete the future of a job with its result.
+     *
+     * @param jobId ID of job
+     * @param body result message
+     */
+    private void onResult(String jobId, byte[] body) {
+        CompletableFuture<EvaluationOutcome> result = jobId == null ? null : pendingJobs.remove(jobId);
+        if (result == null) {
+            logger.debug("Ignoring result of job {}, which is no longer pending", jobId);
+            return;
+        }
+
+        EvaluationResultMessage message;
+        try {
+            message = objectMapper.readValue(body, EvaluationResultMessage.class);
+        } catch (IOException e) {
+            result.completeExceptionally(new IllegalStateException("Couldn't read result of job " + jobId, e));
+            return;
+        }
+
+        switch (message.status()) {
+            case EVALUATED -> result.complete(EvaluationOutcome.of(Boolean.TRUE.equals(message.answerCorrect())));
+            case TIMED_OUT -> result.completeExceptionally(new EvaluationTimeoutException(message.error()));
+            case CANCELLED -> result.cancel(false);
+            default -> result.completeExceptionally(
+                    new IllegalStateException("Evaluation on evaluator node failed: " + message.error()));
+        }
+    }
+
+    /**
+     * Close the channel on shutdown.
+     */
+    @PreDestroy
+    private void shutdown() throws IOException, TimeoutException {
+        if (!pendingJobs.isEmpty()) {
+            logger.warn("Shutting down with {} pending evaluation jobs", pendingJobs.size());
+        }
+        if (channel.isOpen()) {
+            channel.close();
+        }
+    }
+}
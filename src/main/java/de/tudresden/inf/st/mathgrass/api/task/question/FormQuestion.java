@@ -1,12 +1,10 @@
 package de.tudresden.inf.st.mathgrass.api.task.question;
 
 import de.tudresden.inf.st.mathgrass.api.task.question.answer.Answer;
-import de.tudresden.inf.st.mathgrass.api.task.question.answer.AnswerVisitor;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
 import javax.persistence.ManyToOne;
-import java.io.IOException;
 
 @Entity
 public class FormQuestion extends Question {
@@ -22,9 +20,7 @@ public class FormQuestion extends Question {
     }
 
     @Override
-    public boolean acceptQuestionVisitor(QuestionVisitor visitor, AnswerVisitor answerVisitor, Long taskId,
-                                         String answer) throws IOException, InterruptedException {
-        return visitor.visitFormQuestion(this, answerVisitor, taskId, answer);
-
+    public boolean isEvaluatedInline() {
+        return answer != null && answer.isEvaluatedInline();
     }
 }
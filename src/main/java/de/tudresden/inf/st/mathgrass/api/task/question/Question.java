@@ -1,12 +1,9 @@
 package de.tudresden.inf.st.mathgrass.api.task.question;
 
-import de.tudresden.inf.st.mathgrass.api.task.question.answer.AnswerVisitor;
-
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import java.io.IOException;
 
 @Entity
 public abstract class Question {
@@ -28,6 +25,12 @@ public abstract class Question {
         this.questionText = questionText;
     }
 
-    public abstract boolean acceptQuestionVisitor(QuestionVisitor visitor, AnswerVisitor answerVisitor, Long taskId,
-                                                  String answer) throws IOException, InterruptedException;
+    /**
+     * Whether answers to this question can be evaluated immediately on the calling thread.
+     *
+     * @return true if the evaluation is trivial
+     */
+    public boolean isEvaluatedInline() {
+        return false;
+    }
 }
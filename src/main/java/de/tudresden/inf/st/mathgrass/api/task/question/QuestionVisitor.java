@@ -1,20 +1,52 @@
 package de.tudresden.inf.st.mathgrass.api.task.question;
 
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import de.tudresden.inf.st.mathgrass.api.evaluator.snapshot.EvaluationSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.snapshot.EvaluationSnapshot.AnswerKind;
 import de.tudresden.inf.st.mathgrass.api.task.question.answer.AnswerVisitor;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 @Service
 public class QuestionVisitor {
-    public boolean visitGraphMarkingQuestion(GraphMarkingQuestion question, AnswerVisitor answerVisitor, Long taskId,
-                                             String answer) {
-        // TODO
-        return false;
+    /**
+     * Evaluate an answer to the question of a task snapshot without blocking the calling thread.
+     *
+     * @param answerVisitor answer visitor
+     * @param snapshot snapshot of task
+     * @param answer given answer
+     * @return stage completing with the outcome once the evaluation finished
+     */
+    public CompletionStage<EvaluationOutcome> visitAsync(AnswerVisitor answerVisitor, EvaluationSnapshot snapshot,
+                                                         String answer) {
+        return switch (snapshot.answerKind()) {
+            // TODO evaluate graph marking questions
+            case NONE -> CompletableFuture.completedFuture(EvaluationOutcome.INCORRECT);
+            case STATIC -> answerVisitor.visitStaticAnswerAsync(snapshot, answer);
+            case DYNAMIC -> answerVisitor.visitDynamicAnswerAsync(snapshot, answer);
+        };
     }
 
-    public boolean visitFormQuestion(FormQuestion question, AnswerVisitor answerVisitor, Long taskId,
-                                     String userAnswer) throws IOException, InterruptedException {
-        return question.getAnswer().acceptAnswerVisitor(answerVisitor, taskId, userAnswer);
+    /**
+     * Evaluate many answers to the question of a task snapshot without blocking the calling thread. Dynamic answers
+     * are evaluated as a batch, other answers one by one.
+     *
+     * @param answerVisitor answer visitor
+     * @param snapshot snapshot of task
+     * @param answers given answers
+     * @return stages completing with the outcomes once the evaluations finished, in the order of the answers
+     */
+    public List<CompletionStage<EvaluationOutcome>> visitBatchAsync(AnswerVisitor answerVisitor,
+                                                                    EvaluationSnapshot snapshot,
+                                                                    List<String> answers) {
+        if (snapshot.answerKind() == AnswerKind.DYNAMIC) {
+            return answerVisitor.visitDynamicAnswerBatchAsync(snapshot, answers);
+        }
+        return answers.stream()
+                .map(answer -> visitAsync(answerVisitor, snapshot, answer))
+                .toList();
     }
 }
@@ -5,7 +5,6 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import java.io.IOException;
 
 @Entity
 public abstract class Answer {
@@ -17,6 +16,12 @@ public abstract class Answer {
         return id;
     }
 
-    public abstract boolean acceptAnswerVisitor(AnswerVisitor visitor, Long taskId, String userAnswer) throws IOException,
-            InterruptedException;
+    /**
+     * Whether answers can be evaluated immediately on the calling thread, e.g., by comparing strings.
+     *
+     * @return true if the evaluation is trivial
+     */
+    public boolean isEvaluatedInline() {
+        return false;
+    }
 }
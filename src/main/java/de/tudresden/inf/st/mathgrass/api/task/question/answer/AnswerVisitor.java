@@ -1,24 +1,184 @@
 package de.tudresden.inf.st.mathgrass.api.task.question.answer;
 
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
 import de.tudresden.inf.st.mathgrass.api.evaluator.TaskManager;
+import de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.jvm.JvmGraphEvaluator;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.snapshot.EvaluationSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.verdict.VerdictCache;
+import de.tudresden.inf.st.mathgrass.api.evaluator.verdict.VerdictCache.VerdictKey;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 @Service
 public class AnswerVisitor {
 
     private final TaskManager taskManager;
+    private final VerdictCache verdictCache;
+    private final JvmGraphEvaluator jvmGraphEvaluator;
 
-    public AnswerVisitor(TaskManager taskManager) {
+    public AnswerVisitor(TaskManager taskManager, VerdictCache verdictCache, JvmGraphEvaluator jvmGraphEvaluator) {
         this.taskManager = taskManager;
+        this.verdictCache = verdictCache;
+        this.jvmGraphEvaluator = jvmGraphEvaluator;
     }
 
-    public boolean visitStaticAnswer(StaticAnswer answer, Long taskId, String userAnswer) {
-        return answer.getAnswer().equals(userAnswer);
+    public CompletionStage<EvaluationOutcome> visitStaticAnswerAsync(EvaluationSnapshot snapshot,
+                                                                     String userAnswer) {
+        return CompletableFuture.completedFuture(
+                EvaluationOutcome.of(snapshot.staticAnswer().equals(userAnswer)));
     }
 
-    public boolean visitDynamicAnswer(DynamicAnswer answer, Long taskId, String userAnswer) throws IOException {
-        return taskManager.runTaskSynchronously(taskId, userAnswer, answer.getExecutor());
+    /**
+     * Evaluate a dynamic answer without blocking the calling thread. The returned stage completes once the container
+     * running the evaluation exited, cancelling it kills the container. Only the snapshot is accessed, so no
+     * transaction is needed.
+     */
+    public CompletionStage<EvaluationOutcome> visitDynamicAnswerAsync(EvaluationSnapshot snapshot,
+                                                                      String userAnswer) {
+        CompletableFuture<Boolean> verdict;
+        Optional<VerdictKey> verdictKey;
+        long startedAtMillis;
+        try {
+            ExecutorSnapshot executor = executorOf(snapshot);
+
+            // common graph properties are evaluated in-process and complete immediately
+            if (jvmGraphEvaluator.canEvaluate(executor)) {
+                return CompletableFuture.completedFuture(EvaluationOutcome.of(
+                        jvmGraphEvaluator.evaluate(snapshot.propertyGraph(), executor, userAnswer)));
+            }
+
+            // repeated answers are only evaluated once
+            verdictKey = verdictCache.keyOf(snapshot, userAnswer);
+            Optional<Boolean> cachedVerdict = verdictKey.flatMap(verdictCache::get);
+            if (cachedVerdict.isPresent()) {
+                return CompletableFuture.completedFuture(EvaluationOutcome.of(cachedVerdict.get()));
+            }
+
+            startedAtMillis = System.currentTimeMillis();
+            verdict = taskManager.runTaskAsync(snapshot, userAnswer);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return toOutcome(verdict, verdictKey, startedAtMillis, 1);
+    }
+
+    /**
+     * Evaluate many dynamic answers without blocking the calling thread. Answers that can't be evaluated in-process
+     * and whose verdicts aren't cached are evaluated by a single run of the executor, see
+     * {@link TaskManager#runBatchAsync}. Cancelling a stage cancels the evaluation of its answer, the container is
+     * killed once all of its evaluations have been cancelled.
+     */
+    public List<CompletionStage<EvaluationOutcome>> visitDynamicAnswerBatchAsync(EvaluationSnapshot snapshot,
+                                                                                List<String> userAnswers) {
+        ExecutorSnapshot executor = snapshot.executor();
+        if (executor == null || jvmGraphEvaluator.canEvaluate(executor)) {
+            return userAnswers.stream()
+                    .map(userAnswer -> visitDynamicAnswerAsync(snapshot, userAnswer))
+                    .toList();
+        }
+
+        List<CompletionStage<EvaluationOutcome>> outcomes = new ArrayList<>(Collections.nCopies(userAnswers.size(),
+                null));
+        List<Integer> uncachedIndices = new ArrayList<>();
+        List<Optional<VerdictKey>> uncachedKeys = new ArrayList<>();
+        List<CompletableFuture<Boolean>> verdicts;
+        long startedAtMillis;
+        try {
+            // repeated answers are only evaluated once
+            for (int i = 0; i < userAnswers.size(); i++) {
+                Optional<VerdictKey> verdictKey = verdictCache.keyOf(snapshot, userAnswers.get(i));
+                Optional<Boolean> cachedVerdict = verdictKey.flatMap(verdictCache::get);
+                if (cachedVerdict.isPresent()) {
+                    outcomes.set(i, CompletableFuture.completedFuture(EvaluationOutcome.of(cachedVerdict.get())));
+                } else {
+                    uncachedIndices.add(i);
+                    uncachedKeys.add(verdictKey);
+                }
+            }
+            if (uncachedIndices.isEmpty()) {
+                return outcomes;
+            }
+
+            startedAtMillis = System.currentTimeMillis();
+            verdicts = taskManager.runBatchAsync(snapshot, uncachedIndices.stream().map(userAnswers::get).toList());
+        } catch (IOException e) {
+            return failUnanswered(outcomes, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            return failUnanswered(outcomes, e);
+        }
+
+        // executors without batch entrypoint evaluate every answer in a run of its own
+        int answersPerRun = executor.batchEntrypoint() == null ? 1 : uncachedIndices.size();
+        for (int i = 0; i < uncachedIndices.size(); i++) {
+            outcomes.set(uncachedIndices.get(i), toOutcome(verdicts.get(i), uncachedKeys.get(i), startedAtMillis,
+                    answersPerRun));
+        }
+        return outcomes;
+    }
+
+    /**
+     * Get the executor of a dynamic answer.
+     *
+     * @param snapshot snapshot of task
+     * @return executor
+     * @throws IllegalArgumentException if the answer has no executor
+     */
+    private static ExecutorSnapshot executorOf(EvaluationSnapshot snapshot) {
+        if (snapshot.executor() == null) {
+            throw new IllegalArgumentException("Dynamic answer of task with ID " + snapshot.taskId()
+                    + " has no executor");
+        }
+        return snapshot.executor();
+    }
+
+    /**
+     * Map the verdict of an executor run to its outcome and cache it.
+     *
+     * @param verdict future of the verdict
+     * @param verdictKey key of the verdict in the cache, empty if it isn't cached
+     * @param startedAtMillis time the executor has been started at in milliseconds
+     * @param answersPerRun number of answers evaluated by the run of the executor
+     * @return future of the outcome, cancelling it cancels the evaluation
+     */
+    private CompletableFuture<EvaluationOutcome> toOutcome(CompletableFuture<Boolean> verdict,
+                                                           Optional<VerdictKey> verdictKey, long startedAtMillis,
+                                                           int answersPerRun) {
+        CompletableFuture<EvaluationOutcome> outcome = verdict.thenApply(answerCorrect -> {
+            verdictKey.ifPresent(key -> verdictCache.put(key, answerCorrect));
+            return EvaluationOutcome.ofExecutorRun(answerCorrect,
+                    (System.currentTimeMillis() - startedAtMillis) / answersPerRun);
+        });
+        // dependent stages don't cancel their source, but the evaluation has to be killed
+        outcome.whenComplete((result, error) -> {
+            if (outcome.isCancelled()) {
+                verdict.cancel(true);
+            }
+        });
+        return outcome;
+    }
+
+    /**
+     * Fail the outcomes of a batch that haven't been determined yet.
+     *
+     * @param outcomes outcomes, null if undetermined
+     * @param error failure
+     * @return outcomes
+     */
+    private List<CompletionStage<EvaluationOutcome>> failUnanswered(List<CompletionStage<EvaluationOutcome>> outcomes,
+                                                                   RuntimeException error) {
+        outcomes.replaceAll(outcome -> outcome == null ? CompletableFuture.failedFuture(error) : outcome);
+        return outcomes;
     }
 }
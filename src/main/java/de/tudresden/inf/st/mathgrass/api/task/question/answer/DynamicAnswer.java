@@ -5,7 +5,6 @@ import de.tudresden.inf.st.mathgrass.api.evaluator.executor.Executor;
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
 import javax.persistence.ManyToOne;
-import java.io.IOException;
 
 @Entity
 public class DynamicAnswer extends Answer {
@@ -21,10 +20,12 @@ public class DynamicAnswer extends Answer {
         this.executor = executor;
     }
 
+    /**
+     * Answers compared to graph properties are evaluated in-process within microseconds, unless the property is
+     * expensive to compute. Those are evaluated in-process as well, but queued like other evaluations.
+     */
     @Override
-    public boolean acceptAnswerVisitor(AnswerVisitor visitor, Long taskId, String userAnswer) throws IOException,
-            InterruptedException {
-        return visitor.visitDynamicAnswer(this, taskId, userAnswer);
+    public boolean isEvaluatedInline() {
+        return executor != null && executor.getGraphProperty() != null && !executor.getGraphProperty().isExpensive();
     }
-
 }
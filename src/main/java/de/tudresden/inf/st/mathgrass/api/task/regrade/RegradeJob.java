@@ -0,0 +1,233 @@
+package de.tudresden.inf.st.mathgrass.api.task.regrade;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents the progress of re-grading all completed task results of a task.
+ */
+public class RegradeJob {
+    /**
+     * ID of job.
+     */
+    private final long id;
+
+    /**
+     * ID of task.
+     */
+    private final long taskId;
+
+    /**
+     * Number of task results to re-grade, counted when the job has been created.
+     */
+    private final long total;
+
+    /**
+     * Number of task results that have been re-graded or failed.
+     */
+    private final AtomicInteger processed = new AtomicInteger();
+
+    /**
+     * Number of re-graded task results whose verdict changed.
+     */
+    private final AtomicInteger changed = new AtomicInteger();
+
+    /**
+     * Number of task results whose re-evaluation failed, they keep their verdict.
+     */
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * Status of job.
+     */
+    private volatile RegradeJobStatus status = RegradeJobStatus.QUEUED;
+
+    /**
+     * Point in time the job finished, null while it is queued or running.
+     */
+    private volatile Instant finishedAt;
+
+    /**
+     * Evaluations of the batch that is currently running, they are cancelled with the job. Guarded by this.
+     */
+    private List<CompletableFuture<EvaluationOutcome>> runningAssessments = List.of();
+
+    /**
+     * Constructor.
+     *
+     * @param id ID of job
+     * @param taskId ID of task
+     * @param total number of task results to re-grade
+     */
+    public RegradeJob(long id, long taskId, long total) {
+        this.id = id;
+        this.taskId = taskId;
+        this.total = total;
+    }
+
+    /**
+     * Getter for ID.
+     *
+     * @return ID of job
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Getter for task ID.
+     *
+     * @return ID of task
+     */
+    public long getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * Getter for total.
+     *
+     * @return number of task results to re-grade
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Getter for processed task results.
+     *
+     * @return number of task results that have been re-graded or failed
+     */
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * Getter for changed task results.
+     *
+     * @return number of re-graded task results whose verdict changed
+     */
+    public int getChanged() {
+        return changed.get();
+    }
+
+    /**
+     * Getter for failed task results.
+     *
+     * @return number of task results whose re-evaluation failed
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Getter for status.
+     *
+     * @return status of job
+     */
+    public RegradeJobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Getter for finish time.
+     *
+     * @return point in time the job finished, null while it is queued or running
+     */
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Check whether the job has finished.
+     *
+     * @return true if the job is neither queued nor running
+     */
+    public boolean isFinished() {
+        return status != RegradeJobStatus.QUEUED && status != RegradeJobStatus.RUNNING;
+    }
+
+    /**
+     * Check whether the job finished before a point in time.
+     *
+     * @param threshold point in time
+     * @return true if the job finished before the point in time
+     */
+    boolean isFinishedBefore(Instant threshold) {
+        Instant finished = finishedAt;
+        return finished != null && finished.isBefore(threshold);
+    }
+
+    /**
+     * Count processed task results.
+     *
+     * @param processedTaskResults number of processed task results
+     * @param changedVerdicts number of re-graded task results whose verdict changed
+     * @param failedEvaluations number of task results whose re-evaluation failed
+     */
+    void count(int processedTaskResults, int changedVerdicts, int failedEvaluations) {
+        processed.addAndGet(processedTaskResults);
+        changed.addAndGet(changedVerdicts);
+        failed.addAndGet(failedEvaluations);
+    }
+
+    /**
+     * Start the job, unless it has been cancelled while it was queued.
+     *
+     * @return true if the job has been started
+     */
+    synchronized boolean start() {
+        if (status != RegradeJobStatus.QUEUED) {
+            return false;
+        }
+        status = RegradeJobStatus.RUNNING;
+        return true;
+    }
+
+    /**
+     * Finish the job, unless it has been cancelled.
+     *
+     * @param finalStatus final status of job
+     */
+    synchronized void finish(RegradeJobStatus finalStatus) {
+        if (!isFinished()) {
+            status = finalStatus;
+            finishedAt = Instant.now();
+        }
+        runningAssessments = List.of();
+    }
+
+    /**
+     * Register the evaluations of the batch that is currently running.
+     *
+     * @param assessments evaluations of batch
+     * @return false if the job has been cancelled, the evaluations have been cancelled as well then
+     */
+    synchronized boolean run(List<CompletableFuture<EvaluationOutcome>> assessments) {
+        if (status == RegradeJobStatus.CANCELLED) {
+            assessments.forEach(assessment -> assessment.cancel(true));
+            return false;
+        }
+        runningAssessments = assessments;
+        return true;
+    }
+
+    /**
+     * Cancel the job and the evaluations of its running batch.
+     *
+     * @return true if the job has been cancelled, false if it already finished
+     */
+    synchronized boolean cancel() {
+        if (isFinished()) {
+            return false;
+        }
+        status = RegradeJobStatus.CANCELLED;
+        finishedAt = Instant.now();
+        runningAssessments.forEach(assessment -> assessment.cancel(true));
+        runningAssessments = List.of();
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package de.tudresden.inf.st.mathgrass.api.task.regrade;
+
+import de.tudresden.inf.st.mathgrass.api.apiModel.RegradeJobApi;
+import de.tudresden.inf.st.mathgrass.api.common.AbstractApiElement;
+import de.tudresden.inf.st.mathgrass.api.model.RegradeJobDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+
+/**
+ * API implementation for following and cancelling re-grade jobs.
+ */
+@RestController
+@ConditionalOnWebApplication
+public class RegradeJobApiImpl extends AbstractApiElement implements RegradeJobApi {
+    /**
+     * Manager of re-grade jobs.
+     */
+    private final RegradeManager regradeManager;
+
+    /**
+     * Constructor.
+     *
+     * @param regradeManager manager of re-grade jobs
+     */
+    public RegradeJobApiImpl(RegradeManager regradeManager) {
+        this.regradeManager = regradeManager;
+    }
+
+    /**
+     * Get the progress of a re-grade job.
+     *
+     * @param jobId ID of re-grade job
+     * @return Response with re-grade job
+     */
+    @Override
+    public ResponseEntity<RegradeJobDTO> getRegradeJobById(Long jobId) {
+        Optional<RegradeJob> optJob = regradeManager.getJob(jobId);
+        if (optJob.isEmpty()) {
+            return notFound();
+        }
+
+        RegradeJob job = optJob.get();
+        return ok(new RegradeJobDTO()
+                .id(job.getId())
+                .task(job.getTaskId())
+                .status(RegradeJobDTO.StatusEnum.fromValue(job.getStatus().name()))
+                .total(job.getTotal())
+                .processed(job.getProcessed())
+                .changed(job.getChanged())
+                .failed(job.getFailed()));
+    }
+
+    /**
+     * Cancel a re-grade job.
+     *
+     * @param jobId ID of re-grade job
+     * @return Response
+     */
+    @Override
+    public ResponseEntity<Void> cancelRegradeJob(Long jobId) {
+        if (regradeManager.getJob(jobId).isEmpty()) {
+            return notFound();
+        }
+
+        if (!regradeManager.cancelRegrade(jobId)) {
+            // job already finished
+            return conflict();
+        }
+        return ok();
+    }
+}
@@ -0,0 +1,31 @@
+package de.tudresden.inf.st.mathgrass.api.task.regrade;
+
+/**
+ * This enum represents the state of a {@link RegradeJob}.
+ */
+public enum RegradeJobStatus {
+    /**
+     * Job waits for other jobs to finish.
+     */
+    QUEUED,
+
+    /**
+     * Task results are being re-graded.
+     */
+    RUNNING,
+
+    /**
+     * All task results have been re-graded.
+     */
+    COMPLETED,
+
+    /**
+     * Job has been cancelled, task results that have already been re-graded keep their new verdict.
+     */
+    CANCELLED,
+
+    /**
+     * Job failed.
+     */
+    FAILED
+}
@@ -0,0 +1,307 @@
+package de.tudresden.inf.st.mathgrass.api.task.regrade;
+
+import com.google.common.util.concurrent.RateLimiter;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationCacheInvalidator;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
+import de.tudresden.inf.st.mathgrass.api.task.execution.EvaluationQueue;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * This class re-grades the completed task results of a task, e.g., after a bug in the evaluation of its answers has
+ * been fixed.
+ *
+ * <p>
+ * Re-grade jobs run one at a time on a thread of their own. They hand their evaluations to the configured
+ * {@link EvaluationQueue} directly, so they run wherever live evaluations run, but neither wait for admission nor
+ * join the coalesced evaluations of live submissions. The task results of a task are read in pages ordered by ID,
+ * and the distinct answers of a page are evaluated in batches, so that executors supporting batches evaluate many
+ * answers in a single container run. The rate of evaluated answers is throttled and the next batch isn't started
+ * before the previous one finished, so a job only ever runs one evaluation alongside the live submissions. The
+ * verdicts of all task results with the same answer are replaced in a single statement. Task results that have become
+ * pending or cancelled meanwhile are left alone, task results whose re-evaluation fails keep their verdict. Jobs can be
+ * cancelled at any time, the task results that have already been re-graded keep their new verdict. Finished jobs can
+ * be followed for a while, then they are removed.
+ */
+@Component
+public class RegradeManager {
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(RegradeManager.class);
+
+    /**
+     * Number of task results read per page.
+     */
+    @Value("${regrade.pageSize:100}")
+    private int pageSize;
+
+    /**
+     * Max number of distinct answers evaluated together.
+     */
+    @Value("${regrade.batchSize:20}")
+    private int batchSize;
+
+    /**
+     * Max number of answers evaluated per second.
+     */
+    @Value("${regrade.answersPerSecond:2.0}")
+    private double answersPerSecond;
+
+    /**
+     * Number of seconds finished jobs are kept before they are removed.
+     */
+    @Value("${regrade.finishedJobTtlSeconds:3600}")
+    private long finishedJobTtlSeconds;
+
+    /**
+     * Task repository.
+     */
+    private final TaskRepository taskRepository;
+
+    /**
+     * Task result repository.
+     */
+    private final TaskResultRepository taskResultRepository;
+
+    /**
+     * Queue running the evaluations.
+     */
+    private final EvaluationQueue evaluationQueue;
+
+    /**
+     * Invalidator of cached evaluation state.
+     */
+    private final EvaluationCacheInvalidator cacheInvalidator;
+
+    /**
+     * Executor service running jobs one at a time.
+     */
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    /**
+     * Jobs by ID.
+     */
+    private final Map<Long, RegradeJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Last assigned job ID.
+     */
+    private final AtomicLong lastJobId = new AtomicLong();
+
+    /**
+     * Rate limiter throttling evaluated answers.
+     */
+    private RateLimiter rateLimiter;
+
+    /**
+     * Constructor.
+     *
+     * @param taskRepository task repository
+     * @param taskResultRepository task result repository
+     * @param evaluationQueue queue running the evaluations
+     * @param cacheInvalidator invalidator of cached evaluation state
+     */
+    public RegradeManager(TaskRepository taskRepository, TaskResultRepository taskResultRepository,
+                          EvaluationQueue evaluationQueue, EvaluationCacheInvalidator cacheInvalidator) {
+        this.taskRepository = taskRepository;
+        this.taskResultRepository = taskResultRepository;
+        this.evaluationQueue = evaluationQueue;
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    /**
+     * Create the rate limiter once the rate has been injected.
+     */
+    @PostConstruct
+    private void initialize() {
+        rateLimiter = RateLimiter.create(answersPerSecond);
+    }
+
+    /**
+     * Start re-grading all completed task results of a task. The job is queued if another job is running.
+     *
+     * @param taskId ID of task
+     * @return job
+     * @throws IllegalArgumentException if the task doesn't exist
+     */
+    public RegradeJob startRegrade(Long taskId) {
+        if (!taskRepository.existsById(taskId)) {
+            throw new IllegalArgumentException("Couldn't find task with ID " + taskId);
+        }
+        removeExpiredJobs();
+
+        RegradeJob job = new RegradeJob(lastJobId.incrementAndGet(), taskId,
+                taskResultRepository.countRegradable(taskId));
+        jobs.put(job.getId(), job);
+        executorService.execute(() -> run(job));
+        logger.info("Queued re-grade job {} for {} task results of task with ID {}", job.getId(), job.getTotal(),
+                taskId);
+        return job;
+    }
+
+    /**
+     * Get a job.
+     *
+     * @param jobId ID of job
+     * @return job, empty if it doesn't exist or has been removed after it finished
+     */
+    public Optional<RegradeJob> getJob(Long jobId) {
+        removeExpiredJobs();
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Cancel a job.
+     *
+     * @param jobId ID of job
+     * @return true if the job has been cancelled, false if it already finished
+     * @throws IllegalArgumentException if the job doesn't exist
+     */
+    public boolean cancelRegrade(Long jobId) {
+        RegradeJob job = getJob(jobId).orElseThrow(() ->
+                new IllegalArgumentException("Couldn't find re-grade job with ID " + jobId));
+        if (!job.cancel()) {
+            return false;
+        }
+        logger.info("Cancelled re-grade job {}", jobId);
+        return true;
+    }
+
+    /**
+     * Remove jobs that finished longer ago than their time to live.
+     */
+    private void removeExpiredJobs() {
+        Instant threshold = Instant.now().minusSeconds(finishedJobTtlSeconds);
+        jobs.values().removeIf(job -> job.isFinishedBefore(threshold));
+    }
+
+    /**
+     * Run a job on the thread of the executor service.
+     *
+     * @param job job
+     */
+    private void run(RegradeJob job) {
+        if (!job.start()) {
+            return;
+        }
+        logger.info("Starting re-grade job {} for task with ID {}", job.getId(), job.getTaskId());
+
+        try {
+            // verdicts cached before the fix must not be reused
+            cacheInvalidator.invalidateTask(job.getTaskId());
+
+            long afterId = 0;
+            List<TaskResult> page = taskResultRepository.findRegradable(job.getTaskId(), afterId,
+                    PageRequest.of(0, pageSize));
+            while (!page.isEmpty() && !job.isFinished()) {
+                regradePage(job, page);
+                afterId = page.get(page.size() - 1).getId();
+                page = taskResultRepository.findRegradable(job.getTaskId(), afterId, PageRequest.of(0, pageSize));
+            }
+            job.finish(RegradeJobStatus.COMPLETED);
+        } catch (RuntimeException e) {
+            logger.error("Re-grade job {} failed", job.getId(), e);
+            job.finish(RegradeJobStatus.FAILED);
+        }
+        logger.info("Finished re-grade job {} with status {}, {} of {} task results processed, {} changed, {} failed",
+                job.getId(), job.getStatus(), job.getProcessed(), job.getTotal(), job.getChanged(), job.getFailed());
+    }
+
+    /**
+     * Re-grade a page of task results, evaluating their distinct answers in batches.
+     *
+     * @param job job
+     * @param page task results
+     */
+    private void regradePage(RegradeJob job, List<TaskResult> page) {
+        Map<String, List<TaskResult>> taskResultsByAnswer = new LinkedHashMap<>();
+        for (TaskResult taskResult : page) {
+            taskResultsByAnswer.computeIfAbsent(taskResult.getAnswer(), answer -> new ArrayList<>())
+                    .add(taskResult);
+        }
+
+        List<String> answers = new ArrayList<>(taskResultsByAnswer.keySet());
+        for (int start = 0; start < answers.size() && !job.isFinished(); start += batchSize) {
+            List<String> batch = answers.subList(start, Math.min(start + batchSize, answers.size()));
+            rateLimiter.acquire(batch.size());
+
+            // the queue completes no task results, their verdicts are replaced below unless they became pending
+            List<Supplier<List<Long>>> noTaskResultIds = Collections.nCopies(batch.size(), List::of);
+            List<CompletableFuture<EvaluationOutcome>> assessments = evaluationQueue.runBatchEvaluation(
+                    job.getTaskId(), batch, noTaskResultIds);
+            if (!job.run(assessments)) {
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                regrade(job, taskResultsByAnswer.get(batch.get(i)), assessments.get(i));
+            }
+        }
+    }
+
+    /**
+     * Replace the verdicts of all task results with the same answer once its evaluation finished.
+     *
+     * @param job job
+     * @param taskResults task results with the same answer
+     * @param assessment evaluation of the answer
+     */
+    private void regrade(RegradeJob job, List<TaskResult> taskResults,
+                         CompletableFuture<EvaluationOutcome> assessment) {
+        EvaluationOutcome outcome;
+        try {
+            outcome = assessment.join();
+        } catch (CancellationException e) {
+            return;
+        } catch (CompletionException e) {
+            logger.warn("Re-evaluation of task results {} failed, they keep their verdict",
+                    taskResults.stream().map(TaskResult::getId).toList(), e.getCause());
+            job.count(taskResults.size(), 0, taskResults.size());
+            return;
+        }
+
+        boolean answerCorrect = outcome.answerCorrect();
+        int changedVerdicts = (int) taskResults.stream()
+                .filter(taskResult -> taskResult.getStatus() != TaskResultStatus.EVALUATED
+                        || taskResult.isAnswerTrue() != answerCorrect)
+                .count();
+        int regraded = taskResultRepository.regrade(taskResults.stream().map(TaskResult::getId).toList(),
+                answerCorrect, LocalDateTime.now().toString());
+        job.count(taskResults.size(), Math.min(changedVerdicts, regraded), 0);
+    }
+
+    /**
+     * Stop running jobs on shutdown.
+     */
+    @PreDestroy
+    private void shutdown() {
+        jobs.values().forEach(RegradeJob::cancel);
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,66 @@
+package de.tudresden.inf.st.mathgrass.api.websockets;
+
+import java.util.List;
+
+/**
+ * This class contains information about the submission of many answers to a task at once and can be used for
+ * communication.
+ */
+public class BatchSubmissionMessage {
+    /**
+     * ID of task.
+     */
+    private long taskId;
+
+    /**
+     * Submitted answers.
+     */
+    private List<String> answers;
+
+    /**
+     * Constructor.
+     *
+     * @param taskId ID of task
+     * @param answers submitted answers
+     */
+    public BatchSubmissionMessage(long taskId, List<String> answers) {
+        this.taskId = taskId;
+        this.answers = answers;
+    }
+
+    /**
+     * Getter for task ID.
+     *
+     * @return ID of task
+     */
+    public long getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * Setter for task ID.
+     *
+     * @param taskId ID of task
+     */
+    public void setTaskId(long taskId) {
+        this.taskId = taskId;
+    }
+
+    /**
+     * Getter for answers.
+     *
+     * @return submitted answers
+     */
+    public List<String> getAnswers() {
+        return answers;
+    }
+
+    /**
+     * Setter for answers.
+     *
+     * @param answers submitted answers
+     */
+    public void setAnswers(List<String> answers) {
+        this.answers = answers;
+    }
+}
@@ -0,0 +1,11 @@
+package de.tudresden.inf.st.mathgrass.api.websockets;
+
+/**
+ * This record tells a client that its submission has been rejected because the server is busy, and when to submit
+ * it again.
+ *
+ * @param reason reason of rejection
+ * @param retryAfterSeconds number of seconds after which the submission should be retried
+ */
+public record SubmissionRejectedMessage(String reason, long retryAfterSeconds) {
+}
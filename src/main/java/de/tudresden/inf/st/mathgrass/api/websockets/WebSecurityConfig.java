@@ -1,5 +1,6 @@
 package de.tudresden.inf.st.mathgrass.api.websockets;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -14,6 +15,7 @@ import java.util.List;
  * Web security configuration to configure CORS.
  */
 @EnableWebSecurity
+@ConditionalOnWebApplication
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     @Override
     protected void configure(HttpSecurity http) throws Exception {
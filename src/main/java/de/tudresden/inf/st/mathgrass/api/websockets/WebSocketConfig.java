@@ -1,5 +1,6 @@
 package de.tudresden.inf.st.mathgrass.api.websockets;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
@@ -10,6 +11,7 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  * This class configures Websockets for communication with evaluators.
  */
 @Configuration
+@ConditionalOnWebApplication
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     /**
@@ -19,7 +21,8 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // queues carry messages addressed to a single session
+        config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
     }
 
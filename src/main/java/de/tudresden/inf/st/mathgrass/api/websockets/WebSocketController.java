@@ -5,21 +5,46 @@ import de.tudresden.inf.st.mathgrass.api.events.CustomEventBus;
 import de.tudresden.inf.st.mathgrass.api.events.TaskEvaluationFinishedEvent;
 import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
 import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+import de.tudresden.inf.st.mathgrass.api.task.execution.EvaluationRejectedException;
+import de.tudresden.inf.st.mathgrass.api.task.execution.QueuePosition;
 import de.tudresden.inf.st.mathgrass.api.task.execution.TaskExecutionManager;
+import de.tudresden.inf.st.mathgrass.api.task.execution.TaskSubmissionReceipt;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class handles websocket messages.
+ *
+ * <p>
+ * Submissions rejected because too many evaluations are queued are answered only to the session that submitted them, on
+ * its submission rejected queue, with the number of seconds after which to retry. While an evaluation is queued, its
+ * position and estimated wait are published on the queue position topic of its task result whenever they change,
+ * checked every {@code queuePosition.intervalMillis}.
  */
 @RestController
+@ConditionalOnWebApplication
 public class WebSocketController {
     /**
      * Logger.
@@ -36,6 +61,28 @@ public class WebSocketController {
      */
     protected static final String TASK_RESULT_ID_TOPIC = "/topic/taskResultId/%s";
 
+    /**
+     * Template for publishing the queue position of pending task results.
+     */
+    protected static final String QUEUE_POSITION_TOPIC = "/topic/queuePosition/%s";
+
+    /**
+     * User destination for rejected submissions, clients subscribe to it prefixed with {@code /user}.
+     */
+    protected static final String SUBMISSION_REJECTED_QUEUE = "/queue/submissionRejected";
+
+    /**
+     * Template for publishing submission receipts, which contain the verdict of answers that have been evaluated
+     * inline.
+     */
+    protected static final String SUBMISSION_RECEIPT_TOPIC = "/topic/submissionReceipt/%s";
+
+    /**
+     * Number of milliseconds between two checks of queue positions.
+     */
+    @Value("${queuePosition.intervalMillis:2000}")
+    private long queuePositionIntervalMillis;
+
     /**
      * Task API for evaluation.
      */
@@ -56,6 +103,16 @@ public class WebSocketController {
      */
     private final TaskResultRepository taskResultRepository;
 
+    /**
+     * Last published queue positions of pending task results, by ID of task result.
+     */
+    private final Map<Long, Optional<QueuePosition>> queuePositions = new ConcurrentHashMap<>();
+
+    /**
+     * Scheduled executor service publishing queue positions.
+     */
+    private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+
     /**
      * Constructor.
      *
@@ -72,6 +129,23 @@ public class WebSocketController {
         this.taskResultRepository = taskResultRepository;
     }
 
+    /**
+     * Start publishing queue positions.
+     */
+    @PostConstruct
+    private void startPublishingQueuePositions() {
+        scheduledExecutorService.scheduleWithFixedDelay(this::publishQueuePositions, queuePositionIntervalMillis,
+                queuePositionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop publishing queue positions on shutdown.
+     */
+    @PreDestroy
+    private void shutdown() {
+        scheduledExecutorService.shutdownNow();
+    }
+
     /**
      * Handle messages sent to '/app/sendMessage'. Mainly used for development purposes to test connection to client.
      *
@@ -87,19 +161,132 @@ public class WebSocketController {
      * Receive and evaluate a dynamic assessment, and broadcast result of the assessment.
      *
      * @param message message containing task ID and submitted answer
+     * @param sessionId ID of the websocket session that submitted the answer
      */
     @MessageMapping("/fetchAssessment")
-    public void evaluateTask(@Payload TaskSubmissionMessage message) {
+    public void evaluateTask(@Payload TaskSubmissionMessage message,
+                             @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
         logger.info("Received submitted assessment task with ID {}", message.getTaskId());
 
         // get evaluation
-        Long taskResultId = taskExecutionManager.requestTaskExecution(message.getTaskId(), message.getAnswer());
+        TaskSubmissionReceipt receipt;
+        try {
+            receipt = taskExecutionManager.requestTaskExecution(message.getTaskId(), message.getAnswer());
+        } catch (EvaluationRejectedException e) {
+            rejectSubmission(message.getTaskId(), sessionId, e);
+            return;
+        }
+        Long taskResultId = receipt.taskResultId();
 
-        // create listener for result, listener will notify client about result
-        new TaskEvaluationCompletedListener(taskResultId, messagingTemplate, taskResultRepository);
+        // create listener for pending result, listener will notify client about result
+        if (!receipt.isEvaluated()) {
+            new TaskEvaluationCompletedListener(taskResultId, messagingTemplate, taskResultRepository);
+        }
 
-        // notify client about task result ID
+        // notify client about task result ID and, if it's already known, the result
         messagingTemplate.convertAndSend(String.format(TASK_RESULT_ID_TOPIC, message.getTaskId()), taskResultId);
+        messagingTemplate.convertAndSend(String.format(SUBMISSION_RECEIPT_TOPIC, message.getTaskId()), receipt);
+        if (receipt.isEvaluated()) {
+            messagingTemplate.convertAndSend(String.format(ASSESSMENT_RESULT_TOPIC, taskResultId),
+                    receipt.answerCorrect());
+        } else {
+            publishQueuePosition(taskResultId);
+        }
+    }
+
+    /**
+     * Receive and evaluate many answers to a task at once, and broadcast the result of each assessment. The task
+     * result IDs and receipts are published in the order of the answers.
+     *
+     * @param message message containing task ID and submitted answers
+     * @param sessionId ID of the websocket session that submitted the answers
+     */
+    @MessageMapping("/fetchBatchAssessment")
+    public void evaluateTaskBatch(@Payload BatchSubmissionMessage message,
+                                  @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        List<String> answers = message.getAnswers() == null ? List.of() : message.getAnswers();
+        logger.info("Received {} submitted assessments of task with ID {}", answers.size(), message.getTaskId());
+
+        List<TaskSubmissionReceipt> receipts;
+        try {
+            receipts = taskExecutionManager.requestBatchTaskExecution(message.getTaskId(), answers);
+        } catch (EvaluationRejectedException e) {
+            rejectSubmission(message.getTaskId(), sessionId, e);
+            return;
+        }
+        for (TaskSubmissionReceipt receipt : receipts) {
+            if (!receipt.isEvaluated()) {
+                new TaskEvaluationCompletedListener(receipt.taskResultId(), messagingTemplate, taskResultRepository);
+            }
+        }
+
+        for (TaskSubmissionReceipt receipt : receipts) {
+            messagingTemplate.convertAndSend(String.format(TASK_RESULT_ID_TOPIC, message.getTaskId()),
+                    receipt.taskResultId());
+            messagingTemplate.convertAndSend(String.format(SUBMISSION_RECEIPT_TOPIC, message.getTaskId()), receipt);
+            if (receipt.isEvaluated()) {
+                messagingTemplate.convertAndSend(String.format(ASSESSMENT_RESULT_TOPIC, receipt.taskResultId()),
+                        receipt.answerCorrect());
+            } else {
+                publishQueuePosition(receipt.taskResultId());
+            }
+        }
+    }
+
+    /**
+     * Tell the client that its submission has been rejected and when to retry it. Other clients working on the same
+     * task aren't notified.
+     *
+     * @param taskId ID of task
+     * @param sessionId ID of the websocket session that submitted the answers
+     * @param rejection rejection
+     */
+    private void rejectSubmission(long taskId, String sessionId, EvaluationRejectedException rejection) {
+        logger.info("Rejected submission of task with ID {}, retry after {} seconds", taskId,
+                rejection.getRetryAfterSeconds());
+        // sessions aren't authenticated, so the message is addressed to the session itself
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, SUBMISSION_REJECTED_QUEUE,
+                new SubmissionRejectedMessage(rejection.getMessage(), rejection.getRetryAfterSeconds()),
+                headers.getMessageHeaders());
+    }
+
+    /**
+     * Publish the queue positions of all pending task results that changed since they have been published last.
+     */
+    private void publishQueuePositions() {
+        // an exception would cancel all further scheduled checks
+        try {
+            taskExecutionManager.getQueuePositions(queuePositions.keySet()).forEach(this::publishQueuePosition);
+        } catch (RuntimeException e) {
+            logger.error("Publishing queue positions failed", e);
+        }
+    }
+
+    /**
+     * Publish the queue position of a pending task result if it changed since it has been published last.
+     *
+     * @param taskResultId ID of task result
+     */
+    private void publishQueuePosition(Long taskResultId) {
+        taskExecutionManager.getQueuePosition(taskResultId)
+                .ifPresent(queuePosition -> publishQueuePosition(taskResultId, queuePosition));
+    }
+
+    /**
+     * Publish the queue position of a pending task result if it changed since it has been published last.
+     *
+     * @param taskResultId ID of task result
+     * @param queuePosition current queue position
+     */
+    private void publishQueuePosition(Long taskResultId, QueuePosition queuePosition) {
+        // task results are forgotten once their result has been sent
+        Optional<QueuePosition> previous = queuePositions.replace(taskResultId, Optional.of(queuePosition));
+        if (previous != null && !previous.equals(Optional.of(queuePosition))) {
+            messagingTemplate.convertAndSend(String.format(QUEUE_POSITION_TOPIC, taskResultId), queuePosition);
+        }
     }
 
     /**
@@ -121,6 +308,11 @@ public class WebSocketController {
          */
         private final TaskResultRepository taskResultRepository;
 
+        /**
+         * Whether the client has been notified about the result.
+         */
+        private final AtomicBoolean notified = new AtomicBoolean();
+
         /**
          * Constructor.
          *
@@ -130,10 +322,16 @@ public class WebSocketController {
          */
         public TaskEvaluationCompletedListener(Long taskResultId, SimpMessagingTemplate messagingTemplate,
                                                TaskResultRepository taskResultRepository) {
-            eventBus.register(this);
             this.taskResultId = taskResultId;
             this.messagingTemplate = messagingTemplate;
             this.taskResultRepository = taskResultRepository;
+            queuePositions.put(taskResultId, Optional.empty());
+            eventBus.register(this);
+
+            // the evaluation might have finished before the listener has been registered
+            taskResultRepository.findById(taskResultId)
+                    .filter(taskResult -> taskResult.getStatus() != TaskResultStatus.PENDING)
+                    .ifPresent(this::notifyClient);
         }
 
         /**
@@ -149,12 +347,21 @@ public class WebSocketController {
                 if (optTaskResult.isEmpty()) {
                     throw new IllegalArgumentException("Task result with ID " + taskResultId + " does not exist.");
                 }
-                TaskResult taskResult = optTaskResult.get();
+                notifyClient(optTaskResult.get());
+            }
+        }
 
-                // send result to client and unregister listener
+        /**
+         * Send the result to the client once and unregister the listener.
+         *
+         * @param taskResult completed task result
+         */
+        private void notifyClient(TaskResult taskResult) {
+            if (notified.compareAndSet(false, true)) {
                 messagingTemplate.convertAndSend(String.format(ASSESSMENT_RESULT_TOPIC, taskResultId),
                                                  taskResult.isAnswerTrue());
                 eventBus.unregister(this);
+                queuePositions.remove(taskResultId);
             }
         }
     }
@@ -0,0 +1,94 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.PullImageCmd;
+import com.github.dockerjava.api.command.PullImageResultCallback;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.Executor;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+import de.tudresden.inf.st.mathgrass.api.graph.Graph;
+import de.tudresden.inf.st.mathgrass.api.task.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for evaluations of the {@link TaskManager} in pooled containers.
+ */
+@SpringBootTest(properties = {"containerPool.enabled=true", "containerPool.minIdle=1"})
+@ActiveProfiles(profiles = "dev")
+class PooledTaskManagerTest {
+    /**
+     * Image of evaluations.
+     */
+    private static final String MINIMAL_IMAGE = "alpine:latest";
+
+    /**
+     * Task manager.
+     */
+    @Autowired
+    private TaskManager taskManager;
+
+    /**
+     * Docker client.
+     */
+    @Autowired
+    private DockerClient dockerClient;
+
+    /**
+     * Task with an empty graph.
+     */
+    private Task task;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        try (PullImageCmd pullImageCmd = dockerClient.pullImageCmd(MINIMAL_IMAGE)) {
+            PullImageResultCallback pullImageResultCallback = new PullImageResultCallback();
+            pullImageCmd.exec(pullImageResultCallback);
+            pullImageResultCallback.awaitCompletion();
+        }
+
+        Graph graph = new Graph();
+        graph.setVertices(new ArrayList<>());
+        graph.setEdges(new ArrayList<>());
+        task = new Task();
+        task.setGraph(graph);
+    }
+
+    /**
+     * Test that answers are not parsed by a shell, so that they can't change the state of pooled containers.
+     */
+    @Test
+    void answerIsNotParsedByShell() throws IOException {
+        // the answer is echoed verbatim instead of touching the file in the pooled container
+        assertTrue(taskManager.runTaskSynchronously(task, "1; touch /tmp/x", createExecutor("echo")));
+
+        // the next evaluation reuses the pooled container and must not see the file
+        assertTrue(taskManager.runTaskSynchronously(task, "", createExecutor("test ! -e /tmp/x")));
+    }
+
+    /**
+     * Test that the answer is appended to the entrypoint as a single argument.
+     */
+    @Test
+    void answerIsPassedAsSingleArgument() {
+        List<String> cmd = TaskManager.buildContainerCmd("1; touch /tmp/x",
+                ExecutorSnapshot.of(createExecutor("echo")));
+        assertEquals(List.of("echo", "1; touch /tmp/x"), cmd);
+    }
+
+    private static Executor createExecutor(String entrypoint) {
+        Executor executor = new Executor();
+        executor.setContainerImage(MINIMAL_IMAGE);
+        executor.setCustomEntrypoint(entrypoint);
+        return executor;
+    }
+}
@@ -0,0 +1,164 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.daemon;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.ExecCreateCmd;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.command.ExecStartCmd;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for {@link EvaluationDaemon}.
+ */
+class EvaluationDaemonTest {
+    /**
+     * Object mapper for requests and responses.
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Stdin the daemon was attached to.
+     */
+    private InputStream stdin;
+
+    /**
+     * Callback the daemon receives its output with.
+     */
+    private ResultCallback<Frame> outputCallback;
+
+    /**
+     * Daemon under test.
+     */
+    private EvaluationDaemon daemon;
+
+    /**
+     * Start a daemon against a mocked docker client, the test plays the part of the daemon process.
+     */
+    @BeforeEach
+    void setUp() {
+        DockerClient dockerClient = mock(DockerClient.class);
+        ExecCreateCmd execCreateCmd = mock(ExecCreateCmd.class, RETURNS_SELF);
+        ExecCreateCmdResponse execCreateCmdResponse = mock(ExecCreateCmdResponse.class);
+        when(execCreateCmdResponse.getId()).thenReturn("exec");
+        when(execCreateCmd.exec()).thenReturn(execCreateCmdResponse);
+        when(dockerClient.execCreateCmd("container")).thenReturn(execCreateCmd);
+
+        ExecStartCmd execStartCmd = mock(ExecStartCmd.class);
+        when(execStartCmd.withStdIn(any())).thenAnswer(invocation -> {
+            stdin = invocation.getArgument(0);
+            return execStartCmd;
+        });
+        when(execStartCmd.exec(any())).thenAnswer(invocation -> {
+            outputCallback = invocation.getArgument(0);
+            return outputCallback;
+        });
+        when(dockerClient.execStartCmd("exec")).thenReturn(execStartCmd);
+
+        daemon = EvaluationDaemon.start(dockerClient, "container", "daemon");
+    }
+
+    /**
+     * Test that requests are written as JSON lines and matched with their responses by ID, even if responses arrive
+     * out of order and split across frames.
+     */
+    @Test
+    void responsesAreMatchedByRequestId() throws Exception {
+        CompletableFuture<Boolean> first = daemon.evaluate("42", "/graph.json", 5);
+        CompletableFuture<Boolean> second = daemon.evaluate("-1", "/graph.json", 5);
+
+        JsonNode firstRequest = readRequest();
+        JsonNode secondRequest = readRequest();
+        assertEquals("42", firstRequest.get("answer").asText());
+        assertEquals("/graph.json", firstRequest.get("graphPath").asText());
+        assertEquals(5, firstRequest.get("cpuTimeSeconds").asLong());
+        assertEquals("-1", secondRequest.get("answer").asText());
+
+        String responses = "{\"id\":" + secondRequest.get("id") + ",\"correct\":false}\n"
+                + "{\"id\":" + firstRequest.get("id") + ",\"correct\":true}\n";
+        int split = responses.length() / 2;
+        writeStdout(responses.substring(0, split));
+        assertFalse(second.isDone());
+        writeStdout(responses.substring(split));
+
+        assertTrue(first.get());
+        assertFalse(second.get());
+    }
+
+    /**
+     * Test that evaluations exceeding their CPU time limit fail with an {@link EvaluationTimeoutException}.
+     */
+    @Test
+    void timedOutResponseFailsEvaluation() throws IOException {
+        CompletableFuture<Boolean> result = daemon.evaluate("answer", "/graph.json", 1);
+
+        writeStdout("{\"id\":" + readRequest().get("id") + ",\"correct\":false,\"timedOut\":true}\n");
+
+        ExecutionException e = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(EvaluationTimeoutException.class, e.getCause());
+    }
+
+    /**
+     * Test that pending evaluations fail if the daemon crashes, and that later evaluations fail without being sent.
+     */
+    @Test
+    void crashFailsPendingEvaluations() {
+        CompletableFuture<Boolean> pending = daemon.evaluate("answer", "/graph.json", 0);
+
+        outputCallback.onError(new IOException("connection reset"));
+
+        assertFalse(daemon.isAlive());
+        ExecutionException e = assertThrows(ExecutionException.class, pending::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertTrue(daemon.evaluate("answer", "/graph.json", 0).isCompletedExceptionally());
+    }
+
+    /**
+     * Test that pending evaluations fail if the daemon exits, and that closing the daemon ends its stdin.
+     */
+    @Test
+    void exitFailsPendingEvaluations() throws IOException {
+        CompletableFuture<Boolean> pending = daemon.evaluate("answer", "/graph.json", 0);
+        readRequest();
+
+        outputCallback.onComplete();
+        assertTrue(pending.isCompletedExceptionally());
+
+        daemon.close();
+        assertEquals(-1, stdin.read());
+    }
+
+    private JsonNode readRequest() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b = stdin.read(); b != '\n'; b = stdin.read()) {
+            line.write(b);
+        }
+        return objectMapper.readTree(line.toByteArray());
+    }
+
+    private void writeStdout(String output) {
+        outputCallback.onNext(new Frame(StreamType.STDOUT, output.getBytes(StandardCharsets.UTF_8)));
+    }
+}
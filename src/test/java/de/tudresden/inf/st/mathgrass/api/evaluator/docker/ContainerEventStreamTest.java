@@ -0,0 +1,175 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.EventsCmd;
+import com.github.dockerjava.api.command.InspectContainerCmd;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.command.InspectExecCmd;
+import com.github.dockerjava.api.command.InspectExecResponse;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventActor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for {@link ContainerEventStream}.
+ */
+class ContainerEventStreamTest {
+    /**
+     * Docker client.
+     */
+    private final DockerClient dockerClient = mock(DockerClient.class);
+
+    /**
+     * Callbacks of all subscriptions to the event stream, in the order they were opened.
+     */
+    private final List<ResultCallback<Event>> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Event stream under test.
+     */
+    private ContainerEventStream containerEventStream;
+
+    /**
+     * Create an event stream whose subscriptions are recorded instead of being opened.
+     */
+    @BeforeEach
+    void setUp() {
+        when(dockerClient.eventsCmd()).thenAnswer(invocation -> {
+            EventsCmd eventsCmd = mock(EventsCmd.class, RETURNS_SELF);
+            when(eventsCmd.exec(any())).thenAnswer(execInvocation -> {
+                ResultCallback<Event> callback = execInvocation.getArgument(0);
+                subscriptions.add(callback);
+                return callback;
+            });
+            return eventsCmd;
+        });
+
+        containerEventStream = new ContainerEventStream(dockerClient);
+        ReflectionTestUtils.setField(containerEventStream, "reconnectDelayMillis", 10L);
+    }
+
+    /**
+     * Close the subscription.
+     */
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(containerEventStream, "shutdown");
+    }
+
+    /**
+     * Test that die events complete the future of their container with the exit code of the event.
+     */
+    @Test
+    void dieEventCompletesContainerExit() throws Exception {
+        CompletableFuture<Long> exit = containerEventStream.awaitContainerExit("container");
+        CompletableFuture<Long> otherExit = containerEventStream.awaitContainerExit("other");
+
+        subscriptions.get(0).onNext(createEvent("die", "container", Map.of("exitCode", "3")));
+
+        assertEquals(3L, exit.get(1, TimeUnit.SECONDS));
+        assertFalse(otherExit.isDone());
+        assertEquals(1, subscriptions.size());
+    }
+
+    /**
+     * Test that exec_die events naming the exec only inspect that exec.
+     */
+    @Test
+    void execDieEventIsRoutedByExecId() throws Exception {
+        mockExec("exec", false, 0L);
+        CompletableFuture<Long> exit = containerEventStream.awaitExecExit("container", "exec");
+        CompletableFuture<Long> otherExit = containerEventStream.awaitExecExit("container", "other");
+
+        subscriptions.get(0).onNext(createEvent("exec_die", "container", Map.of("execID", "exec", "exitCode", "0")));
+
+        assertEquals(0L, exit.get(1, TimeUnit.SECONDS));
+        assertFalse(otherExit.isDone());
+        verify(dockerClient, never()).inspectExecCmd("other");
+    }
+
+    /**
+     * Test that exec_die events of older daemons, which don't name the exec, inspect all execs of the container.
+     */
+    @Test
+    void execDieEventWithoutExecIdInspectsExecsOfContainer() throws Exception {
+        mockExec("exited", false, 1L);
+        mockExec("running", true, null);
+        CompletableFuture<Long> exited = containerEventStream.awaitExecExit("container", "exited");
+        CompletableFuture<Long> running = containerEventStream.awaitExecExit("container", "running");
+        CompletableFuture<Long> otherContainer = containerEventStream.awaitExecExit("other", "other");
+
+        subscriptions.get(0).onNext(createEvent("exec_die", "container", Map.of()));
+
+        assertEquals(1L, exited.get(1, TimeUnit.SECONDS));
+        verify(dockerClient, timeout(1000)).inspectExecCmd("running");
+        assertFalse(running.isDone());
+        verify(dockerClient, never()).inspectExecCmd("other");
+        assertFalse(otherContainer.isDone());
+    }
+
+    /**
+     * Test that a broken subscription is reopened, and that exits missed in between are found by inspecting the
+     * registered containers.
+     */
+    @Test
+    void brokenSubscriptionIsReopenedAndReconciled() throws Exception {
+        InspectContainerResponse.ContainerState state = mock(InspectContainerResponse.ContainerState.class);
+        when(state.getStatus()).thenReturn("exited");
+        when(state.getExitCodeLong()).thenReturn(2L);
+        InspectContainerResponse response = mock(InspectContainerResponse.class);
+        when(response.getState()).thenReturn(state);
+        InspectContainerCmd inspectContainerCmd = mock(InspectContainerCmd.class);
+        when(inspectContainerCmd.exec()).thenReturn(response);
+        when(dockerClient.inspectContainerCmd("container")).thenReturn(inspectContainerCmd);
+
+        CompletableFuture<Long> exit = containerEventStream.awaitContainerExit("container");
+        subscriptions.get(0).onError(new IOException("connection reset"));
+        // the error is followed by completion, which must not open a second subscription
+        subscriptions.get(0).onComplete();
+
+        verify(dockerClient, timeout(1000).times(2)).eventsCmd();
+        verify(dockerClient, after(100).times(2)).eventsCmd();
+        assertFalse(exit.isDone());
+
+        subscriptions.get(1).onStart(mock(Closeable.class));
+        assertEquals(2L, exit.get(1, TimeUnit.SECONDS));
+    }
+
+    private void mockExec(String execId, boolean running, Long exitCode) {
+        InspectExecResponse response = mock(InspectExecResponse.class);
+        when(response.isRunning()).thenReturn(running);
+        when(response.getExitCodeLong()).thenReturn(exitCode);
+        InspectExecCmd inspectExecCmd = mock(InspectExecCmd.class);
+        when(inspectExecCmd.exec()).thenReturn(response);
+        when(dockerClient.inspectExecCmd(execId)).thenReturn(inspectExecCmd);
+    }
+
+    private static Event createEvent(String action, String containerId, Map<String, String> attributes) {
+        return new Event(action, containerId, "image", 0L)
+                .withAction(action)
+                .withActor(new EventActor().withId(containerId).withAttributes(attributes));
+    }
+}
@@ -0,0 +1,123 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.jvm;
+
+import de.tudresden.inf.st.mathgrass.api.graph.Edge;
+import de.tudresden.inf.st.mathgrass.api.graph.Graph;
+import de.tudresden.inf.st.mathgrass.api.graph.Vertex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link JvmGraphEvaluator}.
+ */
+@SpringBootTest
+@ActiveProfiles(profiles = "test")
+class JvmGraphEvaluatorTest {
+    /**
+     * JVM graph evaluator.
+     */
+    @Autowired
+    private JvmGraphEvaluator jvmGraphEvaluator;
+
+    /**
+     * Test the properties of a cycle with five vertices.
+     */
+    @Test
+    void testPropertiesOfCycle() {
+        Graph cycle = createGraph(5, new int[][]{{0, 1}, {1, 2}, {2, 3}, {3, 4}, {4, 0}});
+
+        assertCorrect(cycle, GraphProperty.EDGE_COUNT, null, "5");
+        assertCorrect(cycle, GraphProperty.DEGREE, "v2", "2");
+        assertCorrect(cycle, GraphProperty.CONNECTED, null, "True");
+        assertCorrect(cycle, GraphProperty.BIPARTITE, null, "false");
+        assertCorrect(cycle, GraphProperty.SHORTEST_PATH_LENGTH, "v0, v3", "2");
+        assertCorrect(cycle, GraphProperty.DIAMETER, null, "2");
+        assertCorrect(cycle, GraphProperty.SPANNING_TREE_COUNT, null, "5");
+        assertCorrect(cycle, GraphProperty.CHROMATIC_NUMBER, null, " 3 ");
+        assertFalse(evaluate(cycle, GraphProperty.CHROMATIC_NUMBER, null, "2"));
+        assertFalse(evaluate(cycle, GraphProperty.EDGE_COUNT, null, "five"));
+    }
+
+    /**
+     * Test that parallel edges are merged, as in the Sage evaluator.
+     */
+    @Test
+    void testParallelEdgesAreMerged() {
+        Graph complete = createGraph(4, new int[][]{{0, 1}, {1, 0}, {0, 2}, {0, 3}, {1, 2}, {1, 3}, {2, 3}});
+
+        assertCorrect(complete, GraphProperty.EDGE_COUNT, null, "6");
+        assertCorrect(complete, GraphProperty.SPANNING_TREE_COUNT, null, "16");
+        assertCorrect(complete, GraphProperty.CHROMATIC_NUMBER, null, "4");
+    }
+
+    /**
+     * Test the properties of a graph that isn't connected.
+     */
+    @Test
+    void testPropertiesOfDisconnectedGraph() {
+        Graph graph = createGraph(4, new int[][]{{0, 1}, {1, 2}});
+
+        assertCorrect(graph, GraphProperty.CONNECTED_COMPONENT_COUNT, null, "2");
+        assertCorrect(graph, GraphProperty.MIN_DEGREE, null, "0");
+        assertCorrect(graph, GraphProperty.SHORTEST_PATH_LENGTH, "v0,v3", "Infinity");
+        assertCorrect(graph, GraphProperty.SPANNING_TREE_COUNT, null, "0");
+        assertThrows(IllegalArgumentException.class,
+                () -> evaluate(graph, GraphProperty.DEGREE, "unknown", "0"));
+    }
+
+    /**
+     * Test that property values are memoized per revision of a graph.
+     */
+    @Test
+    void testValuesAreMemoizedPerRevision() {
+        Graph graph = createGraph(3, new int[][]{{0, 1}, {1, 2}, {2, 0}});
+        graph.setId(-1L);
+        assertCorrect(graph, GraphProperty.CHROMATIC_NUMBER, null, "3");
+
+        // changes without a new revision aren't seen
+        graph.setEdges(new ArrayList<>());
+        assertCorrect(graph, GraphProperty.CHROMATIC_NUMBER, null, "3");
+
+        graph.setRevision(graph.getRevision() + 1);
+        assertCorrect(graph, GraphProperty.CHROMATIC_NUMBER, null, "1");
+    }
+
+    private void assertCorrect(Graph graph, GraphProperty property, String parameter, String answer) {
+        assertTrue(evaluate(graph, property, parameter, answer), property + " should be " + answer);
+    }
+
+    private boolean evaluate(Graph graph, GraphProperty property, String parameter, String answer) {
+        return jvmGraphEvaluator.evaluate(graph,
+                jvmGraphEvaluator.initializeGraphPropertyExecutor(property, parameter), answer);
+    }
+
+    private static Graph createGraph(int vertexCount, int[][] edges) {
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < vertexCount; i++) {
+            Vertex vertex = new Vertex();
+            vertex.setLabel("v" + i);
+            vertices.add(vertex);
+        }
+
+        List<Edge> graphEdges = new ArrayList<>();
+        for (int[] edge : edges) {
+            Edge graphEdge = new Edge();
+            graphEdge.setSourceVertex(vertices.get(edge[0]));
+            graphEdge.setTargetVertex(vertices.get(edge[1]));
+            graphEdges.add(graphEdge);
+        }
+
+        Graph graph = new Graph();
+        graph.setVertices(vertices);
+        graph.setEdges(graphEdges);
+        return graph;
+    }
+}
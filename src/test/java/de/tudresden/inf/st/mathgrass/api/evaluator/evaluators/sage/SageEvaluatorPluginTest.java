@@ -0,0 +1,49 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.evaluators.sage;
+
+import com.github.dockerjava.api.DockerClient;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.Executor;
+import de.tudresden.inf.st.mathgrass.api.evaluator.pool.ContainerPool;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for {@link SageEvaluatorPlugin}.
+ */
+class SageEvaluatorPluginTest {
+    /**
+     * Test that executors get the daemon entrypoint if daemon mode and the container pool are enabled.
+     */
+    @Test
+    void daemonEntrypointIsSetWithContainerPool() {
+        Executor executor = createPlugin(true).initializeSageExecutor("", List.of());
+
+        assertEquals(SageEvaluatorPlugin.SAGE_EVALUATION_DAEMON_ENTRYPOINT, executor.getDaemonEntrypoint());
+        assertEquals(SageEvaluatorPlugin.SAGE_EVALUATION_DOCKER_ENTRYPOINT, executor.getCustomEntrypoint());
+    }
+
+    /**
+     * Test that executors fall back to the one-shot entrypoint if daemon mode is enabled without the container pool.
+     */
+    @Test
+    void daemonModeFallsBackWithoutContainerPool() {
+        Executor executor = createPlugin(false).initializeSageExecutor("", List.of());
+
+        assertNull(executor.getDaemonEntrypoint());
+        assertEquals(SageEvaluatorPlugin.SAGE_EVALUATION_DOCKER_ENTRYPOINT, executor.getCustomEntrypoint());
+    }
+
+    private SageEvaluatorPlugin createPlugin(boolean containerPoolEnabled) {
+        ContainerPool containerPool = mock(ContainerPool.class);
+        when(containerPool.isEnabled()).thenReturn(containerPoolEnabled);
+        SageEvaluatorPlugin plugin = new SageEvaluatorPlugin(mock(DockerClient.class), containerPool);
+        ReflectionTestUtils.setField(plugin, "daemonMode", true);
+        return plugin;
+    }
+}
@@ -0,0 +1,145 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.pool;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CreateContainerCmd;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.command.RemoveContainerCmd;
+import com.github.dockerjava.api.command.StartContainerCmd;
+import de.tudresden.inf.st.mathgrass.api.evaluator.staging.SourceFileStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for {@link ContainerPool}.
+ */
+class ContainerPoolTest {
+    /**
+     * Image of pooled containers.
+     */
+    private static final String IMAGE = "evaluator:1";
+
+    /**
+     * Docker client creating numbered containers.
+     */
+    private final DockerClient dockerClient = mock(DockerClient.class);
+
+    /**
+     * Number of created containers.
+     */
+    private final AtomicInteger createdContainers = new AtomicInteger();
+
+    /**
+     * Container pool.
+     */
+    private ContainerPool containerPool;
+
+    /**
+     * Create a pool without warm containers, so that all containers are created on demand.
+     */
+    @BeforeEach
+    void setUp() {
+        when(dockerClient.createContainerCmd(IMAGE)).thenAnswer(invocation -> {
+            CreateContainerCmd createContainerCmd = mock(CreateContainerCmd.class, RETURNS_SELF);
+            CreateContainerResponse response = mock(CreateContainerResponse.class);
+            when(response.getId()).thenReturn("container-" + createdContainers.incrementAndGet());
+            when(createContainerCmd.exec()).thenReturn(response);
+            return createContainerCmd;
+        });
+        when(dockerClient.startContainerCmd(anyString())).thenAnswer(invocation -> mock(StartContainerCmd.class));
+        when(dockerClient.removeContainerCmd(anyString()))
+                .thenAnswer(invocation -> mock(RemoveContainerCmd.class, RETURNS_SELF));
+
+        containerPool = new ContainerPool(dockerClient, new SourceFileStore());
+        ReflectionTestUtils.setField(containerPool, "enabled", true);
+        ReflectionTestUtils.setField(containerPool, "minIdle", 0);
+        ReflectionTestUtils.setField(containerPool, "maxSize", 2);
+        ReflectionTestUtils.setField(containerPool, "idleTimeoutSeconds", 300L);
+        ReflectionTestUtils.setField(containerPool, "maxUses", 2);
+    }
+
+    /**
+     * Remove all pooled containers.
+     */
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(containerPool, "shutdown");
+    }
+
+    /**
+     * Test that released containers are reused, and that the pool doesn't grow beyond its max size.
+     */
+    @Test
+    void releasedContainerIsReused() {
+        PooledContainer first = containerPool.acquire(IMAGE, "hash").orElseThrow();
+        PooledContainer second = containerPool.acquire(IMAGE, "hash").orElseThrow();
+        assertNotEquals(first.getContainerId(), second.getContainerId());
+        assertTrue(containerPool.acquire(IMAGE, "hash").isEmpty());
+
+        containerPool.release(first, true);
+        assertEquals(first.getContainerId(), containerPool.acquire(IMAGE, "hash").orElseThrow().getContainerId());
+        assertEquals(2, createdContainers.get());
+    }
+
+    /**
+     * Test that containers are replaced once they reached their max number of uses.
+     */
+    @Test
+    void containerIsRecycledAfterMaxUses() {
+        PooledContainer container = containerPool.acquire(IMAGE, "hash").orElseThrow();
+        containerPool.release(container, true);
+        assertEquals(container, containerPool.acquire(IMAGE, "hash").orElseThrow());
+        containerPool.release(container, true);
+
+        verify(dockerClient, timeout(1000)).removeContainerCmd(container.getContainerId());
+        assertNotEquals(container.getContainerId(),
+                containerPool.acquire(IMAGE, "hash").orElseThrow().getContainerId());
+    }
+
+    /**
+     * Test that containers released after a failed evaluation are removed and their slot is freed.
+     */
+    @Test
+    void containerIsRemovedAfterFailure() {
+        PooledContainer first = containerPool.acquire(IMAGE, "hash").orElseThrow();
+        containerPool.acquire(IMAGE, "hash").orElseThrow();
+
+        containerPool.release(first, false);
+
+        verify(dockerClient, timeout(1000)).removeContainerCmd(first.getContainerId());
+        PooledContainer replacement = containerPool.acquire(IMAGE, "hash").orElseThrow();
+        assertNotEquals(first.getContainerId(), replacement.getContainerId());
+    }
+
+    /**
+     * Test that containers idle for longer than the idle timeout are evicted.
+     */
+    @Test
+    void idleContainerIsEvicted() {
+        PooledContainer container = containerPool.acquire(IMAGE, "hash").orElseThrow();
+        containerPool.release(container, true);
+
+        ReflectionTestUtils.invokeMethod(containerPool, "maintain");
+        verify(dockerClient, never()).removeContainerCmd(container.getContainerId());
+
+        // every container is idle for too long with a negative timeout
+        ReflectionTestUtils.setField(containerPool, "idleTimeoutSeconds", -1L);
+        ReflectionTestUtils.invokeMethod(containerPool, "maintain");
+        verify(dockerClient).removeContainerCmd(container.getContainerId());
+        assertNotEquals(container, containerPool.acquire(IMAGE, "hash").orElseThrow());
+    }
+}
@@ -0,0 +1,113 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.snapshot;
+
+import de.tudresden.inf.st.mathgrass.api.graph.Graph;
+import de.tudresden.inf.st.mathgrass.api.graph.GraphRepository;
+import de.tudresden.inf.st.mathgrass.api.task.Task;
+import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link EvaluationSnapshotCache}.
+ */
+@SpringBootTest
+@ActiveProfiles(profiles = "test")
+class EvaluationSnapshotCacheTest {
+    /**
+     * Evaluation snapshot cache.
+     */
+    @Autowired
+    private EvaluationSnapshotCache snapshotCache;
+
+    /**
+     * Task repository.
+     */
+    @Autowired
+    private TaskRepository taskRepository;
+
+    /**
+     * Graph repository.
+     */
+    @Autowired
+    private GraphRepository graphRepository;
+
+    /**
+     * Test that the snapshot of a task is loaded once, including the serialized graph, until the task is updated.
+     */
+    @Test
+    void snapshotIsCachedUntilTaskIsUpdated() {
+        Task task = createTask();
+
+        EvaluationSnapshot snapshot = snapshotCache.get(task.getId());
+        assertEquals(task.getId(), snapshot.taskId());
+        assertNotNull(snapshot.graphPayload());
+        assertSame(snapshot, snapshotCache.get(task.getId()));
+
+        snapshotCache.invalidateTask(task.getId());
+        assertNotSame(snapshot, snapshotCache.get(task.getId()));
+    }
+
+    /**
+     * Test that the serialized graph is handed out read-only, and that readers don't share its position.
+     */
+    @Test
+    void graphPayloadIsReadOnly() {
+        Task task = createTask();
+
+        EvaluationSnapshot snapshot = snapshotCache.get(task.getId());
+        assertEquals(task.getGraph().getId(), snapshot.graphId());
+        ByteBuffer payload = snapshot.graphPayload();
+        assertTrue(payload.isReadOnly());
+        assertThrows(ReadOnlyBufferException.class, () -> payload.put(0, (byte) 0));
+
+        payload.position(payload.limit());
+        assertTrue(snapshot.graphPayload().hasRemaining());
+    }
+
+    /**
+     * Test that updating a graph invalidates the snapshots of its tasks.
+     */
+    @Test
+    void snapshotIsInvalidatedWithGraph() {
+        Task task = createTask();
+
+        EvaluationSnapshot snapshot = snapshotCache.get(task.getId());
+        snapshotCache.invalidateGraph(task.getGraph().getId());
+
+        assertNotSame(snapshot, snapshotCache.get(task.getId()));
+    }
+
+    /**
+     * Test that unknown tasks are rejected.
+     */
+    @Test
+    void unknownTaskIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> snapshotCache.get(-1L));
+    }
+
+    private Task createTask() {
+        Graph graph = new Graph();
+        graph.setLabels(new ArrayList<>(List.of("label")));
+        graph.setVertices(new ArrayList<>());
+        graph.setEdges(new ArrayList<>());
+        graphRepository.save(graph);
+
+        Task task = new Task();
+        task.setGraph(graph);
+        return taskRepository.save(task);
+    }
+}
@@ -0,0 +1,73 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.staging;
+
+import de.tudresden.inf.st.mathgrass.api.graph.Graph;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Test class for {@link GraphPayloadCache}.
+ */
+@SpringBootTest
+@ActiveProfiles(profiles = "test")
+class GraphPayloadCacheTest {
+    /**
+     * Graph payload cache.
+     */
+    @Autowired
+    private GraphPayloadCache graphPayloadCache;
+
+    /**
+     * Test that the payload of a graph is only serialized once per revision.
+     */
+    @Test
+    void payloadIsCachedPerRevision() throws IOException {
+        Graph graph = createGraph(1L);
+
+        byte[] payload = graphPayloadCache.getPayload(graph);
+        assertSame(payload, graphPayloadCache.getPayload(graph));
+
+        // a new revision must not be served from the cache
+        graph.setLabels(List.of("updated"));
+        graph.setRevision(graph.getRevision() + 1);
+        byte[] updatedPayload = graphPayloadCache.getPayload(graph);
+        assertNotSame(payload, updatedPayload);
+        assertArrayEquals(updatedPayload, graphPayloadCache.getPayload(createGraph(1L, "updated", 1)));
+    }
+
+    /**
+     * Test that invalidating a graph removes its cached payload.
+     */
+    @Test
+    void invalidateRemovesPayload() throws IOException {
+        Graph graph = createGraph(2L);
+
+        byte[] payload = graphPayloadCache.getPayload(graph);
+        graphPayloadCache.invalidate(graph.getId());
+
+        assertNotSame(payload, graphPayloadCache.getPayload(graph));
+    }
+
+    private static Graph createGraph(Long id) {
+        return createGraph(id, "label", 0);
+    }
+
+    private static Graph createGraph(Long id, String label, long revision) {
+        Graph graph = new Graph();
+        graph.setId(id);
+        graph.setRevision(revision);
+        graph.setLabels(List.of(label));
+        graph.setEdges(new ArrayList<>());
+        graph.setVertices(new ArrayList<>());
+        return graph;
+    }
+}
@@ -0,0 +1,91 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.staging;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.Executor;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.SourceFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link SourceFileStore}.
+ */
+class SourceFileStoreTest {
+    /**
+     * Source file store.
+     */
+    private SourceFileStore sourceFileStore;
+
+    /**
+     * Create a source file store that keeps unreferenced sources.
+     */
+    @BeforeEach
+    void setUp() {
+        sourceFileStore = new SourceFileStore();
+        ReflectionTestUtils.setField(sourceFileStore, "maximumUnreferencedBytes", 1024L * 1024);
+    }
+
+    /**
+     * Test that executors with identical source files share their staged sources.
+     */
+    @Test
+    void identicalSourcesAreStagedOnce() {
+        StagedSources first = sourceFileStore.acquire(ExecutorSnapshot.of(createExecutor(1L, "print('a')")));
+        StagedSources second = sourceFileStore.acquire(ExecutorSnapshot.of(createExecutor(2L, "print('a')")));
+        StagedSources other = sourceFileStore.acquire(ExecutorSnapshot.of(createExecutor(3L, "print('b')")));
+
+        assertSame(first, second);
+        assertEquals(2, first.getReferences());
+        assertNotEquals(first.getHash(), other.getHash());
+
+        sourceFileStore.release(first);
+        sourceFileStore.release(second);
+        sourceFileStore.release(other);
+        assertEquals(0, first.getReferences());
+    }
+
+    /**
+     * Test that edited source files are staged anew, even if the executor keeps its ID and revision.
+     */
+    @Test
+    void editedSourcesAreStagedAnew() {
+        Executor executor = createExecutor(5L, "print('d')");
+        StagedSources original = sourceFileStore.acquire(ExecutorSnapshot.of(executor));
+        sourceFileStore.release(original);
+
+        executor.getSourceFiles().get(0).setContents("print('e')");
+        StagedSources edited = sourceFileStore.acquire(ExecutorSnapshot.of(executor));
+        sourceFileStore.release(edited);
+
+        assertNotEquals(original.getHash(), edited.getHash());
+    }
+
+    /**
+     * Test that staged sources can't be released more often than they have been acquired.
+     */
+    @Test
+    void releasingUnreferencedSourcesFails() {
+        StagedSources sources = sourceFileStore.acquire(ExecutorSnapshot.of(createExecutor(4L, "print('c')")));
+        sourceFileStore.release(sources);
+
+        assertThrows(IllegalStateException.class, () -> sourceFileStore.release(sources));
+    }
+
+    private static Executor createExecutor(Long id, String contents) {
+        SourceFile sourceFile = new SourceFile();
+        sourceFile.setPath("/sage-evaluation/instructor_evaluation.py");
+        sourceFile.setContents(contents);
+
+        Executor executor = new Executor();
+        executor.setId(id);
+        executor.setSourceFiles(List.of(sourceFile));
+        return executor;
+    }
+}
@@ -0,0 +1,129 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.staging;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CopyArchiveToContainerCmd;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.Executor;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.ExecutorSnapshot;
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.SourceFile;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for {@link StagingArchive}.
+ */
+class StagingArchiveTest {
+    /**
+     * Docker client recording copied archives.
+     */
+    private final DockerClient dockerClient = mock(DockerClient.class);
+
+    /**
+     * Archives copied into containers, in the order they were copied.
+     */
+    private final List<byte[]> copiedArchives = new ArrayList<>();
+
+    /**
+     * Record the contents of copied archives, the buffer they are read from is reused afterwards.
+     */
+    @BeforeEach
+    void setUp() {
+        when(dockerClient.copyArchiveToContainerCmd("container")).thenAnswer(invocation -> {
+            CopyArchiveToContainerCmd copyArchiveToContainerCmd = mock(CopyArchiveToContainerCmd.class, RETURNS_SELF);
+            when(copyArchiveToContainerCmd.withTarInputStream(any())).thenAnswer(copyInvocation -> {
+                copiedArchives.add(copyInvocation.<InputStream>getArgument(0).readAllBytes());
+                return copyArchiveToContainerCmd;
+            });
+            return copyArchiveToContainerCmd;
+        });
+    }
+
+    /**
+     * Test that files are archived relative to the container root, followed by the staged source files.
+     */
+    @Test
+    void archiveContainsFilesAndStagedSources() throws IOException {
+        SourceFile sourceFile = new SourceFile();
+        sourceFile.setPath("/sage-evaluation/instructor_evaluation.py");
+        sourceFile.setContents("print('a')");
+        Executor executor = new Executor();
+        executor.setSourceFiles(List.of(sourceFile));
+        SourceFileStore sourceFileStore = new SourceFileStore();
+        StagedSources sources = sourceFileStore.acquire(ExecutorSnapshot.of(executor));
+
+        new StagingArchive()
+                .add("/sage-evaluation/graph.json", bytes("{}"))
+                .add(sources)
+                .copyToContainer(dockerClient, "container");
+        sourceFileStore.release(sources);
+
+        Map<String, byte[]> entries = readArchive(copiedArchives.get(0));
+        assertEquals(List.of("sage-evaluation/graph.json", "sage-evaluation/instructor_evaluation.py"),
+                new ArrayList<>(entries.keySet()));
+        assertArrayEquals(bytes("{}"), entries.get("sage-evaluation/graph.json"));
+        assertArrayEquals(bytes("print('a')"), entries.get("sage-evaluation/instructor_evaluation.py"));
+    }
+
+    /**
+     * Test that the buffer of a thread is reused by archives of different sizes without leaking contents of larger
+     * archives into smaller ones, and that oversized buffers are dropped.
+     */
+    @Test
+    void bufferIsReusedAcrossArchives() throws IOException {
+        ThreadLocal<?> buffers = (ThreadLocal<?>) ReflectionTestUtils.getField(StagingArchive.class, "buffers");
+        byte[] small = bytes("small");
+        byte[] large = new byte[200 * 1024];
+        Arrays.fill(large, (byte) 'l');
+        byte[] oversized = new byte[2 * 1024 * 1024];
+
+        new StagingArchive().add("/file", small).copyToContainer(dockerClient, "container");
+        Object buffer = buffers.get();
+        new StagingArchive().add("/file", large).copyToContainer(dockerClient, "container");
+        new StagingArchive().add("/file", small).copyToContainer(dockerClient, "container");
+        assertSame(buffer, buffers.get());
+
+        new StagingArchive().add("/file", oversized).copyToContainer(dockerClient, "container");
+        assertNotSame(buffer, buffers.get());
+
+        assertArrayEquals(small, readArchive(copiedArchives.get(0)).get("file"));
+        assertArrayEquals(large, readArchive(copiedArchives.get(1)).get("file"));
+        assertArrayEquals(small, readArchive(copiedArchives.get(2)).get("file"));
+        assertEquals(copiedArchives.get(0).length, copiedArchives.get(2).length);
+        assertArrayEquals(oversized, readArchive(copiedArchives.get(3)).get("file"));
+    }
+
+    private static Map<String, byte[]> readArchive(byte[] archive) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new ByteArrayInputStream(archive))) {
+            for (TarArchiveEntry entry = tar.getNextTarEntry(); entry != null; entry = tar.getNextTarEntry()) {
+                entries.put(entry.getName(), tar.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] bytes(String contents) {
+        return contents.getBytes(StandardCharsets.UTF_8);
+    }
+}
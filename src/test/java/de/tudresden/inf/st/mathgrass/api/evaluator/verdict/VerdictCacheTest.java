@@ -0,0 +1,97 @@
+package de.tudresden.inf.st.mathgrass.api.evaluator.verdict;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.executor.Executor;
+import de.tudresden.inf.st.mathgrass.api.evaluator.verdict.VerdictCache.VerdictKey;
+import de.tudresden.inf.st.mathgrass.api.graph.Graph;
+import de.tudresden.inf.st.mathgrass.api.task.Task;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link VerdictCache}.
+ */
+class VerdictCacheTest {
+    /**
+     * Verdict cache.
+     */
+    private VerdictCache verdictCache;
+
+    /**
+     * Create an enabled verdict cache.
+     */
+    @BeforeEach
+    void setUp() {
+        verdictCache = new VerdictCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(verdictCache, "enabled", true);
+        ReflectionTestUtils.setField(verdictCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(verdictCache, "ttlSeconds", 3600L);
+        ReflectionTestUtils.invokeMethod(verdictCache, "initCache");
+    }
+
+    /**
+     * Test that verdicts are cached per answer as the evaluator receives it, and that a new graph revision doesn't
+     * share them.
+     */
+    @Test
+    void verdictIsCachedPerAnswerAndRevision() {
+        Task task = createTask(1L, 10L);
+        Executor executor = createExecutor(true);
+
+        VerdictKey key = verdictCache.keyOf(task, executor, "42").orElseThrow();
+        verdictCache.put(key, true);
+        assertEquals(Optional.of(true), verdictCache.get(verdictCache.keyOf(task, executor, "42").orElseThrow()));
+        assertTrue(verdictCache.get(verdictCache.keyOf(task, executor, " 42 ").orElseThrow()).isEmpty());
+        assertEquals(verdictCache.keyOf(task, executor, null), verdictCache.keyOf(task, executor, ""));
+
+        task.getGraph().setRevision(1);
+        VerdictKey updatedKey = verdictCache.keyOf(task, executor, "42").orElseThrow();
+        assertNotEquals(key, updatedKey);
+        assertTrue(verdictCache.get(updatedKey).isEmpty());
+    }
+
+    /**
+     * Test that verdicts of non-deterministic executors are never cached.
+     */
+    @Test
+    void nonDeterministicExecutorsAreNotCached() {
+        assertTrue(verdictCache.keyOf(createTask(2L, 20L), createExecutor(false), "42").isEmpty());
+    }
+
+    /**
+     * Test that updating a graph removes the verdicts of answers evaluated on it.
+     */
+    @Test
+    void invalidateGraphRemovesVerdicts() {
+        VerdictKey key = verdictCache.keyOf(createTask(3L, 30L), createExecutor(true), "42").orElseThrow();
+        verdictCache.put(key, false);
+
+        verdictCache.invalidateGraph(30L);
+
+        assertTrue(verdictCache.get(key).isEmpty());
+    }
+
+    private static Task createTask(Long taskId, Long graphId) {
+        Graph graph = new Graph();
+        graph.setId(graphId);
+
+        Task task = new Task();
+        task.setId(taskId);
+        task.setGraph(graph);
+        return task;
+    }
+
+    private static Executor createExecutor(boolean deterministic) {
+        Executor executor = new Executor();
+        executor.setId(100L);
+        executor.setDeterministic(deterministic);
+        return executor;
+    }
+}
@@ -0,0 +1,62 @@
+package de.tudresden.inf.st.mathgrass.api.graph;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for {@link GraphRepository}.
+ */
+@SpringBootTest
+@ActiveProfiles(profiles = "test")
+class GraphRepositoryTest {
+    /**
+     * Graph repository.
+     */
+    @Autowired
+    private GraphRepository graphRepository;
+
+    /**
+     * Test that concurrent increments of the revision aren't lost.
+     */
+    @Test
+    void concurrentIncrementsGetDistinctRevisions() {
+        Long id = graphRepository.save(createGraph()).getId();
+
+        CompletableFuture.allOf(IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> graphRepository.incrementRevision(id)))
+                .toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(8, graphRepository.findById(id).orElseThrow().getRevision());
+    }
+
+    /**
+     * Test that saving a graph with an outdated revision keeps the revision of the database.
+     */
+    @Test
+    void saveDoesNotOverwriteRevision() {
+        Graph graph = graphRepository.save(createGraph());
+        graphRepository.incrementRevision(graph.getId());
+
+        graph.setLabels(new ArrayList<>(List.of("updated")));
+        graphRepository.save(graph);
+
+        assertEquals(1, graphRepository.findById(graph.getId()).orElseThrow().getRevision());
+    }
+
+    private static Graph createGraph() {
+        Graph graph = new Graph();
+        graph.setLabels(new ArrayList<>(List.of("label")));
+        graph.setEdges(new ArrayList<>());
+        graph.setVertices(new ArrayList<>());
+        return graph;
+    }
+}
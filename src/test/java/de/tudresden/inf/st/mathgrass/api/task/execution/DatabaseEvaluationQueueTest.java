@@ -0,0 +1,128 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+import de.tudresden.inf.st.mathgrass.api.task.Task;
+import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test class for {@link DatabaseEvaluationQueue}.
+ */
+@SpringBootTest
+@ActiveProfiles(profiles = "test")
+@TestPropertySource(properties = {"taskExecution.queue=database", "taskExecution.database.pollIntervalMillis=100"})
+class DatabaseEvaluationQueueTest {
+    /**
+     * Task execution manager.
+     */
+    @Autowired
+    private TaskExecutionManager taskExecutionManager;
+
+    /**
+     * Task execution worker.
+     */
+    @SpyBean
+    private TaskExecutionWorker taskExecutionWorker;
+
+    /**
+     * Task repository.
+     */
+    @Autowired
+    private TaskRepository taskRepository;
+
+    /**
+     * Task result repository.
+     */
+    @Autowired
+    private TaskResultRepository taskResultRepository;
+
+    /**
+     * Task without a question, so that its answers aren't evaluated inline.
+     */
+    private Task task;
+
+    @BeforeEach
+    void setUp() {
+        task = taskRepository.save(new Task());
+        doReturn(CompletableFuture.completedFuture(EvaluationOutcome.CORRECT)).when(taskExecutionWorker)
+                .makeAssessmentAsync(anyLong(), anyString());
+    }
+
+    /**
+     * Test that a submitted task result is claimed from the database and completed.
+     */
+    @Test
+    void queuedTaskResultIsClaimedAndEvaluated() {
+        Long taskResultId = taskExecutionManager.requestTaskExecution(task.getId(), "queued").taskResultId();
+
+        Awaitility.await().until(() -> statusOf(taskResultId) == TaskResultStatus.EVALUATED);
+        assertTrue(taskResultRepository.findById(taskResultId).map(TaskResult::isAnswerTrue).orElse(false));
+    }
+
+    /**
+     * Test that a task result whose claim expired, e.g., because its node crashed, is evaluated by another node.
+     */
+    @Test
+    void expiredClaimIsTakenOver() {
+        TaskResult taskResult = new TaskResult();
+        taskResult.setTask(task);
+        taskResult.setAnswer("orphaned");
+        taskResult.setSubmissionDate(LocalDateTime.now().toString());
+        taskResult.setClaimedBy("crashed node");
+        taskResult.setClaimedUntil(LocalDateTime.now().minusMinutes(1));
+        Long taskResultId = taskResultRepository.save(taskResult).getId();
+
+        Awaitility.await().until(() -> statusOf(taskResultId) == TaskResultStatus.EVALUATED);
+        assertNotEquals("crashed node", taskResultRepository.findById(taskResultId)
+                .map(TaskResult::getClaimedBy).orElse(null));
+    }
+
+    /**
+     * Test that a claimed task result can be cancelled once and keeps its status when its evaluation finishes.
+     */
+    @Test
+    void claimedTaskResultCanBeCancelled() {
+        CompletableFuture<EvaluationOutcome> assessment = new CompletableFuture<>();
+        doReturn(assessment).when(taskExecutionWorker).makeAssessmentAsync(anyLong(), eq("slow"));
+
+        Long taskResultId = taskExecutionManager.requestTaskExecution(task.getId(), "slow").taskResultId();
+        Awaitility.await().until(() -> taskResultRepository.findById(taskResultId)
+                .map(TaskResult::getClaimedBy).isPresent());
+
+        assertTrue(taskExecutionManager.cancelTaskExecution(taskResultId));
+        assertFalse(taskExecutionManager.cancelTaskExecution(taskResultId));
+
+        // the verdict of the running evaluation is discarded
+        assessment.complete(EvaluationOutcome.CORRECT);
+        Awaitility.await().untilAsserted(() -> verify(taskExecutionWorker)
+                .updateTaskResult(eq(taskResultId), eq(true)));
+        assertEquals(TaskResultStatus.CANCELLED, statusOf(taskResultId));
+    }
+
+    private TaskResultStatus statusOf(Long taskResultId) {
+        return taskResultRepository.findById(taskResultId).map(TaskResult::getStatus).orElse(null);
+    }
+}
@@ -0,0 +1,244 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link EvaluationBulkheads}.
+ */
+@SpringBootTest
+@ActiveProfiles(profiles = "test")
+class EvaluationBulkheadsTest {
+    /**
+     * Evaluation bulkheads.
+     */
+    @Autowired
+    private EvaluationBulkheads bulkheads;
+
+    /**
+     * Meter registry.
+     */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Statistics of evaluation durations.
+     */
+    @Autowired
+    private EvaluationDurationStatistics durationStatistics;
+
+    /**
+     * Test that a full bulkhead queues evaluations until a running one completes, without blocking other bulkheads.
+     */
+    @Test
+    void fullBulkheadQueuesEvaluations() {
+        bulkheads.setLimit("slow image", 1);
+        CompletableFuture<Void> slowEvaluation = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+
+        bulkheads.submitAfterCommit(keyOf("slow image", "slow executor"), 1, () -> {
+            started.incrementAndGet();
+            return slowEvaluation;
+        }, () -> { });
+        bulkheads.submitAfterCommit(keyOf("slow image", "slow executor"), 1, () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }, () -> { });
+        AtomicBoolean fastStarted = new AtomicBoolean();
+        bulkheads.submitAfterCommit(keyOf("fast image", "fast executor"), 1, () -> {
+            fastStarted.set(true);
+            return CompletableFuture.completedFuture(null);
+        }, () -> { });
+
+        // the other bulkhead isn't blocked by the slow evaluation
+        Awaitility.await().untilTrue(fastStarted);
+        Awaitility.await().untilAtomic(started, equalTo(1));
+
+        slowEvaluation.complete(null);
+        Awaitility.await().untilAtomic(started, equalTo(2));
+    }
+
+    /**
+     * Test that queued evaluations with a shorter expected duration start first.
+     */
+    @Test
+    void shorterExpectedEvaluationStartsFirst() {
+        bulkheads.setLimit("ordered image", 1);
+        durationStatistics.record("expensive executor", 10_000);
+        durationStatistics.record("cheap executor", 10);
+        CompletableFuture<Void> runningEvaluation = new CompletableFuture<>();
+        List<String> startOrder = new CopyOnWriteArrayList<>();
+
+        bulkheads.submitAfterCommit(keyOf("ordered image", "cheap executor"), 1,
+                () -> runningEvaluation, () -> { });
+        bulkheads.submitAfterCommit(keyOf("ordered image", "expensive executor"), 1, () -> {
+            startOrder.add("expensive");
+            return null;
+        }, () -> { });
+        bulkheads.submitAfterCommit(keyOf("ordered image", "cheap executor"), 1, () -> {
+            startOrder.add("cheap");
+            return null;
+        }, () -> { });
+
+        runningEvaluation.complete(null);
+        Awaitility.await().until(() -> startOrder.size() == 2);
+        assertEquals(List.of("cheap", "expensive"), startOrder);
+    }
+
+    /**
+     * Test that a bulkhead with a full queue rejects submissions, and that queued evaluations know their position.
+     */
+    @Test
+    void fullQueueRejectsSubmissions() {
+        bulkheads.setLimit("full image", 1);
+        SchedulingKey key = keyOf("full image", "full executor");
+        CompletableFuture<Void> runningEvaluation = new CompletableFuture<>();
+        AtomicBoolean queuedStarted = new AtomicBoolean();
+
+        bulkheads.submitAfterCommit(key, 1, () -> runningEvaluation, () -> { });
+        Future<?> queued = bulkheads.submitAfterCommit(key, 500, () -> {
+            queuedStarted.set(true);
+            return null;
+        }, () -> { });
+
+        EvaluationRejectedException rejection = assertThrows(EvaluationRejectedException.class,
+                () -> bulkheads.checkAdmission(key, 1));
+        assertTrue(rejection.getRetryAfterSeconds() > 0);
+        assertEquals(1, bulkheads.getQueuePosition(queued).orElseThrow().position());
+        assertEquals(bulkheads.getQueuePosition(queued).orElseThrow(), bulkheads.getQueuePositions().get(queued));
+
+        runningEvaluation.complete(null);
+        Awaitility.await().untilTrue(queuedStarted);
+        assertTrue(bulkheads.getQueuePosition(queued).isEmpty());
+        bulkheads.checkAdmission(key, 1);
+    }
+
+    /**
+     * Test that a tenant submitting later isn't queued behind the burst of another tenant.
+     */
+    @Test
+    void tenantsShareBulkheadFairly() {
+        bulkheads.setLimit("fair image", 1);
+        CompletableFuture<Void> runningEvaluation = new CompletableFuture<>();
+        List<String> startOrder = new CopyOnWriteArrayList<>();
+
+        SchedulingKey exam = new SchedulingKey("fair image", "fair executor", "exam");
+        bulkheads.submitAfterCommit(exam, 1, () -> runningEvaluation, () -> { });
+        for (int i = 0; i < 3; i++) {
+            bulkheads.submitAfterCommit(exam, 1, () -> {
+                startOrder.add("exam");
+                return null;
+            }, () -> { });
+        }
+        bulkheads.submitAfterCommit(new SchedulingKey("fair image", "fair executor", "practice"), 1, () -> {
+            startOrder.add("practice");
+            return null;
+        }, () -> { });
+
+        runningEvaluation.complete(null);
+        Awaitility.await().until(() -> startOrder.size() == 4);
+        assertEquals("practice", startOrder.get(0));
+    }
+
+    /**
+     * Test that an evaluation cancelled while it is queued doesn't start.
+     */
+    @Test
+    void cancelledEvaluationDoesNotStart() {
+        bulkheads.setLimit("cancelled image", 1);
+        CompletableFuture<Void> runningEvaluation = new CompletableFuture<>();
+        AtomicBoolean cancelledStarted = new AtomicBoolean();
+        AtomicBoolean nextStarted = new AtomicBoolean();
+
+        SchedulingKey key = keyOf("cancelled image", "cancelled executor");
+        bulkheads.submitAfterCommit(key, 1, () -> runningEvaluation, () -> { });
+        Future<?> cancelled = bulkheads.submitAfterCommit(key, 1, () -> {
+            cancelledStarted.set(true);
+            return null;
+        }, () -> { });
+        bulkheads.submitAfterCommit(key, 1, () -> {
+            nextStarted.set(true);
+            return null;
+        }, () -> { });
+        cancelled.cancel(false);
+
+        runningEvaluation.complete(null);
+        Awaitility.await().untilTrue(nextStarted);
+        assertFalse(cancelledStarted.get());
+    }
+
+    /**
+     * Test that evaluations completing in a bulkhead don't record durations, as they might not have run an executor.
+     */
+    @Test
+    void completedEvaluationDoesNotRecordDuration() {
+        AtomicBoolean started = new AtomicBoolean();
+        bulkheads.submitAfterCommit(keyOf("cached image", "cached executor"), 1, () -> {
+            started.set(true);
+            return CompletableFuture.completedFuture(null);
+        }, () -> { });
+
+        Awaitility.await().untilTrue(started);
+        assertFalse(durationStatistics.getStatistics().containsKey("cached executor"));
+    }
+
+    /**
+     * Test that the metrics of a tenant are removed once it is idle, and that tenants beyond the max number of tenants
+     * with metrics of their own share the metrics of other tenants.
+     */
+    @Test
+    void idleTenantMetersAreRemoved() {
+        CompletableFuture<Void> runningEvaluation = new CompletableFuture<>();
+        bulkheads.submitAfterCommit(new SchedulingKey("metered image", "metered executor", "metered"), 1,
+                () -> runningEvaluation, () -> { });
+        assertNotNull(meterRegistry.find("evaluation.tenant.latency").tag("tenant", "metered").timer());
+
+        runningEvaluation.complete(null);
+        Awaitility.await().until(() ->
+                meterRegistry.find("evaluation.tenant.latency").tag("tenant", "metered").timer() == null);
+
+        ReflectionTestUtils.setField(bulkheads, "maxMeteredTenants", 0);
+        try {
+            CompletableFuture<Void> otherEvaluation = new CompletableFuture<>();
+            bulkheads.submitAfterCommit(new SchedulingKey("metered image", "metered executor", "unmetered"), 1,
+                    () -> otherEvaluation, () -> { });
+            assertNull(meterRegistry.find("evaluation.tenant.latency").tag("tenant", "unmetered").timer());
+            assertNotNull(meterRegistry.find("evaluation.tenant.latency")
+                    .tag("tenant", EvaluationBulkheads.OTHER_TENANTS).timer());
+            otherEvaluation.complete(null);
+        } finally {
+            ReflectionTestUtils.setField(bulkheads, "maxMeteredTenants", 50);
+        }
+    }
+
+    /**
+     * Create the scheduling key of an evaluation of the default tenant.
+     *
+     * @param bulkhead name of bulkhead
+     * @param executor executor
+     * @return scheduling key
+     */
+    private static SchedulingKey keyOf(String bulkhead, String executor) {
+        return new SchedulingKey(bulkhead, executor, EvaluationTenants.DEFAULT_TENANT);
+    }
+}
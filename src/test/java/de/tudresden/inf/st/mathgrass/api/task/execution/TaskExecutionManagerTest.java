@@ -2,17 +2,19 @@ package de.tudresden.inf.st.mathgrass.api.task.execution;
 
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
 import de.tudresden.inf.st.mathgrass.api.events.TaskEvaluationFinishedEvent;
 import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
 import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
 import de.tudresden.inf.st.mathgrass.api.task.Task;
 import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
-import de.tudresden.inf.st.mathgrass.api.task.question.Question;
+import de.tudresden.inf.st.mathgrass.api.task.question.FormQuestion;
+import de.tudresden.inf.st.mathgrass.api.task.question.answer.StaticAnswer;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
-import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.SpyBean;
@@ -20,10 +22,12 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -39,7 +43,8 @@ import static org.mockito.Mockito.*;
 @TestPropertySource(properties = {
         "taskExecutor.corePoolSize=1",
         "taskExecutor.maxPoolSize=5",
-        "taskExecutor.queueCapacity=10"
+        "taskExecutor.queueCapacity=10",
+        "taskExecution.maxBatchSize=2"
 })
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class TaskExecutionManagerTest {
@@ -158,23 +163,26 @@ class TaskExecutionManagerTest {
      * are any DB issues, which are ok and not testable.
      */
     @Test
-    void testAssessments() throws IOException, InterruptedException {
+    void testAssessments() {
         // expected result
-        boolean expectedResult = true;
+        EvaluationOutcome expectedResult = EvaluationOutcome.CORRECT;
 
-        // create spy on task
-        Task taskSpy = spy(task);
+        // create spy on a task whose snapshot hasn't been cached yet
+        Task taskSpy = spy(taskRepository.save(new Task()));
 
-        // mock task accept question visitor
-        Question mockQuestion = Mockito.mock(Question.class);
-        doReturn(expectedResult).when(mockQuestion).acceptQuestionVisitor(any(), any(), anyLong(), anyString());
-        doReturn(mockQuestion).when(taskSpy).getQuestion();
+        // let the task expect the given answer
+        StaticAnswer staticAnswer = new StaticAnswer();
+        staticAnswer.setAnswer("test");
+        FormQuestion question = new FormQuestion();
+        question.setAnswer(staticAnswer);
+        doReturn(question).when(taskSpy).getQuestion();
 
         // mock task repository to return taskSpy
         doReturn(Optional.of(taskSpy)).when(taskRepository).findById(anyLong());
 
         // make assessment, test fails if any exceptions thrown
-        assertEquals(expectedResult, taskExecutionWorker.makeAssessment(taskSpy.getId(), "test"));
+        assertEquals(expectedResult, taskExecutionWorker.makeAssessmentAsync(taskSpy.getId(), "test")
+                .toCompletableFuture().join());
     }
 
     /**
@@ -186,7 +194,8 @@ class TaskExecutionManagerTest {
         doNothing().when(taskExecutor).execute(any());
 
         // make task execution request, test fails if any exceptions thrown
-        assertNotNull(taskExecutionManager.requestTaskExecution(task.getId(), "test"));
+        // the evaluation never runs, so the answer must differ from other tests to not coalesce with them
+        assertNotNull(taskExecutionManager.requestTaskExecution(task.getId(), "never evaluated"));
     }
 
     /**
@@ -195,7 +204,8 @@ class TaskExecutionManagerTest {
     @Test
     void testTaskExecutionRequest() {
         // mock assessment and update of task result
-        doReturn(true).when(taskExecutionWorker).makeAssessment(anyLong(), anyString());
+        doReturn(CompletableFuture.completedFuture(EvaluationOutcome.CORRECT)).when(taskExecutionWorker)
+                .makeAssessmentAsync(anyLong(), anyString());
         doNothing().when(taskExecutionWorker).updateTaskResult(anyLong(), anyBoolean());
 
         // create event bus subscriber
@@ -211,6 +221,130 @@ class TaskExecutionManagerTest {
         verify(taskExecutionWorker, times(1)).updateTaskResult(anyLong(), anyBoolean());
     }
 
+    /**
+     * Test that identical task execution requests are evaluated once, while every task result is updated and gets
+     * its own event.
+     */
+    @Test
+    void testIdenticalTaskExecutionRequestsAreCoalesced() {
+        // mock assessment and update of task result
+        doReturn(CompletableFuture.completedFuture(EvaluationOutcome.CORRECT)).when(taskExecutionWorker)
+                .makeAssessmentAsync(anyLong(), anyString());
+        doNothing().when(taskExecutionWorker).updateTaskResult(anyLong(), anyBoolean());
+
+        // create event bus subscriber
+        EventBusSubscriber eventBusSubscriber = new EventBusSubscriber();
+
+        // trigger identical task executions, the second one is requested before the first one starts
+        Long firstTaskResultId = taskExecutionManager.requestTaskExecution(task.getId(), "coalesced").taskResultId();
+        Long secondTaskResultId = taskExecutionManager.requestTaskExecution(task.getId(), "coalesced").taskResultId();
+
+        // wait for both events
+        Awaitility.await().untilAtomic(eventBusSubscriber.getEventCount(), equalTo(2));
+
+        // check that the answer has been evaluated once and both task results are updated
+        verify(taskExecutionWorker, times(1)).makeAssessmentAsync(anyLong(), eq("coalesced"));
+        verify(taskExecutionWorker, times(1)).updateTaskResult(eq(firstTaskResultId), eq(true));
+        verify(taskExecutionWorker, times(1)).updateTaskResult(eq(secondTaskResultId), eq(true));
+    }
+
+    /**
+     * Test that the distinct answers of a batch are evaluated together, while every answer gets its own task result.
+     */
+    @Test
+    void testBatchTaskExecutionRequest() {
+        // mock batch assessment and update of task result
+        doAnswer(invocation -> Collections.nCopies(invocation.<List<String>>getArgument(1).size(),
+                CompletableFuture.completedFuture(EvaluationOutcome.CORRECT)))
+                .when(taskExecutionWorker).makeBatchAssessmentAsync(anyLong(), anyList());
+        doNothing().when(taskExecutionWorker).updateTaskResult(anyLong(), anyBoolean());
+
+        // create event bus subscriber
+        EventBusSubscriber eventBusSubscriber = new EventBusSubscriber();
+
+        List<TaskSubmissionReceipt> receipts = taskExecutionManager.requestBatchTaskExecution(task.getId(),
+                List.of("batch a", "batch b", "batch a"));
+
+        // wait for one event per answer
+        assertEquals(3, receipts.size());
+        Awaitility.await().untilAtomic(eventBusSubscriber.getEventCount(), equalTo(3));
+
+        // check that the duplicate answer has been coalesced and all task results are updated
+        verify(taskExecutionWorker, times(1)).makeBatchAssessmentAsync(anyLong(), eq(List.of("batch a", "batch b")));
+        for (TaskSubmissionReceipt receipt : receipts) {
+            verify(taskExecutionWorker, times(1)).updateTaskResult(eq(receipt.taskResultId()), eq(true));
+        }
+    }
+
+    /**
+     * Test that batches larger than the max batch size are split into several evaluations.
+     */
+    @Test
+    void testLargeBatchIsSplit() {
+        // mock assessments and update of task result
+        doAnswer(invocation -> Collections.nCopies(invocation.<List<String>>getArgument(1).size(),
+                CompletableFuture.completedFuture(EvaluationOutcome.CORRECT)))
+                .when(taskExecutionWorker).makeBatchAssessmentAsync(anyLong(), anyList());
+        doReturn(CompletableFuture.completedFuture(EvaluationOutcome.CORRECT)).when(taskExecutionWorker)
+                .makeAssessmentAsync(anyLong(), anyString());
+        doNothing().when(taskExecutionWorker).updateTaskResult(anyLong(), anyBoolean());
+
+        // create event bus subscriber
+        EventBusSubscriber eventBusSubscriber = new EventBusSubscriber();
+
+        taskExecutionManager.requestBatchTaskExecution(task.getId(), List.of("split a", "split b", "split c"));
+        Awaitility.await().untilAtomic(eventBusSubscriber.getEventCount(), equalTo(3));
+
+        // check that the answers have been evaluated in chunks of at most two answers
+        verify(taskExecutionWorker, times(1)).makeBatchAssessmentAsync(anyLong(), eq(List.of("split a", "split b")));
+        verify(taskExecutionWorker, times(1)).makeAssessmentAsync(anyLong(), eq("split c"));
+    }
+
+    /**
+     * Test that a pending task evaluation can be cancelled once and its task result is marked as cancelled.
+     */
+    @Test
+    void testCancelTaskExecution() {
+        // mock taskExecutor to do nothing upon execution request, so that the evaluation stays pending
+        doNothing().when(taskExecutor).execute(any());
+
+        Long taskResultId = taskExecutionManager.requestTaskExecution(task.getId(), "cancelled").taskResultId();
+
+        // cancel pending evaluation
+        assertTrue(taskExecutionManager.cancelTaskExecution(taskResultId));
+        Optional<TaskResult> optTaskResult = taskResultRepository.findById(taskResultId);
+        assertTrue(optTaskResult.isPresent());
+        assertEquals(TaskResultStatus.CANCELLED, optTaskResult.get().getStatus());
+
+        // evaluation can't be cancelled twice
+        assertFalse(taskExecutionManager.cancelTaskExecution(taskResultId));
+    }
+
+    /**
+     * Test that answers to static questions are evaluated while they are submitted, without using the task executor.
+     */
+    @Test
+    void testStaticAnswerIsEvaluatedInline() {
+        // create task with static answer
+        StaticAnswer staticAnswer = new StaticAnswer();
+        staticAnswer.setAnswer("42");
+        FormQuestion question = new FormQuestion();
+        question.setAnswer(staticAnswer);
+        Task staticTask = new Task();
+        staticTask.setQuestion(question);
+        taskRepository.save(staticTask);
+
+        TaskSubmissionReceipt receipt = taskExecutionManager.requestTaskExecution(staticTask.getId(), "42");
+
+        // check that the verdict is part of the receipt and the task result is completed
+        assertEquals(Boolean.TRUE, receipt.answerCorrect());
+        Optional<TaskResult> optTaskResult = taskResultRepository.findById(receipt.taskResultId());
+        assertTrue(optTaskResult.isPresent());
+        assertEquals(TaskResultStatus.EVALUATED, optTaskResult.get().getStatus());
+        assertTrue(optTaskResult.get().isAnswerTrue());
+        verify(taskExecutor, never()).execute(any());
+    }
+
     /**
      * Helper class to subscribe to events.
      */
@@ -0,0 +1,98 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+import de.tudresden.inf.st.mathgrass.api.task.Task;
+import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Test class for {@link TaskResultRecoverySweeper}.
+ */
+@SpringBootTest
+@ActiveProfiles(profiles = "test")
+@TestPropertySource(properties = {"taskResultRecovery.enabled=true", "taskResultRecovery.intervalSeconds=1"})
+class TaskResultRecoverySweeperTest {
+    /**
+     * Task execution worker.
+     */
+    @SpyBean
+    private TaskExecutionWorker taskExecutionWorker;
+
+    /**
+     * Task repository.
+     */
+    @Autowired
+    private TaskRepository taskRepository;
+
+    /**
+     * Task result repository.
+     */
+    @Autowired
+    private TaskResultRepository taskResultRepository;
+
+    /**
+     * Task without a question, so that its answers aren't evaluated inline.
+     */
+    private Task task;
+
+    @BeforeEach
+    void setUp() {
+        task = taskRepository.save(new Task());
+        doReturn(CompletableFuture.completedFuture(EvaluationOutcome.CORRECT)).when(taskExecutionWorker)
+                .makeAssessmentAsync(anyLong(), anyString());
+    }
+
+    /**
+     * Test that a task result whose evaluation has been lost long ago is evaluated again.
+     */
+    @Test
+    void lostTaskResultIsRequeued() {
+        Long taskResultId = saveLostTaskResult("lost", 1);
+
+        Awaitility.await().until(() -> statusOf(taskResultId) == TaskResultStatus.EVALUATED);
+        assertEquals(2, taskResultRepository.findById(taskResultId).map(TaskResult::getEvaluationAttempts)
+                .orElse(0));
+    }
+
+    /**
+     * Test that a task result whose evaluation has been lost too often is marked as failed.
+     */
+    @Test
+    void taskResultFailsAfterMaxAttempts() {
+        Long taskResultId = saveLostTaskResult("lost again", 3);
+
+        Awaitility.await().until(() -> statusOf(taskResultId) == TaskResultStatus.FAILED);
+    }
+
+    private Long saveLostTaskResult(String answer, int evaluationAttempts) {
+        TaskResult taskResult = new TaskResult();
+        taskResult.setTask(task);
+        taskResult.setAnswer(answer);
+        taskResult.setSubmissionDate(LocalDateTime.now().minusHours(1).toString());
+        taskResult.setEvaluationAttempts(evaluationAttempts);
+        taskResult.setAttemptedAt(LocalDateTime.now().minusHours(1));
+        return taskResultRepository.save(taskResult).getId();
+    }
+
+    private TaskResultStatus statusOf(Long taskResultId) {
+        return taskResultRepository.findById(taskResultId).map(TaskResult::getStatus).orElse(null);
+    }
+}
@@ -0,0 +1,197 @@
+package de.tudresden.inf.st.mathgrass.api.task.execution.rabbitmq;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+import de.tudresden.inf.st.mathgrass.api.task.Task;
+import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
+import de.tudresden.inf.st.mathgrass.api.task.execution.EvaluationBulkheads;
+import de.tudresden.inf.st.mathgrass.api.task.execution.TaskExecutionManager;
+import de.tudresden.inf.st.mathgrass.api.task.execution.TaskExecutionWorker;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for {@link RabbitEvaluationQueue} and {@link RabbitEvaluationConsumer}. The broker is replaced by
+ * channels that deliver published messages right away to the consumers of their queue.
+ */
+@SpringBootTest
+@ActiveProfiles(profiles = "test")
+@TestPropertySource(properties = "taskExecution.queue=rabbitmq")
+class RabbitEvaluationQueueTest {
+    /**
+     * Consumers by queue of the loopback broker.
+     */
+    private static final Map<String, Consumer> consumers = new ConcurrentHashMap<>();
+
+    /**
+     * Acknowledged delivery tags.
+     */
+    private static final List<Long> acknowledged = new CopyOnWriteArrayList<>();
+
+    /**
+     * Rejected delivery tags.
+     */
+    private static final List<Long> rejected = new CopyOnWriteArrayList<>();
+
+    /**
+     * Task execution manager.
+     */
+    @Autowired
+    private TaskExecutionManager taskExecutionManager;
+
+    /**
+     * Task execution worker.
+     */
+    @SpyBean
+    private TaskExecutionWorker taskExecutionWorker;
+
+    /**
+     * Bulkheads of this node.
+     */
+    @Autowired
+    private EvaluationBulkheads bulkheads;
+
+    /**
+     * Task repository.
+     */
+    @Autowired
+    private TaskRepository taskRepository;
+
+    /**
+     * Task result repository.
+     */
+    @Autowired
+    private TaskResultRepository taskResultRepository;
+
+    /**
+     * Connection to the loopback broker.
+     */
+    @Autowired
+    private Connection connection;
+
+    /**
+     * Test that a job is evaluated by the consumer, acknowledged, and its result completes the task result.
+     */
+    @Test
+    void jobIsEvaluatedAndResultIsReturned() {
+        doReturn(CompletableFuture.completedFuture(EvaluationOutcome.CORRECT)).when(taskExecutionWorker)
+                .makeAssessmentAsync(anyLong(), anyString());
+        Task task = taskRepository.save(new Task());
+        int acknowledgedBefore = acknowledged.size();
+
+        Long taskResultId = taskExecutionManager.requestTaskExecution(task.getId(), "remote").taskResultId();
+
+        Awaitility.await().until(() -> taskResultRepository.findById(taskResultId).map(TaskResult::getStatus)
+                .orElse(null) == TaskResultStatus.EVALUATED);
+        assertTrue(taskResultRepository.findById(taskResultId).map(TaskResult::isAnswerTrue).orElse(false));
+        assertTrue(acknowledged.size() > acknowledgedBefore);
+    }
+
+    /**
+     * Test that jobs evaluated on other nodes don't occupy the bulkheads of the publishing node while it waits for
+     * their result.
+     */
+    @Test
+    void jobDoesNotOccupyBulkhead() {
+        CompletableFuture<EvaluationOutcome> remoteAssessment = new CompletableFuture<>();
+        doReturn(remoteAssessment).when(taskExecutionWorker).makeAssessmentAsync(anyLong(), anyString());
+        Task task = taskRepository.save(new Task());
+
+        Long taskResultId = taskExecutionManager.requestTaskExecution(task.getId(), "pending").taskResultId();
+
+        assertTrue(bulkheads.getBulkheads().stream().allMatch(bulkhead -> bulkhead.running() == 0));
+        remoteAssessment.complete(EvaluationOutcome.INCORRECT);
+        Awaitility.await().until(() -> taskResultRepository.findById(taskResultId).map(TaskResult::getStatus)
+                .orElse(null) == TaskResultStatus.EVALUATED);
+    }
+
+    /**
+     * Test that unreadable jobs are rejected, so that they are dead-lettered.
+     */
+    @Test
+    void unreadableJobIsRejected() throws IOException {
+        int rejectedBefore = rejected.size();
+
+        connection.createChannel().basicPublish("", RabbitConfiguration.EVALUATION_QUEUE,
+                new AMQP.BasicProperties(), "not a job".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(rejected.size() > rejectedBefore);
+    }
+
+    /**
+     * Configuration replacing the connection to RabbitMQ with a loopback broker.
+     */
+    @TestConfiguration
+    static class LoopbackBrokerConfiguration {
+        @Bean
+        @Primary
+        ConnectionFactory loopbackConnectionFactory() throws Exception {
+            Connection connection = mock(Connection.class);
+            when(connection.createChannel()).thenAnswer(invocation -> createLoopbackChannel());
+            ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+            when(connectionFactory.newConnection(anyString())).thenReturn(connection);
+            return connectionFactory;
+        }
+
+        private static Channel createLoopbackChannel() throws IOException {
+            AtomicLong deliveryTags = new AtomicLong();
+            Channel channel = mock(Channel.class);
+            AMQP.Queue.DeclareOk temporaryQueue = mock(AMQP.Queue.DeclareOk.class);
+            when(temporaryQueue.getQueue()).thenReturn("temporary-" + UUID.randomUUID());
+            when(channel.queueDeclare()).thenReturn(temporaryQueue);
+            when(channel.basicConsume(anyString(), anyBoolean(), any(Consumer.class))).thenAnswer(invocation -> {
+                consumers.put(invocation.getArgument(0), invocation.getArgument(2));
+                return "consumer-" + invocation.getArgument(0);
+            });
+            doAnswer(invocation -> {
+                String queue = invocation.getArgument(1);
+                consumers.get(queue).handleDelivery("consumer-" + queue,
+                        new Envelope(deliveryTags.incrementAndGet(), false, "", queue),
+                        invocation.getArgument(2), invocation.getArgument(3));
+                return null;
+            }).when(channel).basicPublish(eq(""), anyString(), any(AMQP.BasicProperties.class), any(byte[].class));
+            doAnswer(invocation -> acknowledged.add(invocation.getArgument(0)))
+                    .when(channel).basicAck(anyLong(), anyBoolean());
+            doAnswer(invocation -> rejected.add(invocation.getArgument(0)))
+                    .when(channel).basicReject(anyLong(), anyBoolean());
+            return channel;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package de.tudresden.inf.st.mathgrass.api.task.regrade;
+
+import de.tudresden.inf.st.mathgrass.api.evaluator.EvaluationOutcome;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+import de.tudresden.inf.st.mathgrass.api.task.Task;
+import de.tudresden.inf.st.mathgrass.api.task.TaskRepository;
+import de.tudresden.inf.st.mathgrass.api.task.execution.TaskExecutionWorker;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test class for {@link RegradeManager}.
+ */
+@SpringBootTest
+@ActiveProfiles(profiles = "test")
+@TestPropertySource(properties = "regrade.answersPerSecond=1000")
+class RegradeManagerTest {
+    /**
+     * Manager of re-grade jobs.
+     */
+    @Autowired
+    private RegradeManager regradeManager;
+
+    /**
+     * Task execution worker.
+     */
+    @SpyBean
+    private TaskExecutionWorker taskExecutionWorker;
+
+    /**
+     * Task repository.
+     */
+    @Autowired
+    private TaskRepository taskRepository;
+
+    /**
+     * Task result repository.
+     */
+    @Autowired
+    private TaskResultRepository taskResultRepository;
+
+    /**
+     * Task whose task results are re-graded.
+     */
+    private Task task;
+
+    /**
+     * Configured batch size, restored after each test.
+     */
+    private int batchSize;
+
+    /**
+     * Configured time to live of finished jobs, restored after each test.
+     */
+    private long finishedJobTtlSeconds;
+
+    @BeforeEach
+    void setUp() {
+        task = taskRepository.save(new Task());
+        doAnswer(invocation -> Collections.nCopies(invocation.<List<String>>getArgument(1).size(),
+                CompletableFuture.completedFuture(EvaluationOutcome.CORRECT)))
+                .when(taskExecutionWorker).makeBatchAssessmentAsync(anyLong(), anyList());
+        batchSize = (int) ReflectionTestUtils.getField(regradeManager, "batchSize");
+        finishedJobTtlSeconds = (long) ReflectionTestUtils.getField(regradeManager, "finishedJobTtlSeconds");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(regradeManager, "batchSize", batchSize);
+        ReflectionTestUtils.setField(regradeManager, "finishedJobTtlSeconds", finishedJobTtlSeconds);
+    }
+
+    /**
+     * Test that all completed task results of a task get a new verdict, while cancelled ones are left alone.
+     */
+    @Test
+    void completedTaskResultsAreRegraded() {
+        Long first = saveTaskResult("wrong before", TaskResultStatus.EVALUATED).getId();
+        Long second = saveTaskResult("failed before", TaskResultStatus.FAILED).getId();
+        Long third = saveTaskResult("wrong before", TaskResultStatus.EVALUATED).getId();
+        Long cancelled = saveTaskResult("cancelled", TaskResultStatus.CANCELLED).getId();
+
+        RegradeJob job = regradeManager.startRegrade(task.getId());
+        assertEquals(3, job.getTotal());
+        Awaitility.await().until(job::isFinished);
+
+        assertEquals(RegradeJobStatus.COMPLETED, job.getStatus());
+        assertEquals(3, job.getProcessed());
+        assertEquals(3, job.getChanged());
+        for (Long taskResultId : List.of(first, second, third)) {
+            TaskResult taskResult = taskResultRepository.findById(taskResultId).orElseThrow();
+            assertEquals(TaskResultStatus.EVALUATED, taskResult.getStatus());
+            assertTrue(taskResult.isAnswerTrue());
+        }
+        assertEquals(TaskResultStatus.CANCELLED, taskResultRepository.findById(cancelled).orElseThrow().getStatus());
+        // the duplicate answer is evaluated once
+        verify(taskExecutionWorker, times(1)).makeBatchAssessmentAsync(eq(task.getId()),
+                eq(List.of("wrong before", "failed before")));
+    }
+
+    /**
+     * Test that a finished job can't be cancelled.
+     */
+    @Test
+    void finishedJobCantBeCancelled() {
+        RegradeJob job = regradeManager.startRegrade(task.getId());
+        Awaitility.await().until(job::isFinished);
+
+        assertFalse(regradeManager.cancelRegrade(job.getId()));
+    }
+
+    /**
+     * Test that cancelling a job mid-way cancels its running evaluation, while the task results re-graded before keep
+     * their new verdict and the remaining ones keep their old verdict.
+     */
+    @Test
+    void cancelledJobKeepsVerdicts() {
+        ReflectionTestUtils.setField(regradeManager, "batchSize", 1);
+        CompletableFuture<EvaluationOutcome> runningAssessment = new CompletableFuture<>();
+        doAnswer(invocation -> List.of("first".equals(invocation.<List<String>>getArgument(1).get(0)) ?
+                CompletableFuture.completedFuture(EvaluationOutcome.CORRECT) : runningAssessment))
+                .when(taskExecutionWorker).makeBatchAssessmentAsync(anyLong(), anyList());
+        Long first = saveTaskResult("first", TaskResultStatus.EVALUATED).getId();
+        Long second = saveTaskResult("second", TaskResultStatus.EVALUATED).getId();
+        Long third = saveTaskResult("third", TaskResultStatus.EVALUATED).getId();
+
+        RegradeJob job = regradeManager.startRegrade(task.getId());
+        // the second batch is running once the first one has been re-graded
+        Awaitility.await().until(() -> job.getProcessed() == 1);
+        verify(taskExecutionWorker, timeout(5000)).makeBatchAssessmentAsync(eq(task.getId()), eq(List.of("second")));
+        assertTrue(regradeManager.cancelRegrade(job.getId()));
+        Awaitility.await().until(runningAssessment::isCancelled);
+
+        assertEquals(RegradeJobStatus.CANCELLED, job.getStatus());
+        assertEquals(1, job.getProcessed());
+        assertTrue(taskResultRepository.findById(first).orElseThrow().isAnswerTrue());
+        for (Long taskResultId : List.of(second, third)) {
+            TaskResult taskResult = taskResultRepository.findById(taskResultId).orElseThrow();
+            assertEquals(TaskResultStatus.EVALUATED, taskResult.getStatus());
+            assertFalse(taskResult.isAnswerTrue());
+        }
+        verify(taskExecutionWorker, never()).makeBatchAssessmentAsync(anyLong(), eq(List.of("third")));
+    }
+
+    /**
+     * Test that finished jobs are removed once their time to live expired, while others are kept.
+     */
+    @Test
+    void expiredJobsAreRemoved() {
+        RegradeJob finished = regradeManager.startRegrade(task.getId());
+        Awaitility.await().until(finished::isFinished);
+        assertSame(finished, regradeManager.getJob(finished.getId()).orElseThrow());
+
+        ReflectionTestUtils.setField(regradeManager, "finishedJobTtlSeconds", 0L);
+        Awaitility.await().until(() -> regradeManager.getJob(finished.getId()).isEmpty());
+    }
+
+    private TaskResult saveTaskResult(String answer, TaskResultStatus status) {
+        TaskResult taskResult = new TaskResult();
+        taskResult.setTask(task);
+        taskResult.setAnswer(answer);
+        taskResult.setSubmissionDate(LocalDateTime.now().toString());
+        taskResult.setStatus(status);
+        return taskResultRepository.save(taskResult);
+    }
+}
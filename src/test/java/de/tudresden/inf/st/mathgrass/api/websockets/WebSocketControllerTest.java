@@ -4,7 +4,10 @@ import de.tudresden.inf.st.mathgrass.api.events.CustomEventBus;
 import de.tudresden.inf.st.mathgrass.api.events.TaskEvaluationFinishedEvent;
 import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResult;
 import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultRepository;
+import de.tudresden.inf.st.mathgrass.api.feedback.results.TaskResultStatus;
+import de.tudresden.inf.st.mathgrass.api.task.execution.EvaluationRejectedException;
 import de.tudresden.inf.st.mathgrass.api.task.execution.TaskExecutionManager;
+import de.tudresden.inf.st.mathgrass.api.task.execution.TaskSubmissionReceipt;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -16,10 +19,15 @@ import org.springframework.test.context.ActiveProfiles;
 import java.util.Optional;
 
 import static de.tudresden.inf.st.mathgrass.api.websockets.WebSocketController.ASSESSMENT_RESULT_TOPIC;
+import static de.tudresden.inf.st.mathgrass.api.websockets.WebSocketController.SUBMISSION_RECEIPT_TOPIC;
+import static de.tudresden.inf.st.mathgrass.api.websockets.WebSocketController.SUBMISSION_REJECTED_QUEUE;
 import static de.tudresden.inf.st.mathgrass.api.websockets.WebSocketController.TASK_RESULT_ID_TOPIC;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -69,13 +77,14 @@ class WebSocketControllerTest {
         Long expectedTaskResultId = 1L;
 
         // make request for task execution return expected task result id
-        when(taskExecutionManager.requestTaskExecution(anyLong(), anyString())).thenReturn(expectedTaskResultId);
+        when(taskExecutionManager.requestTaskExecution(anyLong(), anyString()))
+                .thenReturn(new TaskSubmissionReceipt(expectedTaskResultId, null));
 
         // create task submission message as input
         TaskSubmissionMessage taskSubmissionMessage = new TaskSubmissionMessage(1L, "test");
 
         // call function
-        webSocketController.evaluateTask(taskSubmissionMessage);
+        webSocketController.evaluateTask(taskSubmissionMessage, "session");
 
         // get listener from eventBus
         Object listener = eventBus.getRegisteredListeners().stream().findAny().orElse(null);
@@ -91,6 +100,60 @@ class WebSocketControllerTest {
                 expectedTaskResultId);
     }
 
+    /**
+     * Test that the result of an answer that has been evaluated inline is sent right away, without waiting for an
+     * event.
+     */
+    @Test
+    void inlineEvaluationResultIsSentImmediately() {
+        Long taskResultId = 3L;
+        TaskSubmissionReceipt receipt = new TaskSubmissionReceipt(taskResultId, true);
+        when(taskExecutionManager.requestTaskExecution(anyLong(), anyString())).thenReturn(receipt);
+
+        TaskSubmissionMessage taskSubmissionMessage = new TaskSubmissionMessage(2L, "42");
+        webSocketController.evaluateTask(taskSubmissionMessage, "session");
+
+        verify(messagingTemplate).convertAndSend(String.format(SUBMISSION_RECEIPT_TOPIC,
+                taskSubmissionMessage.getTaskId()), receipt);
+        verify(messagingTemplate).convertAndSend(String.format(ASSESSMENT_RESULT_TOPIC, taskResultId), true);
+    }
+
+    /**
+     * Test that a rejected submission is only answered to the session that submitted it.
+     */
+    @Test
+    void rejectionIsSentToSubmittingSession() {
+        when(taskExecutionManager.requestTaskExecution(anyLong(), anyString()))
+                .thenThrow(new EvaluationRejectedException("Too many evaluations are queued", 5));
+
+        webSocketController.evaluateTask(new TaskSubmissionMessage(5L, "42"), "session");
+
+        verify(messagingTemplate).convertAndSendToUser(eq("session"), eq(SUBMISSION_REJECTED_QUEUE),
+                eq(new SubmissionRejectedMessage("Too many evaluations are queued", 5)), anyMap());
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    /**
+     * Test that a listener notifies the client once if the evaluation finished before the listener has been created.
+     */
+    @Test
+    void listenerNotifiesClientIfEvaluationFinishedBeforeRegistration() {
+        Long taskResultId = 4L;
+
+        // task result has already been evaluated
+        TaskResult taskResult = new TaskResult();
+        taskResult.setAnswerTrue(true);
+        taskResult.setStatus(TaskResultStatus.EVALUATED);
+        when(taskResultRepository.findById(taskResultId)).thenReturn(Optional.of(taskResult));
+
+        webSocketController.new TaskEvaluationCompletedListener(taskResultId, messagingTemplate, taskResultRepository);
+        verify(messagingTemplate).convertAndSend(String.format(ASSESSMENT_RESULT_TOPIC, taskResultId), true);
+
+        // a late event must not notify the client again
+        eventBus.post(new TaskEvaluationFinishedEvent(taskResultId));
+        verify(messagingTemplate, times(1)).convertAndSend(String.format(ASSESSMENT_RESULT_TOPIC, taskResultId), true);
+    }
+
     /**
      * Test that the {@link de.tudresden.inf.st.mathgrass.api.websockets.WebSocketController.TaskEvaluationCompletedListener}
      * sends a message via the messaging template when the task evaluation has been completed. Also tests that listener